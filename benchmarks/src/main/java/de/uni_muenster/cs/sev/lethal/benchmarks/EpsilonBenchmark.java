@@ -0,0 +1,117 @@
+/*
+ * Copyright 2009 Dorothea Jansen <d.jansen@uni-muenster.de>, Martin Mohr <mohrfrosch@uni-muenster.de>, Irene Thesing <i_thes01@uni-muenster.de>, Anton Reis <antonreis@gmx.de>, Maria Schatz <m_scha17@uni-muenster.de>, Philipp Claves <philipp.claves@uni-muenster.de>, Sezar Jarrous <sezar.jarrous@gmail.com>
+ *
+ * This file is part of LETHAL.
+ *
+ * LETHAL is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * LETHAL is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with LETHAL.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.uni_muenster.cs.sev.lethal.benchmarks;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.uni_muenster.cs.sev.lethal.states.NamedState;
+import de.uni_muenster.cs.sev.lethal.symbol.common.RankedSymbol;
+import de.uni_muenster.cs.sev.lethal.symbol.standard.StdNamedRankedSymbol;
+import de.uni_muenster.cs.sev.lethal.treeautomata.common.FTACreator;
+import de.uni_muenster.cs.sev.lethal.treeautomata.common.FTARule;
+import de.uni_muenster.cs.sev.lethal.treeautomata.easy.EasyFTAEpsRule;
+import de.uni_muenster.cs.sev.lethal.treeautomata.easy.EasyFTARule;
+import de.uni_muenster.cs.sev.lethal.utils.RandomFTAGenerator;
+
+/**
+ * Measures the elimination of epsilon rules ({@link FTACreator#eliminateEpsilonRules}). <br>
+ * The states are divided into blocks of twenty states. The epsilon rules mostly lead from each
+ * state to states with higher numbers in its block, like in the automata created by homomorphisms,
+ * and some of them lead back, so that there are cycles.
+ *
+ * @author Martin
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EpsilonBenchmark {
+
+	/** Number of states. */
+	@Param({"1000", "100000"})
+	public int states;
+
+	/** Number of epsilon rules per state. */
+	@Param({"2"})
+	public int epsPerState;
+
+	/** Added to the default seed of the random generator. */
+	@Param({"0"})
+	public int seed;
+
+	/** One constant rule for every tenth state. */
+	private List<EasyFTARule> rules;
+
+	/** Random epsilon rules. */
+	private List<EasyFTAEpsRule> epsRules;
+
+
+	/**
+	 * Generates the rules and epsilon rules.
+	 */
+	@Setup
+	public void generateInputs() {
+		Random random = new Random(RandomFTAGenerator.DFLT_SEED + seed);
+		List<de.uni_muenster.cs.sev.lethal.states.State> qs = new ArrayList<de.uni_muenster.cs.sev.lethal.states.State>(states);
+		for (int i=0; i<states; i++)
+			qs.add(new NamedState<Integer>(i));
+		RankedSymbol a = new StdNamedRankedSymbol<String>("a", 0);
+		rules = new ArrayList<EasyFTARule>();
+		for (int i=0; i<states; i+=10)
+			rules.add(new EasyFTARule(a, qs.get(i)));
+		epsRules = new ArrayList<EasyFTAEpsRule>();
+		for (int i=0; i<states; i++)
+			for (int j=0; j<epsPerState; j++) {
+				int block = i - i%20;
+				int dest = (random.nextInt(10) == 0) ? block + random.nextInt(20) : i + 1 + random.nextInt(5);
+				if (dest >= Math.min(states, block+20))
+					continue;
+				epsRules.add(new EasyFTAEpsRule(qs.get(i), qs.get(dest)));
+			}
+	}
+
+
+	/**
+	 * Measures {@link FTACreator#eliminateEpsilonRules}.
+	 *
+	 * @return rules without epsilon rules
+	 */
+	@Benchmark
+	public Collection<FTARule<RankedSymbol,de.uni_muenster.cs.sev.lethal.states.State>> eliminateEpsilonRules() {
+		return FTACreator.eliminateEpsilonRules(rules, epsRules);
+	}
+}
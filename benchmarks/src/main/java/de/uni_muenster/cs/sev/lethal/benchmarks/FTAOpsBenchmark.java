@@ -0,0 +1,186 @@
+/*
+ * Copyright 2009 Dorothea Jansen <d.jansen@uni-muenster.de>, Martin Mohr <mohrfrosch@uni-muenster.de>, Irene Thesing <i_thes01@uni-muenster.de>, Anton Reis <antonreis@gmx.de>, Maria Schatz <m_scha17@uni-muenster.de>, Philipp Claves <philipp.claves@uni-muenster.de>, Sezar Jarrous <sezar.jarrous@gmail.com>
+ *
+ * This file is part of LETHAL.
+ *
+ * LETHAL is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * LETHAL is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with LETHAL.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.uni_muenster.cs.sev.lethal.benchmarks;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.uni_muenster.cs.sev.lethal.states.State;
+import de.uni_muenster.cs.sev.lethal.symbol.common.RankedSymbol;
+import de.uni_muenster.cs.sev.lethal.tree.common.Tree;
+import de.uni_muenster.cs.sev.lethal.tree.standard.StdTreeCreator;
+import de.uni_muenster.cs.sev.lethal.treeautomata.common.FTAOps;
+import de.uni_muenster.cs.sev.lethal.treeautomata.common.TreeSampler;
+import de.uni_muenster.cs.sev.lethal.treeautomata.easy.EasyFTA;
+import de.uni_muenster.cs.sev.lethal.treeautomata.easy.EasyFTAOps;
+import de.uni_muenster.cs.sev.lethal.utils.RandomFTAGenerator;
+
+/**
+ * Measures the constructions of {@link FTAOps} on random finite tree automata. <br>
+ * The operations are called via {@link EasyFTAOps}, which only supplies the creators
+ * for the results.
+ *
+ * @author Martin
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FTAOpsBenchmark extends RandomFTAState {
+
+	/** Deterministic automaton equivalent to the first random automaton, input of the minimization. */
+	private EasyFTA det;
+
+	/** Sampler of the deterministic automaton, with count tables filled up to the sampled sizes. */
+	private TreeSampler<RankedSymbol,State,Tree<RankedSymbol>> sampler;
+
+
+	/**
+	 * Determinizes the first random automaton for the minimization and prepares
+	 * the count tables of the sampler.
+	 */
+	@Override
+	protected void generateInputs() {
+		det = EasyFTAOps.determinize(fta1);
+		sampler = new TreeSampler<RankedSymbol,State,Tree<RankedSymbol>>(det, new StdTreeCreator<RankedSymbol>(), new Random(RandomFTAGenerator.DFLT_SEED + seed));
+		sampler.count(150);
+	}
+
+
+	/**
+	 * Measures {@link FTAOps#determinize}.
+	 *
+	 * @return deterministic automaton
+	 */
+	@Benchmark
+	public EasyFTA determinize() {
+		return EasyFTAOps.determinize(fta1);
+	}
+
+
+	/**
+	 * Measures {@link FTAOps#minimize} on a deterministic automaton.
+	 *
+	 * @return minimal automaton
+	 */
+	@Benchmark
+	public EasyFTA minimize() {
+		return EasyFTAOps.minimize(det);
+	}
+
+
+	/**
+	 * Measures {@link FTAOps#intersectionBU}.
+	 *
+	 * @return intersection automaton
+	 */
+	@Benchmark
+	public EasyFTA intersectionBU() {
+		return EasyFTAOps.intersectionBU(fta1, fta2);
+	}
+
+
+	/**
+	 * Measures {@link FTAOps#intersectionTD}.
+	 *
+	 * @return intersection automaton
+	 */
+	@Benchmark
+	public EasyFTA intersectionTD() {
+		return EasyFTAOps.intersectionTD(fta1, fta2);
+	}
+
+
+	/**
+	 * Measures {@link FTAOps#intersectionWR}.
+	 *
+	 * @return intersection automaton
+	 */
+	@Benchmark
+	public EasyFTA intersectionWR() {
+		return EasyFTAOps.intersectionWR(fta1, fta2);
+	}
+
+
+	/**
+	 * Measures {@link FTAOps#intersection} of the two random automata.
+	 *
+	 * @return intersection automaton
+	 */
+	@Benchmark
+	public EasyFTA intersection() {
+		return EasyFTAOps.intersection(Arrays.asList(fta1, fta2));
+	}
+
+
+	/**
+	 * Measures {@link FTAOps#complement}.
+	 *
+	 * @return complement automaton
+	 */
+	@Benchmark
+	public EasyFTA complement() {
+		return EasyFTAOps.complement(fta1);
+	}
+
+
+	/**
+	 * Measures {@link FTAOps#reduceFull}.
+	 *
+	 * @return reduced automaton
+	 */
+	@Benchmark
+	public EasyFTA reduceFull() {
+		return EasyFTAOps.reduceFull(fta1);
+	}
+
+
+	/**
+	 * Measures {@link FTAOps#streamTrees} by enumerating the first thousand trees
+	 * of the first automaton in the order of increasing size.
+	 *
+	 * @return number of enumerated trees
+	 */
+	@Benchmark
+	public long enumerateTrees() {
+		return EasyFTAOps.streamTrees(fta1, false, 0).limit(1000).count();
+	}
+
+
+	/**
+	 * Measures {@link TreeSampler#sample(int, int)} for trees of size between 50 and 150,
+	 * with the count tables already computed.
+	 *
+	 * @return sampled tree
+	 */
+	@Benchmark
+	public Tree<RankedSymbol> sampleTree() {
+		return sampler.sample(50, 150);
+	}
+}
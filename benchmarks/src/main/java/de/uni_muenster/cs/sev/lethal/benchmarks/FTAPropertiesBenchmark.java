@@ -0,0 +1,242 @@
+/*
+ * Copyright 2009 Dorothea Jansen <d.jansen@uni-muenster.de>, Martin Mohr <mohrfrosch@uni-muenster.de>, Irene Thesing <i_thes01@uni-muenster.de>, Anton Reis <antonreis@gmx.de>, Maria Schatz <m_scha17@uni-muenster.de>, Philipp Claves <philipp.claves@uni-muenster.de>, Sezar Jarrous <sezar.jarrous@gmail.com>
+ *
+ * This file is part of LETHAL.
+ *
+ * LETHAL is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * LETHAL is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with LETHAL.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.uni_muenster.cs.sev.lethal.benchmarks;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.uni_muenster.cs.sev.lethal.symbol.common.RankedSymbol;
+import de.uni_muenster.cs.sev.lethal.tree.common.Tree;
+import de.uni_muenster.cs.sev.lethal.treeautomata.common.FTAProperties;
+import de.uni_muenster.cs.sev.lethal.treeautomata.easy.EasyFTA;
+import de.uni_muenster.cs.sev.lethal.treeautomata.easy.EasyFTAOps;
+import de.uni_muenster.cs.sev.lethal.utils.RandomFTAGenerator;
+
+/**
+ * Measures the decision procedures of {@link FTAProperties} on random finite tree automata
+ * and random trees.
+ *
+ * @author Martin
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FTAPropertiesBenchmark extends RandomFTAState {
+
+	/** Number of nodes of the random tree. */
+	@Param({"100", "10000"})
+	public int treeSize;
+
+	/** Random tree over the alphabet of the automata. */
+	private Tree<RankedSymbol> tree;
+
+	/** Intersection of the two random automata, whose language is contained in the one of the first. */
+	private EasyFTA inter;
+
+	/** Union of the first random automaton and the intersection, which has the same language as the first. */
+	private EasyFTA union;
+
+
+	/**
+	 * Generates the random tree, the intersection automaton and the union automaton.
+	 */
+	@Override
+	protected void generateInputs() {
+		tree = new RandomInputs(RandomFTAGenerator.DFLT_SEED + seed).randomTree(alphabet, treeSize);
+		inter = EasyFTAOps.intersectionBU(fta1, fta2);
+		union = EasyFTAOps.union(fta1, inter);
+	}
+
+
+	/**
+	 * Measures {@link FTAProperties#decide}.
+	 *
+	 * @return whether the first automaton accepts the tree
+	 */
+	@Benchmark
+	public boolean decide() {
+		return FTAProperties.decide(fta1, tree);
+	}
+
+
+	/**
+	 * Measures {@link FTAProperties#subsetLanguage} on two unrelated automata,
+	 * where a counter example usually is found early.
+	 *
+	 * @return whether the language of the first automaton is contained in the one of the second
+	 */
+	@Benchmark
+	public boolean subsetLanguage() {
+		return FTAProperties.subsetLanguage(fta1, fta2);
+	}
+
+
+	/**
+	 * Measures {@link FTAProperties#subsetLanguage} in the case that the inclusion holds,
+	 * where the whole search space must be explored.
+	 *
+	 * @return true, since the intersection is contained in the first automaton
+	 */
+	@Benchmark
+	public boolean subsetLanguageHolds() {
+		return FTAProperties.subsetLanguage(inter, fta1);
+	}
+
+
+	/**
+	 * Measures the inclusion check by the emptiness of the difference automaton,
+	 * which {@link FTAProperties#subsetLanguage} used before the lazy check,
+	 * on two unrelated automata.
+	 *
+	 * @return whether the language of the first automaton is contained in the one of the second
+	 */
+	@Benchmark
+	public boolean subsetDifference() {
+		return FTAProperties.emptyLanguage(EasyFTAOps.difference(fta1, fta2));
+	}
+
+
+	/**
+	 * Measures the inclusion check by the emptiness of the difference automaton
+	 * in the case that the inclusion holds.
+	 *
+	 * @return true, since the intersection is contained in the first automaton
+	 */
+	@Benchmark
+	public boolean subsetDifferenceHolds() {
+		return FTAProperties.emptyLanguage(EasyFTAOps.difference(inter, fta1));
+	}
+
+
+	/**
+	 * Measures {@link FTAProperties#subsetLanguageAntichain} without simulation
+	 * on two unrelated automata.
+	 *
+	 * @return whether the language of the first automaton is contained in the one of the second
+	 */
+	@Benchmark
+	public boolean subsetAntichain() {
+		return FTAProperties.subsetLanguageAntichain(fta1, fta2, false);
+	}
+
+
+	/**
+	 * Measures {@link FTAProperties#subsetLanguageAntichain} without simulation
+	 * in the case that the inclusion holds.
+	 *
+	 * @return true, since the intersection is contained in the first automaton
+	 */
+	@Benchmark
+	public boolean subsetAntichainHolds() {
+		return FTAProperties.subsetLanguageAntichain(inter, fta1, false);
+	}
+
+
+	/**
+	 * Measures {@link FTAProperties#subsetLanguageAntichain} with simulation
+	 * on two unrelated automata.
+	 *
+	 * @return whether the language of the first automaton is contained in the one of the second
+	 */
+	@Benchmark
+	public boolean subsetAntichainSimulation() {
+		return FTAProperties.subsetLanguageAntichain(fta1, fta2, true);
+	}
+
+
+	/**
+	 * Measures {@link FTAProperties#subsetLanguageAntichain} with simulation
+	 * in the case that the inclusion holds.
+	 *
+	 * @return true, since the intersection is contained in the first automaton
+	 */
+	@Benchmark
+	public boolean subsetAntichainSimulationHolds() {
+		return FTAProperties.subsetLanguageAntichain(inter, fta1, true);
+	}
+
+
+	/**
+	 * Measures {@link FTAProperties#sameLanguageAntichain} with simulation in the case
+	 * that the languages are equal, where both inclusions must be explored completely.
+	 *
+	 * @return true, since the union has the same language as the first automaton
+	 */
+	@Benchmark
+	public boolean sameLanguageAntichain() {
+		return FTAProperties.sameLanguageAntichain(fta1, union, true);
+	}
+
+
+	/**
+	 * Measures {@link FTAProperties#universalLanguage} of the first random automaton
+	 * without simulation.
+	 *
+	 * @return whether the first automaton accepts all trees over the alphabet
+	 */
+	@Benchmark
+	public boolean universalLanguage() {
+		return FTAProperties.universalLanguage(fta1, Arrays.asList(alphabet), false);
+	}
+
+
+	/**
+	 * Measures {@link FTAProperties#universalLanguage} of the first random automaton
+	 * with simulation.
+	 *
+	 * @return whether the first automaton accepts all trees over the alphabet
+	 */
+	@Benchmark
+	public boolean universalLanguageSimulation() {
+		return FTAProperties.universalLanguage(fta1, Arrays.asList(alphabet), true);
+	}
+
+
+	/**
+	 * Measures {@link FTAProperties#emptyIntersection} of the two random automata.
+	 *
+	 * @return whether no tree is accepted by both automata
+	 */
+	@Benchmark
+	public boolean emptyIntersection() {
+		return FTAProperties.emptyIntersection(fta1, fta2);
+	}
+
+
+	/**
+	 * Measures {@link FTAProperties#finiteLanguage} of the first random automaton.
+	 *
+	 * @return whether the first automaton accepts finitely many trees
+	 */
+	@Benchmark
+	public boolean finiteLanguage() {
+		return FTAProperties.finiteLanguage(fta1);
+	}
+}
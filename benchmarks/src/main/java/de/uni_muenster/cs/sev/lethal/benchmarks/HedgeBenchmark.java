@@ -0,0 +1,240 @@
+/*
+ * Copyright 2009 Dorothea Jansen <d.jansen@uni-muenster.de>, Martin Mohr <mohrfrosch@uni-muenster.de>, Irene Thesing <i_thes01@uni-muenster.de>, Anton Reis <antonreis@gmx.de>, Maria Schatz <m_scha17@uni-muenster.de>, Philipp Claves <philipp.claves@uni-muenster.de>, Sezar Jarrous <sezar.jarrous@gmail.com>
+ *
+ * This file is part of LETHAL.
+ *
+ * LETHAL is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * LETHAL is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with LETHAL.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.uni_muenster.cs.sev.lethal.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.uni_muenster.cs.sev.lethal.hedgeautomaton.HAOps;
+import de.uni_muenster.cs.sev.lethal.hedgeautomaton.HedgeAutomaton;
+import de.uni_muenster.cs.sev.lethal.hedgegrammar.Concatenation;
+import de.uni_muenster.cs.sev.lethal.hedgegrammar.Epsilon;
+import de.uni_muenster.cs.sev.lethal.hedgegrammar.Function;
+import de.uni_muenster.cs.sev.lethal.hedgegrammar.GrammarRule;
+import de.uni_muenster.cs.sev.lethal.hedgegrammar.HedgeGrammar;
+import de.uni_muenster.cs.sev.lethal.hedgegrammar.Nonterminal;
+import de.uni_muenster.cs.sev.lethal.hedgegrammar.Range;
+import de.uni_muenster.cs.sev.lethal.hedgegrammar.Terminal;
+import de.uni_muenster.cs.sev.lethal.symbol.common.UnrankedSymbol;
+import de.uni_muenster.cs.sev.lethal.symbol.standard.StdNamedUnrankedSymbol;
+import de.uni_muenster.cs.sev.lethal.tree.common.Tree;
+import de.uni_muenster.cs.sev.lethal.tree.standard.StdTree;
+
+/**
+ * Measures the operations of {@link HAOps} on hedge automata of a document schema. <br>
+ * The schema describes documents like doc(head(title),body(list(entry,...,entry))),
+ * where in the nested schema an entry may contain a list again and in the flat schema
+ * it may not. The document the automata are decided on has nesting levels of lists with
+ * the given number of entries each.
+ *
+ * @author Martin
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HedgeBenchmark {
+
+	/** Symbols of the schemas. */
+	private static final UnrankedSymbol doc = new StdNamedUnrankedSymbol<String>("doc");
+	private static final UnrankedSymbol head = new StdNamedUnrankedSymbol<String>("head");
+	private static final UnrankedSymbol title = new StdNamedUnrankedSymbol<String>("title");
+	private static final UnrankedSymbol body = new StdNamedUnrankedSymbol<String>("body");
+	private static final UnrankedSymbol list = new StdNamedUnrankedSymbol<String>("list");
+	private static final UnrankedSymbol entry = new StdNamedUnrankedSymbol<String>("entry");
+
+	/** Hedge automaton of the schema where lists may be nested. */
+	private HedgeAutomaton<UnrankedSymbol,de.uni_muenster.cs.sev.lethal.states.State> nested;
+
+	/** Hedge automaton of the schema where lists may not be nested. */
+	private HedgeAutomaton<UnrankedSymbol,de.uni_muenster.cs.sev.lethal.states.State> flat;
+
+
+	/**
+	 * Document the automata are run on. Only the benchmarks taking a document depend
+	 * on its size parameters.
+	 */
+	@State(Scope.Benchmark)
+	public static class Document {
+
+		/** Number of entries of each list of the document. */
+		@Param({"10", "1000"})
+		public int width;
+
+		/** Number of nested lists of the document. */
+		@Param({"1", "10"})
+		public int nesting;
+
+		/** The document. */
+		private Tree<UnrankedSymbol> tree;
+
+
+		/**
+		 * Builds the document.
+		 */
+		@Setup
+		public void generateDocument() {
+			tree = new StdTree<UnrankedSymbol>(doc, makeList(
+					new StdTree<UnrankedSymbol>(head, makeList(new StdTree<UnrankedSymbol>(title))),
+					new StdTree<UnrankedSymbol>(body, makeList(list(nesting)))));
+		}
+
+
+		/**
+		 * Builds a list of the document, whose last entry contains the next nesting level.
+		 *
+		 * @param level number of nesting levels of the list
+		 * @return list of the document
+		 */
+		private Tree<UnrankedSymbol> list(int level) {
+			List<Tree<UnrankedSymbol>> entries = new ArrayList<Tree<UnrankedSymbol>>(width);
+			for (int i=0; i<width-1; i++)
+				entries.add(new StdTree<UnrankedSymbol>(entry));
+			if (level > 1)
+				entries.add(new StdTree<UnrankedSymbol>(entry, makeList(list(level-1))));
+			else
+				entries.add(new StdTree<UnrankedSymbol>(entry));
+			return new StdTree<UnrankedSymbol>(list, entries);
+		}
+	}
+
+
+	/**
+	 * Builds the hedge automata of the schemas.
+	 */
+	@Setup
+	public void generateAutomata() {
+		nested = schema(true).getHA();
+		flat = schema(false).getHA();
+	}
+
+
+	/**
+	 * Builds the document schema.
+	 *
+	 * @param nestedLists whether entries may contain lists
+	 * @return hedge grammar of the schema
+	 */
+	private HedgeGrammar<UnrankedSymbol> schema(boolean nestedLists) {
+		HedgeGrammar<UnrankedSymbol> g = new HedgeGrammar<UnrankedSymbol>();
+		Nonterminal<UnrankedSymbol> n_s = new Nonterminal<UnrankedSymbol>("s");
+		Nonterminal<UnrankedSymbol> n_b = new Nonterminal<UnrankedSymbol>("b");
+		Nonterminal<UnrankedSymbol> n_l = new Nonterminal<UnrankedSymbol>("l");
+		Nonterminal<UnrankedSymbol> n_e = new Nonterminal<UnrankedSymbol>("e");
+		g.addStart(n_s);
+		Terminal<UnrankedSymbol> t_entry = new Terminal<UnrankedSymbol>(entry);
+		Epsilon<UnrankedSymbol> eps = new Epsilon<UnrankedSymbol>();
+
+		g.add(new GrammarRule<UnrankedSymbol>(n_s, new Terminal<UnrankedSymbol>(doc), new Concatenation<UnrankedSymbol>(
+				new Function<UnrankedSymbol>(new Terminal<UnrankedSymbol>(head), new Function<UnrankedSymbol>(new Terminal<UnrankedSymbol>(title), eps)),
+				n_b)));
+		g.add(new GrammarRule<UnrankedSymbol>(n_b, new Terminal<UnrankedSymbol>(body), n_l));
+		g.add(new GrammarRule<UnrankedSymbol>(n_l, new Terminal<UnrankedSymbol>(list), new Range<UnrankedSymbol>(0, -1, n_e)));
+		g.add(new GrammarRule<UnrankedSymbol>(n_e, t_entry, eps));
+		if (nestedLists)
+			g.add(new GrammarRule<UnrankedSymbol>(n_e, t_entry, n_l));
+		return g;
+	}
+
+
+	/**
+	 * Puts the given trees into a list.
+	 *
+	 * @param trees trees to be put into a list
+	 * @return list of the given trees
+	 */
+	@SafeVarargs
+	private static List<Tree<UnrankedSymbol>> makeList(Tree<UnrankedSymbol>... trees) {
+		List<Tree<UnrankedSymbol>> l = new ArrayList<Tree<UnrankedSymbol>>(trees.length);
+		for (Tree<UnrankedSymbol> t: trees)
+			l.add(t);
+		return l;
+	}
+
+
+	/**
+	 * Measures {@link HAOps#decide} on the document.
+	 *
+	 * @param document document to be decided
+	 * @return true, since the document matches the nested schema
+	 */
+	@Benchmark
+	public boolean decide(Document document) {
+		return HAOps.decide(nested, document.tree);
+	}
+
+
+	/**
+	 * Measures {@link HAOps#emptyLanguage}.
+	 *
+	 * @return false, since the schema has documents
+	 */
+	@Benchmark
+	public boolean emptyLanguage() {
+		return HAOps.emptyLanguage(nested);
+	}
+
+
+	/**
+	 * Measures {@link HAOps#intersection}.
+	 *
+	 * @return intersection automaton
+	 */
+	@Benchmark
+	public Object intersection() {
+		return HAOps.intersection(flat, nested);
+	}
+
+
+	/**
+	 * Measures {@link HAOps#complement}.
+	 *
+	 * @return complement automaton
+	 */
+	@Benchmark
+	public Object complement() {
+		return HAOps.complement(flat);
+	}
+
+
+	/**
+	 * Measures {@link HAOps#subsetLanguage}.
+	 *
+	 * @return true, since flat documents are nested documents, too
+	 */
+	@Benchmark
+	public boolean subsetLanguage() {
+		return HAOps.subsetLanguage(flat, nested);
+	}
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright 2009 Dorothea Jansen <d.jansen@uni-muenster.de>, Martin Mohr <mohrfrosch@uni-muenster.de>, Irene Thesing <i_thes01@uni-muenster.de>, Anton Reis <antonreis@gmx.de>, Maria Schatz <m_scha17@uni-muenster.de>, Philipp Claves <philipp.claves@uni-muenster.de>, Sezar Jarrous <sezar.jarrous@gmail.com>
+ *
+ * This file is part of LETHAL.
+ *
+ * LETHAL is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * LETHAL is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with LETHAL.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.uni_muenster.cs.sev.lethal.benchmarks;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.uni_muenster.cs.sev.lethal.factories.InterningStateFactory;
+import de.uni_muenster.cs.sev.lethal.factories.InterningSymbolFactory;
+import de.uni_muenster.cs.sev.lethal.factories.StateFactory;
+import de.uni_muenster.cs.sev.lethal.states.State;
+import de.uni_muenster.cs.sev.lethal.treeautomata.easy.EasyFTA;
+import de.uni_muenster.cs.sev.lethal.treeautomata.easy.EasyFTAOps;
+import de.uni_muenster.cs.sev.lethal.treeautomata.easy.EasyFTARule;
+
+/**
+ * Measures the effect of {@link InterningStateFactory interned states} on constructions
+ * which create many states with large names. <br>
+ * If interning is switched on, the interning state factory is installed, which is
+ * possible since each fork runs in a new virtual machine, and the states and symbols
+ * of the random automata are replaced by interned ones.
+ *
+ * @author Martin
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class InterningBenchmark extends RandomFTAState {
+
+	/** Whether states and symbols are interned. */
+	@Param({"false", "true"})
+	public boolean interning;
+
+
+	/**
+	 * Installs the interning state factory and interns the states and symbols of
+	 * the random automata, if interning is switched on.
+	 */
+	@Override
+	protected void generateInputs() {
+		if (!interning)
+			return;
+		StateFactory.init(new InterningStateFactory());
+		InterningSymbolFactory symbolFact = new InterningSymbolFactory();
+		fta1 = intern(fta1, symbolFact);
+		fta2 = intern(fta2, symbolFact);
+	}
+
+
+	/**
+	 * Returns a copy of the given automaton with interned states and symbols.
+	 *
+	 * @param fta automaton to be copied
+	 * @param symbolFact factory for the interned symbols
+	 * @return copy of the given automaton with interned states and symbols
+	 */
+	private static EasyFTA intern(EasyFTA fta, InterningSymbolFactory symbolFact) {
+		StateFactory stateFact = StateFactory.getStateFactory();
+		List<EasyFTARule> rules = new ArrayList<EasyFTARule>();
+		for (EasyFTARule r: fta.getRules()) {
+			List<State> src = new ArrayList<State>();
+			for (State q: r.getSrcStates())
+				src.add(stateFact.makeState(q));
+			rules.add(new EasyFTARule(symbolFact.makeRankedSymbol(r.getSymbol(), r.getSymbol().getArity()), src, stateFact.makeState(r.getDestState())));
+		}
+		Set<State> finals = new HashSet<State>();
+		for (State q: fta.getFinalStates())
+			finals.add(stateFact.makeState(q));
+		return new EasyFTA(rules, finals);
+	}
+
+
+	/**
+	 * Measures the determinization, whose states are named by sets of states.
+	 *
+	 * @return deterministic automaton
+	 */
+	@Benchmark
+	public EasyFTA determinize() {
+		return EasyFTAOps.determinize(fta1);
+	}
+
+
+	/**
+	 * Measures the intersection, whose states are named by pairs of states.
+	 *
+	 * @return intersection automaton
+	 */
+	@Benchmark
+	public EasyFTA intersection() {
+		return EasyFTAOps.intersectionBU(fta1, fta2);
+	}
+}
@@ -0,0 +1,135 @@
+/*
+ * Copyright 2009 Dorothea Jansen <d.jansen@uni-muenster.de>, Martin Mohr <mohrfrosch@uni-muenster.de>, Irene Thesing <i_thes01@uni-muenster.de>, Anton Reis <antonreis@gmx.de>, Maria Schatz <m_scha17@uni-muenster.de>, Philipp Claves <philipp.claves@uni-muenster.de>, Sezar Jarrous <sezar.jarrous@gmail.com>
+ *
+ * This file is part of LETHAL.
+ *
+ * LETHAL is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * LETHAL is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with LETHAL.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.uni_muenster.cs.sev.lethal.benchmarks;
+
+import java.math.BigInteger;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.uni_muenster.cs.sev.lethal.symbol.common.RankedSymbol;
+import de.uni_muenster.cs.sev.lethal.tree.common.Tree;
+import de.uni_muenster.cs.sev.lethal.treetransducer.EasyTT;
+import de.uni_muenster.cs.sev.lethal.treetransducer.GenTT;
+import de.uni_muenster.cs.sev.lethal.treetransducer.OutputForest;
+import de.uni_muenster.cs.sev.lethal.utils.RandomFTAGenerator;
+
+/**
+ * Measures runs of a nondeterministic tree transducer on random trees: building the set of
+ * all translations ({@link GenTT#doARun}), compared to building the output forest
+ * ({@link GenTT#outputForest}) and counting or drawing translations from it. <br>
+ * Each left hand side of the tree transducer has rules into two states, so the number of
+ * translations grows exponentially with the size of the tree.
+ *
+ * @author Martin
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OutputForestBenchmark {
+
+	/** Number of symbols of the start and destination alphabets. */
+	@Param({"4"})
+	public int symbols;
+
+	/** Number of states of the tree transducer. */
+	@Param({"3"})
+	public int states;
+
+	/** Number of nodes of the random tree. */
+	@Param({"8", "16", "1000"})
+	public int treeSize;
+
+	/** Random tree transducer. */
+	private EasyTT tt;
+
+	/** Random tree over the start alphabet. */
+	private Tree<RankedSymbol> tree;
+
+	/** Source of randomness for drawing translations. */
+	private Random random;
+
+
+	/**
+	 * Generates the alphabets, the tree transducer and the tree.
+	 */
+	@Setup
+	public void generateInputs() {
+		long s = RandomFTAGenerator.DFLT_SEED;
+		RandomFTAGenerator startGen = new RandomFTAGenerator(1, symbols, 2, 0, 0, s);
+		RandomFTAGenerator destGen = new RandomFTAGenerator(1, symbols, 2, 0, 0, s+1);
+		startGen.generateAlphabet();
+		destGen.generateAlphabet();
+		RandomInputs inputs = new RandomInputs(s);
+		tt = inputs.randomTT(startGen.getSymbols(), destGen.getSymbols(), 2, true, states, 2);
+		tree = inputs.randomTree(startGen.getSymbols(), treeSize);
+		random = new Random(s);
+	}
+
+
+	/**
+	 * Measures {@link GenTT#doARun}. Only feasible for small trees.
+	 *
+	 * @return translations of the tree
+	 */
+	@Benchmark
+	public Set<Tree<RankedSymbol>> doARun() {
+		if (treeSize > 16)
+			return null;
+		return tt.doARun(tree);
+	}
+
+
+	/**
+	 * Measures building the output forest and counting its translations.
+	 *
+	 * @return number of derivations of the translations of the tree
+	 */
+	@Benchmark
+	public BigInteger count() {
+		return tt.outputForest(tree).count();
+	}
+
+
+	/**
+	 * Measures building the output forest and drawing one translation.
+	 *
+	 * @return a translation of the tree
+	 */
+	@Benchmark
+	public Tree<RankedSymbol> sample() {
+		OutputForest<RankedSymbol> forest = tt.outputForest(tree);
+		return forest.isEmpty() ? null : forest.sample(random);
+	}
+}
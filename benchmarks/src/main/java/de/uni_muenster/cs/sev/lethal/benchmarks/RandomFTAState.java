@@ -0,0 +1,94 @@
+/*
+ * Copyright 2009 Dorothea Jansen <d.jansen@uni-muenster.de>, Martin Mohr <mohrfrosch@uni-muenster.de>, Irene Thesing <i_thes01@uni-muenster.de>, Anton Reis <antonreis@gmx.de>, Maria Schatz <m_scha17@uni-muenster.de>, Philipp Claves <philipp.claves@uni-muenster.de>, Sezar Jarrous <sezar.jarrous@gmail.com>
+ *
+ * This file is part of LETHAL.
+ *
+ * LETHAL is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * LETHAL is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with LETHAL.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.uni_muenster.cs.sev.lethal.benchmarks;
+
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import de.uni_muenster.cs.sev.lethal.symbol.common.RankedSymbol;
+import de.uni_muenster.cs.sev.lethal.treeautomata.easy.EasyFTA;
+import de.uni_muenster.cs.sev.lethal.utils.RandomFTAGenerator;
+
+/**
+ * Common parameters and inputs of the benchmarks on finite tree automata. <br>
+ * Two random automata over the same alphabet are generated by a {@link RandomFTAGenerator}
+ * seeded with {@link RandomFTAGenerator#DFLT_SEED} plus the seed parameter, so the
+ * inputs are the same in every run with the same parameters.
+ *
+ * @author Martin
+ */
+@State(Scope.Benchmark)
+public abstract class RandomFTAState {
+
+	/** Number of states of the random automata. */
+	@Param({"4", "8"})
+	public int states;
+
+	/** Number of symbols of the alphabet. */
+	@Param({"4"})
+	public int symbols;
+
+	/** Maximal arity of the symbols. */
+	@Param({"2"})
+	public int arity;
+
+	/** Number of rules of the random automata. */
+	@Param({"20", "40"})
+	public int rules;
+
+	/** Added to the default seed of the random generator. */
+	@Param({"0"})
+	public int seed;
+
+	/** Alphabet of the automata. */
+	protected RankedSymbol[] alphabet;
+
+	/** First random automaton. */
+	protected EasyFTA fta1;
+
+	/** Second random automaton. */
+	protected EasyFTA fta2;
+
+
+	/**
+	 * Generates the random automata and then the further inputs of the benchmark. <br>
+	 * JMH does not specify the order of several setup methods in a class hierarchy,
+	 * so subclasses must not declare their own setup methods, but override
+	 * {@link #generateInputs()}.
+	 */
+	@Setup
+	public void generateAutomata() {
+		RandomFTAGenerator gen = new RandomFTAGenerator(states, symbols, arity, rules, Math.max(1, states/4), RandomFTAGenerator.DFLT_SEED + seed);
+		gen.generateAlphabet();
+		alphabet = gen.getSymbols();
+		fta1 = gen.generateRaw();
+		fta2 = gen.generateRaw();
+		generateInputs();
+	}
+
+
+	/**
+	 * Generates further inputs of the benchmark from the random automata.
+	 * Does nothing by default.
+	 */
+	protected void generateInputs() {
+	}
+}
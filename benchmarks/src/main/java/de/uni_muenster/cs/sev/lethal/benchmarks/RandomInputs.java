@@ -0,0 +1,249 @@
+/*
+ * Copyright 2009 Dorothea Jansen <d.jansen@uni-muenster.de>, Martin Mohr <mohrfrosch@uni-muenster.de>, Irene Thesing <i_thes01@uni-muenster.de>, Anton Reis <antonreis@gmx.de>, Maria Schatz <m_scha17@uni-muenster.de>, Philipp Claves <philipp.claves@uni-muenster.de>, Sezar Jarrous <sezar.jarrous@gmail.com>
+ *
+ * This file is part of LETHAL.
+ *
+ * LETHAL is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * LETHAL is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with LETHAL.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.uni_muenster.cs.sev.lethal.benchmarks;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import de.uni_muenster.cs.sev.lethal.hom.EasyHom;
+import de.uni_muenster.cs.sev.lethal.states.NamedState;
+import de.uni_muenster.cs.sev.lethal.states.State;
+import de.uni_muenster.cs.sev.lethal.symbol.common.BiSymbol;
+import de.uni_muenster.cs.sev.lethal.symbol.common.RankedSymbol;
+import de.uni_muenster.cs.sev.lethal.symbol.common.Variable;
+import de.uni_muenster.cs.sev.lethal.symbol.standard.InnerSymbol;
+import de.uni_muenster.cs.sev.lethal.symbol.standard.LeafSymbol;
+import de.uni_muenster.cs.sev.lethal.symbol.standard.StdVariable;
+import de.uni_muenster.cs.sev.lethal.tree.common.Tree;
+import de.uni_muenster.cs.sev.lethal.tree.standard.StdTree;
+import de.uni_muenster.cs.sev.lethal.treetransducer.EasyTT;
+import de.uni_muenster.cs.sev.lethal.treetransducer.EasyTTRule;
+import de.uni_muenster.cs.sev.lethal.utils.RandomFTAGenerator;
+
+/**
+ * Generates the random trees, homomorphisms and tree transducers the benchmarks run on.
+ * Complements {@link RandomFTAGenerator}, which generates the automata. <br>
+ * All random choices are made by one seeded random generator, so that the same seed
+ * always yields the same inputs and measurements can be compared between revisions.
+ *
+ * @author Martin
+ */
+final class RandomInputs {
+
+	/** Random generator all choices are made with. */
+	private final Random rand;
+
+
+	/**
+	 * Creates a generator of random inputs.
+	 *
+	 * @param seed seed of the random generator
+	 */
+	RandomInputs(long seed) {
+		rand = new Random(seed);
+	}
+
+
+	/**
+	 * Generates a random tree with approximately the given number of nodes. <br>
+	 * The trees are built with {@link StdTree} directly instead of a tree factory,
+	 * so that no caching of the tree factory distorts the measurements.
+	 *
+	 * @param alphabet alphabet over which the tree shall be produced, must contain
+	 * a symbol of arity 0
+	 * @param size number of nodes the tree should have
+	 * @return generated tree
+	 */
+	Tree<RankedSymbol> randomTree(RankedSymbol[] alphabet, int size) {
+		List<RankedSymbol> leaves = new ArrayList<RankedSymbol>();
+		List<RankedSymbol> inner = new ArrayList<RankedSymbol>();
+		for (RankedSymbol f: alphabet) {
+			if (f.getArity() == 0)
+				leaves.add(f);
+			else
+				inner.add(f);
+		}
+		if (leaves.isEmpty())
+			throw new IllegalArgumentException("randomTree(): alphabet must contain a symbol of arity 0.");
+		return randomTree(leaves, inner, size);
+	}
+
+
+	/**
+	 * Generates a random tree with approximately the given number of nodes, where
+	 * the nodes besides the root are distributed randomly among the subtrees.
+	 *
+	 * @param leaves symbols of arity 0
+	 * @param inner symbols of arity greater than 0
+	 * @param size number of nodes the tree should have
+	 * @return generated tree
+	 */
+	private Tree<RankedSymbol> randomTree(List<RankedSymbol> leaves, List<RankedSymbol> inner, int size) {
+		if (size <= 1 || inner.isEmpty())
+			return new StdTree<RankedSymbol>(leaves.get(rand.nextInt(leaves.size())));
+		RankedSymbol root = inner.get(rand.nextInt(inner.size()));
+		int n = root.getArity();
+		int[] sizes = new int[n];
+		for (int i=0; i<size-1; i++)
+			sizes[rand.nextInt(n)]++;
+		List<Tree<RankedSymbol>> subTrees = new ArrayList<Tree<RankedSymbol>>(n);
+		for (int i=0; i<n; i++)
+			subTrees.add(randomTree(leaves, inner, sizes[i]));
+		return new StdTree<RankedSymbol>(root, subTrees);
+	}
+
+
+	/**
+	 * Generates a random tree over ranked symbols and variables.
+	 *
+	 * @param alphabet alphabet of ranked symbols, must contain a symbol of arity 0
+	 * @param vars variables which may occur in the tree
+	 * @param maxHeight maximal height of the tree
+	 * @param linear whether each variable shall occur at most once
+	 * @return generated tree
+	 */
+	Tree<BiSymbol<RankedSymbol,Variable>> randomVarTree(RankedSymbol[] alphabet, List<Variable> vars, int maxHeight, boolean linear) {
+		if (maxHeight <= 0) {
+			List<RankedSymbol> leaves = new ArrayList<RankedSymbol>();
+			for (RankedSymbol f: alphabet) {
+				if (f.getArity() == 0)
+					leaves.add(f);
+			}
+			int c = rand.nextInt(leaves.size() + vars.size());
+			if (c < vars.size()) {
+				Variable x = linear ? vars.remove(c) : vars.get(c);
+				return new StdTree<BiSymbol<RankedSymbol,Variable>>(new LeafSymbol<RankedSymbol,Variable>(x));
+			}
+			return new StdTree<BiSymbol<RankedSymbol,Variable>>(new InnerSymbol<RankedSymbol,Variable>(leaves.get(c - vars.size())));
+		}
+		RankedSymbol root = alphabet[rand.nextInt(alphabet.length)];
+		List<Tree<BiSymbol<RankedSymbol,Variable>>> subTrees = new ArrayList<Tree<BiSymbol<RankedSymbol,Variable>>>(root.getArity());
+		for (int i=0; i<root.getArity(); i++)
+			subTrees.add(randomVarTree(alphabet, vars, maxHeight-1, linear));
+		return new StdTree<BiSymbol<RankedSymbol,Variable>>(new InnerSymbol<RankedSymbol,Variable>(root), subTrees);
+	}
+
+
+	/**
+	 * Creates the variables x_0,...,x_{n-1}.
+	 *
+	 * @param n number of variables
+	 * @return list of the variables
+	 */
+	private static List<Variable> variables(int n) {
+		List<Variable> vars = new ArrayList<Variable>(n);
+		for (int i=0; i<n; i++)
+			vars.add(new StdVariable(i));
+		return vars;
+	}
+
+
+	/**
+	 * Generates a random homomorphism, which maps each symbol of the start alphabet
+	 * to a random tree over the destination alphabet.
+	 *
+	 * @param startAlph start alphabet
+	 * @param destAlph destination alphabet, must contain a symbol of arity 0
+	 * @param maxImageHeight maximal height of the images
+	 * @param linear whether the homomorphism shall be linear
+	 * @return generated homomorphism
+	 */
+	EasyHom randomHom(RankedSymbol[] startAlph, RankedSymbol[] destAlph, int maxImageHeight, boolean linear) {
+		Map<RankedSymbol,Tree<? extends BiSymbol<RankedSymbol,Variable>>> h = new HashMap<RankedSymbol,Tree<? extends BiSymbol<RankedSymbol,Variable>>>();
+		for (RankedSymbol f: startAlph)
+			h.put(f, randomVarTree(destAlph, variables(f.getArity()), maxImageHeight, linear));
+		return new EasyHom(h);
+	}
+
+
+	/**
+	 * Generates a random deterministic and complete tree transducer, in which all states are final.
+	 * Hence the transducer translates every tree over the start alphabet into exactly one tree,
+	 * so that the cost of a run grows with the size of the tree only and does not depend on how
+	 * many of the random trees happen to be accepted. <br>
+	 * For each symbol f of arity n and each sequence of n states, there is a rule with random
+	 * destination state and random right hand side, so the number of rules grows with
+	 * numStates^maxArity.
+	 *
+	 * @param startAlph start alphabet
+	 * @param destAlph destination alphabet, must contain a symbol of arity 0
+	 * @param maxImageHeight maximal height of the right hand sides of the rules
+	 * @param linear whether the tree transducer shall be linear
+	 * @param numStates number of states
+	 * @return generated tree transducer
+	 */
+	EasyTT randomTT(RankedSymbol[] startAlph, RankedSymbol[] destAlph, int maxImageHeight, boolean linear, int numStates) {
+		return randomTT(startAlph, destAlph, maxImageHeight, linear, numStates, 1);
+	}
+
+
+	/**
+	 * Generates a random complete tree transducer, in which all states are final and each left hand
+	 * side has rules into the given number of different destination states. With more than one
+	 * destination state, the number of translations of a tree grows exponentially with its size.
+	 *
+	 * @param startAlph start alphabet
+	 * @param destAlph destination alphabet, must contain a symbol of arity 0
+	 * @param maxImageHeight maximal height of the right hand sides of the rules
+	 * @param linear whether the tree transducer shall be linear
+	 * @param numStates number of states
+	 * @param destinations number of rules per left hand side, at most numStates
+	 * @return generated tree transducer
+	 */
+	EasyTT randomTT(RankedSymbol[] startAlph, RankedSymbol[] destAlph, int maxImageHeight, boolean linear, int numStates, int destinations) {
+		List<State> states = new ArrayList<State>(numStates);
+		for (int i=0; i<numStates; i++)
+			states.add(new NamedState<Integer>(i));
+		List<EasyTTRule> rules = new ArrayList<EasyTTRule>();
+		for (RankedSymbol f: startAlph) {
+			int n = f.getArity();
+			int[] src = new int[n];
+			boolean more = true;
+			while (more) {
+				List<State> srcStates = new ArrayList<State>(n);
+				for (int i=0; i<n; i++)
+					srcStates.add(states.get(src[i]));
+				List<State> dests;
+				if (destinations == 1)
+					dests = Collections.singletonList(states.get(rand.nextInt(numStates)));
+				else {
+					dests = new ArrayList<State>(states);
+					Collections.shuffle(dests, rand);
+				}
+				for (State dest: dests.subList(0, destinations))
+					rules.add(new EasyTTRule(f, srcStates, dest, randomVarTree(destAlph, variables(n), maxImageHeight, linear)));
+				// next sequence of source states
+				more = false;
+				for (int i=n-1; i>=0 && !more; i--) {
+					src[i]++;
+					if (src[i] < numStates)
+						more = true;
+					else
+						src[i] = 0;
+				}
+			}
+		}
+		return new EasyTT(states, Arrays.asList(startAlph), Arrays.asList(destAlph), rules);
+	}
+}
@@ -0,0 +1,145 @@
+/*
+ * Copyright 2009 Dorothea Jansen <d.jansen@uni-muenster.de>, Martin Mohr <mohrfrosch@uni-muenster.de>, Irene Thesing <i_thes01@uni-muenster.de>, Anton Reis <antonreis@gmx.de>, Maria Schatz <m_scha17@uni-muenster.de>, Philipp Claves <philipp.claves@uni-muenster.de>, Sezar Jarrous <sezar.jarrous@gmail.com>
+ *
+ * This file is part of LETHAL.
+ *
+ * LETHAL is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * LETHAL is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with LETHAL.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.uni_muenster.cs.sev.lethal.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.uni_muenster.cs.sev.lethal.hedgeautomaton.HAOps;
+import de.uni_muenster.cs.sev.lethal.hedgeautomaton.HedgeAutomaton;
+import de.uni_muenster.cs.sev.lethal.hedgegrammar.Epsilon;
+import de.uni_muenster.cs.sev.lethal.hedgegrammar.Function;
+import de.uni_muenster.cs.sev.lethal.hedgegrammar.GrammarRule;
+import de.uni_muenster.cs.sev.lethal.hedgegrammar.HedgeGrammar;
+import de.uni_muenster.cs.sev.lethal.hedgegrammar.Nonterminal;
+import de.uni_muenster.cs.sev.lethal.hedgegrammar.Range;
+import de.uni_muenster.cs.sev.lethal.hedgegrammar.Terminal;
+import de.uni_muenster.cs.sev.lethal.symbol.common.UnrankedSymbol;
+import de.uni_muenster.cs.sev.lethal.symbol.standard.StdNamedUnrankedSymbol;
+import de.uni_muenster.cs.sev.lethal.tree.common.Tree;
+import de.uni_muenster.cs.sev.lethal.tree.standard.StdTree;
+
+/**
+ * Measures hedge automata of a content model with a bounded repetition list(item{0,bound})
+ * for increasing bounds: the size of the finite tree automaton they are transformed into,
+ * which grows with the bound, and deciding a document with {@link HAOps#decide}, which
+ * counts the repetitions instead.
+ *
+ * @author Martin
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RepetitionBenchmark {
+
+	/** Symbols of the content model. */
+	private static final UnrankedSymbol list = new StdNamedUnrankedSymbol<String>("list");
+	private static final UnrankedSymbol item = new StdNamedUnrankedSymbol<String>("item");
+
+	/** Number of items of the document. */
+	private static final int ITEMS = 10;
+
+	/** Upper bound of the repetition of items. */
+	@Param({"10", "100", "1000", "10000"})
+	public int bound;
+
+	/** Hedge automaton of the content model, used again by each invocation. */
+	private HedgeAutomaton<UnrankedSymbol,de.uni_muenster.cs.sev.lethal.states.State> ha;
+
+	/** Document the automata are run on. */
+	private Tree<UnrankedSymbol> document;
+
+
+	/**
+	 * Builds the hedge automaton and the document.
+	 */
+	@Setup
+	public void generate() {
+		ha = grammar().getHA();
+		List<Tree<UnrankedSymbol>> items = new ArrayList<Tree<UnrankedSymbol>>(ITEMS);
+		for (int i=0; i<ITEMS; i++)
+			items.add(new StdTree<UnrankedSymbol>(item));
+		document = new StdTree<UnrankedSymbol>(list, items);
+	}
+
+
+	/**
+	 * Builds the hedge grammar of the content model.
+	 *
+	 * @return hedge grammar of the content model
+	 */
+	private HedgeGrammar<UnrankedSymbol> grammar() {
+		HedgeGrammar<UnrankedSymbol> g = new HedgeGrammar<UnrankedSymbol>();
+		Nonterminal<UnrankedSymbol> n_l = new Nonterminal<UnrankedSymbol>("l");
+		g.addStart(n_l);
+		g.add(new GrammarRule<UnrankedSymbol>(n_l, new Terminal<UnrankedSymbol>(list), new Range<UnrankedSymbol>(0, bound,
+				new Function<UnrankedSymbol>(new Terminal<UnrankedSymbol>(item), new Epsilon<UnrankedSymbol>()))));
+		return g;
+	}
+
+
+	/**
+	 * Measures transforming a new hedge automaton of the content model into a finite tree automaton.
+	 *
+	 * @return number of rules of the finite tree automaton
+	 */
+	@Benchmark
+	public int transform() {
+		return grammar().getHA().getTA().getRules().size();
+	}
+
+
+	/**
+	 * Measures {@link HAOps#decide} on a new hedge automaton of the content model, including
+	 * everything which is computed from the automaton for deciding.
+	 *
+	 * @return true, since the document matches the content model
+	 */
+	@Benchmark
+	public boolean decideNew() {
+		return HAOps.decide(grammar().getHA(), document);
+	}
+
+
+	/**
+	 * Measures {@link HAOps#decide} on the same hedge automaton each time.
+	 *
+	 * @return true, since the document matches the content model
+	 */
+	@Benchmark
+	public boolean decide() {
+		return HAOps.decide(ha, document);
+	}
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright 2009 Dorothea Jansen <d.jansen@uni-muenster.de>, Martin Mohr <mohrfrosch@uni-muenster.de>, Irene Thesing <i_thes01@uni-muenster.de>, Anton Reis <antonreis@gmx.de>, Maria Schatz <m_scha17@uni-muenster.de>, Philipp Claves <philipp.claves@uni-muenster.de>, Sezar Jarrous <sezar.jarrous@gmail.com>
+ *
+ * This file is part of LETHAL.
+ *
+ * LETHAL is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * LETHAL is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with LETHAL.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.uni_muenster.cs.sev.lethal.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.uni_muenster.cs.sev.lethal.states.NamedState;
+import de.uni_muenster.cs.sev.lethal.symbol.common.RankedSymbol;
+import de.uni_muenster.cs.sev.lethal.symbol.standard.StdNamedRankedSymbol;
+import de.uni_muenster.cs.sev.lethal.treeautomata.easy.EasyFTA;
+import de.uni_muenster.cs.sev.lethal.treeautomata.easy.EasyFTAOps;
+import de.uni_muenster.cs.sev.lethal.treeautomata.easy.EasyFTARule;
+import de.uni_muenster.cs.sev.lethal.treeautomata.symbolic.SymbolicFTA;
+import de.uni_muenster.cs.sev.lethal.treeautomata.symbolic.SymbolicFTAOps;
+
+/**
+ * Compares the complementation of a finite tree automaton over a large alphabet, like the
+ * element names of XML documents, with the complementation of the corresponding
+ * {@link SymbolicFTA symbolic finite tree automaton}. <br>
+ * The automaton accepts the binary trees over the symbol f whose leaves are among the
+ * first half of the constants; the other constants occur in the alphabet only.
+ *
+ * @author Martin
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SymbolicBenchmark {
+
+	/** Number of constants. */
+	@Param({"1000", "10000"})
+	public int symbols;
+
+	/** Finite tree automaton with a rule for half of the constants. */
+	private EasyFTA fta;
+
+	/** The same automaton as symbolic finite tree automaton. */
+	private SymbolicFTA<RankedSymbol,de.uni_muenster.cs.sev.lethal.states.State> sym;
+
+
+	/**
+	 * Generates the automata.
+	 */
+	@Setup
+	public void generateInputs() {
+		de.uni_muenster.cs.sev.lethal.states.State q = new NamedState<String>("q");
+		RankedSymbol f = new StdNamedRankedSymbol<String>("f", 2);
+		List<EasyFTARule> rules = new ArrayList<EasyFTARule>();
+		List<RankedSymbol> alphabet = new ArrayList<RankedSymbol>();
+		alphabet.add(f);
+		for (int i=0; i<symbols; i++) {
+			RankedSymbol a = new StdNamedRankedSymbol<String>("e" + i, 0);
+			alphabet.add(a);
+			if (i < symbols/2)
+				rules.add(new EasyFTARule(a, q));
+		}
+		rules.add(new EasyFTARule(f, q, q, q));
+		List<de.uni_muenster.cs.sev.lethal.states.State> states = new ArrayList<de.uni_muenster.cs.sev.lethal.states.State>();
+		states.add(q);
+		fta = new EasyFTA(alphabet, states, states, rules);
+		sym = SymbolicFTAOps.fromFTA(fta);
+	}
+
+
+	/**
+	 * Measures {@link EasyFTAOps#complement}, which creates a rule for each constant.
+	 *
+	 * @return complement automaton
+	 */
+	@Benchmark
+	public EasyFTA complement() {
+		return EasyFTAOps.complement(fta);
+	}
+
+
+	/**
+	 * Measures {@link SymbolicFTAOps#complement}, whose number of rules does not depend on
+	 * the number of constants.
+	 *
+	 * @return complement automaton
+	 */
+	@Benchmark
+	public SymbolicFTA<RankedSymbol,NamedState<Set<de.uni_muenster.cs.sev.lethal.states.State>>> complementSymbolic() {
+		return SymbolicFTAOps.complement(sym);
+	}
+}
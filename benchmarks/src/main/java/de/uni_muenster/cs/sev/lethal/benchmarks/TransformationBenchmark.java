@@ -0,0 +1,145 @@
+/*
+ * Copyright 2009 Dorothea Jansen <d.jansen@uni-muenster.de>, Martin Mohr <mohrfrosch@uni-muenster.de>, Irene Thesing <i_thes01@uni-muenster.de>, Anton Reis <antonreis@gmx.de>, Maria Schatz <m_scha17@uni-muenster.de>, Philipp Claves <philipp.claves@uni-muenster.de>, Sezar Jarrous <sezar.jarrous@gmail.com>
+ *
+ * This file is part of LETHAL.
+ *
+ * LETHAL is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * LETHAL is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with LETHAL.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.uni_muenster.cs.sev.lethal.benchmarks;
+
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.uni_muenster.cs.sev.lethal.hom.EasyHom;
+import de.uni_muenster.cs.sev.lethal.hom.HomOps;
+import de.uni_muenster.cs.sev.lethal.symbol.common.RankedSymbol;
+import de.uni_muenster.cs.sev.lethal.tree.common.Tree;
+import de.uni_muenster.cs.sev.lethal.tree.standard.StdTreeCreator;
+import de.uni_muenster.cs.sev.lethal.treetransducer.EasyTT;
+import de.uni_muenster.cs.sev.lethal.treetransducer.GenTT;
+import de.uni_muenster.cs.sev.lethal.utils.RandomFTAGenerator;
+
+/**
+ * Measures the application of homomorphisms ({@link HomOps#apply}) and tree transducers
+ * ({@link GenTT#doARun}) to random trees. <br>
+ * The tree transducer is deterministic and complete, so that each run yields exactly one tree.
+ * It has a rule for each symbol and sequence of source states, so the number of rules per symbol
+ * grows with the number of states.
+ *
+ * @author Martin
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TransformationBenchmark {
+
+	/** Number of symbols of the start and destination alphabets. */
+	@Param({"4"})
+	public int symbols;
+
+	/** Maximal arity of the symbols. */
+	@Param({"2"})
+	public int arity;
+
+	/** Number of states of the tree transducer. */
+	@Param({"3", "10"})
+	public int states;
+
+	/** Maximal height of the images of the homomorphism and of the right hand sides of the transducer. */
+	@Param({"2"})
+	public int imageHeight;
+
+	/** Number of nodes of the random tree. */
+	@Param({"100", "10000"})
+	public int treeSize;
+
+	/** Added to the default seed of the random generators. */
+	@Param({"0"})
+	public int seed;
+
+	/** Random homomorphism. */
+	private EasyHom hom;
+
+	/** Random tree transducer. */
+	private EasyTT tt;
+
+	/** Random tree over the start alphabet. */
+	private Tree<RankedSymbol> tree;
+
+
+	/**
+	 * Generates the alphabets, the homomorphism, the tree transducer and the tree.
+	 */
+	@Setup
+	public void generateInputs() {
+		long s = RandomFTAGenerator.DFLT_SEED + seed;
+		RandomFTAGenerator startGen = new RandomFTAGenerator(1, symbols, arity, 0, 0, s);
+		RandomFTAGenerator destGen = new RandomFTAGenerator(1, symbols, arity, 0, 0, s+1);
+		startGen.generateAlphabet();
+		destGen.generateAlphabet();
+		RandomInputs inputs = new RandomInputs(s);
+		hom = inputs.randomHom(startGen.getSymbols(), destGen.getSymbols(), imageHeight, true);
+		tt = inputs.randomTT(startGen.getSymbols(), destGen.getSymbols(), imageHeight, true, states);
+		tree = inputs.randomTree(startGen.getSymbols(), treeSize);
+	}
+
+
+	/**
+	 * Measures {@link HomOps#apply}.
+	 *
+	 * @return image of the tree
+	 */
+	@Benchmark
+	public Tree<RankedSymbol> homApply() {
+		return HomOps.apply(hom, tree, new StdTreeCreator<RankedSymbol>());
+	}
+
+
+	/**
+	 * Measures {@link GenTT#doARun}.
+	 *
+	 * @return translations of the tree
+	 */
+	@Benchmark
+	public Set<Tree<RankedSymbol>> ttDoARun() {
+		return tt.doARun(tree);
+	}
+
+
+	/**
+	 * Measures {@link GenTT#decide}, which looks up the rules for the states of the subtrees
+	 * of each node.
+	 *
+	 * @return whether the tree transducer accepts the tree
+	 */
+	@Benchmark
+	public boolean ttDecide() {
+		return tt.decide(tree);
+	}
+}
@@ -20,6 +20,7 @@ package de.uni_muenster.cs.sev.lethal.script;
 
 
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -246,7 +247,7 @@ class FTAObject extends ScriptObject{
 			public ScriptObject execute(Environment env, List<ScriptObject> args, MethodObject block) {
 				 Tree<RankedSymbol> tree;
 				 if (args.size() == 0){
-					 tree = EasyFTAOps.constructTreeFrom(FTAObject.this.automaton);
+					 tree = EasyFTAOps.streamTrees(FTAObject.this.automaton, false, 0).findFirst().orElse(null);
 				 } else {
 					 if (!(args.get(0) instanceof IntegerObject)) throw new ScriptRuntimeError("FTA.example_tree() expectes none or Integer argument");
 					 int minHeight = ((IntegerObject)args.get(0)).getValue();
@@ -256,6 +257,20 @@ class FTAObject extends ScriptObject{
 			}
 		}));
 
+		this.setMember("example_trees", this.setMember("exampleTrees", new Method(1){
+			@Override
+			public ScriptObject execute(Environment env, List<ScriptObject> args, MethodObject block) {
+				if (!(args.get(0) instanceof IntegerObject)) throw new ScriptRuntimeError("FTA.example_trees() expects Integer argument");
+				int count = ((IntegerObject)args.get(0)).getValue();
+				if (count < 0) throw new ScriptRuntimeError("FTA.example_trees() expects a non-negative number of trees");
+				List<ScriptObject> trees = new ArrayList<ScriptObject>(count);
+				Iterator<Tree<RankedSymbol>> it = EasyFTAOps.streamTrees(FTAObject.this.automaton, false, 0).limit(count).iterator();
+				while (it.hasNext())
+					trees.add(new TreeObject(it.next()));
+				return new ArrayObject(trees);
+			}
+		}));
+
 		this.setMember("rename_states", new Method(0){
 			@Override
 			public ScriptObject execute(Environment env, List<ScriptObject> args, final MethodObject block) {
@@ -0,0 +1,321 @@
+/*
+ * Copyright 2009 Dorothea Jansen <d.jansen@uni-muenster.de>, Martin Mohr <mohrfrosch@uni-muenster.de>, Irene Thesing <i_thes01@uni-muenster.de>, Anton Reis <antonreis@gmx.de>, Maria Schatz <m_scha17@uni-muenster.de>, Philipp Claves <philipp.claves@uni-muenster.de>, Sezar Jarrous <sezar.jarrous@gmail.com>
+ *
+ * This file is part of LETHAL.
+ *
+ * LETHAL is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * LETHAL is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with LETHAL.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.uni_muenster.cs.sev.lethal.factories;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+import de.uni_muenster.cs.sev.lethal.symbol.common.Symbol;
+import de.uni_muenster.cs.sev.lethal.tree.common.Tree;
+import de.uni_muenster.cs.sev.lethal.tree.standard.StdTree;
+
+/**
+ * Factory for creating maximally shared trees.<br>
+ * <br>
+ * Each tree created by this factory is interned: for structurally equal trees the same
+ * object is returned, and the subtrees are interned as well, even if they were created
+ * elsewhere. Thus identical subtrees share one node, a tree is stored as directed acyclic
+ * graph, and two trees of the same factory are equal if and only if they are the same object.
+ * The interning table is looked up with the root symbol and the identities of the already
+ * interned subtrees, so interning a node costs time proportional to its number of subtrees. <br>
+ * The table only holds weak references to the trees, so trees which are not used any more
+ * can be garbage collected. The factory can be used from several threads at once.
+ *
+ * @see de.uni_muenster.cs.sev.lethal.tree.standard.HashConsingTreeCreator
+ * @see de.uni_muenster.cs.sev.lethal.treeautomata.common.FTAProperties#decideDAG
+ *
+ * @author Martin
+ */
+public class HashConsingTreeFactory extends TreeFactory {
+
+	/** Interned trees, indexed by root symbol and subtrees. */
+	private final ConcurrentHashMap<Key, Entry> table = new ConcurrentHashMap<Key, Entry>();
+
+	/** Queue of the entries whose trees have been garbage collected. */
+	private final ReferenceQueue<SharedTree<?>> collected = new ReferenceQueue<SharedTree<?>>();
+
+
+	/**
+	 * Creates a tree with no subtrees (that means a leaf) from a given symbol.<br>
+	 * If there already is such a tree, it is returned.
+	 * @param <S> type of the symbol
+	 * @param rootSymbol symbol of the tree root
+	 * @return the interned tree with no subtrees and the given symbol
+	 */
+	@Override
+	public <S extends Symbol> Tree<S> makeTreeFromSymbol(S rootSymbol) {
+		return makeTreeFromSymbol(rootSymbol, Collections.<Tree<S>>emptyList());
+	}
+
+
+	/**
+	 * Creates a tree with the given subtrees.<br>
+	 * The subtrees are interned first. If there already is a tree with the same symbol and
+	 * subtrees, it is returned.
+	 * @param <S> type of the symbol
+	 * @param rootSymbol symbol of the tree root
+	 * @param subtrees subtrees of the tree
+	 * @return the interned tree with the given symbol and subtrees
+	 */
+	@Override
+	public <S extends Symbol> Tree<S> makeTreeFromSymbol(S rootSymbol, List<? extends Tree<S>> subtrees) {
+		if (rootSymbol == null) throw new IllegalArgumentException("makeTreeFromSymbol(): rootSymbol must not be null.");
+		if (subtrees == null) throw new IllegalArgumentException("makeTreeFromSymbol(): subtrees must not be null.");
+		List<Tree<S>> shared = new ArrayList<Tree<S>>(subtrees.size());
+		for (Tree<S> t: subtrees)
+			shared.add(intern(t));
+		return lookup(rootSymbol, Collections.unmodifiableList(shared));
+	}
+
+
+	/**
+	 * Returns the interned version of the given tree, which is equal to the given tree.
+	 * If the given tree has been created by this factory, it is returned itself. <br>
+	 * The tree is interned bottom-up in post-order with an explicit stack, like
+	 * {@link de.uni_muenster.cs.sev.lethal.tree.common.TreeFolder TreeFolder} traverses trees,
+	 * so arbitrarily deep trees can be interned. Subtrees which are interned already
+	 * are not traversed.
+	 * @param <S> type of the symbol
+	 * @param tree tree to be interned
+	 * @return the interned tree equal to the given tree
+	 */
+	public <S extends Symbol> Tree<S> intern(Tree<S> tree) {
+		if (tree == null) throw new IllegalArgumentException("intern(): tree must not be null.");
+		if (isInterned(tree))
+			return tree;
+		List<Tree<S>> path = new ArrayList<Tree<S>>();
+		int[] next = new int[16];
+		List<Tree<S>> shared = new ArrayList<Tree<S>>();
+		path.add(tree);
+		while (!path.isEmpty()) {
+			int top = path.size()-1;
+			Tree<S> node = path.get(top);
+			List<? extends Tree<S>> subTrees = node.getSubTrees();
+			int i = next[top];
+			if (i < subTrees.size()) {
+				next[top] = i+1;
+				Tree<S> sub = subTrees.get(i);
+				if (sub == null) throw new IllegalArgumentException("intern(): tree must not be null.");
+				if (isInterned(sub)) {
+					shared.add(sub);
+					continue;
+				}
+				if (top+1 == next.length) {
+					int[] newNext = new int[2*next.length];
+					System.arraycopy(next, 0, newNext, 0, next.length);
+					next = newNext;
+				}
+				next[top+1] = 0;
+				path.add(sub);
+			} else {
+				int n = shared.size();
+				List<Tree<S>> subShared = shared.subList(n-subTrees.size(), n);
+				Tree<S> interned = lookup(node.getSymbol(), Collections.unmodifiableList(new ArrayList<Tree<S>>(subShared)));
+				subShared.clear();
+				shared.add(interned);
+				path.remove(top);
+			}
+		}
+		return shared.get(0);
+	}
+
+
+	/**
+	 * Returns whether the given tree has been created by this factory, i.e. whether it is interned.
+	 * @param tree tree to be checked
+	 * @return true if the given tree has been created by this factory
+	 */
+	public boolean isInterned(Tree<?> tree) {
+		return tree instanceof SharedTree<?> && ((SharedTree<?>)tree).getFactory() == this;
+	}
+
+
+	/**
+	 * Returns the number of interned trees which have not been garbage collected yet.
+	 * @return the number of distinct trees currently held by this factory
+	 */
+	public int size() {
+		expunge();
+		return table.size();
+	}
+
+
+	/**
+	 * Returns the interned tree with the given symbol and already interned subtrees,
+	 * creating it if necessary.
+	 */
+	@SuppressWarnings("unchecked")
+	private <S extends Symbol> Tree<S> lookup(S symbol, List<Tree<S>> subtrees) {
+		expunge();
+		Key key = new Key(symbol, subtrees);
+		while (true) {
+			Entry old = table.get(key);
+			if (old != null) {
+				SharedTree<?> tree = old.get();
+				/*
+				 * The key contains the symbol and the subtrees, so the tree found
+				 * has the same symbol type.
+				 */
+				if (tree != null)
+					return (SharedTree<S>)tree;
+			}
+			SharedTree<S> tree = new SharedTree<S>(symbol, subtrees);
+			Entry entry = new Entry(tree, key, collected);
+			if (old == null ? table.putIfAbsent(key, entry) == null : table.replace(key, old, entry))
+				return tree;
+		}
+	}
+
+
+	/**
+	 * Removes the entries of garbage collected trees from the table.
+	 */
+	private void expunge() {
+		Object ref;
+		while ((ref = collected.poll()) != null) {
+			Entry entry = (Entry)ref;
+			table.remove(entry.key, entry);
+		}
+	}
+
+
+	/**
+	 * Key of the interning table, consisting of a root symbol and interned subtrees,
+	 * which are compared by identity.
+	 */
+	private static final class Key {
+
+		/** Root symbol. */
+		private final Symbol symbol;
+
+		/** Interned subtrees. */
+		private final List<? extends Tree<?>> subtrees;
+
+		/** Precomputed hash code. */
+		private final int hash;
+
+
+		/**
+		 * Creates a key.
+		 * @param symbol root symbol
+		 * @param subtrees interned subtrees
+		 */
+		private Key(Symbol symbol, List<? extends Tree<?>> subtrees) {
+			this.symbol = symbol;
+			this.subtrees = subtrees;
+			int h = symbol.hashCode();
+			for (Tree<?> t: subtrees)
+				h = 31*h + System.identityHashCode(t);
+			this.hash = h;
+		}
+
+
+		/**
+		 * @see java.lang.Object#hashCode()
+		 */
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+
+
+		/**
+		 * @see java.lang.Object#equals(java.lang.Object)
+		 */
+		@Override
+		public boolean equals(Object o) {
+			if (o == this) return true;
+			if (!(o instanceof Key)) return false;
+			Key k = (Key)o;
+			if (hash != k.hash || subtrees.size() != k.subtrees.size() || !symbol.equals(k.symbol))
+				return false;
+			for (int i=0; i<subtrees.size(); i++)
+				if (subtrees.get(i) != k.subtrees.get(i))
+					return false;
+			return true;
+		}
+	}
+
+
+	/**
+	 * Weak reference to an interned tree, which remembers its key for removal.
+	 */
+	private static final class Entry extends WeakReference<SharedTree<?>> {
+
+		/** Key of the referenced tree. */
+		private final Key key;
+
+
+		/**
+		 * Creates an entry.
+		 * @param tree interned tree
+		 * @param key key of the tree
+		 * @param queue queue the entry is put into after the tree has been collected
+		 */
+		private Entry(SharedTree<?> tree, Key key, ReferenceQueue<SharedTree<?>> queue) {
+			super(tree, queue);
+			this.key = key;
+		}
+	}
+
+
+	/**
+	 * Trees created by this factory. Since equal trees of one factory are the same object,
+	 * they are compared by reference. The hash code is the one of {@link StdTree}, so shared
+	 * trees can be mixed with other trees in hash based collections.
+	 *
+	 * @param <S> type of the tree symbol
+	 */
+	private final class SharedTree<S extends Symbol> extends StdTree<S> {
+
+		/**
+		 * Constructs a new tree with interned subtrees.
+		 * @param symbol root symbol of the tree
+		 * @param subtrees interned subtrees of the tree
+		 */
+		private SharedTree(S symbol, List<? extends Tree<S>> subtrees) {
+			super(symbol, subtrees);
+		}
+
+
+		/**
+		 * Returns the factory which created this tree.
+		 * @return the factory which created this tree
+		 */
+		private HashConsingTreeFactory getFactory() {
+			return HashConsingTreeFactory.this;
+		}
+
+
+		/**
+		 * @see de.uni_muenster.cs.sev.lethal.tree.standard.StdAbstractTree#equals(java.lang.Object)
+		 */
+		@Override
+		public boolean equals(Object t) {
+			if (t == this) return true;
+			if (t instanceof SharedTree<?> && ((SharedTree<?>)t).getFactory() == getFactory())
+				return false;
+			return super.equals(t);
+		}
+	}
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright 2009 Dorothea Jansen <d.jansen@uni-muenster.de>, Martin Mohr <mohrfrosch@uni-muenster.de>, Irene Thesing <i_thes01@uni-muenster.de>, Anton Reis <antonreis@gmx.de>, Maria Schatz <m_scha17@uni-muenster.de>, Philipp Claves <philipp.claves@uni-muenster.de>, Sezar Jarrous <sezar.jarrous@gmail.com>
+ *
+ * This file is part of LETHAL.
+ *
+ * LETHAL is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * LETHAL is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with LETHAL.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.uni_muenster.cs.sev.lethal.factories;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import de.uni_muenster.cs.sev.lethal.states.InternedState;
+
+/**
+ * State factory which hands out {@link InternedState interned states}: for each name,
+ * always the same state is returned, and the states are numbered consecutively from 0.
+ * The name of a state is hashed and compared only once, when the state is requested,
+ * and never again when the state is used in maps and sets. <br>
+ * To be used for all states created by the library operations, an instance has to be set
+ * by {@link StateFactory#init} before the first state is created. In contrast to
+ * {@link StdStateFactory}, the states are kept as long as the factory exists.
+ *
+ * @see de.uni_muenster.cs.sev.lethal.utils.Numbering
+ *
+ * @author Martin
+ */
+public class InterningStateFactory extends StateFactory {
+
+	/** Interned states, indexed by their names. */
+	private final Map<Object,InternedState<?>> states = new HashMap<Object,InternedState<?>>();
+
+	/** Interned states, indexed by their numbers. */
+	private final List<InternedState<?>> stateList = new ArrayList<InternedState<?>>();
+
+	/** Counter for anonymous states. */
+	private int anonCount = 0;
+
+
+	/**
+	 * Returns the interned state with the given name, creating it if necessary.
+	 *
+	 * @see de.uni_muenster.cs.sev.lethal.factories.StateFactory#makeState(java.lang.Object)
+	 */
+	@Override
+	@SuppressWarnings("unchecked")
+	public synchronized <T> InternedState<T> makeState(T name) {
+		// this cast is safe because the state found for a name has this name
+		InternedState<T> s = (InternedState<T>)states.get(name);
+		if (s == null) {
+			s = new InternedState<T>(name, stateList.size());
+			states.put(name, s);
+			stateList.add(s);
+		}
+		return s;
+	}
+
+
+	/**
+	 * Returns a new interned state with a name which has not been used before.
+	 *
+	 * @see de.uni_muenster.cs.sev.lethal.factories.StateFactory#makeState()
+	 */
+	@Override
+	public synchronized InternedState<String> makeState() {
+		while (states.containsKey("anon"+anonCount))
+			anonCount++;
+		return makeState("anon"+anonCount++);
+	}
+
+
+	/**
+	 * Returns the state with the given number.
+	 *
+	 * @param id number of the state
+	 * @return the state with the given number
+	 */
+	public synchronized InternedState<?> getState(int id) {
+		return stateList.get(id);
+	}
+
+
+	/**
+	 * Returns the number of states handed out so far, which is one more than the highest number.
+	 *
+	 * @return the number of states handed out so far
+	 */
+	public synchronized int getStateCount() {
+		return stateList.size();
+	}
+}
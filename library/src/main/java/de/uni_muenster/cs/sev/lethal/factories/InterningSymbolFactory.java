@@ -0,0 +1,109 @@
+/*
+ * Copyright 2009 Dorothea Jansen <d.jansen@uni-muenster.de>, Martin Mohr <mohrfrosch@uni-muenster.de>, Irene Thesing <i_thes01@uni-muenster.de>, Anton Reis <antonreis@gmx.de>, Maria Schatz <m_scha17@uni-muenster.de>, Philipp Claves <philipp.claves@uni-muenster.de>, Sezar Jarrous <sezar.jarrous@gmail.com>
+ *
+ * This file is part of LETHAL.
+ *
+ * LETHAL is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * LETHAL is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with LETHAL.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.uni_muenster.cs.sev.lethal.factories;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import de.uni_muenster.cs.sev.lethal.symbol.common.RankedSymbol;
+import de.uni_muenster.cs.sev.lethal.symbol.standard.InternedRankedSymbol;
+import de.uni_muenster.cs.sev.lethal.tree.common.Tree;
+import de.uni_muenster.cs.sev.lethal.utils.Pair;
+
+/**
+ * Symbol factory which hands out {@link InternedRankedSymbol interned ranked symbols}: for each
+ * name and arity, always the same symbol is returned, and the symbols are numbered consecutively
+ * from 0. <br>
+ * With {@link #getTreeFactory()} and {@link TreeFactory#putTreeFactory}, the parsers can be made
+ * to create interned symbols.
+ *
+ * @see de.uni_muenster.cs.sev.lethal.utils.Numbering
+ *
+ * @author Martin
+ */
+public class InterningSymbolFactory {
+
+	/** Interned symbols, indexed by their names and arities. */
+	private final Map<Pair<Object,Integer>,InternedRankedSymbol<?>> symbols = new HashMap<Pair<Object,Integer>,InternedRankedSymbol<?>>();
+
+	/** Interned symbols, indexed by their numbers. */
+	private final List<InternedRankedSymbol<?>> symbolList = new ArrayList<InternedRankedSymbol<?>>();
+
+
+	/**
+	 * Returns the interned ranked symbol with the given name and arity, creating it if necessary.
+	 *
+	 * @param <N> type of the name
+	 * @param name name of the symbol
+	 * @param arity arity of the symbol
+	 * @return the interned symbol with the given name and arity
+	 */
+	@SuppressWarnings("unchecked")
+	public synchronized <N> InternedRankedSymbol<N> makeRankedSymbol(N name, int arity) {
+		if (arity < 0) throw new IllegalArgumentException("makeRankedSymbol(): arity must not be negative.");
+		Pair<Object,Integer> key = new Pair<Object,Integer>(name, arity);
+		// this cast is safe because the symbol found for a name has this name
+		InternedRankedSymbol<N> f = (InternedRankedSymbol<N>)symbols.get(key);
+		if (f == null) {
+			f = new InternedRankedSymbol<N>(name, arity, symbolList.size());
+			symbols.put(key, f);
+			symbolList.add(f);
+		}
+		return f;
+	}
+
+
+	/**
+	 * Returns the symbol with the given number.
+	 *
+	 * @param id number of the symbol
+	 * @return the symbol with the given number
+	 */
+	public synchronized InternedRankedSymbol<?> getSymbol(int id) {
+		return symbolList.get(id);
+	}
+
+
+	/**
+	 * Returns the number of symbols handed out so far, which is one more than the highest number.
+	 *
+	 * @return the number of symbols handed out so far
+	 */
+	public synchronized int getSymbolCount() {
+		return symbolList.size();
+	}
+
+
+	/**
+	 * Returns a tree factory which creates trees whose symbols are interned by this factory,
+	 * where the arity of a symbol is the number of subtrees.
+	 *
+	 * @return tree factory creating trees with interned ranked symbols
+	 */
+	public NamedSymbolTreeFactory<RankedSymbol> getTreeFactory() {
+		return new NamedSymbolTreeFactory<RankedSymbol>(RankedSymbol.class) {
+			@Override
+			protected <T> RankedSymbol makeSymbol(T name, List<? extends Tree<RankedSymbol>> subtrees) {
+				return makeRankedSymbol(name, subtrees.size());
+			}
+		};
+	}
+}
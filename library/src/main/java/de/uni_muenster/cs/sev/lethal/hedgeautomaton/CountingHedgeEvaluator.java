@@ -0,0 +1,193 @@
+/*
+ * Copyright 2009 Dorothea Jansen <d.jansen@uni-muenster.de>, Martin Mohr <mohrfrosch@uni-muenster.de>, Irene Thesing <i_thes01@uni-muenster.de>, Anton Reis <antonreis@gmx.de>, Maria Schatz <m_scha17@uni-muenster.de>, Philipp Claves <philipp.claves@uni-muenster.de>, Sezar Jarrous <sezar.jarrous@gmail.com>
+ *
+ * This file is part of LETHAL.
+ *
+ * LETHAL is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * LETHAL is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with LETHAL.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.uni_muenster.cs.sev.lethal.hedgeautomaton;
+
+import de.uni_muenster.cs.sev.lethal.hedgeautomaton.expressions.ExpressionMatcher;
+import de.uni_muenster.cs.sev.lethal.states.State;
+import de.uni_muenster.cs.sev.lethal.symbol.common.UnrankedSymbol;
+import de.uni_muenster.cs.sev.lethal.tree.common.Tree;
+import de.uni_muenster.cs.sev.lethal.utils.Numbering;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Decides whether a hedge automaton accepts an unranked tree by matching the expressions
+ * of its rules against the states of the subtrees of each node with {@link ExpressionMatcher}s.
+ * Unlike {@link StreamingHedgeValidator}, the finite tree automaton {@link HedgeAutomaton#getTA()}
+ * is not needed, whose size grows with the bounds of the repetitions in the expressions.
+ * Repetitions are matched by counting instead, so that a content model like item{0,5000}
+ * costs no more than item*.
+ * <p/>
+ * The results are the same as those of the finite tree automaton. Therefore an evaluator can only
+ * be created by {@link #create} if all rules have expressions whose transformation is exact.
+ * An evaluator may be used by several threads at once.
+ *
+ * @param <G_Symbol> type of the symbols used in the hedge automaton
+ * @param <G_State>  type of the states used in the hedge automaton
+ *
+ * @author Martin
+ */
+public final class CountingHedgeEvaluator<G_Symbol extends UnrankedSymbol, G_State extends State> {
+
+	/**
+	 * Rule of the hedge automaton with compiled expression.
+	 */
+	private static final class CompiledRule {
+		private final ExpressionMatcher matcher;
+		private final int dest;
+
+		private CompiledRule(final ExpressionMatcher matcher, final int dest) {
+			this.matcher = matcher;
+			this.dest = dest;
+		}
+	}
+
+	/** Numbering of the states of the hedge automaton. */
+	private final Numbering<G_State> states;
+
+	/** Final states of the hedge automaton. */
+	private final BitSet finals = new BitSet();
+
+	/** Compiled rules, grouped by their symbols. */
+	private final Map<G_Symbol, List<CompiledRule>> rules;
+
+
+	private CountingHedgeEvaluator(final Numbering<G_State> states, final Map<G_Symbol, List<CompiledRule>> rules) {
+		this.states = states;
+		this.rules = rules;
+	}
+
+
+	/**
+	 * Creates an evaluator for the given rules and final states of a hedge automaton.
+	 * Later changes of the hedge automaton are not followed.
+	 *
+	 * @param <G_Symbol> type of the symbols used in the hedge automaton
+	 * @param <G_State>  type of the states used in the hedge automaton
+	 * @param rules rules of the hedge automaton
+	 * @param finalStates final states of the hedge automaton
+	 * @return an evaluator for the hedge automaton, or null if some rule has an expression which
+	 * cannot be matched with the same results as its transformation into a finite tree automaton
+	 */
+	public static <G_Symbol extends UnrankedSymbol, G_State extends State> CountingHedgeEvaluator<G_Symbol, G_State> create(
+			final Iterable<HedgeRule<G_Symbol, G_State>> rules, final Iterable<G_State> finalStates) {
+		if (rules == null) throw new IllegalArgumentException("create(): rules must not be null.");
+		if (finalStates == null) throw new IllegalArgumentException("create(): finalStates must not be null.");
+		final Numbering<G_State> states = new Numbering<G_State>();
+		final Map<G_Symbol, List<CompiledRule>> bySymbol = new HashMap<G_Symbol, List<CompiledRule>>();
+		for (final HedgeRule<G_Symbol, G_State> rule : rules) {
+			final ExpressionMatcher matcher = ExpressionMatcher.compile(rule.getExpression(), states);
+			if (matcher == null)
+				return null;
+			List<CompiledRule> list = bySymbol.get(rule.getSymbol());
+			if (list == null) {
+				list = new ArrayList<CompiledRule>();
+				bySymbol.put(rule.getSymbol(), list);
+			}
+			list.add(new CompiledRule(matcher, states.number(rule.getState())));
+		}
+		final CountingHedgeEvaluator<G_Symbol, G_State> ret = new CountingHedgeEvaluator<G_Symbol, G_State>(states, bySymbol);
+		for (final G_State q : finalStates) {
+			final int id = states.get(q);
+			if (id >= 0)
+				ret.finals.set(id);
+		}
+		return ret;
+	}
+
+
+	/**
+	 * Returns the states of a node with the given symbol whose subtrees have the given states.
+	 */
+	private BitSet symbolStates(final G_Symbol symbol, final List<BitSet> children) {
+		final BitSet ret = new BitSet();
+		final List<CompiledRule> list = this.rules.get(symbol);
+		if (list != null)
+			for (final CompiledRule r : list)
+				if (!ret.get(r.dest) && r.matcher.matches(children))
+					ret.set(r.dest);
+		return ret;
+	}
+
+
+	/**
+	 * Computes the states of the root of the given unranked tree. The tree is walked in post-order with an
+	 * explicit stack. As soon as some subtree has no state, no state can be reached at the root and the
+	 * walk stops.
+	 */
+	private BitSet evaluate(final Tree<? extends G_Symbol> tree) {
+		final List<Tree<? extends G_Symbol>> nodes = new ArrayList<Tree<? extends G_Symbol>>();
+		final List<Iterator<? extends Tree<? extends G_Symbol>>> children = new ArrayList<Iterator<? extends Tree<? extends G_Symbol>>>();
+		final List<List<BitSet>> lists = new ArrayList<List<BitSet>>();
+		nodes.add(tree);
+		children.add(tree.getSubTrees().iterator());
+		lists.add(new ArrayList<BitSet>());
+		while (true) {
+			final int top = nodes.size() - 1;
+			final Iterator<? extends Tree<? extends G_Symbol>> it = children.get(top);
+			if (it.hasNext()) {
+				final Tree<? extends G_Symbol> child = it.next();
+				nodes.add(child);
+				children.add(child.getSubTrees().iterator());
+				lists.add(new ArrayList<BitSet>());
+				continue;
+			}
+			final BitSet states = symbolStates(nodes.remove(top).getSymbol(), lists.remove(top));
+			children.remove(top);
+			if (top == 0 || states.isEmpty())
+				return states;
+			lists.get(top - 1).add(states);
+		}
+	}
+
+
+	/**
+	 * Decides whether the hedge automaton accepts the given tree.
+	 *
+	 * @param tree tree to be decided
+	 * @return whether the hedge automaton accepts the given tree
+	 */
+	public boolean decide(final Tree<? extends G_Symbol> tree) {
+		if (tree == null) throw new IllegalArgumentException("decide(): tree must not be null.");
+		return evaluate(tree).intersects(this.finals);
+	}
+
+
+	/**
+	 * Returns the states of the hedge automaton which the given tree can be reduced to.
+	 *
+	 * @param tree tree to be evaluated
+	 * @return the states of the hedge automaton which the given tree can be reduced to
+	 */
+	public Set<G_State> accessibleStates(final Tree<? extends G_Symbol> tree) {
+		if (tree == null) throw new IllegalArgumentException("accessibleStates(): tree must not be null.");
+		final BitSet result = evaluate(tree);
+		final Set<G_State> ret = new HashSet<G_State>();
+		for (int q = result.nextSetBit(0); q >= 0; q = result.nextSetBit(q + 1))
+			ret.add(this.states.getObject(q));
+		return ret;
+	}
+}
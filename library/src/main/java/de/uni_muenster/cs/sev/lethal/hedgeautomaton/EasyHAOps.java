@@ -51,7 +51,7 @@ public final class EasyHAOps {
 	 * Decides whether a given hedge automaton can reduce a given tree to a
 	 * final state.
 	 * <p/>
-	 * Uses {@link de.uni_muenster.cs.sev.lethal.treeautomata.common.FTAProperties#decide(de.uni_muenster.cs.sev.lethal.treeautomata.common.FTA, de.uni_muenster.cs.sev.lethal.tree.common.Tree)}
+	 * Uses {@link HAOps#decide(HedgeAutomaton, Tree)}
 	 *
 	 * @param ha	 the hedge automaton used to decide
 	 * @param tree tree for the hedge automaton to decide
@@ -61,17 +61,30 @@ public final class EasyHAOps {
 	public static boolean decide(
 			final HedgeAutomaton<UnrankedSymbol, State> ha,
 			final Tree<UnrankedSymbol> tree) {
-		final FTA<HedgeSymbol<UnrankedSymbol>, HedgeState<State>, ? extends FTARule<HedgeSymbol<UnrankedSymbol>, HedgeState<State>>>
-		fta = ha.getTA();
-		final Tree<HedgeSymbol<UnrankedSymbol>> tree2 = TreeCache.getTree(tree);
-		return FTAProperties.decide(fta, tree2);
+		return HAOps.decide(ha, tree);
+	}
+
+	/**
+	 * Decides for each of the given trees whether a given hedge automaton accepts it.
+	 * The trees are evaluated in parallel on the common {@link java.util.concurrent.ForkJoinPool}.
+	 * <p/>
+	 * Uses {@link HAOps#decideAll(HedgeAutomaton, Iterable)}
+	 *
+	 * @param ha	  the hedge automaton used to decide
+	 * @param trees trees for the hedge automaton to decide
+	 * @return for each given tree in the same order, whether the hedge automaton accepts it
+	 */
+	public static List<Boolean> decideAll(
+			final HedgeAutomaton<UnrankedSymbol, State> ha,
+			final Iterable<? extends Tree<UnrankedSymbol>> trees) {
+		return HAOps.decideAll(ha, trees);
 	}
 
 	/**
 	 * Computes the set of states which a finite tree automaton A can reduce a
 	 * given tree with ranked symbols to.
 	 * <p/>
-	 * Uses {@link de.uni_muenster.cs.sev.lethal.treeautomata.common.FTAProperties#accessibleStates(de.uni_muenster.cs.sev.lethal.treeautomata.common.FTA, de.uni_muenster.cs.sev.lethal.tree.common.Tree)}
+	 * Uses {@link HAOps#accessibleStates(HedgeAutomaton, Tree)}
 	 *
 	 * @param ha		the hedge automaton used to decide
 	 * @param hedge tree for the hedge automaton to decide
@@ -81,13 +94,7 @@ public final class EasyHAOps {
 	public static Set<State> accessibleStates(
 			final HedgeAutomaton<UnrankedSymbol, State> ha,
 			final Tree<UnrankedSymbol> hedge) {
-		final FTA<HedgeSymbol<UnrankedSymbol>, HedgeState<State>, ? extends FTARule<HedgeSymbol<UnrankedSymbol>, HedgeState<State>>>
-		fta = ha.getTA();
-		final Tree<HedgeSymbol<UnrankedSymbol>> tree = TreeCache.getTree(hedge);
-		final Set<HedgeState<State>> set = FTAProperties.accessibleStates(
-				fta, tree);
-		set.retainAll(ha.getStates());
-		return new HashSet<State>(HedgeState.extractOriginal(set));
+		return HAOps.accessibleStates(ha, hedge);
 	}
 
 	/**
@@ -35,11 +35,13 @@ import de.uni_muenster.cs.sev.lethal.treeautomata.common.FTARule;
 import de.uni_muenster.cs.sev.lethal.treeautomata.generic.GenFTA;
 import de.uni_muenster.cs.sev.lethal.treeautomata.generic.GenFTACreator;
 import de.uni_muenster.cs.sev.lethal.treeautomata.generic.GenFTAOps;
+import de.uni_muenster.cs.sev.lethal.utils.BatchEvaluator;
 import de.uni_muenster.cs.sev.lethal.utils.Converter;
 import de.uni_muenster.cs.sev.lethal.utils.IdentityConverter;
 import de.uni_muenster.cs.sev.lethal.utils.Pair;
 
 import java.util.*;
+import java.util.concurrent.ExecutorService;
 
 /**
  * This class offers the operations on the hedge automatons.
@@ -63,17 +65,72 @@ public final class HAOps {
 	public static <G_State extends State, G_Symbol extends UnrankedSymbol> boolean decide(
 			final HedgeAutomaton<G_Symbol, G_State> ha,
 			final Tree<G_Symbol> tree) {
-		final FTA<HedgeSymbol<G_Symbol>, HedgeState<G_State>, ? extends FTARule<HedgeSymbol<G_Symbol>, HedgeState<G_State>>>
-				fta = ha.getTA();
-		final Tree<HedgeSymbol<G_Symbol>> tree2 = TreeCache.getTree(tree);
-		return FTAProperties.decide(fta, tree2);
+		final CountingHedgeEvaluator<G_Symbol, G_State> evaluator = ha.getCountingEvaluator();
+		if (evaluator != null)
+			return evaluator.decide(tree);
+		return ha.getValidator().decide(tree);
+	}
+
+	/**
+	 * Decides for each of the given trees whether a given hedge automaton accepts it.
+	 * The trees are evaluated in parallel on the common {@link java.util.concurrent.ForkJoinPool}.
+	 * <p/>
+	 * Uses {@link #batchDecider(HedgeAutomaton, ExecutorService)}
+	 *
+	 * @param ha				 the hedge automaton used to decide
+	 * @param trees			 trees for the hedge automaton to decide
+	 * @param <G_State>  type of states used in the hedge automaton
+	 * @param <G_Symbol> type of the symbols used in the hedge automaton and the trees
+	 * @return for each given tree in the same order, whether the hedge automaton accepts it
+	 */
+	public static <G_State extends State, G_Symbol extends UnrankedSymbol> List<Boolean> decideAll(
+			final HedgeAutomaton<G_Symbol, G_State> ha,
+			final Iterable<? extends Tree<G_Symbol>> trees) {
+		return batchDecider(ha, null).evaluateAll(trees);
+	}
+
+	/**
+	 * Returns an evaluator which decides for many trees in parallel whether a given
+	 * hedge automaton accepts them.
+	 * <p/>
+	 * The trees are decided by {@link CountingHedgeEvaluator#decide(Tree)} if the rules of the hedge
+	 * automaton permit, otherwise by {@link StreamingHedgeValidator#decide(Tree)}. Both are computed
+	 * once for the hedge automaton and may be used by several threads at once.
+	 *
+	 * @param ha				 the hedge automaton used to decide
+	 * @param executor	 executor the trees are evaluated on, null for the common
+	 *                   {@link java.util.concurrent.ForkJoinPool}
+	 * @param <G_State>  type of states used in the hedge automaton
+	 * @param <G_Symbol> type of the symbols used in the hedge automaton and the trees
+	 * @return an evaluator which decides whether the hedge automaton accepts a tree
+	 */
+	public static <G_State extends State, G_Symbol extends UnrankedSymbol> BatchEvaluator<Tree<G_Symbol>, Boolean> batchDecider(
+			final HedgeAutomaton<G_Symbol, G_State> ha,
+			final ExecutorService executor) {
+		final CountingHedgeEvaluator<G_Symbol, G_State> evaluator = ha.getCountingEvaluator();
+		if (evaluator != null)
+			return new BatchEvaluator<Tree<G_Symbol>, Boolean>(new Converter<Tree<G_Symbol>, Boolean>() {
+				@Override
+				public Boolean convert(final Tree<G_Symbol> tree) {
+					return evaluator.decide(tree);
+				}
+			}, executor, BatchEvaluator.DFLT_CHUNK_SIZE);
+		final StreamingHedgeValidator<G_Symbol, G_State> validator = ha.getValidator();
+		return new BatchEvaluator<Tree<G_Symbol>, Boolean>(new Converter<Tree<G_Symbol>, Boolean>() {
+			@Override
+			public Boolean convert(final Tree<G_Symbol> tree) {
+				return validator.decide(tree);
+			}
+		}, executor, BatchEvaluator.DFLT_CHUNK_SIZE);
 	}
 
 	/**
 	 * Computes the set of states which a finite tree automaton A can reduce a
 	 * given tree with ranked symbols to.
 	 * <p/>
-   * Uses {@link de.uni_muenster.cs.sev.lethal.treeautomata.common.FTAProperties#accessibleStates(de.uni_muenster.cs.sev.lethal.treeautomata.common.FTA, de.uni_muenster.cs.sev.lethal.tree.common.Tree)}
+	 * The tree is evaluated directly on its unranked form by
+	 * {@link CountingHedgeEvaluator#accessibleStates(Tree)} if the rules of the hedge automaton
+	 * permit, otherwise by {@link StreamingHedgeValidator#accessibleStates(Tree)}.
 	 *
 	 * @param ha				 the hedge automaton used to decide
 	 * @param hedge			tree for the hedge automaton to decide
@@ -85,13 +142,10 @@ public final class HAOps {
 	public static <G_State extends State, G_Symbol extends UnrankedSymbol> Set<G_State> accessibleStates(
 			final HedgeAutomaton<G_Symbol, G_State> ha,
 			final Tree<G_Symbol> hedge) {
-		final FTA<HedgeSymbol<G_Symbol>, HedgeState<G_State>, ? extends FTARule<HedgeSymbol<G_Symbol>, HedgeState<G_State>>>
-				fta = ha.getTA();
-		final Tree<HedgeSymbol<G_Symbol>> tree = TreeCache.getTree(hedge);
-		final Set<HedgeState<G_State>> set = FTAProperties.accessibleStates(
-				fta, tree);
+		final CountingHedgeEvaluator<G_Symbol, G_State> evaluator = ha.getCountingEvaluator();
+		final Set<G_State> set = evaluator != null ? evaluator.accessibleStates(hedge) : ha.getValidator().accessibleStates(hedge);
 		set.retainAll(ha.getStates());
-		return new HashSet<G_State>(HedgeState.extractOriginal(set));
+		return set;
 	}
 
 	/**
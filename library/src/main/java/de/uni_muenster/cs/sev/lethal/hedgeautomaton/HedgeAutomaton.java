@@ -56,6 +56,9 @@ public class HedgeAutomaton<G_Symbol extends UnrankedSymbol, G_State extends Sta
 			HedgeState<G_State>,
 			? extends FTARule<HedgeSymbol<G_Symbol>, HedgeState<G_State>>> TA; // Transformed
 	// automaton
+	private StreamingHedgeValidator<G_Symbol, G_State> validator; // Evaluator of unranked trees
+	private CountingHedgeEvaluator<G_Symbol, G_State> evaluator; // Evaluator of unranked trees on the rules
+	private boolean evaluatorCompiled; // Whether the evaluator on the rules was tried to be created
 
 	/**
 	 * Constructor for the hedge automaton.
@@ -982,6 +985,9 @@ public class HedgeAutomaton<G_Symbol extends UnrankedSymbol, G_State extends Sta
 			TA2HA();
 		this.rules.add(rule);
 		this.TA = null;
+		this.validator = null;
+		this.evaluator = null;
+		this.evaluatorCompiled = false;
 	}
 
 	/**
@@ -994,6 +1000,9 @@ public class HedgeAutomaton<G_Symbol extends UnrankedSymbol, G_State extends Sta
 			TA2HA();
 		this.rules.remove(rule);
 		this.TA = null;
+		this.validator = null;
+		this.evaluator = null;
+		this.evaluatorCompiled = false;
 	}
 
 	/**
@@ -1109,4 +1118,55 @@ public class HedgeAutomaton<G_Symbol extends UnrankedSymbol, G_State extends Sta
 			HA2TA();
 		return this.TA;
 	}
+
+	/**
+	 * Returns an evaluator which decides unranked trees directly on the rules of the FTA
+	 * representation of this HA. It is created once and kept until the rules change.
+	 *
+	 * @return an evaluator of unranked trees for this HA
+	 */
+	StreamingHedgeValidator<G_Symbol, G_State> getValidator() {
+		if (this.validator == null)
+			this.validator = new StreamingHedgeValidator<G_Symbol, G_State>(this);
+		return this.validator;
+	}
+
+	/**
+	 * Returns an evaluator which decides unranked trees directly on the rules of this HA, counting
+	 * repetitions instead of unrolling them into the FTA representation. It is created once and
+	 * kept until the rules change.
+	 *
+	 * @return an evaluator of unranked trees for this HA, or null if this HA has no rules of its own
+	 * or some of its expressions cannot be evaluated with the same results as the FTA representation
+	 */
+	CountingHedgeEvaluator<G_Symbol, G_State> getCountingEvaluator() {
+		if (!this.evaluatorCompiled && this.rules != null) {
+			this.evaluator = CountingHedgeEvaluator.create(this.rules, getFinalStates());
+			this.evaluatorCompiled = true;
+		}
+		return this.evaluator;
+	}
+
+	/**
+	 * Releases the data which was computed from the rules of this HA and is only kept to
+	 * speed up later operations: the FTA representation, the evaluators of unranked trees
+	 * and the transformations of the expressions cached for this HA. They are computed
+	 * again when needed. An HA created from an FTA keeps its FTA, since it has no other
+	 * representation.<br>
+	 * The caches shared by all automata are {@link TreeCache}, {@link HedgeStateCache} and
+	 * {@link HedgeSymbolCache}; they are bounded and need not be released.
+	 */
+	public void releaseCaches() {
+		this.validator = null;
+		this.evaluator = null;
+		this.evaluatorCompiled = false;
+		if (this.rules == null)
+			return;
+		this.TA = null;
+		for (final HedgeRule<G_Symbol, G_State> rule : this.rules) {
+			final Finit<G_Symbol, G_State> finit = rule.getExpression().getFinaliser();
+			if (finit != null)
+				finit.finalize(this);
+		}
+	}
 }
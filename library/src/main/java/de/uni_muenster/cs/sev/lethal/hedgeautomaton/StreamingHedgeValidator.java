@@ -0,0 +1,394 @@
+/*
+ * Copyright 2009 Dorothea Jansen <d.jansen@uni-muenster.de>, Martin Mohr <mohrfrosch@uni-muenster.de>, Irene Thesing <i_thes01@uni-muenster.de>, Anton Reis <antonreis@gmx.de>, Maria Schatz <m_scha17@uni-muenster.de>, Philipp Claves <philipp.claves@uni-muenster.de>, Sezar Jarrous <sezar.jarrous@gmail.com>
+ *
+ * This file is part of LETHAL.
+ *
+ * LETHAL is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * LETHAL is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with LETHAL.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.uni_muenster.cs.sev.lethal.hedgeautomaton;
+
+import de.uni_muenster.cs.sev.lethal.states.HedgeState;
+import de.uni_muenster.cs.sev.lethal.states.State;
+import de.uni_muenster.cs.sev.lethal.symbol.common.UnrankedSymbol;
+import de.uni_muenster.cs.sev.lethal.symbol.special.HedgeSymbol;
+import de.uni_muenster.cs.sev.lethal.tree.common.Tree;
+import de.uni_muenster.cs.sev.lethal.treeautomata.common.FTA;
+import de.uni_muenster.cs.sev.lethal.treeautomata.common.FTARule;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Decides whether a hedge automaton accepts a tree which is given as sequence of
+ * start and end events of its nodes, like the elements of a XML document read by a
+ * SAX parser. Neither the tree nor its binary encoding is built.
+ * <p/>
+ * The rules of the finite tree automaton {@link HedgeAutomaton#getTA()} are applied
+ * directly: The encoding of a node a with subtrees t_1,...,t_n is a(cons(...cons(nil,t_1)...,t_n)),
+ * thus for every open node the set of states of the list of its subtrees seen so far is kept.
+ * This set starts with the states of nil, is combined with the states of each closed subtree
+ * by the cons rules and is finally turned into the states of the node by the rules of a.
+ * Hence the needed memory is proportional to the depth of the tree, not to its size.
+ * <p/>
+ * Trees which are already given as objects are evaluated the same way by {@link #decide(Tree)}
+ * and {@link #accessibleStates(Tree)}: the cons rules form, for every hedge rule, the word
+ * automaton of its horizontal language over the states of the subtrees, which is run directly
+ * on the list of subtrees of each node.
+ * <p/>
+ * A validator can be used for several trees one after another, but not by several threads at once.
+ *
+ * @param <G_Symbol> type of the symbols used in the hedge automaton
+ * @param <G_State>  type of the states used in the hedge automaton
+ *
+ * @author Anton, Maria
+ */
+public class StreamingHedgeValidator<G_Symbol extends UnrankedSymbol, G_State extends State> {
+
+	/** States of the finite tree automaton, indexed by their numbers. */
+	private final List<HedgeState<G_State>> stateList = new ArrayList<HedgeState<G_State>>();
+
+	/** Final states of the finite tree automaton. */
+	private final BitSet finals = new BitSet();
+
+	/** States of the empty list. */
+	private final BitSet nilStates = new BitSet();
+
+	/** For each state p, the pairs (q, dest) of the rules cons(p,q) -> dest, one after another. */
+	private int[][] consRules;
+
+	/** For each symbol and each state p, the destination states of the rules symbol(p) -> dest. */
+	private final Map<G_Symbol, int[][]> symbolRules = new HashMap<G_Symbol, int[][]>();
+
+	/** For each open node, the states of the list of its subtrees seen so far. */
+	private BitSet[] lists = new BitSet[16];
+
+	/** Symbols of the open nodes. */
+	private final List<G_Symbol> symbols = new ArrayList<G_Symbol>();
+
+	/** States of the last closed root, null if no root has been closed yet. */
+	private BitSet result;
+
+	/** Number of nodes evaluated since the last reset. */
+	private long nodes;
+
+
+	/**
+	 * Creates a validator for the given hedge automaton. The finite tree automaton of the
+	 * hedge automaton is computed and indexed once; later changes of the hedge automaton
+	 * are not followed.
+	 *
+	 * @param ha hedge automaton which shall decide the trees
+	 */
+	public StreamingHedgeValidator(final HedgeAutomaton<G_Symbol, G_State> ha) {
+		if (ha == null) throw new IllegalArgumentException("StreamingHedgeValidator(): ha must not be null.");
+		final FTA<HedgeSymbol<G_Symbol>, HedgeState<G_State>, ? extends FTARule<HedgeSymbol<G_Symbol>, HedgeState<G_State>>>
+				ta = ha.getTA();
+		final Map<HedgeState<G_State>, Integer> ids = new HashMap<HedgeState<G_State>, Integer>();
+		for (final HedgeState<G_State> q : ta.getStates())
+			id(q, ids);
+		for (final HedgeState<G_State> q : ta.getFinalStates())
+			this.finals.set(id(q, ids));
+
+		final List<List<Integer>> cons = new ArrayList<List<Integer>>();
+		final Map<G_Symbol, Map<Integer, Set<Integer>>> packed = new HashMap<G_Symbol, Map<Integer, Set<Integer>>>();
+		for (final FTARule<HedgeSymbol<G_Symbol>, HedgeState<G_State>> r : ta.getRules()) {
+			final HedgeSymbol<G_Symbol> f = r.getSymbol();
+			final int dest = id(r.getDestState(), ids);
+			final List<HedgeState<G_State>> src = r.getSrcStates();
+			if (f.isNil()) {
+				this.nilStates.set(dest);
+			} else if (f.isCons()) {
+				final int p = id(src.get(0), ids);
+				while (cons.size() <= p)
+					cons.add(new ArrayList<Integer>());
+				cons.get(p).add(id(src.get(1), ids));
+				cons.get(p).add(dest);
+			} else {
+				Map<Integer, Set<Integer>> bySrc = packed.get(f.getOriginal());
+				if (bySrc == null) {
+					bySrc = new HashMap<Integer, Set<Integer>>();
+					packed.put(f.getOriginal(), bySrc);
+				}
+				final int p = id(src.get(0), ids);
+				if (!bySrc.containsKey(p))
+					bySrc.put(p, new HashSet<Integer>());
+				bySrc.get(p).add(dest);
+			}
+		}
+
+		final int n = this.stateList.size();
+		this.consRules = new int[n][];
+		for (int p = 0; p < n; p++)
+			this.consRules[p] = p < cons.size() ? toArray(cons.get(p)) : new int[0];
+		for (final Map.Entry<G_Symbol, Map<Integer, Set<Integer>>> e : packed.entrySet()) {
+			final int[][] dests = new int[n][];
+			for (final Map.Entry<Integer, Set<Integer>> d : e.getValue().entrySet())
+				dests[d.getKey()] = toArray(d.getValue());
+			this.symbolRules.put(e.getKey(), dests);
+		}
+	}
+
+
+	/**
+	 * Returns the number of the given state, numbering it if necessary.
+	 */
+	private int id(final HedgeState<G_State> q, final Map<HedgeState<G_State>, Integer> ids) {
+		Integer id = ids.get(q);
+		if (id == null) {
+			id = this.stateList.size();
+			ids.put(q, id);
+			this.stateList.add(q);
+		}
+		return id;
+	}
+
+
+	/**
+	 * Converts a collection of integers into an array.
+	 */
+	private static int[] toArray(final Iterable<Integer> c) {
+		final List<Integer> l = new ArrayList<Integer>();
+		for (final Integer i : c)
+			l.add(i);
+		final int[] ret = new int[l.size()];
+		for (int i = 0; i < ret.length; i++)
+			ret[i] = l.get(i);
+		return ret;
+	}
+
+
+	/**
+	 * Opens a node with the given symbol. The node becomes the next subtree of the
+	 * currently open node, or the root if no node is open.
+	 *
+	 * @param symbol symbol of the node
+	 */
+	public void startNode(final G_Symbol symbol) {
+		if (symbol == null) throw new IllegalArgumentException("startNode(): symbol must not be null.");
+		final int depth = this.symbols.size();
+		if (depth == 0)
+			this.result = null;
+		if (depth == this.lists.length)
+			this.lists = Arrays.copyOf(this.lists, 2 * depth);
+		if (this.lists[depth] == null)
+			this.lists[depth] = new BitSet();
+		this.lists[depth].clear();
+		this.lists[depth].or(this.nilStates);
+		this.symbols.add(symbol);
+	}
+
+
+	/**
+	 * Closes the currently open node and computes its states.
+	 * If it has a parent node, its states are appended to the list of subtrees of the parent.
+	 *
+	 * @return false if the tree currently read will be rejected whatever follows, because no state
+	 * can be reached any more, true otherwise
+	 */
+	public boolean endNode() {
+		final int depth = this.symbols.size() - 1;
+		if (depth < 0) throw new IllegalStateException("endNode(): there is no open node.");
+		final BitSet states = symbolStates(this.symbols.remove(depth), this.lists[depth]);
+		this.nodes++;
+
+		if (depth == 0) {
+			this.result = states;
+			return !states.isEmpty();
+		}
+		// append the states of the node to the list of its parent
+		append(this.lists[depth - 1], states, this.lists[depth]);
+		return !this.lists[depth - 1].isEmpty();
+	}
+
+
+	/**
+	 * Returns the states of a node with the given symbol whose list of subtrees has the given states.
+	 */
+	private BitSet symbolStates(final G_Symbol symbol, final BitSet list) {
+		final BitSet states = new BitSet();
+		final int[][] dests = this.symbolRules.get(symbol);
+		if (dests != null)
+			for (int p = list.nextSetBit(0); p >= 0; p = list.nextSetBit(p + 1))
+				if (dests[p] != null)
+					for (final int q : dests[p])
+						states.set(q);
+		return states;
+	}
+
+
+	/**
+	 * Appends a subtree with the given states to a list of subtrees by the cons rules,
+	 * using the given bit set as scratch space.
+	 */
+	private void append(final BitSet list, final BitSet states, final BitSet scratch) {
+		scratch.clear();
+		for (int p = list.nextSetBit(0); p >= 0; p = list.nextSetBit(p + 1)) {
+			final int[] rules = this.consRules[p];
+			for (int i = 0; i < rules.length; i += 2)
+				if (states.get(rules[i]))
+					scratch.set(rules[i + 1]);
+		}
+		list.clear();
+		list.or(scratch);
+	}
+
+
+	/**
+	 * Computes the states of the root of the given unranked tree. The tree is walked in post-order with an
+	 * explicit stack, so that deep trees do not overflow the call stack. As soon as the list of subtrees
+	 * of some node has no state any more, no state can be reached at the root and the walk stops.
+	 * Only local data is used, so several threads may evaluate trees at once.
+	 */
+	private BitSet evaluate(final Tree<? extends G_Symbol> tree) {
+		final List<Tree<? extends G_Symbol>> nodes = new ArrayList<Tree<? extends G_Symbol>>();
+		final List<Iterator<? extends Tree<? extends G_Symbol>>> children = new ArrayList<Iterator<? extends Tree<? extends G_Symbol>>>();
+		final List<BitSet> lists = new ArrayList<BitSet>();
+		final BitSet scratch = new BitSet();
+		nodes.add(tree);
+		children.add(tree.getSubTrees().iterator());
+		lists.add((BitSet) this.nilStates.clone());
+		while (true) {
+			final int top = nodes.size() - 1;
+			final Iterator<? extends Tree<? extends G_Symbol>> it = children.get(top);
+			if (it.hasNext()) {
+				final Tree<? extends G_Symbol> child = it.next();
+				nodes.add(child);
+				children.add(child.getSubTrees().iterator());
+				lists.add((BitSet) this.nilStates.clone());
+				continue;
+			}
+			final BitSet states = symbolStates(nodes.remove(top).getSymbol(), lists.remove(top));
+			children.remove(top);
+			if (top == 0)
+				return states;
+			final BitSet parent = lists.get(top - 1);
+			append(parent, states, scratch);
+			if (parent.isEmpty())
+				return parent;
+		}
+	}
+
+
+	/**
+	 * Decides whether the hedge automaton accepts the given tree. The tree is evaluated
+	 * directly on its unranked form, without building its binary encoding. This method does
+	 * not touch the state of the events given to {@link #startNode} and {@link #endNode}
+	 * and may be called by several threads at once.
+	 *
+	 * @param tree tree to be decided
+	 * @return whether the hedge automaton accepts the given tree
+	 */
+	public boolean decide(final Tree<? extends G_Symbol> tree) {
+		if (tree == null) throw new IllegalArgumentException("decide(): tree must not be null.");
+		return evaluate(tree).intersects(this.finals);
+	}
+
+
+	/**
+	 * Returns the states of the hedge automaton which the given tree can be reduced to,
+	 * evaluated like in {@link #decide(Tree)}.
+	 *
+	 * @param tree tree to be evaluated
+	 * @return the states of the hedge automaton which the given tree can be reduced to
+	 */
+	public Set<G_State> accessibleStates(final Tree<? extends G_Symbol> tree) {
+		if (tree == null) throw new IllegalArgumentException("accessibleStates(): tree must not be null.");
+		return originals(evaluate(tree));
+	}
+
+
+	/**
+	 * Returns the states of the hedge automaton among the given states of the finite tree automaton.
+	 */
+	private Set<G_State> originals(final BitSet states) {
+		final Set<G_State> ret = new HashSet<G_State>();
+		for (int q = states.nextSetBit(0); q >= 0; q = states.nextSetBit(q + 1))
+			if (this.stateList.get(q).isPacked())
+				ret.add(this.stateList.get(q).getOriginal());
+		return ret;
+	}
+
+
+	/**
+	 * Returns the number of currently open nodes.
+	 *
+	 * @return the number of currently open nodes
+	 */
+	public int getDepth() {
+		return this.symbols.size();
+	}
+
+
+	/**
+	 * Returns the number of nodes closed since this validator was created or reset.
+	 *
+	 * @return the number of nodes closed since this validator was created or reset
+	 */
+	public long getNodeCount() {
+		return this.nodes;
+	}
+
+
+	/**
+	 * Returns whether a tree has been read completely, that is whether a root node has been closed
+	 * and no node is open.
+	 *
+	 * @return whether a tree has been read completely
+	 */
+	public boolean isComplete() {
+		return this.result != null && this.symbols.isEmpty();
+	}
+
+
+	/**
+	 * Returns whether the hedge automaton accepts the tree read last.
+	 *
+	 * @return whether the hedge automaton accepts the tree read last
+	 * @throws IllegalStateException if no tree has been read completely
+	 */
+	public boolean isAccepted() {
+		if (!isComplete()) throw new IllegalStateException("isAccepted(): no tree has been read completely.");
+		return this.result.intersects(this.finals);
+	}
+
+
+	/**
+	 * Returns the states of the hedge automaton which the tree read last can be reduced to,
+	 * like {@link HAOps#accessibleStates}.
+	 *
+	 * @return the states of the hedge automaton which the tree read last can be reduced to
+	 * @throws IllegalStateException if no tree has been read completely
+	 */
+	public Set<G_State> getAccessibleStates() {
+		if (!isComplete()) throw new IllegalStateException("getAccessibleStates(): no tree has been read completely.");
+		return originals(this.result);
+	}
+
+
+	/**
+	 * Forgets all open nodes and the last result, so that a new tree can be read.
+	 */
+	public void reset() {
+		this.symbols.clear();
+		this.result = null;
+		this.nodes = 0;
+	}
+}
@@ -0,0 +1,359 @@
+/*
+ * Copyright 2009 Dorothea Jansen <d.jansen@uni-muenster.de>, Martin Mohr <mohrfrosch@uni-muenster.de>, Irene Thesing <i_thes01@uni-muenster.de>, Anton Reis <antonreis@gmx.de>, Maria Schatz <m_scha17@uni-muenster.de>, Philipp Claves <philipp.claves@uni-muenster.de>, Sezar Jarrous <sezar.jarrous@gmail.com>
+ *
+ * This file is part of LETHAL.
+ *
+ * LETHAL is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * LETHAL is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with LETHAL.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.uni_muenster.cs.sev.lethal.hedgeautomaton.expressions;
+
+import de.uni_muenster.cs.sev.lethal.hedgeautomaton.RegularLanguage;
+import de.uni_muenster.cs.sev.lethal.states.State;
+import de.uni_muenster.cs.sev.lethal.symbol.common.UnrankedSymbol;
+import de.uni_muenster.cs.sev.lethal.utils.Numbering;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Decides whether a sequence of sets of states contains a word of a {@link RegularExpression},
+ * that is whether the subtrees of a node can be reduced to states matching the expression
+ * of a hedge rule, without transforming the expression into a finite tree automaton. <br>
+ * <br>
+ * The transformation unrolls a repetition {low,high} into max(low,high) copies of its
+ * sub-expression, so that the automaton grows linearly with the bound, and nested repetitions
+ * multiply. Here a repetition is matched by counting instead: for a start position, the
+ * positions reachable with exactly c repetitions are computed for c = 1,2,... up to the lower
+ * bound, and then the positions reachable with up to the upper bound repetitions by a breadth
+ * first search, which visits each position once. Since these sets either become empty or stop
+ * changing after at most n+1 steps for n subtrees, the work depends on the number of subtrees,
+ * not on the bounds, and the compiled expression only stores the bounds. Matches of
+ * sub-expressions are remembered per start position. <br>
+ * <br>
+ * Only expressions whose transformation is exactly their language are compiled, so that the
+ * results are the same as those of {@link de.uni_muenster.cs.sev.lethal.hedgeautomaton.HedgeAutomaton#getTA()}:
+ * inside an unbounded repetition the transformation repeats nested repetitions at most
+ * once, so these must be trivial. For other expressions, and for languages which are not
+ * expressions, {@link #compile} returns null.
+ *
+ * @author Martin
+ */
+public final class ExpressionMatcher {
+
+	/**
+	 * Part of a compiled expression.
+	 */
+	private abstract static class Node {
+
+		/** Number of the node in its matcher, used to remember its matches. */
+		private final int id;
+
+		private Node(final int id) {
+			this.id = id;
+		}
+
+		/**
+		 * Computes the end positions of the matches of this node which start at the given position.
+		 *
+		 * @param w word to be matched
+		 * @param from start position of the matches
+		 * @return the end positions of the matches
+		 */
+		abstract BitSet compute(Word w, int from);
+
+		/**
+		 * Returns the end positions of the matches of this node which start at the given position,
+		 * computing them only once per word and position.
+		 *
+		 * @param w word to be matched
+		 * @param from start position of the matches
+		 * @return the end positions of the matches, which must not be changed
+		 */
+		BitSet match(final Word w, final int from) {
+			BitSet[] memo = w.memo[this.id];
+			if (memo == null) {
+				memo = new BitSet[w.length + 1];
+				w.memo[this.id] = memo;
+			}
+			if (memo[from] == null)
+				memo[from] = compute(w, from);
+			return memo[from];
+		}
+	}
+
+
+	/**
+	 * Concatenation of states, compiled from a {@link BasicExpression}.
+	 */
+	private static final class Sequence extends Node {
+
+		/** Numbers of the states. */
+		private final int[] states;
+
+		private Sequence(final int id, final int[] states) {
+			super(id);
+			this.states = states;
+		}
+
+		@Override
+		BitSet match(final Word w, final int from) {
+			// cheap enough to be computed again each time
+			return compute(w, from);
+		}
+
+		@Override
+		BitSet compute(final Word w, final int from) {
+			final BitSet ret = new BitSet();
+			if (from + this.states.length > w.length)
+				return ret;
+			for (int i = 0; i < this.states.length; i++)
+				if (!w.letters.get(from + i).get(this.states[i]))
+					return ret;
+			ret.set(from + this.states.length);
+			return ret;
+		}
+	}
+
+
+	/**
+	 * Concatenation of two expressions.
+	 */
+	private static final class Concatenation extends Node {
+		private final Node first;
+		private final Node second;
+
+		private Concatenation(final int id, final Node first, final Node second) {
+			super(id);
+			this.first = first;
+			this.second = second;
+		}
+
+		@Override
+		BitSet compute(final Word w, final int from) {
+			final BitSet mid = this.first.match(w, from);
+			final BitSet ret = new BitSet();
+			for (int p = mid.nextSetBit(0); p >= 0; p = mid.nextSetBit(p + 1))
+				ret.or(this.second.match(w, p));
+			return ret;
+		}
+	}
+
+
+	/**
+	 * Alternative of two expressions.
+	 */
+	private static final class Alternative extends Node {
+		private final Node first;
+		private final Node second;
+
+		private Alternative(final int id, final Node first, final Node second) {
+			super(id);
+			this.first = first;
+			this.second = second;
+		}
+
+		@Override
+		BitSet compute(final Word w, final int from) {
+			final BitSet ret = (BitSet) this.first.match(w, from).clone();
+			ret.or(this.second.match(w, from));
+			return ret;
+		}
+	}
+
+
+	/**
+	 * Repetition of an expression low to high times, high < 0 meaning unbounded.
+	 */
+	private static final class Repetition extends Node {
+		private final int low;
+		private final int high;
+		private final Node body;
+
+		private Repetition(final int id, final int low, final int high, final Node body) {
+			super(id);
+			this.low = low;
+			this.high = high;
+			this.body = body;
+		}
+
+		/**
+		 * Returns the end positions of one more repetition starting at the given positions.
+		 */
+		private BitSet step(final Word w, final BitSet from) {
+			final BitSet ret = new BitSet();
+			for (int p = from.nextSetBit(0); p >= 0; p = from.nextSetBit(p + 1))
+				ret.or(this.body.match(w, p));
+			return ret;
+		}
+
+		@Override
+		BitSet compute(final Word w, final int from) {
+			// positions reachable with exactly c repetitions, up to the lower bound;
+			// if the body accepts the empty word, these sets grow until they stop changing,
+			// otherwise their least position grows until they are empty
+			BitSet layer = new BitSet();
+			layer.set(from);
+			for (int c = 0; c < this.low && !layer.isEmpty(); c++) {
+				final BitSet next = step(w, layer);
+				if (next.equals(layer))
+					break;
+				layer = next;
+			}
+			if (this.low == this.high || layer.isEmpty())
+				return layer;
+			// positions reachable with low to high repetitions; the first time a position is reached,
+			// it is reached with the least number of repetitions, which leaves the most repetitions to follow
+			final BitSet ret = (BitSet) layer.clone();
+			BitSet frontier = layer;
+			for (int c = this.low; (this.high < 0 || c < this.high) && !frontier.isEmpty(); c++) {
+				frontier = step(w, frontier);
+				frontier.andNot(ret);
+				ret.or(frontier);
+			}
+			return ret;
+		}
+	}
+
+
+	/**
+	 * Word to be matched together with the matches of the nodes found so far.
+	 */
+	private static final class Word {
+		private final List<BitSet> letters;
+		private final int length;
+		private final BitSet[][] memo;
+
+		private Word(final List<BitSet> letters, final int nodes) {
+			this.letters = letters;
+			this.length = letters.size();
+			this.memo = new BitSet[nodes][];
+		}
+	}
+
+
+	/** Root of the compiled expression. */
+	private final Node root;
+
+	/** Number of nodes of the compiled expression. */
+	private final int nodes;
+
+
+	private ExpressionMatcher(final Node root, final int nodes) {
+		this.root = root;
+		this.nodes = nodes;
+	}
+
+
+	/**
+	 * Compiles the given language of a hedge rule.
+	 *
+	 * @param <G_Symbol> symbol type of the language
+	 * @param <G_State> state type of the language
+	 * @param language language to be compiled
+	 * @param states numbering of the states, to which the states of the language are added
+	 * @return a matcher for the language, or null if the language is no expression whose
+	 * transformation into a finite tree automaton is exact
+	 */
+	public static <G_Symbol extends UnrankedSymbol, G_State extends State> ExpressionMatcher compile(
+			final RegularLanguage<G_Symbol, G_State> language, final Numbering<G_State> states) {
+		if (language == null) throw new IllegalArgumentException("compile(): language must not be null.");
+		if (states == null) throw new IllegalArgumentException("compile(): states must not be null.");
+		if (!(language instanceof RegularExpression<?, ?>))
+			return null;
+		final Compiler<G_Symbol, G_State> compiler = new Compiler<G_Symbol, G_State>(states);
+		final Node root = compiler.compile((RegularExpression<G_Symbol, G_State>) language, true);
+		return root == null ? null : new ExpressionMatcher(root, compiler.nodes);
+	}
+
+
+	/**
+	 * Decides whether the given sequence of sets of states contains a word of the expression.
+	 *
+	 * @param word for each position, the numbers of the states possible at this position
+	 * @return whether the sequence contains a word of the expression
+	 */
+	public boolean matches(final List<BitSet> word) {
+		if (word == null) throw new IllegalArgumentException("matches(): word must not be null.");
+		return this.root.match(new Word(word, this.nodes), 0).get(word.size());
+	}
+
+
+	/**
+	 * Compiles expressions into nodes, following the transformation into a finite tree automaton:
+	 * in exact mode, an expression is transformed by {@link RegularExpression#transform} or
+	 * {@link SingleExpression#transform} via the expression cache, which unrolls repetitions
+	 * correctly. An unbounded repetition transforms its body by {@link SingleExpression#transformTo},
+	 * which is only exact for expressions without non-trivial repetitions.
+	 */
+	private static final class Compiler<G_Symbol extends UnrankedSymbol, G_State extends State> {
+		private final Numbering<G_State> states;
+		private int nodes;
+
+		private Compiler(final Numbering<G_State> states) {
+			this.states = states;
+		}
+
+		private Node compile(final RegularExpression<G_Symbol, G_State> exp, final boolean exact) {
+			if (!(exp instanceof Expression<?, ?>))
+				return null;
+			final int low = exp.getLow();
+			final int high = exp.getHigh();
+			if (!exact) {
+				if (low != 1 || high != 1)
+					return null;
+				return compile(exp.getExpression(), false);
+			}
+			if (high >= 0 && high < low)
+				return null;
+			if (low == 0 && high == 0)
+				return new Sequence(this.nodes++, new int[0]);
+			if (high < 0 && compile(exp.getExpression(), false) == null)
+				return null;
+			final Node body = compile(exp.getExpression(), true);
+			if (body == null)
+				return null;
+			if (low == 1 && high == 1)
+				return body;
+			return new Repetition(this.nodes++, low, high, body);
+		}
+
+		private Node compile(final SingleExpression<G_Symbol, G_State> exp, final boolean exact) {
+			if (exp instanceof BasicExpression<?, ?>) {
+				final List<G_State> list = new ArrayList<G_State>(((BasicExpression<G_Symbol, G_State>) exp).getStates());
+				if (list.isEmpty())
+					return null;
+				final int[] ids = new int[list.size()];
+				for (int i = 0; i < ids.length; i++)
+					ids[i] = this.states.number(list.get(i));
+				return new Sequence(this.nodes++, ids);
+			}
+			if (exp instanceof ConcatExpression<?, ?>) {
+				final ConcatExpression<G_Symbol, G_State> c = (ConcatExpression<G_Symbol, G_State>) exp;
+				final Node first = compile(c.getFirst(), exact);
+				final Node second = compile(c.getSecond(), exact);
+				return first == null || second == null ? null : new Concatenation(this.nodes++, first, second);
+			}
+			if (exp instanceof OrExpression<?, ?>) {
+				final OrExpression<G_Symbol, G_State> o = (OrExpression<G_Symbol, G_State>) exp;
+				final Node first = compile(o.getFirst(), exact);
+				final Node second = compile(o.getSecond(), exact);
+				return first == null || second == null ? null : new Alternative(this.nodes++, first, second);
+			}
+			if (exp instanceof JoeExpression<?, ?>)
+				return compile(((JoeExpression<G_Symbol, G_State>) exp).getExp(), exact);
+			return null;
+		}
+	}
+}
@@ -21,24 +21,50 @@ package de.uni_muenster.cs.sev.lethal.hedgeautomaton.internal;
 import de.uni_muenster.cs.sev.lethal.states.HedgeState;
 import de.uni_muenster.cs.sev.lethal.states.State;
 
+import de.uni_muenster.cs.sev.lethal.utils.LRUCache;
+
 import java.util.HashSet;
 import java.util.Set;
-import java.util.WeakHashMap;
 
 /**
  * This class implements a state cache. It is used to cache packed states for the
  * hedge automaton. The needed states are generated if needed and returned if
  * wanted.
+ * <p/>
+ * Packed states are equal if their original states are equal, so the cache only saves
+ * creating them again. It is shared by all threads and keeps the {@link #DFLT_MAX_SIZE}
+ * most recently used states by default.
  *
  * @author Anton, Maria
  */
 public final class HedgeStateCache {
-	private static final WeakHashMap<State, HedgeState<? extends State>> stateCache = new WeakHashMap<State, HedgeState<? extends State>>();
+
+	/** Default maximum number of cached states. */
+	public static final long DFLT_MAX_SIZE = 1 << 16;
+
+	private static final LRUCache<State, HedgeState<? extends State>> stateCache = new LRUCache<State, HedgeState<? extends State>>(DFLT_MAX_SIZE);
 
 	private HedgeStateCache() {
 		super();
 	}
 
+	/**
+	 * Returns the cache of packed states, for example to read its statistics or to
+	 * change its maximum size.
+	 *
+	 * @return the cache of packed states
+	 */
+	public static LRUCache<State, HedgeState<? extends State>> getCache() {
+		return stateCache;
+	}
+
+	/**
+	 * Removes all states from the cache.
+	 */
+	public static void clear() {
+		stateCache.clear();
+	}
+
 	/**
 	 * Checks the cache for the transformed state, generates it if needed.
 	 * Returns the transformed state.
@@ -49,12 +75,10 @@ public final class HedgeStateCache {
 	 */
 	@SuppressWarnings("unchecked")
 	public static <G_State extends State> HedgeState<G_State> getState(final G_State state) {
-		final HedgeState<G_State> ret;
-		if (stateCache.containsKey(state)) {
-			// this cast is safe, because the stored
-			// hedge state has always the type of the state used as key
-			ret = (HedgeState<G_State>) stateCache.get(state);
-		} else {
+		// this cast is safe, because the stored
+		// hedge state has always the type of the state used as key
+		HedgeState<G_State> ret = (HedgeState<G_State>) stateCache.get(state);
+		if (ret == null) {
 			ret = new HedgeState<G_State>(state, null);
 			stateCache.put(state, ret);
 		}
@@ -69,20 +93,11 @@ public final class HedgeStateCache {
 	 * @param <G_State>    type of the state
 	 * @return the transformed states
 	 */
-	@SuppressWarnings("unchecked")
 	public static <G_State extends State> Set<HedgeState<G_State>> getState(
 			final Iterable<G_State> states) {
 		final Set<HedgeState<G_State>> ret = new HashSet<HedgeState<G_State>>();
 		for (final G_State state : states)
-			if (stateCache.containsKey(state)) {
-				// this cast is safe, because the stored
-				// hedge state has always the type of the state used as key
-				ret.add((HedgeState<G_State>) stateCache.get(state));
-			} else {
-				final HedgeState<G_State> temp = new HedgeState<G_State>(state, null);
-				ret.add(temp);
-				stateCache.put(state, temp);
-			}
+			ret.add(getState(state));
 		return ret;
 	}
 }
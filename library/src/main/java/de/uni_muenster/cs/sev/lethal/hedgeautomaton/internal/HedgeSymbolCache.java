@@ -25,8 +25,8 @@ import de.uni_muenster.cs.sev.lethal.symbol.special.Cons;
 import de.uni_muenster.cs.sev.lethal.symbol.special.HedgeSymbol;
 import de.uni_muenster.cs.sev.lethal.symbol.special.Nil;
 import de.uni_muenster.cs.sev.lethal.tree.common.Tree;
+import de.uni_muenster.cs.sev.lethal.utils.LRUCache;
 
-import java.util.WeakHashMap;
 
 /**
  * This class implements a symbol cache. It is used to cache packed symbols for the
@@ -36,16 +36,39 @@ import java.util.WeakHashMap;
  * @author Anton, Maria
  */
 public final class HedgeSymbolCache {
-	private static final WeakHashMap<UnrankedSymbol, HedgeSymbol<?>> symbolCache = new WeakHashMap<UnrankedSymbol, HedgeSymbol<?>>();
-	private static final WeakHashMap<HedgeAutomaton<? extends UnrankedSymbol, ? extends State>, HedgeSymbol<?>> nilCache1 = new WeakHashMap<HedgeAutomaton<? extends UnrankedSymbol, ? extends State>, HedgeSymbol<?>>();
-	private static final WeakHashMap<Tree<? extends UnrankedSymbol>, HedgeSymbol<?>> nilCache2 = new WeakHashMap<Tree<? extends UnrankedSymbol>, HedgeSymbol<?>>();
-	private static final WeakHashMap<HedgeAutomaton<? extends UnrankedSymbol, ? extends State>, HedgeSymbol<?>> consCache1 = new WeakHashMap<HedgeAutomaton<? extends UnrankedSymbol, ? extends State>, HedgeSymbol<?>>();
-	private static final WeakHashMap<Tree<? extends UnrankedSymbol>, HedgeSymbol<?>> consCache2 = new WeakHashMap<Tree<? extends UnrankedSymbol>, HedgeSymbol<?>>();
+
+	/** Default maximum number of cached symbols. */
+	public static final long DFLT_MAX_SIZE = 1 << 16;
+
+	private static final LRUCache<UnrankedSymbol, HedgeSymbol<?>> symbolCache = new LRUCache<UnrankedSymbol, HedgeSymbol<?>>(DFLT_MAX_SIZE);
+
+	/** The nil symbol. All nil symbols are equal, thus one is shared by all automata and trees. */
+	private static final HedgeSymbol<UnrankedSymbol> nil = new HedgeSymbol<UnrankedSymbol>(Nil.getNil());
+
+	/** The cons symbol. All cons symbols are equal, thus one is shared by all automata and trees. */
+	private static final HedgeSymbol<UnrankedSymbol> cons = new HedgeSymbol<UnrankedSymbol>(Cons.getCons());
 
 	private HedgeSymbolCache() {
 		super();
 	}
 
+	/**
+	 * Returns the cache of packed symbols, for example to read its statistics or to
+	 * change its maximum size.
+	 *
+	 * @return the cache of packed symbols
+	 */
+	public static LRUCache<UnrankedSymbol, HedgeSymbol<?>> getCache() {
+		return symbolCache;
+	}
+
+	/**
+	 * Removes all symbols from the cache.
+	 */
+	public static void clear() {
+		symbolCache.clear();
+	}
+
 	/**
 	 * Checks the cache for the transformed symbol, generates it if needed.
 	 * Returns the transformed symbol.
@@ -57,10 +80,8 @@ public final class HedgeSymbolCache {
 	@SuppressWarnings("unchecked")
 	public static <G_Symbol extends UnrankedSymbol> HedgeSymbol<G_Symbol> getSymbol(
 			final G_Symbol symbol) {
-		final HedgeSymbol<G_Symbol> ret;
-		if (symbolCache.containsKey(symbol)) {
-			ret = (HedgeSymbol<G_Symbol>) symbolCache.get(symbol);
-		} else {
+		HedgeSymbol<G_Symbol> ret = (HedgeSymbol<G_Symbol>) symbolCache.get(symbol);
+		if (ret == null) {
 			ret = new HedgeSymbol<G_Symbol>(symbol);
 			symbolCache.put(symbol, ret);
 		}
@@ -68,8 +89,7 @@ public final class HedgeSymbolCache {
 	}
 
 	/**
-	 * Checks the cache for the transformed nil symbol, generates it if needed.
-	 * Returns the transformed symbol.
+	 * Returns the transformed nil symbol, which is the same for all automata and trees.
 	 *
 	 * @param ha	the automaton the nil is needed in
 	 * @param <G_State> type of the states used in the given hedge automaton
@@ -79,22 +99,13 @@ public final class HedgeSymbolCache {
 	@SuppressWarnings("unchecked")
 	public static <G_Symbol extends UnrankedSymbol, G_State extends State> HedgeSymbol<G_Symbol> getNilSymbol(
 			final HedgeAutomaton<G_Symbol, G_State> ha) {
-		final HedgeSymbol<G_Symbol> ret;
-		if (nilCache1.containsKey(ha)) {
-			// this cast is safe, because the stored
-			// hedge symbol has always the same symbol type as the
-			// hedge automaton used as key
-			ret = (HedgeSymbol<G_Symbol>) nilCache1.get(ha);
-		} else {
-			ret = new HedgeSymbol<G_Symbol>(Nil.getNil());
-			nilCache1.put(ha, ret);
-		}
-		return ret;
+		// this cast is safe, because the nil symbol has
+		// no original symbol of the type parameter
+		return (HedgeSymbol<G_Symbol>) (HedgeSymbol<?>) nil;
 	}
 
 	/**
-	 * Checks the cache for the transformed nil symbol, generates it if needed.
-	 * Returns the transformed symbol
+	 * Returns the transformed nil symbol, which is the same for all automata and trees.
 	 *
 	 * @param tree the tree the nil is needed in
 	 * @param <G_Symbol>  type of the symbol
@@ -103,22 +114,13 @@ public final class HedgeSymbolCache {
 	@SuppressWarnings("unchecked")
 	public static <G_Symbol extends UnrankedSymbol> HedgeSymbol<G_Symbol> getNilSymbol(
 			final Tree<G_Symbol> tree) {
-		final HedgeSymbol<G_Symbol> ret;
-		if (nilCache2.containsKey(tree)) {
-			// this cast is safe, because the stored
-			// hedge symbol has always the same symbol type as the
-			// tree used as key
-			ret = (HedgeSymbol<G_Symbol>) nilCache2.get(tree);
-		} else {
-			ret = new HedgeSymbol<G_Symbol>(Nil.getNil());
-			nilCache2.put(tree, ret);
-		}
-		return ret;
+		// this cast is safe, because the nil symbol has
+		// no original symbol of the type parameter
+		return (HedgeSymbol<G_Symbol>) (HedgeSymbol<?>) nil;
 	}
 
 	/**
-	 * Checks the cache for the transformed cons symbol, generates it if needed.
-	 * Returns the transformed symbol.
+	 * Returns the transformed cons symbol, which is the same for all automata and trees.
 	 *
 	 * @param ha	the automaton the cons is needed in
 	 * @param <G_State> type of the states used in the given hedge automaton
@@ -128,40 +130,23 @@ public final class HedgeSymbolCache {
 	@SuppressWarnings("unchecked")
 	public static <G_Symbol extends UnrankedSymbol, G_State extends State> HedgeSymbol<G_Symbol> getConsSymbol(
 			final HedgeAutomaton<G_Symbol, G_State> ha) {
-		final HedgeSymbol<G_Symbol> ret;
-		if (consCache1.containsKey(ha)) {
-			// this cast is safe, because the stored
-			// hedge symbol has always the same symbol type as the
-			// hedge automaton used as key
-			ret = (HedgeSymbol<G_Symbol>) consCache1.get(ha);
-		} else {
-			ret = new HedgeSymbol<G_Symbol>(Cons.getCons());
-			consCache1.put(ha, ret);
-		}
-		return ret;
+		// this cast is safe, because the cons symbol has
+		// no original symbol of the type parameter
+		return (HedgeSymbol<G_Symbol>) (HedgeSymbol<?>) cons;
 	}
 
 	/**
-	 * Checks the cache for the transformed nil symbol, generates it if needed.
-	 * Returns the transformed symbol.
+	 * Returns the transformed cons symbol, which is the same for all automata and trees.
 	 *
-	 * @param tree the tree the nil is needed in
+	 * @param tree the tree the cons is needed in
 	 * @param <G_Symbol>  type of the symbol
 	 * @return the transformed symbol
 	 */
 	@SuppressWarnings("unchecked")
 	public static <G_Symbol extends UnrankedSymbol> HedgeSymbol<G_Symbol> getConsSymbol(
 			final Tree<G_Symbol> tree) {
-		final HedgeSymbol<G_Symbol> ret;
-		if (consCache2.containsKey(tree)) {
-			// this cast is safe, because the stored
-			// hedge symbol has always the same symbol type as the
-			// tree used as key
-			ret = (HedgeSymbol<G_Symbol>) consCache2.get(tree);
-		} else {
-			ret = new HedgeSymbol<G_Symbol>(Nil.getNil());
-			consCache2.put(tree, ret);
-		}
-		return ret;
+		// this cast is safe, because the cons symbol has
+		// no original symbol of the type parameter
+		return (HedgeSymbol<G_Symbol>) (HedgeSymbol<?>) cons;
 	}
 }
@@ -26,25 +26,72 @@ import de.uni_muenster.cs.sev.lethal.symbol.special.Nil;
 import de.uni_muenster.cs.sev.lethal.tree.common.Tree;
 import de.uni_muenster.cs.sev.lethal.tree.standard.StdTree;
 
+import de.uni_muenster.cs.sev.lethal.utils.LRUCache;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.LinkedList;
-import java.util.WeakHashMap;
+import java.util.List;
+import java.util.Map;
 
 /**
  * Creates and caches the transformed Tree<UnrankedSymbol>.
+ * <p/>
+ * The cache is shared by all threads. It keeps the most recently used trees up to a total
+ * of {@link #DFLT_MAX_NODES} nodes of the unranked trees, which can be changed with
+ * {@link LRUCache#setMaxWeight} on {@link #getCache()}. Transformed trees are mapped back
+ * to their hedges by a second map which is kept in sync with the cache.
  *
  * @author Anton, Maria
  */
 public final class TreeCache {
 
-	private static final WeakHashMap<Tree<? extends UnrankedSymbol>, Tree<? extends RankedSymbol>> treeCache = new WeakHashMap<Tree<? extends UnrankedSymbol>, Tree<? extends RankedSymbol>>();
+	/** Default maximum number of nodes of the cached unranked trees. */
+	public static final long DFLT_MAX_NODES = 1 << 20;
+
+	/** Hedges, keyed by their transformed trees. */
+	private static final Map<Tree<? extends RankedSymbol>, Tree<? extends UnrankedSymbol>> hedgeCache =
+			Collections.synchronizedMap(new HashMap<Tree<? extends RankedSymbol>, Tree<? extends UnrankedSymbol>>());
+
+	/** Transformed trees, keyed by their hedges. */
+	private static final LRUCache<Tree<? extends UnrankedSymbol>, Tree<? extends RankedSymbol>> treeCache =
+			new LRUCache<Tree<? extends UnrankedSymbol>, Tree<? extends RankedSymbol>>(DFLT_MAX_NODES) {
+		@Override
+		protected long weigh(final Tree<? extends UnrankedSymbol> hedge, final Tree<? extends RankedSymbol> tree) {
+			return countNodes(hedge);
+		}
+
+		@Override
+		protected void entryRemoved(final Tree<? extends UnrankedSymbol> hedge, final Tree<? extends RankedSymbol> tree) {
+			hedgeCache.remove(tree);
+		}
+	};
 
 	private TreeCache() {
 		super();
 	}
 
+	/**
+	 * Returns the cache of transformed trees, for example to read its statistics or to
+	 * change its maximum size.
+	 *
+	 * @return the cache of transformed trees
+	 */
+	public static LRUCache<Tree<? extends UnrankedSymbol>, Tree<? extends RankedSymbol>> getCache() {
+		return treeCache;
+	}
+
+	/**
+	 * Removes all trees from the cache.
+	 */
+	public static void clear() {
+		treeCache.clear();
+	}
+
 	/**
 	 * Checks the cache for the transformed tree, generates it if needed.
-	 * Returns the transformed tree.
+	 * Returns the transformed tree. The cache is shared by all threads.
 	 *
 	 * @param hedge the tree to be transformed
 	 * @param <G_Symbol>   type of the symbol used the tree
@@ -53,16 +100,27 @@ public final class TreeCache {
 	@SuppressWarnings("unchecked")
 	public static <G_Symbol extends UnrankedSymbol> Tree<HedgeSymbol<G_Symbol>> getTree(
 			final Tree<G_Symbol> hedge) {
-		final Tree<HedgeSymbol<G_Symbol>> ret;
-		if (treeCache.containsKey(hedge)) {
-			ret = (Tree<HedgeSymbol<G_Symbol>>) treeCache.get(hedge);
-		} else {
+		Tree<HedgeSymbol<G_Symbol>> ret = (Tree<HedgeSymbol<G_Symbol>>) treeCache.get(hedge);
+		if (ret == null) {
 			ret = transformHedge(hedge);
-			treeCache.put(hedge, ret);
+			put(hedge, ret);
 		}
 		return ret;
 	}
 
+	/**
+	 * Transforms the given hedge without looking into or filling the cache. This is meant
+	 * for hedges which are evaluated only once, possibly from several threads at once.
+	 *
+	 * @param hedge the tree to be transformed
+	 * @param <G_Symbol>   type of the symbol used the tree
+	 * @return the transformed tree
+	 */
+	public static <G_Symbol extends UnrankedSymbol> Tree<HedgeSymbol<G_Symbol>> transform(
+			final Tree<G_Symbol> hedge) {
+		return transformHedge(hedge);
+	}
+
 	/**
 	 * Checks the cache for the hedge, generates it if needed. Returns the
 	 * transformed hedge.
@@ -74,20 +132,38 @@ public final class TreeCache {
 	@SuppressWarnings("unchecked")
 	public static <G_Symbol extends UnrankedSymbol> Tree<G_Symbol> getHedge(
 			final Tree<HedgeSymbol<G_Symbol>> tree) {
-		if (treeCache.containsValue(tree)) {
-			for (final Tree<? extends UnrankedSymbol> t : treeCache.keySet()) {
-				if (treeCache.get(t).equals(tree)) {
-					return (Tree<G_Symbol>) t;
-				}
-			}
-		} else {
-			final Tree<G_Symbol> ret = transformTree(tree);
-			if (ret != null) {
-				treeCache.put(ret, tree);
-				return ret;
-			}
+		final Tree<G_Symbol> cached = (Tree<G_Symbol>) hedgeCache.get(tree);
+		// look up the hedge in the cache, too, to count the hit and mark it as used
+		if (cached != null && treeCache.get(cached) != null)
+			return cached;
+		final Tree<G_Symbol> ret = transformTree(tree);
+		if (ret != null)
+			put(ret, tree);
+		return ret;
+	}
+
+	/**
+	 * Caches a hedge together with its transformed tree.
+	 */
+	private static void put(final Tree<? extends UnrankedSymbol> hedge, final Tree<? extends RankedSymbol> tree) {
+		synchronized (treeCache) {
+			treeCache.put(hedge, tree);
+			hedgeCache.put(tree, hedge);
 		}
-		return null;
+	}
+
+	/**
+	 * Returns the number of nodes of a tree.
+	 */
+	private static long countNodes(final Tree<?> tree) {
+		long ret = 0;
+		final List<Tree<?>> todo = new ArrayList<Tree<?>>();
+		todo.add(tree);
+		while (!todo.isEmpty()) {
+			ret++;
+			todo.addAll(todo.remove(todo.size() - 1).getSubTrees());
+		}
+		return ret;
 	}
 
 	/**
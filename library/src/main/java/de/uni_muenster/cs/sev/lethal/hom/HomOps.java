@@ -34,6 +34,7 @@ import de.uni_muenster.cs.sev.lethal.symbol.standard.InnerSymbol;
 import de.uni_muenster.cs.sev.lethal.symbol.standard.LeafSymbol;
 import de.uni_muenster.cs.sev.lethal.tree.common.Tree;
 import de.uni_muenster.cs.sev.lethal.tree.common.TreeCreator;
+import de.uni_muenster.cs.sev.lethal.tree.common.TreeFolder;
 import de.uni_muenster.cs.sev.lethal.tree.common.TreeOps;
 import de.uni_muenster.cs.sev.lethal.tree.common.VarTreeOps;
 import de.uni_muenster.cs.sev.lethal.treeautomata.common.FTA;
@@ -108,11 +109,12 @@ public class HomOps {
 	 * Applies the homomorphism on a given tree. <br>
 	 * <br>
 	 * Algorithm: <br>
-	 * Build the tree recursively:
+	 * Build the tree bottom-up:
 	 * Let f(t_0,...,t_{n-1}) be a given tree. First apply the homomorphism on the subtrees,
 	 * then gain a list out of function trees of length n, the arity of f.
 	 * Then replace the variables (using the method {@link VarTreeOps#replaceVariables(Tree, List, TreeCreator)})
 	 * in the image of f according to this list.
+	 * The tree is traversed by a {@link TreeFolder}, so it may be arbitrarily deep.
 	 *
 	 * @param hom the homomorphism to be applied to the given tree
 	 * @param startTree the tree on which the given homomorphism is to be applied to
@@ -129,23 +131,21 @@ public class HomOps {
 	V extends Variable,
 	X extends Tree<F>,
 	Y extends Tree<G>>
-	Y apply(Hom<F,G,V> hom, X startTree, TreeCreator<G,Y> tc) {
+	Y apply(final Hom<F,G,V> hom, X startTree, final TreeCreator<G,Y> tc) {
 		/*
 		 * idea: number the variables and save in a list at the i-th place,
 		 * what should replace variable i, then replace it
 		 */
-		List<? extends Tree<F>> subTrees1 = startTree.getSubTrees();
-		// apply the homomorphism on subtrees
-		List<Y> subTrees2 = new LinkedList<Y>();
-		for (Tree<F> sub: subTrees1){
-			subTrees2.add(apply(hom, sub, tc));
-		}
-		// in the tree replace the variables by the right subtrees
-		if (hom.containsSrcSymbol(startTree.getSymbol()))
-			return VarTreeOps.<G,V,Y>replaceVariables(hom.imageOf(startTree.getSymbol()), subTrees2, tc);
-		else
-			throw new IllegalArgumentException("The homomorphism can not be applied on this tree, because it is not defined for all symbols.");
-		//return tc.makeTree(c.convert(startTree.getSymbol()), Collections.<Y>emptyList());
+		return new TreeFolder<F,Y>() {
+			@Override
+			protected Y combine(Tree<? extends F> node, List<Y> subTrees2) {
+				// in the tree replace the variables by the already transformed subtrees
+				if (hom.containsSrcSymbol(node.getSymbol()))
+					return VarTreeOps.<G,V,Y>replaceVariables(hom.imageOf(node.getSymbol()), subTrees2, tc);
+				else
+					throw new IllegalArgumentException("The homomorphism can not be applied on this tree, because it is not defined for all symbols.");
+			}
+		}.fold(startTree);
 	}
 
 
@@ -21,11 +21,16 @@
  */
 package de.uni_muenster.cs.sev.lethal.languages;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.stream.Stream;
 
 import de.uni_muenster.cs.sev.lethal.grammars.RTGRule;
 import de.uni_muenster.cs.sev.lethal.hom.Hom;
@@ -36,13 +41,16 @@ import de.uni_muenster.cs.sev.lethal.symbol.common.BiSymbol;
 import de.uni_muenster.cs.sev.lethal.symbol.common.RankedSymbol;
 import de.uni_muenster.cs.sev.lethal.symbol.common.Variable;
 import de.uni_muenster.cs.sev.lethal.tree.common.Tree;
+import de.uni_muenster.cs.sev.lethal.tree.common.TreeFolder;
 import de.uni_muenster.cs.sev.lethal.tree.standard.StdTreeCreator;
 import de.uni_muenster.cs.sev.lethal.treeautomata.common.FTA;
 import de.uni_muenster.cs.sev.lethal.treeautomata.common.FTACreator;
 import de.uni_muenster.cs.sev.lethal.treeautomata.common.FTAOps;
 import de.uni_muenster.cs.sev.lethal.treeautomata.common.FTAProperties;
 import de.uni_muenster.cs.sev.lethal.treeautomata.common.FTARule;
+import de.uni_muenster.cs.sev.lethal.treeautomata.common.TreeEnumerator;
 import de.uni_muenster.cs.sev.lethal.treeautomata.generic.GenFTA;
+import de.uni_muenster.cs.sev.lethal.treeautomata.generic.GenFTARule;
 import de.uni_muenster.cs.sev.lethal.treeautomata.generic.GenFTACreator;
 import de.uni_muenster.cs.sev.lethal.treeautomata.generic.GenFTAOps;
 import de.uni_muenster.cs.sev.lethal.utils.Converter;
@@ -54,7 +62,11 @@ import de.uni_muenster.cs.sev.lethal.utils.Pair;
  * stress on its structure, more than on the names of the states etc.<br>
  * As a consequence, the returned finite tree automaton is only a renamed version of
  * the finite tree automaton out of which a tree language was constructed - and these names are as
- * simple as possible.
+ * simple as possible.<br>
+ * The finite tree automaton is always kept reduced, so that emptiness is seen directly from its
+ * final states. Single trees are inserted into it incrementally, where equal subtrees share their
+ * states, and derived forms like the minimal deterministic finite tree automaton and the
+ * finiteness of the language are computed only on demand and kept until the language is changed.
  *
  * @param <F> type of symbols occurring in trees, which this class can deal with
  * @author Dorothea, Irene, Martin
@@ -119,12 +131,35 @@ public class RegularTreeLanguage<F extends RankedSymbol> implements Iterable<Tre
 
 	/**
 	 * Finite tree automaton which characterizes this regular tree language. <br>
-	 * Invariant: States are always numbered continuously from 0 to n-1, where
-	 * n is their total number.
+	 * Invariant: The finite tree automaton is reduced and its states are always
+	 * numbered continuously from 0 to n-1, where n is their total number.
 	 */
 	private GenFTA<F,NumberedState> underlyingFTA;
 
 
+	/**
+	 * States of the underlying finite tree automaton which have been added by {@link #addTree addTree},
+	 * indexed by the left hand side of their only rule. Each of these states accepts exactly one tree,
+	 * thus a tree can be inserted by looking up its subtrees bottom-up and only adding the missing ones,
+	 * similarly to a trie.<br>
+	 * Cleared whenever the underlying finite tree automaton is replaced.
+	 */
+	private Map<Pair<F,List<NumberedState>>,NumberedState> treeStates = new HashMap<Pair<F,List<NumberedState>>,NumberedState>();
+
+
+	/**
+	 * Minimal deterministic finite tree automaton accepting this language, null if it has not been
+	 * computed since the last change.
+	 */
+	private GenFTA<F,NumberedState> minimalFTA = null;
+
+
+	/**
+	 * Whether this language is finite, null if it is not known since the last change.
+	 */
+	private Boolean finite = null;
+
+
 	/**
 	 * Creates a new regular tree language out of an arbitrary finite tree automaton.
 	 *
@@ -133,7 +168,7 @@ public class RegularTreeLanguage<F extends RankedSymbol> implements Iterable<Tre
 	 */
 	public <Q extends State> RegularTreeLanguage(FTA<F,Q, ? extends FTARule<F,Q>> fta) {
 		if (fta == null) throw new IllegalArgumentException("RegularTreeLanguage(): fta must not be null.");
-		underlyingFTA = translateFTA(FTAOps.reduceFull(translateFTA(fta),new GenFTACreator<F,NumberedState>()));
+		setFTA(translateFTA(fta), false);
 	}
 
 
@@ -149,7 +184,7 @@ public class RegularTreeLanguage<F extends RankedSymbol> implements Iterable<Tre
 		if (grammarStart == null) throw new IllegalArgumentException("RegularTreeLanguage(): grammarStart must not be null.");
 		if (grammarRules == null) throw new IllegalArgumentException("RegularTreeLanguage(): grammarRules must not be null.");
 		Pair<Collection<FTARule<F, NumberedState>>, Collection<NumberedState>> convFTA = FTACreator.makeFTAFromGrammar(grammarStart, grammarRules, new NumberedStateConstructor<Object>());
-		underlyingFTA = new GenFTA<F,NumberedState>(convFTA.getFirst(), convFTA.getSecond());
+		setFTA(new GenFTA<F,NumberedState>(convFTA.getFirst(), convFTA.getSecond()), false);
 	}
 
 
@@ -159,7 +194,7 @@ public class RegularTreeLanguage<F extends RankedSymbol> implements Iterable<Tre
 	 * @param alphabet alphabet generating the regular tree language of all trees, which is to be created
 	 */
 	public RegularTreeLanguage(Collection<F> alphabet) {
-		underlyingFTA = FTAOps.computeAlphabetFTA(alphabet, new NumberedState(0), new GenFTACreator<F,NumberedState>());
+		setFTA(FTAOps.computeAlphabetFTA(alphabet, new NumberedState(0), new GenFTACreator<F,NumberedState>()), false);
 	}
 
 
@@ -167,18 +202,44 @@ public class RegularTreeLanguage<F extends RankedSymbol> implements Iterable<Tre
 	 * Creates an empty regular tree language.
 	 */
 	protected RegularTreeLanguage() {
-		underlyingFTA = new GenFTA<F,NumberedState>();
+		setFTA(new GenFTA<F,NumberedState>(), true);
 	}
 
 
 	/**
 	 * Creates a new regular tree language out of a given one by copying its description.
+	 * The forms computed so far for the given language are taken over.
 	 *
 	 * @param lang regular tree language to be copied
 	 * @return copied regular tree language
 	 */
 	public RegularTreeLanguage<F> copy(RegularTreeLanguage<F> lang) {
-		return new RegularTreeLanguage<F>(lang.underlyingFTA);
+		RegularTreeLanguage<F> ret = new RegularTreeLanguage<F>();
+		ret.underlyingFTA = new GenFTA<F,NumberedState>(lang.underlyingFTA);
+		ret.treeStates.putAll(lang.treeStates);
+		ret.minimalFTA = lang.minimalFTA;
+		ret.finite = lang.finite;
+		return ret;
+	}
+
+
+	/**
+	 * Replaces the underlying finite tree automaton and forgets everything which has been
+	 * computed for the former one.
+	 *
+	 * @param fta new underlying finite tree automaton, its states must be numbered continuously
+	 * from 0 to n-1 if it is reduced
+	 * @param reduced whether the given finite tree automaton is already reduced, otherwise it
+	 * is reduced and renumbered
+	 */
+	private void setFTA(GenFTA<F,NumberedState> fta, boolean reduced) {
+		if (reduced)
+			underlyingFTA = fta;
+		else
+			underlyingFTA = translateFTA(FTAOps.reduceFull(fta, new GenFTACreator<F,NumberedState>()));
+		treeStates.clear();
+		minimalFTA = null;
+		finite = null;
 	}
 
 
@@ -222,20 +283,41 @@ public class RegularTreeLanguage<F extends RankedSymbol> implements Iterable<Tre
 
 		};
 
-		underlyingFTA = FTAOps.union(underlyingFTA, lang.underlyingFTA, c13, c23, identConv, identConv, new GenFTACreator<F,NumberedState>());
+		// the union of two reduced finite tree automata is reduced
+		Boolean unionFinite = (finite != null && lang.finite != null) ? finite && lang.finite : null;
+		setFTA(FTAOps.union(underlyingFTA, lang.underlyingFTA, c13, c23, identConv, identConv, new GenFTACreator<F,NumberedState>()), true);
+		finite = unionFinite;
 	}
 
 
 	/**
-	 * Adds a tree to this language.
+	 * Adds a tree to this language. <br>
+	 * Algorithm:<br>
+	 * The tree is traversed bottom-up. For each node, the state accepting exactly the subtree
+	 * at this node is looked up by the symbol and the states of the subtrees. If there is none,
+	 * a new state with the next free number and a rule leading to it is added to the underlying
+	 * finite tree automaton. Finally, the state of the root becomes a final state. The underlying
+	 * finite tree automaton stays reduced, and the language stays finite if it was before.
 	 *
 	 * @param t tree to be added
 	 */
 	public void addTree(Tree<F> t) {
-		GenFTA<F,NumberedState> A_t = FTAOps.computeSingletonFTA(t, new GenFTACreator<F,NumberedState>(),new NumberedStateConstructor<Object>());
-		RegularTreeLanguage<F> L_t = new RegularTreeLanguage<F>();
-		L_t.underlyingFTA = A_t;
-		addTrees(L_t);
+		if (t == null) throw new IllegalArgumentException("addTree(): t must not be null.");
+		NumberedState q = new TreeFolder<F,NumberedState>() {
+			@Override
+			protected NumberedState combine(Tree<? extends F> tree, List<NumberedState> subValues) {
+				Pair<F,List<NumberedState>> lhs = new Pair<F,List<NumberedState>>(tree.getSymbol(), new ArrayList<NumberedState>(subValues));
+				NumberedState q = treeStates.get(lhs);
+				if (q == null) {
+					q = new NumberedState(underlyingFTA.getStates().size());
+					underlyingFTA.addRule(lhs.getFirst(), lhs.getSecond(), q);
+					treeStates.put(lhs, q);
+				}
+				return q;
+			}
+		}.fold(t);
+		underlyingFTA.addToFinals(q);
+		minimalFTA = null;
 	}
 
 
@@ -245,9 +327,24 @@ public class RegularTreeLanguage<F extends RankedSymbol> implements Iterable<Tre
 	 * @param lang language to be intersected with this regular tree language
 	 */
 	public void retainAllTrees(RegularTreeLanguage<F> lang) {
-		NumberedStateConstructor<Pair<NumberedState,NumberedState>> pc = new NumberedStateConstructor<Pair<NumberedState,NumberedState>>();
-		GenFTACreator<F,NumberedState> fc = new GenFTACreator<F,NumberedState>();
-		underlyingFTA = translateFTA(FTAOps.reduceBottomUp(FTAOps.intersectionBU(underlyingFTA, lang.underlyingFTA, pc, fc),fc));
+		Boolean intersectionFinite = (Boolean.TRUE.equals(finite) || Boolean.TRUE.equals(lang.finite)) ? Boolean.TRUE : null;
+		retainAll(Collections.singletonList(lang.underlyingFTA));
+		finite = intersectionFinite;
+	}
+
+
+	/**
+	 * Intersects this language with the languages of the given finite tree automata. The result of
+	 * {@link FTAOps#intersection(List, Converter, FTACreator)} is reduced and numbered
+	 * continuously already.
+	 *
+	 * @param ftas finite tree automata whose languages are to be intersected with this language
+	 */
+	private void retainAll(List<GenFTA<F,NumberedState>> ftas) {
+		List<GenFTA<F,NumberedState>> all = new ArrayList<GenFTA<F,NumberedState>>(ftas.size()+1);
+		all.add(underlyingFTA);
+		all.addAll(ftas);
+		setFTA(FTAOps.intersection(all, new NumberedStateConstructor<List<NumberedState>>(), new GenFTACreator<F,NumberedState>()), true);
 	}
 
 
@@ -257,10 +354,15 @@ public class RegularTreeLanguage<F extends RankedSymbol> implements Iterable<Tre
 	 * if and only if it is not contained in this language
 	 */
 	public RegularTreeLanguage<F> complement() {
-		GenFTACreator<F,NumberedState> fc = new GenFTACreator<F,NumberedState>();
-		NumberedStateConstructor<Set<NumberedState>> setToState = new NumberedStateConstructor<Set<NumberedState>>();
-		GenFTA<F,NumberedState> compFTA = FTAOps.complement(underlyingFTA, setToState, fc);
-		return new RegularTreeLanguage<F>(FTAOps.reduceFull(compFTA, fc));
+		// the minimal finite tree automaton is deterministic and complete, hence switching
+		// final and non-final states yields the minimal automaton of the complement
+		GenFTA<F,NumberedState> min = minimalFTA();
+		Set<NumberedState> newFinals = new HashSet<NumberedState>(min.getStates());
+		newFinals.removeAll(min.getFinalStates());
+		GenFTA<F,NumberedState> compFTA = new GenFTA<F,NumberedState>(min.getAlphabet(), min.getStates(), newFinals, min.getRules());
+		RegularTreeLanguage<F> ret = new RegularTreeLanguage<F>(compFTA);
+		ret.minimalFTA = compFTA;
+		return ret;
 	}
 
 
@@ -273,23 +375,55 @@ public class RegularTreeLanguage<F extends RankedSymbol> implements Iterable<Tre
 		NumberedStateConstructor<Set<NumberedState>> setToState = new NumberedStateConstructor<Set<NumberedState>>();
 		NumberedStateConstructor<Pair<NumberedState,NumberedState>> pairToState = new NumberedStateConstructor<Pair<NumberedState,NumberedState>>();
 		GenFTA<F,NumberedState> newFTA = FTAOps.difference(underlyingFTA, lang.underlyingFTA, setToState, fc, pairToState, fc);
-		GenFTA<F,NumberedState> newFTARed = FTAOps.reduceFull(newFTA, fc);
-		underlyingFTA = newFTARed;
+		Boolean differenceFinite = Boolean.TRUE.equals(finite) ? Boolean.TRUE : null;
+		setFTA(newFTA, false);
+		finite = differenceFinite;
 	}
 
 
 	/**
-	 * Removes a tree from this language, if it is contained.
+	 * Removes a tree from this language, if it is contained. <br>
+	 * Algorithm:<br>
+	 * Instead of complementing a finite tree automaton accepting only the given tree, this language
+	 * is intersected with a small non-deterministic finite tree automaton accepting all other trees
+	 * over the alphabet of this language. It has a state accepting all trees and, for each node of the
+	 * given tree, a state accepting all trees but the subtree at this node. A tree differs from
+	 * f(t1,...,tn), if it has another symbol at its root or differs from some ti at position i.
+	 *
 	 * @param t tree to be removed
 	 */
 	public void removeTree(Tree<F> t) {
+		if (t == null) throw new IllegalArgumentException("removeTree(): t must not be null.");
 		if (contains(t)) {
-			GenFTACreator<F,NumberedState> fc = new GenFTACreator<F,NumberedState>();
-			NumberedStateConstructor<Object> treeToState = new NumberedStateConstructor<Object>();
-			GenFTA<F,NumberedState> A_t = FTAOps.computeSingletonFTA(t, fc, treeToState);
-			RegularTreeLanguage<F> L_t = new RegularTreeLanguage<F>();
-			L_t.underlyingFTA = A_t;
-			removeTrees(L_t);
+			final Collection<F> alphabet = underlyingFTA.getAlphabet();
+			final NumberedState top = new NumberedState(0);
+			final List<GenFTARule<F,NumberedState>> rules = new ArrayList<GenFTARule<F,NumberedState>>();
+			final Map<Integer,List<NumberedState>> tops = new HashMap<Integer,List<NumberedState>>();
+			for (F g: alphabet) {
+				if (!tops.containsKey(g.getArity()))
+					tops.put(g.getArity(), Collections.nCopies(g.getArity(), top));
+				rules.add(new GenFTARule<F,NumberedState>(g, tops.get(g.getArity()), top));
+			}
+			NumberedState root = new TreeFolder<F,NumberedState>() {
+				private int count = 1;
+
+				@Override
+				protected NumberedState combine(Tree<? extends F> tree, List<NumberedState> subValues) {
+					NumberedState q = new NumberedState(count++);
+					for (F g: alphabet)
+						if (!g.equals(tree.getSymbol()))
+							rules.add(new GenFTARule<F,NumberedState>(g, tops.get(g.getArity()), q));
+					for (int i=0; i<subValues.size(); i++) {
+						List<NumberedState> src = new ArrayList<NumberedState>(tops.get(subValues.size()));
+						src.set(i, subValues.get(i));
+						rules.add(new GenFTARule<F,NumberedState>(tree.getSymbol(), src, q));
+					}
+					return q;
+				}
+			}.fold(t);
+			Boolean differenceFinite = finite;
+			retainAll(Collections.singletonList(new GenFTA<F,NumberedState>(rules, Collections.singleton(root))));
+			finite = differenceFinite;
 		}
 	}
 
@@ -317,6 +451,8 @@ public class RegularTreeLanguage<F extends RankedSymbol> implements Iterable<Tre
 	 * @return a tree contained in this language, if this language is not empty, null otherwise
 	 **/
 	public Tree<F> constructWitness() {
+		if (isEmpty())
+			return null;
 		return GenFTAOps.constructTreeFrom(underlyingFTA);
 	}
 
@@ -337,16 +473,19 @@ public class RegularTreeLanguage<F extends RankedSymbol> implements Iterable<Tre
 	 * @return true if this language is empty, false otherwise
 	 */
 	public boolean isEmpty() {
-		return FTAProperties.emptyLanguage(underlyingFTA);
+		// the underlying finite tree automaton is reduced, so each final state is reachable
+		return underlyingFTA.getFinalStates().isEmpty();
 	}
 
 
 	/**
-	 * Returns whether this language is finite.
+	 * Returns whether this language is finite. The result is kept until the language is changed.
 	 * @return true if this language is finite, false otherwise
 	 */
 	public boolean isFinite() {
-		return FTAProperties.finiteLanguage(underlyingFTA);
+		if (finite == null)
+			finite = FTAProperties.finiteLanguage(underlyingFTA);
+		return finite;
 	}
 
 
@@ -372,6 +511,28 @@ public class RegularTreeLanguage<F extends RankedSymbol> implements Iterable<Tre
 	}
 
 
+	/**
+	 * Returns a tree which is contained in this regular tree language, but not in the given one.
+	 * @param lang regular tree language to be compared with this regular tree language
+	 * @return a tree contained in this regular tree language, but not in the given one,
+	 * or null if this regular tree language is a subset of the given one
+	 */
+	public Tree<F> subsetCounterexample(RegularTreeLanguage<F> lang) {
+		return FTAProperties.subsetCounterexample(getFTA(), lang.getFTA(), new StdTreeCreator<F>());
+	}
+
+
+	/**
+	 * Returns a tree which is contained in exactly one of this and the given regular tree language.
+	 * @param lang regular tree language to be compared with this regular tree language
+	 * @return a tree contained in exactly one of the two regular tree languages,
+	 * or null if this regular tree language is the same as the given one
+	 */
+	public Tree<F> sameAsCounterexample(RegularTreeLanguage<F> lang) {
+		return FTAProperties.sameLanguageCounterexample(getFTA(), lang.getFTA(), new StdTreeCreator<F>());
+	}
+
+
 	/**
 	 * Returns the regular tree language obtained by substituting several regular tree languages into
 	 * a given tree.
@@ -391,7 +552,7 @@ public class RegularTreeLanguage<F extends RankedSymbol> implements Iterable<Tre
 		NumberedStateConstructor<Object> sb = new NumberedStateConstructor<Object>();
 		GenFTA<F,NumberedState> retFTA = FTAOps.substitute(tree, ftaLang, sb, sb, sb, fc);
 		RegularTreeLanguage<F> ret = new RegularTreeLanguage<F>();
-		ret.underlyingFTA = retFTA;
+		ret.setFTA(retFTA, false);
 		return ret;
 	}
 
@@ -441,7 +602,8 @@ public class RegularTreeLanguage<F extends RankedSymbol> implements Iterable<Tre
 
 
 	/**
-	 * Returns the underlying finite tree automaton.
+	 * Returns the underlying finite tree automaton. It is reduced and must not be modified.
+	 * Note that it is modified in place if a tree is added to this language.
 	 * @return the finite tree automaton which describes this language
 	 */
 	public GenFTA<F,? extends State> getFTA() {
@@ -450,29 +612,65 @@ public class RegularTreeLanguage<F extends RankedSymbol> implements Iterable<Tre
 
 
 	/**
+	 * Returns the minimal deterministic finite tree automaton which describes this language.
+	 * It is complete with respect to the alphabet of the underlying finite tree automaton.
+	 * The automaton is computed at the first call and kept until the language is changed, hence
+	 * it must not be modified.
+	 * @return the minimal deterministic finite tree automaton which describes this language
+	 * @see FTAOps#minimizeHopcroft
+	 */
+	public GenFTA<F,? extends State> getMinimalFTA() {
+		return minimalFTA();
+	}
+
+
+	/**
+	 * Returns the minimal deterministic finite tree automaton which describes this language,
+	 * computing it if necessary.
+	 * @return the minimal deterministic finite tree automaton which describes this language
+	 */
+	private GenFTA<F,NumberedState> minimalFTA() {
+		if (minimalFTA == null) {
+			GenFTACreator<F,NumberedState> fc = new GenFTACreator<F,NumberedState>();
+			NumberedStateConstructor<Set<NumberedState>> setToState = new NumberedStateConstructor<Set<NumberedState>>();
+			GenFTA<F,NumberedState> detFTA = FTAOps.determinize(underlyingFTA, fc, setToState);
+			NumberedState qbot = setToState.convert(new HashSet<NumberedState>());
+			minimalFTA = FTAOps.minimizeHopcroft(detFTA, qbot, fc, new NumberedStateConstructor<Set<NumberedState>>(), fc);
+		}
+		return minimalFTA;
+	}
+
+
+	/**
+	 * Returns an iterator over the trees of this language in the order of increasing size.
+	 * Later changes of this language do not affect the iterator.
 	 * @see java.lang.Iterable#iterator()
+	 * @see TreeEnumerator
 	 */
 	@Override
 	public Iterator<Tree<F>> iterator() {
-		return new Iterator<Tree<F>>() {
-			final RegularTreeLanguage<F> L = copy(RegularTreeLanguage.this);
-			@Override
-			public boolean hasNext() {
-				return !L.isEmpty();
-			}
+		return new TreeEnumerator<F,NumberedState,Tree<F>>(underlyingFTA, new StdTreeCreator<F>(), false, 0);
+	}
 
-			@Override
-			public Tree<F> next() {
-				Tree<F> next = L.constructWitness();
-				L.removeTree(next);
-				return next;
-			}
 
-			@Override
-			public void remove() {
-				throw new UnsupportedOperationException("Deletion of elements not allowed!");
-			}
+	/**
+	 * Returns a lazy stream of the trees of this language in the order of increasing size.
+	 * @return stream of the trees of this language
+	 */
+	public Stream<Tree<F>> stream() {
+		return stream(false, 0);
+	}
 
-		};
+
+	/**
+	 * Returns a lazy stream of the trees of this language in the order of increasing
+	 * size or height.
+	 * @param byHeight whether the trees are ordered by height, otherwise they are ordered by size
+	 * @param maxLevel maximal height or size, respectively, of the trees, 0 for no limit
+	 * @return stream of the trees of this language
+	 * @see FTAOps#streamTrees
+	 */
+	public Stream<Tree<F>> stream(boolean byHeight, int maxLevel) {
+		return FTAOps.streamTrees(underlyingFTA, new StdTreeCreator<F>(), byHeight, maxLevel);
 	}
 }
@@ -27,7 +27,11 @@ import javax.xml.parsers.*;
 import org.xml.sax.*;
 import org.xml.sax.helpers.*;
 
+import de.uni_muenster.cs.sev.lethal.hedgeautomaton.HedgeAutomaton;
+import de.uni_muenster.cs.sev.lethal.hedgeautomaton.StreamingHedgeValidator;
+import de.uni_muenster.cs.sev.lethal.states.State;
 import de.uni_muenster.cs.sev.lethal.symbol.common.*;
+import de.uni_muenster.cs.sev.lethal.symbol.standard.StdNamedUnrankedSymbol;
 import de.uni_muenster.cs.sev.lethal.tree.common.Tree;
 import de.uni_muenster.cs.sev.lethal.tree.special.StringTree;
 import de.uni_muenster.cs.sev.lethal.factories.NamedSymbolTreeFactory;
@@ -109,6 +113,100 @@ public class XMLTreeParser {
 		return handler.getResultTree();
 	}
 
+	/**
+	 * Decides whether a hedge automaton accepts the hedge of an XML Document, without building the hedge.
+	 * The result is the same as deciding the hedge returned by {@link #parseHedgeFromXML(File, boolean)},
+	 * but only memory proportional to the depth of the document is needed.
+	 * @param xmlfile XML File to read.
+	 * @param ha hedge automaton which shall decide the hedge.
+	 * @param includeAttributes if true attributes of XML Elements will be included in the hedge, otherwise they will be ignored.
+	 * @param <Q> state type of the hedge automaton.
+	 * @return whether the hedge automaton accepts the hedge of the XML Document.
+	 * @throws ParserConfigurationException XML Parser exception
+	 * @throws SAXException XML Parser exception
+	 * @throws IOException File read error.
+	 */
+	public static <Q extends State> boolean validateHedgeFromXML(File xmlfile, HedgeAutomaton<UnrankedSymbol,Q> ha, boolean includeAttributes) throws ParserConfigurationException, SAXException, IOException{
+		return XMLTreeParser.validateHedgeFromXML(xmlfile, new StreamingHedgeValidator<UnrankedSymbol,Q>(ha), includeAttributes);
+	}
+
+	/**
+	 * Decides with a given validator whether its hedge automaton accepts the hedge of an XML Document,
+	 * without building the hedge. The validator is reset before. Reading stops as soon as the document
+	 * cannot be accepted any more.
+	 * @param xmlfile XML File to read.
+	 * @param validator validator which shall decide the hedge.
+	 * @param includeAttributes if true attributes of XML Elements will be included in the hedge, otherwise they will be ignored.
+	 * @return whether the hedge automaton of the validator accepts the hedge of the XML Document.
+	 * @throws ParserConfigurationException XML Parser exception
+	 * @throws SAXException XML Parser exception
+	 * @throws IOException File read error.
+	 */
+	public static boolean validateHedgeFromXML(File xmlfile, StreamingHedgeValidator<UnrankedSymbol,?> validator, boolean includeAttributes) throws ParserConfigurationException, SAXException, IOException{
+		SAXParser parser = SAXParserFactory.newInstance().newSAXParser();
+		validator.reset();
+		try {
+			parser.parse(xmlfile, new SAXValidationHandler(validator, includeAttributes));
+		} catch (SAXValidationHandler.RejectedException e){
+			return false;
+		}
+		return validator.isAccepted();
+	}
+
+}
+
+/**
+ * Feeds the elements of a XML Document into a {@link StreamingHedgeValidator}, in the same form
+ * as the hedge built by {@link SAXParserHandler}.
+ */
+class SAXValidationHandler extends DefaultHandler{
+
+	/** Thrown to stop reading as soon as the document cannot be accepted any more. */
+	static class RejectedException extends SAXException{
+		private static final long serialVersionUID = 1L;
+	}
+
+	private static final UnrankedSymbol ATTR = new StdNamedUnrankedSymbol<String>("_attr_");
+	private static final UnrankedSymbol STRING = new StdNamedUnrankedSymbol<String>("_string_");
+
+	private StreamingHedgeValidator<UnrankedSymbol,?> validator;
+	private boolean includeAttributes;
+
+	public SAXValidationHandler(StreamingHedgeValidator<UnrankedSymbol,?> validator, boolean includeAttributes){
+		this.validator = validator;
+		this.includeAttributes = includeAttributes;
+	}
+
+	@Override
+	public void startElement(String uri, String localName, String qName, Attributes attributes) throws SAXException {
+		validator.startNode(new StdNamedUnrankedSymbol<String>(qName));
+		if (includeAttributes && attributes.getLength() != 0){
+			validator.startNode(ATTR);
+			for (int i = 0; i < attributes.getLength(); i++){
+				validator.startNode(new StdNamedUnrankedSymbol<String>(attributes.getLocalName(i)));
+				// the value as string tree, see StringTree
+				String value = attributes.getValue(i);
+				validator.startNode(STRING);
+				for (int j = 0; j < value.length(); j++){
+					validator.startNode(new StdNamedUnrankedSymbol<String>(value.substring(j, j+1)));
+					end();
+				}
+				end();
+				end();
+			}
+			end();
+		}
+	}
+
+	@Override
+	public void endElement(String uri, String localName, String qName) throws SAXException {
+		end();
+	}
+
+	private void end() throws RejectedException {
+		if (!validator.endNode()) throw new RejectedException();
+	}
+
 }
 
 class SAXParserHandler<S extends Symbol> extends DefaultHandler{
@@ -0,0 +1,80 @@
+/*
+ * Copyright 2009 Dorothea Jansen <d.jansen@uni-muenster.de>, Martin Mohr <mohrfrosch@uni-muenster.de>, Irene Thesing <i_thes01@uni-muenster.de>, Anton Reis <antonreis@gmx.de>, Maria Schatz <m_scha17@uni-muenster.de>, Philipp Claves <philipp.claves@uni-muenster.de>, Sezar Jarrous <sezar.jarrous@gmail.com>
+ *
+ * This file is part of LETHAL.
+ *
+ * LETHAL is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * LETHAL is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with LETHAL.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.uni_muenster.cs.sev.lethal.states;
+
+import de.uni_muenster.cs.sev.lethal.utils.Interned;
+
+/**
+ * Named state handed out by {@link de.uni_muenster.cs.sev.lethal.factories.InterningStateFactory}. <br>
+ * The factory creates at most one interned state for each name, so an interned state is
+ * only equal to itself, and comparing or hashing it never looks at the name. This makes
+ * states with large names, like the sets of states created by determinization, cheap
+ * to use in maps and sets.
+ *
+ * @param <N> type of the name
+ *
+ * @author Martin
+ */
+public class InternedState<N> extends NamedState<N> implements Interned {
+
+	/** Number of this state within its factory. */
+	private final int id;
+
+
+	/**
+	 * Constructs a new interned state. Should only be used by interning factories, which
+	 * have to make sure that there is at most one interned state for each name.
+	 *
+	 * @param name name of the new state
+	 * @param id number of the new state within its factory
+	 */
+	public InternedState(N name, int id) {
+		super(name);
+		this.id = id;
+	}
+
+
+	/**
+	 * @see de.uni_muenster.cs.sev.lethal.utils.Interned#getId()
+	 */
+	@Override
+	public int getId() {
+		return id;
+	}
+
+
+	/**
+	 * @see java.lang.Object#hashCode()
+	 */
+	@Override
+	public int hashCode() {
+		return id;
+	}
+
+
+	/**
+	 * An interned state is only equal to itself.
+	 *
+	 * @see java.lang.Object#equals(java.lang.Object)
+	 */
+	@Override
+	public boolean equals(Object obj) {
+		return this == obj;
+	}
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright 2009 Dorothea Jansen <d.jansen@uni-muenster.de>, Martin Mohr <mohrfrosch@uni-muenster.de>, Irene Thesing <i_thes01@uni-muenster.de>, Anton Reis <antonreis@gmx.de>, Maria Schatz <m_scha17@uni-muenster.de>, Philipp Claves <philipp.claves@uni-muenster.de>, Sezar Jarrous <sezar.jarrous@gmail.com>
+ *
+ * This file is part of LETHAL.
+ *
+ * LETHAL is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * LETHAL is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with LETHAL.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.uni_muenster.cs.sev.lethal.symbol.standard;
+
+import de.uni_muenster.cs.sev.lethal.utils.Interned;
+
+/**
+ * Named ranked symbol handed out by {@link de.uni_muenster.cs.sev.lethal.factories.InterningSymbolFactory}. <br>
+ * The factory creates at most one interned symbol for each name and arity, so an
+ * interned symbol is only equal to itself, and comparing or hashing it never looks at the name.
+ *
+ * @param <N> type of the name
+ *
+ * @author Martin
+ */
+public class InternedRankedSymbol<N> extends StdNamedRankedSymbol<N> implements Interned {
+
+	/** Number of this symbol within its factory. */
+	private final int id;
+
+
+	/**
+	 * Constructs a new interned symbol. Should only be used by interning factories, which
+	 * have to make sure that there is at most one interned symbol for each name and arity.
+	 *
+	 * @param name name of the new symbol
+	 * @param arity arity of the new symbol
+	 * @param id number of the new symbol within its factory
+	 */
+	public InternedRankedSymbol(N name, int arity, int id) {
+		super(name, arity);
+		this.id = id;
+	}
+
+
+	/**
+	 * @see de.uni_muenster.cs.sev.lethal.utils.Interned#getId()
+	 */
+	@Override
+	public int getId() {
+		return id;
+	}
+
+
+	/**
+	 * @see java.lang.Object#hashCode()
+	 */
+	@Override
+	public int hashCode() {
+		return id;
+	}
+
+
+	/**
+	 * An interned symbol is only equal to itself.
+	 *
+	 * @see java.lang.Object#equals(java.lang.Object)
+	 */
+	@Override
+	public boolean equals(Object obj) {
+		return this == obj;
+	}
+}
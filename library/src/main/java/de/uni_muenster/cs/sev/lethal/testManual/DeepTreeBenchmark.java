@@ -0,0 +1,152 @@
+/*
+ * Copyright 2009 Dorothea Jansen <d.jansen@uni-muenster.de>, Martin Mohr <mohrfrosch@uni-muenster.de>, Irene Thesing <i_thes01@uni-muenster.de>, Anton Reis <antonreis@gmx.de>, Maria Schatz <m_scha17@uni-muenster.de>, Philipp Claves <philipp.claves@uni-muenster.de>, Sezar Jarrous <sezar.jarrous@gmail.com>
+ *
+ * This file is part of LETHAL.
+ *
+ * LETHAL is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * LETHAL is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with LETHAL.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.uni_muenster.cs.sev.lethal.testManual;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import de.uni_muenster.cs.sev.lethal.hom.GenHom;
+import de.uni_muenster.cs.sev.lethal.parser.homomorphism.HomomorphismParser;
+import de.uni_muenster.cs.sev.lethal.parser.homomorphism.ParseException;
+import de.uni_muenster.cs.sev.lethal.states.NamedState;
+import de.uni_muenster.cs.sev.lethal.states.State;
+import de.uni_muenster.cs.sev.lethal.symbol.common.RankedSymbol;
+import de.uni_muenster.cs.sev.lethal.symbol.standard.StdNamedRankedSymbol;
+import de.uni_muenster.cs.sev.lethal.tree.common.Tree;
+import de.uni_muenster.cs.sev.lethal.tree.common.TreeOps;
+import de.uni_muenster.cs.sev.lethal.tree.standard.StdTree;
+import de.uni_muenster.cs.sev.lethal.treeautomata.common.FTA;
+import de.uni_muenster.cs.sev.lethal.treeautomata.common.FTAProperties;
+import de.uni_muenster.cs.sev.lethal.treeautomata.easy.EasyFTA;
+import de.uni_muenster.cs.sev.lethal.treeautomata.easy.EasyFTARule;
+
+/**
+ * Measures the running times of the tree traversals on very deep trees, like the
+ * Cons/Nil encodings of long sibling lists in hedges. The trees have the form
+ * cons(a,cons(a,...cons(a,nil)...)), and are evaluated by {@link TreeOps#getHeight},
+ * {@link FTAProperties#decide} with a compiled and a plain automaton,
+ * {@link FTAProperties#accessibleStatesDAG}, hashing and comparing and by applying a homomorphism.
+ *
+ * @author Martin
+ */
+public class DeepTreeBenchmark {
+
+	/**
+	 * Runs the measurements.
+	 *
+	 * @param args optional: depths of the trees, default 100000, 300000 and 1000000
+	 * @throws ParseException if the homomorphism cannot be parsed, which should not happen
+	 */
+	public static void main(String[] args) throws ParseException {
+		int[] depths = {100000, 300000, 1000000};
+		if (args.length > 0) {
+			depths = new int[args.length];
+			for (int i=0; i<args.length; i++)
+				depths[i] = Integer.parseInt(args[i]);
+		}
+
+		// automaton accepting the lists with an even number of a's
+		StdNamedRankedSymbol<String> cons = new StdNamedRankedSymbol<String>("cons", 2);
+		StdNamedRankedSymbol<String> a = new StdNamedRankedSymbol<String>("a", 0);
+		StdNamedRankedSymbol<String> nil = new StdNamedRankedSymbol<String>("nil", 0);
+		State qa = new NamedState<String>("a");
+		State even = new NamedState<String>("even");
+		State odd = new NamedState<String>("odd");
+		List<EasyFTARule> rules = new ArrayList<EasyFTARule>();
+		rules.add(new EasyFTARule(a, qa));
+		rules.add(new EasyFTARule(nil, even));
+		rules.add(new EasyFTARule(cons, odd, qa, even));
+		rules.add(new EasyFTARule(cons, even, qa, odd));
+		final EasyFTA fta = new EasyFTA(rules, even);
+		FTA<RankedSymbol,State,EasyFTARule> plain = new FTA<RankedSymbol,State,EasyFTARule>() {
+			public Set<State> getStates() {return fta.getStates();}
+			public Set<State> getFinalStates() {return fta.getFinalStates();}
+			public Set<? extends EasyFTARule> getRules() {return fta.getRules();}
+			public Set<? extends EasyFTARule> getSymbolRules(RankedSymbol f) {return fta.getSymbolRules(f);}
+			public Set<RankedSymbol> getAlphabet() {return fta.getAlphabet();}
+		};
+		GenHom<RankedSymbol,RankedSymbol> hom = HomomorphismParser.parseString("cons(x,y) -> cons(s(x),y) \n a->a \n nil->nil");
+
+		for (int depth: depths) {
+			Tree<RankedSymbol> tree = makeList(cons, a, nil, depth);
+			Tree<RankedSymbol> copy = makeList(cons, a, nil, depth);
+			System.out.println("Depth " + depth + ":");
+
+			long start = System.nanoTime();
+			int height = TreeOps.getHeight(tree);
+			print("getHeight", height, start);
+
+			start = System.nanoTime();
+			boolean accepted = fta.decide(tree);
+			print("decide (compiled)", accepted, start);
+
+			start = System.nanoTime();
+			accepted = FTAProperties.decide(plain, tree);
+			print("decide (plain)", accepted, start);
+
+			start = System.nanoTime();
+			Set<State> states = FTAProperties.accessibleStatesDAG(fta, tree);
+			print("accessibleStatesDAG", states, start);
+
+			start = System.nanoTime();
+			boolean equal = tree.hashCode() == copy.hashCode() && tree.equals(copy);
+			print("hashCode/equals", equal, start);
+
+			start = System.nanoTime();
+			Tree<RankedSymbol> image = hom.apply(tree);
+			print("HomOps.apply", TreeOps.getHeight(image), start);
+		}
+	}
+
+
+	/**
+	 * Creates the list cons(a,cons(a,...cons(a,nil)...)) with the given number of a's.
+	 * The nodes are created directly instead of by a tree factory, which would share equal
+	 * subtrees and calculate their hash codes.
+	 *
+	 * @param cons binary list constructor
+	 * @param a list element
+	 * @param nil empty list
+	 * @param length number of elements of the list
+	 * @return list with the given number of elements
+	 */
+	private static Tree<RankedSymbol> makeList(RankedSymbol cons, RankedSymbol a, RankedSymbol nil, int length) {
+		Tree<RankedSymbol> ret = new StdTree<RankedSymbol>(nil);
+		for (int i=0; i<length; i++) {
+			List<Tree<RankedSymbol>> subTrees = new ArrayList<Tree<RankedSymbol>>(2);
+			subTrees.add(new StdTree<RankedSymbol>(a));
+			subTrees.add(ret);
+			ret = new StdTree<RankedSymbol>(cons, subTrees);
+		}
+		return ret;
+	}
+
+
+	/**
+	 * Prints the result and running time of a measurement.
+	 *
+	 * @param name name of the measured operation
+	 * @param result result of the measured operation
+	 * @param start start time of the measurement in nanoseconds
+	 */
+	private static void print(String name, Object result, long start) {
+		System.out.println("  " + name + ": " + result + " in " + (System.nanoTime() - start)/1000000 + " ms");
+	}
+}
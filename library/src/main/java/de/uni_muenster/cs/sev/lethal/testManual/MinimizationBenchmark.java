@@ -0,0 +1,87 @@
+/*
+ * Copyright 2009 Dorothea Jansen <d.jansen@uni-muenster.de>, Martin Mohr <mohrfrosch@uni-muenster.de>, Irene Thesing <i_thes01@uni-muenster.de>, Anton Reis <antonreis@gmx.de>, Maria Schatz <m_scha17@uni-muenster.de>, Philipp Claves <philipp.claves@uni-muenster.de>, Sezar Jarrous <sezar.jarrous@gmail.com>
+ *
+ * This file is part of LETHAL.
+ *
+ * LETHAL is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * LETHAL is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with LETHAL.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.uni_muenster.cs.sev.lethal.testManual;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import de.uni_muenster.cs.sev.lethal.states.State;
+import de.uni_muenster.cs.sev.lethal.symbol.common.RankedSymbol;
+import de.uni_muenster.cs.sev.lethal.treeautomata.easy.EasyFTA;
+import de.uni_muenster.cs.sev.lethal.treeautomata.easy.EasyFTAOps;
+import de.uni_muenster.cs.sev.lethal.treeautomata.easy.EasyFTARule;
+import de.uni_muenster.cs.sev.lethal.utils.Pair;
+import de.uni_muenster.cs.sev.lethal.utils.RandomFTAGenerator;
+
+/**
+ * Compares the running times of {@link EasyFTAOps#minimize} and {@link EasyFTAOps#minimizeHopcroft}
+ * on random automata created by {@link RandomFTAGenerator}. To get large deterministic automata without
+ * determinizing, only the first rule of each left hand side of the random automata is kept.
+ *
+ * @author Martin
+ */
+public class MinimizationBenchmark {
+
+	/**
+	 * Runs the comparison.
+	 *
+	 * @param args optional: number of states, number of symbols, maximal arity, number of rules,
+	 * number of final states and number of rounds of the random automata
+	 */
+	public static void main(String[] args) {
+		int[] params = {150, 4, 2, 1000, 10, 3};
+		for (int i=0; i<args.length && i<params.length; i++)
+			params[i] = Integer.parseInt(args[i]);
+		RandomFTAGenerator rfc = new RandomFTAGenerator(params[0], params[1], params[2], params[3], params[4], RandomFTAGenerator.DFLT_SEED);
+
+		for (int i=0; i<params[5]; i++) {
+			EasyFTA det = makeDeterministic(rfc.generateRaw());
+			System.out.println("Round " + i + ": " + det.getStates().size() + " states, " + det.getRules().size() + " rules");
+
+			long start = System.nanoTime();
+			EasyFTA hop = EasyFTAOps.minimizeHopcroft(det);
+			long hopTime = System.nanoTime() - start;
+			System.out.println("  minimizeHopcroft: " + hop.getStates().size() + " states in " + hopTime/1000000 + " ms");
+
+			start = System.nanoTime();
+			EasyFTA min = EasyFTAOps.minimize(det);
+			long minTime = System.nanoTime() - start;
+			System.out.println("  minimize:         " + min.getStates().size() + " states in " + minTime/1000000 + " ms");
+		}
+	}
+
+
+	/**
+	 * Makes a finite tree automaton deterministic by keeping only the first rule for each
+	 * left hand side. Of course, the language changes by this.
+	 *
+	 * @param fta finite tree automaton to be made deterministic
+	 * @return deterministic finite tree automaton with a subset of the rules of the given one
+	 */
+	private static EasyFTA makeDeterministic(EasyFTA fta) {
+		Map<Pair<RankedSymbol,List<State>>,EasyFTARule> rules = new HashMap<Pair<RankedSymbol,List<State>>,EasyFTARule>();
+		for (EasyFTARule r: fta.getRules()) {
+			Pair<RankedSymbol,List<State>> lhs = new Pair<RankedSymbol,List<State>>(r.getSymbol(), r.getSrcStates());
+			if (!rules.containsKey(lhs))
+				rules.put(lhs, r);
+		}
+		return new EasyFTA(rules.values(), fta.getFinalStates());
+	}
+}
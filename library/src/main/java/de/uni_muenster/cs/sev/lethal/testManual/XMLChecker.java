@@ -47,21 +47,22 @@ public class XMLChecker {
 
 	/**
 	 * Reads in an XML-document as hedge and a hedge grammar describing an XML-Schema. Applies the schema on the
-	 * XML-document and checks whether it satisfies the schema
+	 * XML-document and checks whether it satisfies the schema. <br>
+	 * With the option -stream, the XML-document is checked while it is read, without building the hedge,
+	 * so that also documents which do not fit into memory can be checked.
 	 *
-	 * @param args input files, first the schema file, then the XML-document
+	 * @param args optionally -stream, then the input files, first the schema file, then the XML-document
 	 * @throws ParserConfigurationException foo
 	 * @throws SAXException bar
 	 * @throws IOException foobar
 	 * @throws ParseException 42
 	 */
 	public static void main(String[] args) throws ParserConfigurationException, SAXException, IOException, ParseException {
-		if (args.length != 2) {System.err.println("Usage: xmlcheck schema_file xml_file"); System.exit(1);}
+		boolean stream = args.length == 3 && args[0].equals("-stream");
+		if (args.length != (stream ? 3 : 2)) {System.err.println("Usage: xmlcheck [-stream] schema_file xml_file"); System.exit(1);}
 
-		File schemaFile = new File(args[0]);
-		File xmlfile = new File(args[1]);
-
-		Tree<UnrankedSymbol> hedge = XMLTreeParser.parseHedgeFromXML(xmlfile);
+		File schemaFile = new File(args[stream ? 1 : 0]);
+		File xmlfile = new File(args[stream ? 2 : 1]);
 
 		FileReader fis = new FileReader(schemaFile);
 		char[] cbuf = new char[10240];
@@ -69,7 +70,12 @@ public class XMLChecker {
 
 		EasyHedgeAutomaton ha = HedgeGrammarParser.parseString(new String(cbuf,0, len)).getHA();
 
-		System.out.println("Accept: " + EasyHAOps.decide(ha, hedge));
+		if (stream) {
+			System.out.println("Accept: " + XMLTreeParser.validateHedgeFromXML(xmlfile, ha, false));
+		} else {
+			Tree<UnrankedSymbol> hedge = XMLTreeParser.parseHedgeFromXML(xmlfile);
+			System.out.println("Accept: " + EasyHAOps.decide(ha, hedge));
+		}
 	}
 
 }
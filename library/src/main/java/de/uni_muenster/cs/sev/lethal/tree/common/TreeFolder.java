@@ -0,0 +1,98 @@
+/*
+ * Copyright 2009 Dorothea Jansen <d.jansen@uni-muenster.de>, Martin Mohr <mohrfrosch@uni-muenster.de>, Irene Thesing <i_thes01@uni-muenster.de>, Anton Reis <antonreis@gmx.de>, Maria Schatz <m_scha17@uni-muenster.de>, Philipp Claves <philipp.claves@uni-muenster.de>, Sezar Jarrous <sezar.jarrous@gmail.com>
+ *
+ * This file is part of LETHAL.
+ *
+ * LETHAL is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * LETHAL is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with LETHAL.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.uni_muenster.cs.sev.lethal.tree.common;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import de.uni_muenster.cs.sev.lethal.symbol.common.Symbol;
+
+/**
+ * Computes a value for a tree bottom-up, i.e. the value of each node is computed
+ * from its symbol and the values of its subtrees. <br>
+ * <br>
+ * The tree is traversed in post-order with an explicit stack instead of recursion,
+ * so that arbitrarily deep trees, like long lists encoded as trees, can be handled
+ * without overflowing the call stack. The values of the subtrees are kept on a
+ * value stack and handed to {@link #combine combine} as view of this stack, hence
+ * no list is allocated per node by the traversal itself.
+ *
+ * @param <S> symbol type of the trees to be folded
+ * @param <R> type of the computed values
+ *
+ * @author Martin
+ */
+public abstract class TreeFolder<S extends Symbol,R> {
+
+	/**
+	 * Computes the value of a node from the values of its subtrees. <br>
+	 * The given list is only valid during this call and must be copied if it is to be kept,
+	 * for example as list of subtrees of a newly created tree.
+	 *
+	 * @param tree node whose value is to be computed
+	 * @param subValues values of the subtrees of the node, in the order of the subtrees
+	 * @return value of the node
+	 */
+	protected abstract R combine(Tree<? extends S> tree, List<R> subValues);
+
+
+	/**
+	 * Computes the value of a given tree.<br>
+	 * <br>
+	 * Algorithm:<br>
+	 * For every node on the path from the root to the current node, the node and the number of
+	 * its subtrees already visited are stored. If a node has another subtree, the subtree
+	 * is put on top, otherwise the values of the subtrees are taken from the value stack,
+	 * combined and the result is put on the value stack.
+	 *
+	 * @param tree tree whose value is to be computed
+	 * @return value of the given tree
+	 */
+	public R fold(Tree<? extends S> tree) {
+		if (tree == null) throw new IllegalArgumentException("fold(): tree must not be null.");
+		List<Tree<? extends S>> path = new ArrayList<Tree<? extends S>>();
+		int[] next = new int[16];
+		List<R> values = new ArrayList<R>();
+		path.add(tree);
+		while (!path.isEmpty()) {
+			int top = path.size()-1;
+			Tree<? extends S> node = path.get(top);
+			List<? extends Tree<? extends S>> subTrees = node.getSubTrees();
+			int i = next[top];
+			if (i < subTrees.size()) {
+				next[top] = i+1;
+				if (top+1 == next.length) {
+					int[] newNext = new int[2*next.length];
+					System.arraycopy(next, 0, newNext, 0, next.length);
+					next = newNext;
+				}
+				next[top+1] = 0;
+				path.add(subTrees.get(i));
+			} else {
+				int n = values.size();
+				List<R> subValues = values.subList(n-subTrees.size(), n);
+				R value = combine(node, subValues);
+				subValues.clear();
+				values.add(value);
+				path.remove(top);
+			}
+		}
+		return values.get(0);
+	}
+}
@@ -21,8 +21,8 @@
  */
 package de.uni_muenster.cs.sev.lethal.tree.common;
 
+import java.util.ArrayList;
 import java.util.HashSet;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Set;
 import java.util.Stack;
@@ -39,20 +39,38 @@ import de.uni_muenster.cs.sev.lethal.utils.Converter;
 public class TreeOps {
 
 	/**
-	 * Calculates the height of a tree, that is the maximal depth.
+	 * Calculates the height of a tree, that is the maximal depth.<br>
+	 * The tree is traversed with an explicit stack, so the height may be arbitrarily large.
 	 *
 	 * @param <S> type of symbols occurring in given tree
 	 * @param tree tree of which the height shall be computed
 	 * @return height of the tree
 	 */
 	public static <S extends Symbol> int getHeight(Tree<S> tree){
+		List<Tree<S>> toDo = new ArrayList<Tree<S>>();
+		int[] depths = new int[16];
 		int max = 0;
-		for (Tree<S> sub: tree.getSubTrees()){
-			int height = getHeight(sub);
-			if (height > max)
-				max = height;
+		toDo.add(tree);
+		depths[0] = 1;
+		while (!toDo.isEmpty()) {
+			int top = toDo.size()-1;
+			Tree<S> next = toDo.remove(top);
+			int depth = depths[top];
+			if (depth > max)
+				max = depth;
+			List<? extends Tree<S>> subTrees = next.getSubTrees();
+			int n = subTrees.size();
+			if (top+n >= depths.length) {
+				int[] newDepths = new int[Math.max(2*depths.length, top+n+1)];
+				System.arraycopy(depths, 0, newDepths, 0, depths.length);
+				depths = newDepths;
+			}
+			for (int i=0; i<n; i++) {
+				toDo.add(subTrees.get(i));
+				depths[top+i] = depth+1;
+			}
 		}
-		return 1+max;
+		return max;
 	}
 
 	/**
@@ -84,16 +102,17 @@ public class TreeOps {
 	 * @return true if and only if there is a subtree whose root is annotated with the specified symbol
 	 */
 	public static <S extends Symbol> boolean containsSymbol(Tree<S> tree, S symbol){
-		// true, if the root symbol is the looked for symbol
-		if (tree.getSymbol().equals(symbol)) {
-			return true;
+		Stack<Tree<S>> toDo = new Stack<Tree<S>>();
+		toDo.push(tree);
+		while (!toDo.isEmpty()) {
+			Tree<S> next = toDo.pop();
+			// true, if the root symbol is the looked for symbol
+			if (next.getSymbol().equals(symbol))
+				return true;
 			// else look in the subtrees
-		} else {
-			for (Tree<S> sub : tree.getSubTrees()){
-				if (containsSymbol(sub, symbol)){
-					return true;
-				}
-			}
+			List<? extends Tree<S>> subTrees = next.getSubTrees();
+			for (int i=subTrees.size()-1; i>=0; i--)
+				toDo.push(subTrees.get(i));
 		}
 		// if we are at this point, the symbol is not contained
 		return false;
@@ -113,12 +132,12 @@ public class TreeOps {
 	 */
 	public static <S1 extends Symbol,
 	S2 extends Symbol,
-	T2 extends Tree<S2>> T2 convert(Tree<S1> tree, Converter<S1,S2> c, TreeCreator<S2,T2> tc) {
-		S2 newSymbol = c.convert(tree.getSymbol());
-		List<T2> newSubs = new LinkedList<T2>();
-		for (Tree<S1> sub: tree.getSubTrees()) {
-			newSubs.add(convert(sub,c,tc));
-		}
-		return tc.makeTree(newSymbol,newSubs);
+	T2 extends Tree<S2>> T2 convert(Tree<S1> tree, final Converter<S1,S2> c, final TreeCreator<S2,T2> tc) {
+		return new TreeFolder<S1,T2>() {
+			@Override
+			protected T2 combine(Tree<? extends S1> node, List<T2> newSubs) {
+				return tc.makeTree(c.convert(node.getSymbol()), new ArrayList<T2>(newSubs));
+			}
+		}.fold(tree);
 	}
 }
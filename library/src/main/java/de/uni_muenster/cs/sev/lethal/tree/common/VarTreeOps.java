@@ -22,8 +22,8 @@
 package de.uni_muenster.cs.sev.lethal.tree.common;
 
 
+import java.util.ArrayList;
 import java.util.HashSet;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -38,7 +38,8 @@ import de.uni_muenster.cs.sev.lethal.symbol.standard.LeafSymbol;
 /**
  * This class encapsulates some operations on variable trees,
  * for example in order to find some variables in a variable tree or
- * or to get the highest number of variables, which is relevant for applying homomorphisms.
+ * or to get the highest number of variables, which is relevant for applying homomorphisms.<br>
+ * All operations traverse the trees with an explicit stack, so the trees may be arbitrarily deep.
  *
  * @see de.uni_muenster.cs.sev.lethal.hom.EasyHom
  *
@@ -56,39 +57,34 @@ public class VarTreeOps {
 	 * @return highest variable number contained in the specified tree
 	 */
 	public static <F extends RankedSymbol, V extends Variable> int getHighestVariableNumber(Tree<? extends BiSymbol<F,V>> varTree) {
-		return getHighestNumber(varTree, -1);
+		int max = -1;
+		Stack<Tree<? extends BiSymbol<F,V>>> toDo = new Stack<Tree<? extends BiSymbol<F,V>>>();
+		toDo.push(varTree);
+		while (!toDo.isEmpty()) {
+			Tree<? extends BiSymbol<F,V>> s = toDo.pop();
+			if (s.getSymbol().isLeafType()) {
+				int nr = s.getSymbol().asLeafSymbol().getComponentNumber();
+				if (nr > max)
+					max = nr;
+			} else
+				pushSubTrees(s, toDo);
+		}
+		return max;
 	}
 
+
 	/**
-	 * Helper method for getHighestVariableTree() - computes the highest variable number relative
-	 * to a given maximum.
+	 * Pushes the subtrees of a given tree on a stack, such that the first subtree is on top.
 	 *
-	 * @param <F> type of function symbols occurring in the specified tree
-	 * @param <V> type of variables occurring in the specified tree
-	 * @param varTree tree to compute the highest variable number of
-	 * @param max the already calculated temporary maximum
-	 * @return the highest VariableNumber which is contained in this tree and is higher than max.
+	 * @param <T> type of the subtrees
+	 * @param tree tree whose subtrees are to be pushed
+	 * @param toDo stack the subtrees are pushed on
 	 */
-	private static <F extends RankedSymbol, V extends Variable> int getHighestNumber(Tree<? extends BiSymbol<F,V>> varTree, int max) {
-		if (varTree.getSymbol().isLeafType()) {
-			V var = varTree.getSymbol().asLeafSymbol();
-			int nr = var.getComponentNumber();
-			if (nr > max)
-				return nr;
-		}
-		else {
-			F root = varTree.getSymbol().asInnerSymbol();
-			if (root.getArity() != 0){
-				for (Tree<? extends BiSymbol<F,V>> sub: varTree.getSubTrees()){
-					int nr = VarTreeOps.<F,V>getHighestNumber(sub, max);
-					if (nr > max){
-						max = nr;
-					}
-				}
-				return max;
-			}
-		}
-		return max;
+	private static <T extends Tree<?>> void pushSubTrees(Tree<?> tree, Stack<T> toDo) {
+		@SuppressWarnings("unchecked")
+		List<? extends T> subTrees = (List<? extends T>)tree.getSubTrees();
+		for (int i=subTrees.size()-1; i>=0; i--)
+			toDo.push(subTrees.get(i));
 	}
 
 	/**
@@ -101,17 +97,17 @@ public class VarTreeOps {
 	 * @return true if a variable with the number i is contained in the given tree
 	 */
 	public static <F extends RankedSymbol, V extends Variable> boolean containsVariable(Tree<? extends BiSymbol<F,V>> varTree, int i) {
-		if (varTree.getSymbol().isLeafType()) {
-			V v = varTree.getSymbol().asLeafSymbol();
-			return i == v.getComponentNumber();
-		} else {
-			for (Tree<? extends BiSymbol<F,V>> sub: varTree.getSubTrees()){
-				if (VarTreeOps.<F,V>containsVariable(sub, i)){
+		Stack<Tree<? extends BiSymbol<F,V>>> toDo = new Stack<Tree<? extends BiSymbol<F,V>>>();
+		toDo.push(varTree);
+		while (!toDo.isEmpty()) {
+			Tree<? extends BiSymbol<F,V>> s = toDo.pop();
+			if (s.getSymbol().isLeafType()) {
+				if (i == s.getSymbol().asLeafSymbol().getComponentNumber())
 					return true;
-				}
-			}
-			return false;
+			} else
+				pushSubTrees(s, toDo);
 		}
+		return false;
 	}
 
 
@@ -125,16 +121,17 @@ public class VarTreeOps {
 	 * @return true if a variable with the number i is contained in the given tree
 	 */
 	public static <F extends RankedSymbol, V extends Variable> boolean containsVariable(Tree<? extends BiSymbol<F,V>> varTree, V x) {
-		if (varTree.getSymbol().isLeafType()) {
-			return x.equals(varTree.getSymbol().asLeafSymbol());
-		} else {
-			for (Tree<? extends BiSymbol<F,V>> sub: varTree.getSubTrees()){
-				if (VarTreeOps.<F,V>containsVariable(sub, x)){
+		Stack<Tree<? extends BiSymbol<F,V>>> toDo = new Stack<Tree<? extends BiSymbol<F,V>>>();
+		toDo.push(varTree);
+		while (!toDo.isEmpty()) {
+			Tree<? extends BiSymbol<F,V>> s = toDo.pop();
+			if (s.getSymbol().isLeafType()) {
+				if (x.equals(s.getSymbol().asLeafSymbol()))
 					return true;
-				}
-			}
-			return false;
+			} else
+				pushSubTrees(s, toDo);
 		}
+		return false;
 	}
 
 	/**
@@ -147,13 +144,14 @@ public class VarTreeOps {
 	 */
 	public static <F extends RankedSymbol, V extends Variable> Set<V> getVariables(Tree<BiSymbol<F,V>> varTree) {
 		Set<V> vars = new HashSet<V>();
-		if (varTree.getSymbol().isLeafType()) {
-			V v = varTree.getSymbol().asLeafSymbol();
-			vars.add(v);
-		} else {
-			for (Tree<BiSymbol<F,V>> sub: varTree.getSubTrees()){
-				vars.addAll(VarTreeOps.<F,V>getVariables(sub));
-			}
+		Stack<Tree<BiSymbol<F,V>>> toDo = new Stack<Tree<BiSymbol<F,V>>>();
+		toDo.push(varTree);
+		while (!toDo.isEmpty()) {
+			Tree<BiSymbol<F,V>> s = toDo.pop();
+			if (s.getSymbol().isLeafType())
+				vars.add(s.getSymbol().asLeafSymbol());
+			else
+				pushSubTrees(s, toDo);
 		}
 		return vars;
 	}
@@ -199,28 +197,22 @@ public class VarTreeOps {
 	public static <F extends RankedSymbol,
 	V extends Variable,
 	U extends Tree<F>>
-	U replaceVariables(Tree<? extends BiSymbol<F,V>> varTree, List<U> replaceTrees, TreeCreator<F,U> tc) {
-		// if the symbol is an Variable, replace it by the according subtree
-		if (varTree.getSymbol().isLeafType()) {
-			int nr = varTree.getSymbol().asLeafSymbol().getComponentNumber();
-			if (replaceTrees.size() <= nr){
-				throw new IllegalArgumentException("The given List of replacing trees is not long enough, it must be bigger than " + nr );
-			} else
-				return replaceTrees.get(nr);
-		}
-		// else it is a function symbol
-		// look in all subtrees for variables and replace them recursively
-		else {
-			F sf = varTree.getSymbol().asInnerSymbol();
-			List<? extends Tree<? extends BiSymbol<F,V>>> subs = varTree.getSubTrees();
-			List<U> newsubs = new LinkedList<U>();
-			// apply the function on the subtrees as long as all variables are reached an eliminated
-			for (Tree<? extends BiSymbol<F,V>> sub: subs){
-				newsubs.add(VarTreeOps.<F,V,U>replaceVariables(sub, replaceTrees, tc));
+	U replaceVariables(Tree<? extends BiSymbol<F,V>> varTree, final List<U> replaceTrees, final TreeCreator<F,U> tc) {
+		return new TreeFolder<BiSymbol<F,V>,U>() {
+			@Override
+			protected U combine(Tree<? extends BiSymbol<F,V>> node, List<U> newsubs) {
+				// if the symbol is an Variable, replace it by the according subtree
+				if (node.getSymbol().isLeafType()) {
+					int nr = node.getSymbol().asLeafSymbol().getComponentNumber();
+					if (replaceTrees.size() <= nr){
+						throw new IllegalArgumentException("The given List of replacing trees is not long enough, it must be bigger than " + nr );
+					} else
+						return replaceTrees.get(nr);
+				}
+				// else it is a function symbol, whose subtrees already have been substituted
+				return tc.makeTree(node.getSymbol().asInnerSymbol(), new ArrayList<U>(newsubs));
 			}
-			// produce the tree
-			return tc.makeTree(sf, newsubs);
-		}
+		}.fold(varTree);
 	}
 
 
@@ -241,7 +233,7 @@ public class VarTreeOps {
 	public static <F extends RankedSymbol,
 	V extends Variable,
 	U extends Tree<BiSymbol<F,V>>>
-	U replaceOneVariable(Tree<? extends BiSymbol<F,V>> varTree, U replaceTree, TreeCreator<BiSymbol<F,V>,U> tc) {
+	U replaceOneVariable(Tree<? extends BiSymbol<F,V>> varTree, final U replaceTree, final TreeCreator<BiSymbol<F,V>,U> tc) {
 
 		if (varTree == null){
 			throw new NullPointerException("varTree is not there.");
@@ -250,22 +242,16 @@ public class VarTreeOps {
 			throw new IllegalArgumentException("varTree must only contain one variable.");
 		}
 
-		// if the symbol is an Variable, replace it by the given replacing tree
-		if (varTree.getSymbol().isLeafType()) {
-			return replaceTree;
-		}
-		// else it is a function symbol
-		// look in all subtrees for variables and replace them recursively
-		else {
-			List<? extends Tree<? extends BiSymbol<F,V>>> subs = varTree.getSubTrees();
-			List<U> newsubs = new LinkedList<U>();
-			// apply the function on the subtrees as long as all variables are reached an eliminated
-			for (Tree<? extends BiSymbol<F,V>> sub: subs){
-				newsubs.add(VarTreeOps.<F,V,U>replaceOneVariable(sub, replaceTree, tc));
+		return new TreeFolder<BiSymbol<F,V>,U>() {
+			@Override
+			protected U combine(Tree<? extends BiSymbol<F,V>> node, List<U> newsubs) {
+				// if the symbol is an Variable, replace it by the given replacing tree
+				if (node.getSymbol().isLeafType())
+					return replaceTree;
+				// else it is a function symbol, whose subtrees already have been substituted
+				return tc.makeTree(node.getSymbol(), new ArrayList<U>(newsubs));
 			}
-			// produce the tree
-			return tc.makeTree(varTree.getSymbol(), newsubs);
-		}
+		}.fold(varTree);
 	}
 
 
@@ -287,28 +273,22 @@ public class VarTreeOps {
 	public static <F extends RankedSymbol,
 	V extends Variable,
 	U extends Tree<F>>
-	U replaceVariables(Tree<BiSymbol<F,V>> varTree, Map<V,U> replaceTrees, TreeCreator<F,U> tc) {
-		// if the symbol is an Variable, replace it by the according subtree
-		if (varTree.getSymbol().isLeafType()) {
-			V v = varTree.getSymbol().asLeafSymbol();
-			if (!replaceTrees.containsKey(v)){
-				throw new IllegalArgumentException("The given map for replacing trees does not contain this variable in the tree: " + v);
-			} else
-				return replaceTrees.get(varTree.getSymbol().asLeafSymbol());
-		}
-		// else it is a function symbol
-		// look in all subtrees for variables and replace them recursively
-		else {
-			F sf = varTree.getSymbol().asInnerSymbol();
-			List<? extends Tree<BiSymbol<F,V>>> subs = varTree.getSubTrees();
-			List<U> newsubs = new LinkedList<U>();
-			// apply the function on the subtrees as long as all variables are reached an eliminated
-			for (Tree<BiSymbol<F,V>> sub: subs){
-				newsubs.add(VarTreeOps.<F,V,U>replaceVariables(sub, replaceTrees, tc));
+	U replaceVariables(Tree<BiSymbol<F,V>> varTree, final Map<V,U> replaceTrees, final TreeCreator<F,U> tc) {
+		return new TreeFolder<BiSymbol<F,V>,U>() {
+			@Override
+			protected U combine(Tree<? extends BiSymbol<F,V>> node, List<U> newsubs) {
+				// if the symbol is an Variable, replace it by the according subtree
+				if (node.getSymbol().isLeafType()) {
+					V v = node.getSymbol().asLeafSymbol();
+					if (!replaceTrees.containsKey(v)){
+						throw new IllegalArgumentException("The given map for replacing trees does not contain this variable in the tree: " + v);
+					} else
+						return replaceTrees.get(v);
+				}
+				// else it is a function symbol, whose subtrees already have been substituted
+				return tc.makeTree(node.getSymbol().asInnerSymbol(), new ArrayList<U>(newsubs));
 			}
-			// produce the tree
-			return tc.makeTree(sf, newsubs);
-		}
+		}.fold(varTree);
 	}
 
 
@@ -322,43 +302,20 @@ public class VarTreeOps {
 	 * false otherwise
 	 */
 	public static <F extends RankedSymbol, V extends Variable> boolean isLinear(Tree<? extends BiSymbol<F,V>> varTree) {
+		// collects variables occurring in tree until a variable is found twice
 		Set<Variable> usedVariables = new HashSet<Variable>();
-		return !findDoubles(varTree, usedVariables);
-	}
-
-
-	/**
-	 * Helper method for isLinear() - collects variables occurring in tree until a variable is found twice
-	 * or until the whole tree has been traversed. The method checks if there are doubles, so returns true,
-	 * if there are any double occurrences of variables found.
-	 *
-	 * @param <F> type of function symbols occurring in the specified tree
-	 * @param <V> type of variables occurring in the specified tree
-	 * @param varTree tree to be analyzed
-	 * @param usedVariables which variables already have been found
-	 * @return true if and only if the variable tree is linear, i.e. each variable occurs at most once,
-	 */
-	private static <F extends RankedSymbol, V extends Variable> boolean findDoubles(Tree<? extends BiSymbol<F,V>> varTree, Set<Variable> usedVariables){
-		if (varTree.getSymbol().isLeafType()) {
-			Variable v = varTree.getSymbol().asLeafSymbol();
-			// if some variable is already there
-			if (usedVariables.contains(v)){
-				return true;
-			}
-			// otherwise add it
-			else {
-				usedVariables.add(v);
-			}
-		}
-		// otherwise look in the subTrees
-		else {
-			for (Tree<? extends BiSymbol<F,V>> sub: varTree.getSubTrees()){
-				if (VarTreeOps.<F,V>findDoubles(sub, usedVariables)){
-					return true;
-				}
-			}
+		Stack<Tree<? extends BiSymbol<F,V>>> toDo = new Stack<Tree<? extends BiSymbol<F,V>>>();
+		toDo.push(varTree);
+		while (!toDo.isEmpty()) {
+			Tree<? extends BiSymbol<F,V>> s = toDo.pop();
+			if (s.getSymbol().isLeafType()) {
+				// if some variable is already there, the tree is not linear
+				if (!usedVariables.add(s.getSymbol().asLeafSymbol()))
+					return false;
+			} else
+				pushSubTrees(s, toDo);
 		}
-		return false;
+		return true;
 	}
 
 
@@ -379,23 +336,22 @@ public class VarTreeOps {
 	W extends Variable,
 	Y extends Tree<BiSymbol<F,W>>>
 	Y makeTreeToBiTree(Tree<F> vTree,
-			Map<F ,? extends W> map, TreeCreator<BiSymbol<F,W>,Y> tc) {
-		F symbol = vTree.getSymbol();
-		// if it is a variable search the corresponding variable and make a new tree
-		if (map.containsKey(symbol)){
-			if (symbol.getArity() != 0)
-				throw new IllegalArgumentException("All symbols that shall be replaced must have arity 0.");
-			W newVar = map.get(symbol);
-			return tc.makeTree(new LeafSymbol<F,W>(newVar));
-		}
-		// at the other hand, recursively convert the subtrees
-		else {
-			List<Y> subs = new LinkedList<Y>();
-			for (Tree<F> sub: vTree.getSubTrees()){
-				subs.add(makeTreeToBiTree(sub,map,tc));
+			final Map<F ,? extends W> map, final TreeCreator<BiSymbol<F,W>,Y> tc) {
+		return new TreeFolder<F,Y>() {
+			@Override
+			protected Y combine(Tree<? extends F> node, List<Y> subs) {
+				F symbol = node.getSymbol();
+				// if it is a variable search the corresponding variable and make a new tree
+				if (map.containsKey(symbol)){
+					if (symbol.getArity() != 0)
+						throw new IllegalArgumentException("All symbols that shall be replaced must have arity 0.");
+					W newVar = map.get(symbol);
+					return tc.makeTree(new LeafSymbol<F,W>(newVar));
+				}
+				// at the other hand, the subtrees already have been converted
+				return tc.makeTree(new InnerSymbol<F,W>(symbol), new ArrayList<Y>(subs));
 			}
-			return tc.makeTree(new InnerSymbol<F,W>(symbol), subs);
-		}
+		}.fold(vTree);
 	}
 
 }
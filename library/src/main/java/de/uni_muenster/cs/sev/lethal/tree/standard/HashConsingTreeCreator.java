@@ -0,0 +1,89 @@
+/*
+ * Copyright 2009 Dorothea Jansen <d.jansen@uni-muenster.de>, Martin Mohr <mohrfrosch@uni-muenster.de>, Irene Thesing <i_thes01@uni-muenster.de>, Anton Reis <antonreis@gmx.de>, Maria Schatz <m_scha17@uni-muenster.de>, Philipp Claves <philipp.claves@uni-muenster.de>, Sezar Jarrous <sezar.jarrous@gmail.com>
+ *
+ * This file is part of LETHAL.
+ *
+ * LETHAL is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * LETHAL is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with LETHAL.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.uni_muenster.cs.sev.lethal.tree.standard;
+
+import java.util.List;
+
+import de.uni_muenster.cs.sev.lethal.factories.HashConsingTreeFactory;
+import de.uni_muenster.cs.sev.lethal.symbol.common.Symbol;
+import de.uni_muenster.cs.sev.lethal.tree.common.Tree;
+import de.uni_muenster.cs.sev.lethal.tree.common.TreeCreator;
+
+
+/**
+ * Implementation of TreeCreator creating maximally shared trees with a
+ * {@link HashConsingTreeFactory}.
+ *
+ * @param <S> symbol type of trees to be created
+ *
+ * @author Martin
+ */
+public class HashConsingTreeCreator<S extends Symbol> implements TreeCreator<S,Tree<S>> {
+
+	/** Factory which interns the created trees. */
+	private final HashConsingTreeFactory factory;
+
+
+	/**
+	 * Creates a tree creator with its own factory.
+	 */
+	public HashConsingTreeCreator() {
+		this(new HashConsingTreeFactory());
+	}
+
+
+	/**
+	 * Creates a tree creator using the given factory, so that the created trees are shared
+	 * with all other trees of this factory.
+	 *
+	 * @param factory factory which interns the created trees
+	 */
+	public HashConsingTreeCreator(HashConsingTreeFactory factory) {
+		if (factory == null) throw new IllegalArgumentException("HashConsingTreeCreator(): factory must not be null.");
+		this.factory = factory;
+	}
+
+
+	/**
+	 * Returns the factory which interns the created trees.
+	 *
+	 * @return the factory which interns the created trees
+	 */
+	public HashConsingTreeFactory getFactory() {
+		return factory;
+	}
+
+
+	/**
+	 * @see de.uni_muenster.cs.sev.lethal.tree.common.TreeCreator#makeTree(de.uni_muenster.cs.sev.lethal.symbol.common.Symbol, java.util.List)
+	 */
+	@Override
+	public Tree<S> makeTree(S symbol, List<Tree<S>> subTrees) {
+		return factory.makeTreeFromSymbol(symbol, subTrees);
+	}
+
+
+	/**
+	 * @see de.uni_muenster.cs.sev.lethal.tree.common.TreeCreator#makeTree(de.uni_muenster.cs.sev.lethal.symbol.common.Symbol)
+	 */
+	@Override
+	public Tree<S> makeTree(S symbol) {
+		return factory.makeTreeFromSymbol(symbol);
+	}
+}
@@ -18,6 +18,10 @@
  */
 package de.uni_muenster.cs.sev.lethal.tree.standard;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
 import de.uni_muenster.cs.sev.lethal.symbol.common.Symbol;
 import de.uni_muenster.cs.sev.lethal.tree.common.Tree;
 
@@ -32,8 +36,9 @@ public abstract class StdAbstractTree<S extends Symbol> implements Tree<S> {
 
 	/**
 	 * Hash code of the tree. Can be precalculated because the tree never can be changed!
+	 * 0 means that it has not been calculated yet.
 	 */
-	private int hash = -1;
+	private int hash = 0;
 
 
 	/**
@@ -41,8 +46,45 @@ public abstract class StdAbstractTree<S extends Symbol> implements Tree<S> {
 	 */
 	@Override
 	public int hashCode(){
-		if (this.hash < 0 ) this.hash = calcHashCode();
-		return this.hash;
+		int h = this.hash;
+		if (h == 0) {
+			calcSubTreeHashCodes();
+			h = calcHashCode();
+			this.hash = h;
+		}
+		return h;
+	}
+
+
+	/**
+	 * Calculates the hash codes of all subtrees which have not been calculated yet, bottom-up
+	 * with an explicit stack. Afterwards {@link #calcHashCode} finds the hash codes of all subtrees
+	 * precalculated, so that the hash code of a deep tree can be calculated without deep recursion.
+	 */
+	private void calcSubTreeHashCodes() {
+		// trees on the path from this tree to the current tree and their numbers of visited subtrees
+		List<StdAbstractTree<?>> path = new ArrayList<StdAbstractTree<?>>();
+		int[] next = new int[16];
+		path.add(this);
+		while (!path.isEmpty()) {
+			int top = path.size()-1;
+			StdAbstractTree<?> t = path.get(top);
+			List<? extends Tree<?>> subTrees = t.getSubTrees();
+			int i = next[top];
+			while (i < subTrees.size() && !(subTrees.get(i) instanceof StdAbstractTree && ((StdAbstractTree<?>)subTrees.get(i)).hash == 0))
+				i++;
+			if (i < subTrees.size()) {
+				next[top] = i+1;
+				if (top+1 == next.length)
+					next = Arrays.copyOf(next, 2*next.length);
+				next[top+1] = 0;
+				path.add((StdAbstractTree<?>)subTrees.get(i));
+			} else {
+				if (t != this)
+					t.hash = t.calcHashCode();
+				path.remove(top);
+			}
+		}
 	}
 
 
@@ -66,14 +108,40 @@ public abstract class StdAbstractTree<S extends Symbol> implements Tree<S> {
 	/**
 	 * @see java.lang.Object#equals(java.lang.Object)
 	 */
-	@SuppressWarnings("unchecked")
 	@Override
 	public boolean equals(Object t) {
 		if (t == null) return false;
 		if (!(t instanceof Tree)) return false;
-		Tree tree = (Tree)t;
-		// Slow, recursive compare
-		return (this.getSymbol().equals(tree.getSymbol()) && this.getSubTrees().equals(tree.getSubTrees()));
+		// Slow, structural compare with an explicit stack of the pairs of trees to be compared
+		List<Tree<?>> toDo = new ArrayList<Tree<?>>();
+		toDo.add(this);
+		toDo.add((Tree<?>)t);
+		while (!toDo.isEmpty()) {
+			Tree<?> b = toDo.remove(toDo.size()-1);
+			Tree<?> a = toDo.remove(toDo.size()-1);
+			if (a == b)
+				continue;
+			if (a != this && !(a instanceof StdAbstractTree)) {
+				if (!a.equals(b))
+					return false;
+				continue;
+			}
+			if (b.getClass() == a.getClass()) {
+				int ha = ((StdAbstractTree<?>)a).hash, hb = ((StdAbstractTree<?>)b).hash;
+				if (ha != 0 && hb != 0 && ha != hb)
+					return false;
+			}
+			if (!a.getSymbol().equals(b.getSymbol()))
+				return false;
+			List<? extends Tree<?>> subA = a.getSubTrees(), subB = b.getSubTrees();
+			if (subA.size() != subB.size())
+				return false;
+			for (int i=subA.size()-1; i>=0; i--) {
+				toDo.add(subA.get(i));
+				toDo.add(subB.get(i));
+			}
+		}
+		return true;
 	}
 
 
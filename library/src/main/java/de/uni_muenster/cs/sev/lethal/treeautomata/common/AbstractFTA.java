@@ -60,10 +60,11 @@ public abstract class AbstractFTA<F extends RankedSymbol, Q extends State, R ext
 	protected Set<Q> finalStates;
 
 	/**
-	 * Rules of the finite tree automaton, saved in an efficient way.
+	 * Rules of the finite tree automaton, indexed by symbol, source states and destination state.
 	 * @see FTA#getRules()
+	 * @see #getRuleIndex()
 	 */
-	protected FTARuleSet<F,Q,R> rules;
+	protected IndexedFTARuleSet<F,Q,R> rules;
 
 	/**
 	 * Alphabet of the regular tree language the finite tree automaton represents.
@@ -84,13 +85,27 @@ public abstract class AbstractFTA<F extends RankedSymbol, Q extends State, R ext
 	protected boolean statesComplete = false;
 
 
+	/**
+	 * Integer-indexed snapshot of this finite tree automaton, used for fast runs on trees.
+	 * It is built on demand and dropped by every modification.
+	 * @see #getCompiledForm()
+	 */
+	protected CompiledFTA<F,Q> compiled = null;
+
+	/**
+	 * Number of modifications of this finite tree automaton so far.
+	 * @see #getModificationCount()
+	 */
+	protected int modCount = 0;
+
+
 	/**
 	 * Creates an empty finite tree automaton without any states and rules.
 	 */
 	protected AbstractFTA() {
 		states = new HashSet<Q>();
 		finalStates = new HashSet<Q>();
-		rules = new SimpleFTARuleSet<F,Q,R>();
+		rules = new IndexedFTARuleSet<F,Q,R>();
 		alphabet = new HashSet<F>();
 	}
 
@@ -106,7 +121,7 @@ public abstract class AbstractFTA<F extends RankedSymbol, Q extends State, R ext
 	protected void init(Collection<? extends FTARule<F,Q>> rules2, Collection<Q> finalStates2) {
 		states = null;
 		finalStates = new HashSet<Q>(finalStates2);
-		rules = new SimpleFTARuleSet<F,Q,R>();
+		rules = new IndexedFTARuleSet<F,Q,R>();
 		alphabet = null;
 		for (FTARule<F,Q> rule: rules2)
 			rules.add(createRule(rule.getSymbol(), rule.getSrcStates(), rule.getDestState()));
@@ -277,6 +292,55 @@ public abstract class AbstractFTA<F extends RankedSymbol, Q extends State, R ext
 		return rules.getSymbolRules(f);
 	}
 
+	/**
+	 * Returns the rules of this finite tree automaton together with their indexes by
+	 * symbol, source states and destination state. The returned rule set must not be
+	 * modified.
+	 *
+	 * @return the indexed rules of this finite tree automaton
+	 * @see FTAOps#getRuleIndex
+	 */
+	public IndexedFTARuleSet<F,Q,R> getRuleIndex() {
+		return rules;
+	}
+
+	/**
+	 * Returns an integer-indexed snapshot of this finite tree automaton, which is used
+	 * for fast runs on trees. The snapshot is built at the first call and reused until
+	 * this finite tree automaton is modified.
+	 *
+	 * @return an integer-indexed snapshot of this finite tree automaton
+	 * @see CompiledFTA
+	 */
+	public CompiledFTA<F,Q> getCompiledForm() {
+		CompiledFTA<F,Q> ret = compiled;
+		if (ret == null) {
+			ret = new CompiledFTA<F,Q>(this);
+			compiled = ret;
+		}
+		return ret;
+	}
+
+	/**
+	 * Returns the number of modifications of this finite tree automaton so far. <br>
+	 * Results computed from this finite tree automaton can be kept as long as this
+	 * number does not change.
+	 *
+	 * @return the number of modifications of this finite tree automaton so far
+	 */
+	public int getModificationCount() {
+		return modCount;
+	}
+
+	/**
+	 * Records a modification of this finite tree automaton: drops the compiled snapshot
+	 * and advances the modification count.
+	 */
+	protected void modified() {
+		compiled = null;
+		modCount++;
+	}
+
 	/**
 	 * Generates a string representation of the rules; final states are specially marked with '!'
 	 * @return a string representation of the rules
@@ -296,7 +360,7 @@ public abstract class AbstractFTA<F extends RankedSymbol, Q extends State, R ext
 	 * the automaton can annotate this tree with.
 	 */
 	public Map<Tree<F>, Set<Q>> annotateTreeWithStates(Tree<F> t) {
-		return FTAOps.annotateTreeWithStates(this, t);
+		return getCompiledForm().annotateTreeWithStates(t);
 	}
 
 	/**
@@ -306,7 +370,7 @@ public abstract class AbstractFTA<F extends RankedSymbol, Q extends State, R ext
 	 * false otherwise
 	 */
 	public boolean decide(Tree<F> t) {
-		return FTAProperties.decide(this, t);
+		return getCompiledForm().decide(t, finalStates);
 	}
 
 	/**
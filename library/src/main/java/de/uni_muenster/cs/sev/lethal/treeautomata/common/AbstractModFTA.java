@@ -150,15 +150,28 @@ public abstract class AbstractModFTA<F extends RankedSymbol, Q extends State, R
 		return super.getSymbolRules(f);
 	}
 
+
+	/**
+	 * Returns the indexed rules of this finite tree automaton. If there are epsilon
+	 * rules, they are eliminated first.
+	 * @see de.uni_muenster.cs.sev.lethal.treeautomata.common.AbstractFTA#getRuleIndex()
+	 */
+	@Override
+	public IndexedFTARuleSet<F,Q,R> getRuleIndex() {
+		if (!epsRules.isEmpty())
+			eliminateAddedEpsilonRules();
+		return super.getRuleIndex();
+	}
+
 	/**
 	 * Eliminates the epsilon rules collected so far by {@link #addEpsilonRule}.
-	 * Used by getRules() and getFinalStates()
+	 * Used by getRules() and getFinalStates(). <br>
+	 * All collected epsilon rules are eliminated at once, and only the rules which
+	 * replace them are added.
 	 */
 	protected void eliminateAddedEpsilonRules() {
-		for (FTARule<F,Q> r: FTACreator.eliminateEpsilonRules(rules, epsRules))
+		for (FTARule<F,Q> r: FTACreator.epsilonRuleCopies(rules, new EpsilonClosure<Q>(epsRules)))
 			addRule(r.getSymbol(), r.getSrcStates(), r.getDestState());
-		for (Q qf: finalStates)
-			addToFinals(qf);
 		epsRules.clear();
 	}
 
@@ -207,6 +220,7 @@ public abstract class AbstractModFTA<F extends RankedSymbol, Q extends State, R
 	 */
 	@Override
 	public void addRule(F f, List<Q> srcStates, Q destState) {
+		modified();
 		rules.add(createRule(f,srcStates,destState));
 		addStates(srcStates);
 		addState(destState);
@@ -218,6 +232,7 @@ public abstract class AbstractModFTA<F extends RankedSymbol, Q extends State, R
 	 */
 	@Override
 	public void addToFinals(Q state) {
+		modified();
 		finalStates.add(state);
 
 		//preserve invariants
@@ -229,6 +244,7 @@ public abstract class AbstractModFTA<F extends RankedSymbol, Q extends State, R
 	 */
 	@Override
 	public boolean removeRule(FTARule<F,Q> rule) {
+		modified();
 		return rules.remove(rule);
 	}
 
@@ -237,6 +253,7 @@ public abstract class AbstractModFTA<F extends RankedSymbol, Q extends State, R
 	 */
 	@Override
 	public void removeFromFinals(Q state) {
+		modified();
 		finalStates.remove(state);
 	}
 
@@ -246,6 +263,7 @@ public abstract class AbstractModFTA<F extends RankedSymbol, Q extends State, R
 	 */
 	@Override
 	public void removeState(Q state, boolean cascade) {
+		modified();
 		if (states==null)
 			return;
 
@@ -268,6 +286,7 @@ public abstract class AbstractModFTA<F extends RankedSymbol, Q extends State, R
 	 */
 	@Override
 	public void removeSymbol(F symbol, boolean cascade) {
+		modified();
 		if (alphabet==null)
 			return;
 		Set<? extends R> symbolRules = getSymbolRules(symbol);
@@ -285,6 +304,7 @@ public abstract class AbstractModFTA<F extends RankedSymbol, Q extends State, R
 	 */
 	@Override
 	public void addEpsilonRule(Q qsrc, Q qdest) {
+		modified();
 		epsRules.add(new GenFTAEpsRule<Q>(qsrc,qdest));
 		states.add(qsrc);
 		states.add(qdest);
@@ -0,0 +1,463 @@
+/*
+ * Copyright 2009 Dorothea Jansen <d.jansen@uni-muenster.de>, Martin Mohr <mohrfrosch@uni-muenster.de>, Irene Thesing <i_thes01@uni-muenster.de>, Anton Reis <antonreis@gmx.de>, Maria Schatz <m_scha17@uni-muenster.de>, Philipp Claves <philipp.claves@uni-muenster.de>, Sezar Jarrous <sezar.jarrous@gmail.com>
+ *
+ * This file is part of LETHAL.
+ *
+ * LETHAL is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * LETHAL is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with LETHAL.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.uni_muenster.cs.sev.lethal.treeautomata.common;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import de.uni_muenster.cs.sev.lethal.states.State;
+import de.uni_muenster.cs.sev.lethal.symbol.common.RankedSymbol;
+import de.uni_muenster.cs.sev.lethal.tree.common.Tree;
+import de.uni_muenster.cs.sev.lethal.utils.Numbering;
+
+/**
+ * Read-only snapshot of a finite tree automaton in an integer-indexed form, which is
+ * used for fast bottom-up runs on trees.<br>
+ * <br>
+ * States and symbols are numbered densely. For each symbol the rules are stored in
+ * flat int arrays, where the source states of the i-th rule of a symbol of arity n
+ * are found at positions i*n,...,i*n+n-1. Sets of states are represented by bitsets
+ * (arrays of longs), so that a run on a tree does not allocate anything per node
+ * except for the results which are handed out. <br>
+ * Trees whose subtrees are shared, e.g. trees created by a
+ * {@link de.uni_muenster.cs.sev.lethal.factories.HashConsingTreeFactory HashConsingTreeFactory},
+ * can be evaluated as directed acyclic graphs, so that each distinct node is evaluated once. <br>
+ * All runs traverse the trees with an explicit stack, so the trees may be arbitrarily deep. <br>
+ * The snapshot does not follow later modifications of the automaton it was built from.
+ * {@link AbstractFTA} keeps such a snapshot and drops it whenever the automaton is changed.
+ *
+ * @param <F> symbol type of the compiled finite tree automaton
+ * @param <Q> state type of the compiled finite tree automaton
+ *
+ * @see FTAProperties#decide(FTA, Tree)
+ * @see FTAProperties#accessibleStates(FTA, Tree)
+ * @see FTAOps#annotateTreeWithStates(FTA, Tree)
+ *
+ * @author Dorothea, Irene, Martin
+ */
+public class CompiledFTA<F extends RankedSymbol, Q extends State> {
+
+	/** Numbering of the states. */
+	private final Numbering<Q> stateIds = new Numbering<Q>();
+
+	/** States, indexed by their number. */
+	private final List<Q> stateList = stateIds.getObjects();
+
+	/** Numbering of the symbols. */
+	private final Numbering<F> symbolIds = new Numbering<F>();
+
+	/** Arity of each symbol, indexed by the number of the symbol. */
+	private final int[] arity;
+
+	/** Source states of the rules, grouped by symbol number and stored rule after rule. */
+	private final int[][] ruleSrc;
+
+	/** Destination states of the rules, grouped by symbol number. */
+	private final int[][] ruleDest;
+
+	/** Final states as bitset. */
+	private final long[] finals;
+
+	/** Number of longs needed for a bitset of states. */
+	private final int words;
+
+
+	/**
+	 * Compiles the given finite tree automaton.
+	 *
+	 * @param fta finite tree automaton to be compiled
+	 */
+	public CompiledFTA(FTA<F,Q,? extends FTARule<F,Q>> fta) {
+		if (fta == null) throw new IllegalArgumentException("CompiledFTA(): fta must not be null.");
+
+		Set<? extends FTARule<F,Q>> rules = fta.getRules();
+		Map<F,List<FTARule<F,Q>>> rulesBySymbol = new HashMap<F,List<FTARule<F,Q>>>();
+		List<F> symbols = new ArrayList<F>();
+		for (FTARule<F,Q> r: rules) {
+			List<FTARule<F,Q>> symRules = rulesBySymbol.get(r.getSymbol());
+			if (symRules == null) {
+				symRules = new ArrayList<FTARule<F,Q>>();
+				rulesBySymbol.put(r.getSymbol(), symRules);
+				symbolIds.number(r.getSymbol());
+				symbols.add(r.getSymbol());
+			}
+			symRules.add(r);
+			for (Q q: r.getSrcStates())
+				stateId(q);
+			stateId(r.getDestState());
+		}
+		for (Q q: fta.getFinalStates())
+			stateId(q);
+
+		words = (stateList.size()+63) >>> 6;
+		finals = new long[words];
+		for (Q q: fta.getFinalStates())
+			set(finals, 0, stateIds.get(q));
+
+		arity = new int[symbols.size()];
+		ruleSrc = new int[symbols.size()][];
+		ruleDest = new int[symbols.size()][];
+		for (int f=0; f<symbols.size(); f++) {
+			List<FTARule<F,Q>> symRules = rulesBySymbol.get(symbols.get(f));
+			int n = symbols.get(f).getArity();
+			arity[f] = n;
+			ruleSrc[f] = new int[symRules.size()*n];
+			ruleDest[f] = new int[symRules.size()];
+			int i = 0;
+			for (FTARule<F,Q> r: symRules) {
+				int j = i*n;
+				for (Q q: r.getSrcStates())
+					ruleSrc[f][j++] = stateIds.get(q);
+				ruleDest[f][i++] = stateIds.get(r.getDestState());
+			}
+		}
+	}
+
+
+	/**
+	 * Returns the number of the given state, numbering it if it is new.
+	 *
+	 * @param q state to be numbered
+	 * @return the number of the given state
+	 */
+	private int stateId(Q q) {
+		return stateIds.number(q);
+	}
+
+
+	/**
+	 * Sets the bit of the given state in the bitset starting at the given offset.
+	 */
+	private static void set(long[] buf, int offset, int q) {
+		buf[offset + (q >>> 6)] |= 1L << q;
+	}
+
+
+	/**
+	 * Tests the bit of the given state in the bitset starting at the given offset.
+	 */
+	private static boolean get(long[] buf, int offset, int q) {
+		return (buf[offset + (q >>> 6)] & (1L << q)) != 0;
+	}
+
+
+	/**
+	 * Decides whether the compiled automaton accepts the given tree.
+	 *
+	 * @param tree tree to be checked
+	 * @return true if the compiled automaton can reduce the given tree to a final state
+	 * @see FTAProperties#decide(FTA, Tree)
+	 */
+	public boolean decide(Tree<? extends F> tree) {
+		Run run = new Run();
+		run.eval(tree, 0);
+		for (int w=0; w<words; w++)
+			if ((run.buf[w] & finals[w]) != 0)
+				return true;
+		return false;
+	}
+
+
+	/**
+	 * Decides whether the compiled automaton can reduce the given tree to one of the given
+	 * final states. In contrast to {@link #decide(Tree)}, the final states are looked up in
+	 * the given set, so that the result follows changes of the final states.
+	 *
+	 * @param tree tree to be checked
+	 * @param finalStates final states to be used
+	 * @return true if the compiled automaton can reduce the given tree to one of the given states
+	 */
+	public boolean decide(Tree<? extends F> tree, Set<? extends State> finalStates) {
+		Run run = new Run();
+		run.eval(tree, 0);
+		for (int w=0; w<words; w++) {
+			long bits = run.buf[w];
+			while (bits != 0) {
+				if (finalStates.contains(stateList.get((w << 6) + Long.numberOfTrailingZeros(bits))))
+					return true;
+				bits &= bits-1;
+			}
+		}
+		return false;
+	}
+
+
+	/**
+	 * Computes the set of states which the compiled automaton can reduce the given tree to.
+	 *
+	 * @param tree tree to be analysed
+	 * @return the set of states which the compiled automaton can reduce the given tree to
+	 * @see FTAProperties#accessibleStates(FTA, Tree)
+	 */
+	public Set<Q> accessibleStates(Tree<? extends F> tree) {
+		Run run = new Run();
+		run.eval(tree, 0);
+		return run.toSet(0);
+	}
+
+
+	/**
+	 * Decides whether the compiled automaton accepts the given tree, evaluating each
+	 * distinct node of the tree only once. Subtrees are distinguished by identity, so
+	 * a subtree occurring several times as the same object is evaluated once.
+	 *
+	 * @param tree tree to be checked, whose subtrees may be shared
+	 * @return true if the compiled automaton can reduce the given tree to a final state
+	 * @see FTAProperties#decideDAG(FTA, Tree)
+	 */
+	public boolean decideDAG(Tree<? extends F> tree) {
+		long[] bits = evalShared(tree, new IdentityHashMap<Tree<?>,long[]>());
+		for (int w=0; w<words; w++)
+			if ((bits[w] & finals[w]) != 0)
+				return true;
+		return false;
+	}
+
+
+	/**
+	 * Computes the set of states which the compiled automaton can reduce the given tree to,
+	 * evaluating each distinct node of the tree only once.
+	 *
+	 * @param tree tree to be analysed, whose subtrees may be shared
+	 * @return the set of states which the compiled automaton can reduce the given tree to
+	 * @see FTAProperties#accessibleStatesDAG(FTA, Tree)
+	 */
+	public Set<Q> accessibleStatesDAG(Tree<? extends F> tree) {
+		return toSet(evalShared(tree, new IdentityHashMap<Tree<?>,long[]>()), 0);
+	}
+
+
+	/**
+	 * Annotates a tree and all its subtrees with the states the compiled automaton
+	 * can reduce them to. Each distinct node of the tree is evaluated only once.
+	 *
+	 * @param tree tree to be annotated
+	 * @return a map which assigns each tree contained in the given tree the set of states
+	 * which the compiled automaton can reduce this tree to
+	 * @see FTAOps#annotateTreeWithStates(FTA, Tree)
+	 */
+	@SuppressWarnings("unchecked")
+	public Map<Tree<F>,Set<Q>> annotateTreeWithStates(Tree<F> tree) {
+		IdentityHashMap<Tree<?>,long[]> memo = new IdentityHashMap<Tree<?>,long[]>();
+		evalShared(tree, memo);
+		Map<Tree<F>,Set<Q>> ret = new HashMap<Tree<F>,Set<Q>>();
+		for (Map.Entry<Tree<?>,long[]> e: memo.entrySet()) {
+			// the keys are subtrees of the given tree, so they have symbol type F
+			Tree<F> t = (Tree<F>)e.getKey();
+			if (!ret.containsKey(t))
+				ret.put(t, toSet(e.getValue(), 0));
+		}
+		return ret;
+	}
+
+
+	/**
+	 * Computes the states reachable at the root of the given tree as bitset, looking up
+	 * and recording the results for the nodes of the tree in the given map.
+	 */
+	private long[] evalShared(Tree<? extends F> tree, IdentityHashMap<Tree<?>,long[]> memo) {
+		// nodes on the path from the root to the current node and their numbers of visited subtrees
+		List<Tree<? extends F>> path = new ArrayList<Tree<? extends F>>();
+		int[] next = new int[16];
+		path.add(tree);
+		while (!path.isEmpty()) {
+			int top = path.size()-1;
+			Tree<? extends F> node = path.get(top);
+			if (memo.containsKey(node)) {
+				path.remove(top);
+				continue;
+			}
+			List<? extends Tree<? extends F>> subTrees = node.getSubTrees();
+			int n = subTrees.size();
+			int i = next[top];
+			if (i < n) {
+				next[top] = i+1;
+				if (top+1 == next.length)
+					next = Arrays.copyOf(next, 2*next.length);
+				next[top+1] = 0;
+				path.add(subTrees.get(i));
+				continue;
+			}
+			long[] bits = new long[words];
+			int f = symbolIds.get(node.getSymbol());
+			if (f >= 0 && arity[f] == n) {
+				long[][] sub = new long[n][];
+				for (int j=0; j<n; j++)
+					sub[j] = memo.get(subTrees.get(j));
+				int[] src = ruleSrc[f];
+				int[] dest = ruleDest[f];
+				for (int r=0; r<dest.length; r++) {
+					int base = r*n;
+					boolean applicable = true;
+					for (int j=0; j<n && applicable; j++)
+						applicable = get(sub[j], 0, src[base+j]);
+					if (applicable)
+						set(bits, 0, dest[r]);
+				}
+			}
+			memo.put(node, bits);
+			path.remove(top);
+		}
+		return memo.get(tree);
+	}
+
+
+	/**
+	 * Converts the bitset starting at the given offset into a set of states.
+	 */
+	private Set<Q> toSet(long[] buf, int off) {
+		Set<Q> ret = new HashSet<Q>();
+		for (int w=0; w<words; w++) {
+			long bits = buf[off+w];
+			while (bits != 0) {
+				int b = Long.numberOfTrailingZeros(bits);
+				ret.add(stateList.get((w << 6) + b));
+				bits &= bits-1;
+			}
+		}
+		return ret;
+	}
+
+
+	/**
+	 * Scratch space of one run. Slot i is the bitset starting at i*words in buf.
+	 * A node evaluated into slot i keeps the results of its subtrees in the slots
+	 * i+1,...,i+n, so the needed space is bounded by height times maximal arity.
+	 */
+	private final class Run {
+
+		/** Bitsets of all slots. */
+		private long[] buf = new long[Math.max(words,1)*16];
+
+		/** Nodes on the path from the root to the node currently evaluated. */
+		private final List<Tree<? extends F>> path = new ArrayList<Tree<? extends F>>();
+
+		/** Slots, symbol ids and numbers of visited subtrees of the nodes on the path. */
+		private int[] slots = new int[16], ids = new int[16], next = new int[16];
+
+
+		/**
+		 * Makes sure that the given number of slots is available.
+		 */
+		private void ensure(int slots) {
+			if (slots*words > buf.length) {
+				long[] newBuf = new long[Math.max(slots*words, 2*buf.length)];
+				System.arraycopy(buf, 0, newBuf, 0, buf.length);
+				buf = newBuf;
+			}
+		}
+
+
+		/**
+		 * Computes the states reachable at the root of the given tree into the given slot.
+		 * The tree is traversed in post-order with an explicit stack.
+		 */
+		private void eval(Tree<? extends F> tree, int slot) {
+			enter(tree, slot);
+			while (!path.isEmpty()) {
+				int top = path.size()-1;
+				int f = ids[top];
+				int i = next[top];
+				if (i < arity[f]) {
+					next[top] = i+1;
+					enter(path.get(top).getSubTrees().get(i), slots[top]+1+i);
+				} else {
+					combine(f, slots[top]);
+					path.remove(top);
+				}
+			}
+		}
+
+
+		/**
+		 * Starts the evaluation of the given tree into the given slot. If no rule can be
+		 * applied at the root of the tree, the slot is cleared at once, otherwise the tree
+		 * is put on the path.
+		 */
+		private void enter(Tree<? extends F> tree, int slot) {
+			int id = symbolIds.get(tree.getSymbol());
+			int n = tree.getSubTrees().size();
+			ensure(slot+n+1);
+			if (id < 0 || arity[id] != n) {
+				clear(slot);
+				return;
+			}
+			int top = path.size();
+			if (top == slots.length) {
+				slots = Arrays.copyOf(slots, 2*top);
+				ids = Arrays.copyOf(ids, 2*top);
+				next = Arrays.copyOf(next, 2*top);
+			}
+			path.add(tree);
+			slots[top] = slot;
+			ids[top] = id;
+			next[top] = 0;
+		}
+
+
+		/**
+		 * Clears the given slot.
+		 */
+		private void clear(int slot) {
+			int off = slot*words;
+			for (int w=0; w<words; w++)
+				buf[off+w] = 0;
+		}
+
+
+		/**
+		 * Applies all rules of the given symbol to the subtree results in the slots
+		 * following the given slot and stores the destination states in the given slot.
+		 */
+		private void combine(int f, int slot) {
+			clear(slot);
+			int off = slot*words;
+			int n = arity[f];
+			int[] src = ruleSrc[f];
+			int[] dest = ruleDest[f];
+			for (int r=0; r<dest.length; r++) {
+				int base = r*n;
+				boolean applicable = true;
+				for (int i=0; i<n; i++) {
+					if (!get(buf, (slot+1+i)*words, src[base+i])) {
+						applicable = false;
+						break;
+					}
+				}
+				if (applicable)
+					set(buf, off, dest[r]);
+			}
+		}
+
+
+		/**
+		 * Converts the bitset in the given slot into a set of states.
+		 */
+		private Set<Q> toSet(int slot) {
+			return CompiledFTA.this.toSet(buf, slot*words);
+		}
+	}
+
+}
@@ -0,0 +1,221 @@
+/*
+ * Copyright 2009 Dorothea Jansen <d.jansen@uni-muenster.de>, Martin Mohr <mohrfrosch@uni-muenster.de>, Irene Thesing <i_thes01@uni-muenster.de>, Anton Reis <antonreis@gmx.de>, Maria Schatz <m_scha17@uni-muenster.de>, Philipp Claves <philipp.claves@uni-muenster.de>, Sezar Jarrous <sezar.jarrous@gmail.com>
+ *
+ * This file is part of LETHAL.
+ *
+ * LETHAL is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * LETHAL is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with LETHAL.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.uni_muenster.cs.sev.lethal.treeautomata.common;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Set;
+
+import de.uni_muenster.cs.sev.lethal.states.State;
+import de.uni_muenster.cs.sev.lethal.symbol.common.RankedSymbol;
+
+/**
+ * Subset construction for finite tree automata, used by
+ * {@link FTAOps#determinize determinize}.<br>
+ * <br>
+ * The subsets which become the states of the deterministic automaton are interned
+ * by a {@link SubsetIndex}, so the rules applicable to a tuple of subsets are obtained by
+ * intersecting rule bitsets, and a prefix of a tuple for which no rule is applicable is
+ * not extended at all.<br>
+ * Only subsets reachable from the constants are constructed. Each tuple of subsets is
+ * considered exactly once, namely when its subset with the highest number is processed.
+ *
+ * @param <F> symbol type of the automaton to be determinized
+ * @param <Q> state type of the automaton to be determinized
+ *
+ * @author Dorothea, Irene, Martin
+ */
+class Determinizer<F extends RankedSymbol, Q extends State> {
+
+	/** Rule index of the automaton to be determinized, which interns the subsets. */
+	private final SubsetIndex<F,Q> index;
+
+	/**
+	 * Constructed rules of the deterministic automaton, each encoded as array containing
+	 * the symbol number, the source subset numbers and the destination subset number.
+	 */
+	private final List<int[]> newRules = new ArrayList<int[]>();
+
+	/** Maximal number of subsets, 0 means unlimited. */
+	private final int maxStates;
+
+	/** Point in time in milliseconds at which the construction is aborted, 0 means never. */
+	private final long deadline;
+
+	/** Number of considered tuples, used to check the deadline not too often. */
+	private long steps = 0;
+
+
+	/**
+	 * Prepares the subset construction for the given finite tree automaton.
+	 *
+	 * @param fta automaton to be determinized
+	 * @param maxStates maximal number of states of the deterministic automaton, 0 for no limit
+	 * @param maxMillis maximal running time in milliseconds, 0 for no limit
+	 */
+	Determinizer(FTA<F,Q,? extends FTARule<F,Q>> fta, int maxStates, long maxMillis) {
+		this.maxStates = maxStates;
+		this.deadline = maxMillis > 0 ? System.currentTimeMillis() + maxMillis : 0;
+		this.index = new SubsetIndex<F,Q>(fta);
+	}
+
+
+	/**
+	 * Runs the subset construction.
+	 *
+	 * @throws LimitExceededException if the number of subsets or the running time exceeds the limit
+	 */
+	void run() {
+		BitSet dest = new BitSet();
+		for (int c=0; c<index.getNumberOfSymbols(); c++) {
+			if (index.getSymbol(c).getArity() > 0)
+				continue;
+			long[] rules = new long[index.getRuleWords(c)];
+			index.setAllRules(c, rules);
+			dest.clear();
+			index.addDestStates(c, rules, dest);
+			newRules.add(new int[]{c, intern(dest)});
+		}
+
+		// the interned subsets grow while they are processed, so they serve as work list
+		for (int k=0; k<index.getNumberOfSubsets(); k++) {
+			checkDeadline();
+			for (int f=0; f<index.getNumberOfSymbols(); f++) {
+				int n = index.getSymbol(f).getArity();
+				if (n == 0)
+					continue;
+				long[][] prefix = new long[n+1][index.getRuleWords(f)];
+				index.setAllRules(f, prefix[0]);
+				extend(f, 0, k, false, new int[n], prefix, dest);
+			}
+		}
+	}
+
+
+	/**
+	 * Enumerates all tuples of subsets with numbers up to k, which contain k at least once
+	 * and for which some rule of symbol f is applicable, and creates the corresponding rules.
+	 * The positions before pos are already fixed in tuple, and prefix[pos] contains the
+	 * rules applicable to this part of the tuple.
+	 */
+	private void extend(int f, int pos, int k, boolean containsK, int[] tuple, long[][] prefix, BitSet dest) {
+		int n = tuple.length;
+		long[] prev = prefix[pos];
+		long[] cur = prefix[pos+1];
+		for (int s = (pos == n-1 && !containsK) ? k : 0; s <= k; s++) {
+			long[] m = index.getRulesAt(f, pos, s);
+			boolean applicable = false;
+			for (int w=0; w<cur.length; w++) {
+				cur[w] = prev[w] & m[w];
+				applicable |= cur[w] != 0;
+			}
+			if (!applicable)
+				continue;
+			tuple[pos] = s;
+			if (pos+1 < n) {
+				extend(f, pos+1, k, containsK || s == k, tuple, prefix, dest);
+			} else {
+				if ((++steps & 0xfff) == 0)
+					checkDeadline();
+				dest.clear();
+				index.addDestStates(f, cur, dest);
+				int[] rule = new int[n+2];
+				rule[0] = f;
+				System.arraycopy(tuple, 0, rule, 1, n);
+				rule[n+1] = intern(dest);
+				newRules.add(rule);
+			}
+		}
+	}
+
+
+	/**
+	 * Interns the given subset and checks the state limit.
+	 */
+	private int intern(BitSet subset) {
+		int id = index.intern(subset);
+		if (maxStates > 0 && index.getNumberOfSubsets() > maxStates)
+			throw new LimitExceededException("determinize: more than " + maxStates + " states needed.");
+		return id;
+	}
+
+
+	/**
+	 * Aborts the construction if the deadline has passed.
+	 */
+	private void checkDeadline() {
+		if (deadline > 0 && System.currentTimeMillis() > deadline)
+			throw new LimitExceededException("determinize: time limit exceeded.");
+	}
+
+
+	/**
+	 * Returns the number of constructed subsets.
+	 *
+	 * @return the number of constructed subsets
+	 */
+	int getNumberOfSubsets() {
+		return index.getNumberOfSubsets();
+	}
+
+
+	/**
+	 * Returns the constructed subset with the given number as set of states.
+	 *
+	 * @param id number of the subset
+	 * @return the constructed subset with the given number
+	 */
+	Set<Q> getSubset(int id) {
+		return index.getSubset(id);
+	}
+
+
+	/**
+	 * Returns whether the subset with the given number contains a final state.
+	 *
+	 * @param id number of the subset
+	 * @return whether the subset with the given number contains a final state
+	 */
+	boolean isFinal(int id) {
+		return index.containsFinal(id);
+	}
+
+
+	/**
+	 * Returns the constructed rules, each encoded as array containing the symbol number,
+	 * the numbers of the source subsets and the number of the destination subset.
+	 *
+	 * @return the constructed rules
+	 */
+	List<int[]> getRules() {
+		return newRules;
+	}
+
+
+	/**
+	 * Returns the symbol with the given number.
+	 *
+	 * @param f number of the symbol
+	 * @return the symbol with the given number
+	 */
+	F getSymbol(int f) {
+		return index.getSymbol(f);
+	}
+}
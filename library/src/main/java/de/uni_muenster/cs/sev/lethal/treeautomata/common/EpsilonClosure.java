@@ -0,0 +1,305 @@
+/*
+ * Copyright 2009 Dorothea Jansen <d.jansen@uni-muenster.de>, Martin Mohr <mohrfrosch@uni-muenster.de>, Irene Thesing <i_thes01@uni-muenster.de>, Anton Reis <antonreis@gmx.de>, Maria Schatz <m_scha17@uni-muenster.de>, Philipp Claves <philipp.claves@uni-muenster.de>, Sezar Jarrous <sezar.jarrous@gmail.com>
+ *
+ * This file is part of LETHAL.
+ *
+ * LETHAL is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * LETHAL is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with LETHAL.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.uni_muenster.cs.sev.lethal.treeautomata.common;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import de.uni_muenster.cs.sev.lethal.states.State;
+import de.uni_muenster.cs.sev.lethal.utils.Numbering;
+
+/**
+ * Computes the epsilon covers of the states of a set of epsilon rules, that is for each
+ * state q the states which can be reached from q by applying at least one epsilon rule.
+ * It is used for the elimination of epsilon rules of finite tree automata and tree
+ * transducers.<br>
+ * <br>
+ * Algorithm:<br>
+ * The states occurring in the epsilon rules are numbered and the epsilon rules are stored
+ * as adjacency arrays. The strongly connected components of the resulting graph are computed
+ * with Tarjan's algorithm. Since all states of a component have the same epsilon cover,
+ * the covers are computed once per component, in the order in which Tarjan's algorithm
+ * completes the components, so that the covers of all successor components are already known.
+ * Thus each epsilon rule is looked at only once. A cover is the union of the covers of the
+ * successor components; the union is built in one {@link BitSet} shared by all components
+ * and stored as array of state numbers, so that small covers take little space.
+ *
+ * @param <Q> state type of the epsilon rules
+ *
+ * @see FTACreator#eliminateEpsilonRules
+ *
+ * @author Martin
+ */
+public class EpsilonClosure<Q extends State> {
+
+	/** Numbering of the states occurring in the epsilon rules. */
+	private final Numbering<Q> stateIds = new Numbering<Q>();
+
+	/** States occurring in the epsilon rules, indexed by their number. */
+	private final List<Q> stateList = stateIds.getObjects();
+
+	/** Epsilon rules, indexed by their number. */
+	private final List<FTAEpsRule<Q>> epsRules;
+
+	/** Start of the outgoing epsilon rules of each state in {@link #edges}, the last entry is the number of rules. */
+	private final int[] edgeStart;
+
+	/** Numbers of the epsilon rules, grouped by the numbers of their source states. */
+	private final int[] edges;
+
+	/** Numbers of the destination states of the epsilon rules. */
+	private final int[] edgeDest;
+
+	/** Component of each state. */
+	private final int[] component;
+
+	/** Epsilon cover of each component as array of state numbers. */
+	private final List<int[]> covers = new ArrayList<int[]>();
+
+	/** States in the cover being computed, empty between the computations. */
+	private final BitSet marked = new BitSet();
+
+	/** Epsilon cover of each component as list of states, computed on demand. */
+	private final List<List<Q>> coverLists = new ArrayList<List<Q>>();
+
+
+	/**
+	 * Computes the epsilon covers of the states of the given epsilon rules.
+	 *
+	 * @param epsRules epsilon rules whose epsilon covers are to be computed
+	 */
+	public EpsilonClosure(Collection<? extends FTAEpsRule<Q>> epsRules) {
+		if (epsRules == null) throw new IllegalArgumentException("EpsilonClosure(): epsRules must not be null.");
+		this.epsRules = new ArrayList<FTAEpsRule<Q>>(epsRules);
+		int m = this.epsRules.size();
+		int[] edgeSrc = new int[m];
+		edgeDest = new int[m];
+		for (int e=0; e<m; e++) {
+			FTAEpsRule<Q> rule = this.epsRules.get(e);
+			edgeSrc[e] = stateIds.number(rule.getSrcState());
+			edgeDest[e] = stateIds.number(rule.getDestState());
+		}
+		int n = stateList.size();
+
+		// group the rules by their source states
+		edgeStart = new int[n+1];
+		for (int e=0; e<m; e++)
+			edgeStart[edgeSrc[e]+1]++;
+		for (int q=0; q<n; q++)
+			edgeStart[q+1] += edgeStart[q];
+		edges = new int[m];
+		int[] fill = new int[n];
+		for (int e=0; e<m; e++) {
+			int q = edgeSrc[e];
+			edges[edgeStart[q] + fill[q]++] = e;
+		}
+
+		component = new int[n];
+		computeComponents();
+	}
+
+
+	/**
+	 * Computes the strongly connected components with an iterative version of Tarjan's algorithm
+	 * and the epsilon cover of each component as soon as the component is completed.
+	 */
+	private void computeComponents() {
+		int n = stateList.size();
+		int[] index = new int[n];
+		int[] lowlink = new int[n];
+		boolean[] onStack = new boolean[n];
+		int[] nextEdge = new int[n];
+		int[] stack = new int[n];
+		int[] callStack = new int[n];
+		Arrays.fill(index, -1);
+		int counter = 0, stackSize = 0;
+
+		for (int root=0; root<n; root++) {
+			if (index[root] >= 0)
+				continue;
+			int calls = 0;
+			callStack[calls++] = root;
+			index[root] = lowlink[root] = counter++;
+			nextEdge[root] = edgeStart[root];
+			stack[stackSize++] = root;
+			onStack[root] = true;
+			while (calls > 0) {
+				int q = callStack[calls-1];
+				if (nextEdge[q] < edgeStart[q+1]) {
+					int r = edgeDest[edges[nextEdge[q]++]];
+					if (index[r] < 0) {
+						index[r] = lowlink[r] = counter++;
+						nextEdge[r] = edgeStart[r];
+						stack[stackSize++] = r;
+						onStack[r] = true;
+						callStack[calls++] = r;
+					} else if (onStack[r] && index[r] < lowlink[q])
+						lowlink[q] = index[r];
+					continue;
+				}
+				calls--;
+				if (calls > 0) {
+					int p = callStack[calls-1];
+					if (lowlink[q] < lowlink[p])
+						lowlink[p] = lowlink[q];
+				}
+				if (lowlink[q] == index[q]) {
+					// q is the root of a component, which consists of the states above q on the stack
+					int c = covers.size();
+					int start = stackSize;
+					do {
+						start--;
+						onStack[stack[start]] = false;
+						component[stack[start]] = c;
+					} while (stack[start] != q);
+					covers.add(computeCover(c, stack, start, stackSize));
+					coverLists.add(null);
+					stackSize = start;
+				}
+			}
+		}
+	}
+
+
+	/**
+	 * Computes the epsilon cover of a completed component from the covers of its successor components.
+	 *
+	 * @param c number of the component
+	 * @param members array containing the states of the component
+	 * @param from first position of the states of the component in the array
+	 * @param to position after the last state of the component in the array
+	 * @return epsilon cover of the component
+	 */
+	private int[] computeCover(int c, int[] members, int from, int to) {
+		int[] cover = new int[8];
+		int size = 0;
+		boolean cyclic = to-from > 1;
+		for (int i=from; i<to; i++) {
+			int q = members[i];
+			for (int j=edgeStart[q]; j<edgeStart[q+1]; j++) {
+				int r = edgeDest[edges[j]];
+				if (component[r] == c)
+					cyclic = true;
+				else {
+					int[] rCover = covers.get(component[r]);
+					if (size + rCover.length + 1 > cover.length)
+						cover = Arrays.copyOf(cover, Math.max(2*cover.length, size + rCover.length + 1));
+					if (!marked.get(r)) {
+						marked.set(r);
+						cover[size++] = r;
+					}
+					for (int s: rCover)
+						if (!marked.get(s)) {
+							marked.set(s);
+							cover[size++] = s;
+						}
+				}
+			}
+		}
+		if (cyclic) {
+			if (size + to - from > cover.length)
+				cover = Arrays.copyOf(cover, size + to - from);
+			for (int i=from; i<to; i++)
+				if (!marked.get(members[i])) {
+					marked.set(members[i]);
+					cover[size++] = members[i];
+				}
+		}
+		for (int i=0; i<size; i++)
+			marked.clear(cover[i]);
+		return Arrays.copyOf(cover, size);
+	}
+
+
+	/**
+	 * Returns whether the given state can reach some state by epsilon rules.
+	 *
+	 * @param q state to be checked
+	 * @return true if and only if the epsilon cover of the given state is not empty
+	 */
+	public boolean hasCover(Q q) {
+		int id = stateIds.get(q);
+		return id >= 0 && covers.get(component[id]).length > 0;
+	}
+
+
+	/**
+	 * Returns the epsilon cover of the given state, that is all states which can be reached
+	 * from it by applying at least one epsilon rule. The state itself is only contained if
+	 * it lies on a cycle of epsilon rules. <br>
+	 * States of the same strongly connected component share the returned list.
+	 *
+	 * @param q state whose epsilon cover is to be returned
+	 * @return unmodifiable list of the states in the epsilon cover of the given state
+	 */
+	public List<Q> getCover(Q q) {
+		int id = stateIds.get(q);
+		if (id < 0)
+			return Collections.<Q>emptyList();
+		int c = component[id];
+		List<Q> cover = coverLists.get(c);
+		if (cover == null) {
+			int[] ids = covers.get(c);
+			List<Q> states = new ArrayList<Q>(ids.length);
+			for (int r: ids)
+				states.add(stateList.get(r));
+			cover = Collections.unmodifiableList(states);
+			coverLists.set(c, cover);
+		}
+		return cover;
+	}
+
+
+	/**
+	 * Returns, for each state in the epsilon cover of the given state, one epsilon rule by which it
+	 * is reached on a shortest path of epsilon rules starting in the given state. The rules are
+	 * returned in breadth-first order, so the source state of each rule is the given state or the
+	 * destination state of a rule before it. This is used if the epsilon rules carry further
+	 * information which has to be combined along the paths, like the variable trees of tree transducers.
+	 *
+	 * @param q state whose epsilon cover is to be traversed
+	 * @return epsilon rules of a breadth-first spanning tree of the epsilon cover of the given state
+	 */
+	public List<FTAEpsRule<Q>> getSpanningRules(Q q) {
+		int id = stateIds.get(q);
+		if (id < 0)
+			return Collections.<FTAEpsRule<Q>>emptyList();
+		List<FTAEpsRule<Q>> ret = new ArrayList<FTAEpsRule<Q>>(covers.get(component[id]).length);
+		BitSet visited = new BitSet();
+		int[] queue = new int[stateList.size()+1];
+		int head = 0, tail = 0;
+		queue[tail++] = id;
+		while (head < tail) {
+			int p = queue[head++];
+			for (int j=edgeStart[p]; j<edgeStart[p+1]; j++) {
+				int r = edgeDest[edges[j]];
+				if (!visited.get(r)) {
+					visited.set(r);
+					ret.add(epsRules.get(edges[j]));
+					queue[tail++] = r;
+				}
+			}
+		}
+		return ret;
+	}
+}
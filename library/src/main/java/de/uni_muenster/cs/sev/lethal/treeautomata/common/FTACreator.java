@@ -20,12 +20,10 @@ package de.uni_muenster.cs.sev.lethal.treeautomata.common;
 
 import de.uni_muenster.cs.sev.lethal.grammars.RTGRule;
 
+import java.util.ArrayList;
 import java.util.Collection;
-import java.util.HashMap;
-import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
-import java.util.Map;
 
 import de.uni_muenster.cs.sev.lethal.states.State;
 import de.uni_muenster.cs.sev.lethal.symbol.common.BiSymbol;
@@ -106,145 +104,49 @@ public abstract class FTACreator<F extends RankedSymbol, Q extends State, R exte
 	 * Given rules and additional epsilon rules, eliminates the epsilon rules.<br>
 	 * First, the epsilon cover of each state is calculated, that is the set of all states
 	 * which can be reached by only applying epsilon rules. Then, for each rule f(q1,...qn)->q
-	 * and each state r in the epsilon cover of q, a rule f(q1,...,qn)->r is added.
+	 * and each state r in the epsilon cover of q, a rule f(q1,...,qn)->r is added.<br>
+	 * The epsilon covers are computed by {@link EpsilonClosure} on the strongly connected
+	 * components of the epsilon rules.
 	 *
 	 * @param <F> symbol type used in rules
 	 * @param <Q> state type used in rules and epsilon rules
 	 * @param rules normal rules of the represented finite tree automaton
 	 * @param epsRules epsilon rules of the represented finite tree automaton which are to be eliminated
 	 *
-	 * @return a pair consisting of normal rules and final states, which represents a finite tree
-	 * automaton where the supplied epsilon rules have been eliminated.
+	 * @return the given rules together with the rules replacing the supplied epsilon rules
 	 */
 	public static
 	<F extends RankedSymbol,
 	Q extends State>
 	Collection<FTARule<F,Q>> eliminateEpsilonRules(Collection<? extends FTARule<F,Q>> rules,
 			Collection<? extends FTAEpsRule<Q>> epsRules) {
-		Collection<FTARule<F,Q>> newRules = new LinkedList<FTARule<F,Q>>(rules);
-
-		/* map each state q to the states which can be reached from q by applying only epsilon rules */
-		Map<Q,Collection<Q>> epsCover = new HashMap<Q,Collection<Q>>();
-
-		/* map each state q to the states p, such that p -> q is an epsilon rule */
-		Map<Q,Collection<Q>> srcStates = new HashMap<Q,Collection<Q>>();
-
-		/* map each state q to the states r, such that q -> r is an epsilon rule */
-		Map<Q,Collection<Q>> destStates = new HashMap<Q,Collection<Q>>();
-
-		/* list of states which still have to be examined*/
-		LinkedList<Q> worklist = new LinkedList<Q>();
-
-		/* initialize epsCover, destStates and srcStates:
-		 * for each epsilon rule (q,r) make sure that:
-		 * - r \in destStates(q)
-		 * - q \in srcStates(r)
-		 * - q \in epsCover(q) (Note, that this is sufficient, since
-		 * - the epsCover of a state s is trivial, if s is not the source state of
-		 * an epsilon rule)
-		 * - r is on the work list
-		 */
-		for (FTAEpsRule<Q> e: epsRules) {
-			Q qsrc = e.getSrcState();
-			Q qdest = e.getDestState();
-			worklist.add(e.getSrcState());
-			Collection<Q> qEpsCover;
-			Collection<Q> qdestSrcStates;
-			Collection<Q> qsrcDestStates;
-
-			if (epsCover.containsKey(qsrc))
-				qEpsCover = epsCover.get(qsrc);
-			else {
-				qEpsCover = new HashSet<Q>();
-				//qEpsCover.add(qsrc);
-				epsCover.put(qsrc, qEpsCover);
-			}
-
-			/* add qsrc to destStates(qdest) */
-			if (srcStates.containsKey(qdest))
-				qdestSrcStates = srcStates.get(qdest);
-			else {
-				/* a list is sufficient since the epsilon rules are represented
-				 * as a set, so a rule q->r is contained at most once, so
-				 * qdestSrcStates won't contain duplicates as well */
-				qdestSrcStates = new LinkedList<Q>();
-				srcStates.put(qdest, qdestSrcStates);
-			}
-			qdestSrcStates.add(qsrc);
-
-
-			/* add qdest to srcStates(qsrc) */
-			if (destStates.containsKey(qsrc))
-				qsrcDestStates = destStates.get(qsrc);
-			else {
-				/*
-				 * list is sufficient - see above, why
-				 */
-				qsrcDestStates = new LinkedList<Q>();
-				destStates.put(qsrc, qsrcDestStates);
-			}
-			qsrcDestStates.add(qdest);
-		}
-
-		/* compute the eps-cover of the left sides of the eps rules */
-		while (!worklist.isEmpty()) {
-			Q q = worklist.poll();
-			Collection<Q> qEpsCover = epsCover.get(q);
-			boolean changed = false;
-
-			/*
-			 * update the eps-cover of q by adding all eps-covers of
-			 * adjacent states, i.e. all elements of destStates(q)
-			 */
-			for (Q r: destStates.get(q)) {
-				changed = changed || qEpsCover.add(r);
-				if (epsCover.containsKey(r)) {
-					changed = changed || qEpsCover.addAll(epsCover.get(r));
-				}
-			}
-
-			/* if the epsilon cover of q has changed, this information needs to be
-			 * propagated to the predecessors of q, i.e. srcStates(q), if there are any */
-			if (changed) {
-				/* the eps-Cover of q has changed, so all states p
-				 * for which there is an epsilon rule p->q have to
-				 * be considered again
-				 */
-				if (srcStates.containsKey(q))
-					worklist.addAll(srcStates.get(q));
-			}
-		}
+		Collection<FTARule<F,Q>> newRules = new ArrayList<FTARule<F,Q>>(rules);
+		newRules.addAll(epsilonRuleCopies(rules, new EpsilonClosure<Q>(epsRules)));
+		return newRules;
+	}
 
-		/*
-		 * group the rules by destination states, so that rules
-		 * can easily be found later
-		 */
-		Map<Q,Collection<FTARule<F,Q>>> rulesByDestStates = new HashMap<Q,Collection<FTARule<F,Q>>>();
-		for (FTARule<F,Q> r: rules) {
-			Q qdest = r.getDestState();
-			Collection<FTARule<F,Q>> qdestRules;
-			if (rulesByDestStates.containsKey(qdest))
-				qdestRules = rulesByDestStates.get(qdest);
-			else {
-				/* each rule occurs at most once, so a list is sufficient */
-				qdestRules = new LinkedList<FTARule<F,Q>>();
-				rulesByDestStates.put(qdest, qdestRules);
-			}
-			qdestRules.add(r);
-		}
 
-		for (Q q: epsCover.keySet()) {
-			for (Q r: epsCover.get(q)) {
-				if (rulesByDestStates.containsKey(q))
-					for (FTARule<F,Q> qRule: rulesByDestStates.get(q)) {
-						/*
-						 * for each rule of the form f(q1,...,qn) -> q and
-						 * each state r contained in the eps-cover of q,
-						 * add a rule f(q1,...,qn) -> r
-						 **/
+	/**
+	 * Returns the rules which replace epsilon rules, that is for each given rule f(q1,...,qn)->q
+	 * and each state r in the epsilon cover of q the rule f(q1,...,qn)->r, if r is not q.
+	 *
+	 * @param <F> symbol type used in rules
+	 * @param <Q> state type used in rules and epsilon rules
+	 * @param rules normal rules of a finite tree automaton
+	 * @param closure epsilon covers of the epsilon rules to be eliminated
+	 * @return rules to be added in order to eliminate the epsilon rules
+	 */
+	static
+	<F extends RankedSymbol,
+	Q extends State>
+	List<FTARule<F,Q>> epsilonRuleCopies(Collection<? extends FTARule<F,Q>> rules, EpsilonClosure<Q> closure) {
+		List<FTARule<F,Q>> newRules = new ArrayList<FTARule<F,Q>>();
+		for (FTARule<F,Q> qRule: rules) {
+			Q q = qRule.getDestState();
+			if (closure.hasCover(q))
+				for (Q r: closure.getCover(q))
+					if (!r.equals(q))
 						newRules.add(new GenFTARule<F,Q>(qRule.getSymbol(), qRule.getSrcStates(), r));
-					}
-			}
 		}
 		return newRules;
 	}
@@ -22,6 +22,7 @@
 package de.uni_muenster.cs.sev.lethal.treeautomata.common;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
@@ -31,7 +32,11 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
 import java.util.Stack;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 import de.uni_muenster.cs.sev.lethal.states.State;
 import de.uni_muenster.cs.sev.lethal.symbol.common.RankedSymbol;
@@ -44,7 +49,6 @@ import de.uni_muenster.cs.sev.lethal.utils.Converter;
 import de.uni_muenster.cs.sev.lethal.utils.Pair;
 import de.uni_muenster.cs.sev.lethal.utils.SymmetricBoolTable;
 import de.uni_muenster.cs.sev.lethal.utils.Table;
-import de.uni_muenster.cs.sev.lethal.utils.Triple;
 
 /**
  * Encapsulates several standard operations on finite tree automata.<br>
@@ -54,13 +58,15 @@ import de.uni_muenster.cs.sev.lethal.utils.Triple;
  * <li>change only one finite tree automaton: {@link #complete complete},
  * {@link #completeAlphabet completeAlphabet}, {@link #determinize determinize},
  * {@link #reduceBottomUp reduceBottomUp}, {@link #reduceTopDown reduceTopDown},
- * {@link #reduceFull reduceFull}, {@link #minimize minimize}</li>
+ * {@link #reduceFull reduceFull}, {@link #minimize minimize}, {@link #minimizeHopcroft minimizeHopcroft}</li>
  * <li>change language of one finite tree automaton: {@link #complement
  * complement}, {@link #complementAlphabet complementAlphabet}</li>
  * <li>change language with two finite tree automata: {@link #union union},
  * {@link #intersectionBU intersectionBU}, {@link #intersectionTD
  * intersectionTD}, {@link #intersectionWR intersectionWR}, {@link #difference
  * difference}</li>
+ * <li>change language with many finite tree automata: {@link #intersection
+ * intersection}</li>
  * <li>special languages: substitute some languages in a variable tree (
  * {@link #substitute substitute}),
  * build up a tree automaton which accepts exactly the given tree
@@ -72,7 +78,7 @@ import de.uni_muenster.cs.sev.lethal.utils.Triple;
  * ({@link #restrictToMaxHeight(FTA, int, FTACreator, Converter)}})
  * </li>
  * <li>construct a tree which the given automaton accepts (
- * {@link #constructTreeFrom})</li>
+ * {@link #constructTreeFrom}), enumerate all accepted trees ({@link #streamTrees streamTrees})</li>
  * </ul>
  *
  * The algorithms are based on <a href="http://tata.gforge.inria.fr/">TATA</a>.
@@ -89,6 +95,26 @@ import de.uni_muenster.cs.sev.lethal.utils.Triple;
  */
 public class FTAOps {
 
+	/**
+	 * Returns the rules of the given finite tree automaton indexed by symbol, source
+	 * states and destination state. For automata derived from {@link AbstractFTA}, the
+	 * index maintained by the automaton is returned, otherwise a new index is built. <br>
+	 * The returned rule set must not be modified.
+	 *
+	 * @param <Q> state type of the given finite tree automaton
+	 * @param <F> symbol type of the given finite tree automaton
+	 * @param <R> rule type of the given finite tree automaton
+	 * @param fta finite tree automaton whose rules are to be indexed
+	 * @return the rules of the given finite tree automaton with their indexes
+	 */
+	@SuppressWarnings("unchecked")
+	public static <Q extends State, F extends RankedSymbol, R extends FTARule<F, Q>> IndexedFTARuleSet<F,Q,R> getRuleIndex(FTA<F,Q,R> fta) {
+		if (fta instanceof AbstractFTA)
+			return ((AbstractFTA<F,Q,R>)fta).getRuleIndex();
+		return new IndexedFTARuleSet<F,Q,R>(fta.getRules());
+	}
+
+
 	/**
 	 * Given a finite tree automaton, constructs an equivalent complete finite
 	 * tree automaton.<br>
@@ -228,33 +254,20 @@ public class FTAOps {
 	 * deterministic finite tree automaton. <br>
 	 * <br>
 	 * <em>Algorithm:</em><br>
-	 * Firstly, the sets of states (='setstates') are created that shall become
-	 * a state of the new finite tree automaton. Also triples containing a
-	 * symbol, a list of setstates (these will become the list of source states)
-	 * and a setstate (this will become a destination state) are created in two
-	 * steps: These triples will become the rules of the new finite tree
-	 * automaton.<br>
-	 * <em>1. Step</em>: Considering only constants.<br>
-	 * If there are no constants, the language is empty and an empty automaton
-	 * is returned. <br>
-	 * Otherwise, for each constant all states that can be reached by this
-	 * constant are collected. These states form a setstate. .* If this setstate
-	 * hasn't been created before, the toDo-stack must be extended by all
-	 * possible pairs consisting of a symbol having an arity >= 1 and a list of
-	 * setstates containing this new setstate, whereas the length of this list
-	 * is the same es the arity of the symbol. (
-	 * {@link Combinator#allListsContainingXCombine})<br>
-	 * The triple (constant, empty list, setstate) is stored.<br>
-	 * <em> 2. Step </em>: Consider all other symbols.<br>
-	 * Until the toDoStack is empty, take an element of it, that is a symbol and
-	 * a list of setstates. Consider all rules with this symbol, such that the
-	 * first state of the source states is contained in the first set of the
-	 * list, the second state is contained in the second set of the list, and so
-	 * on, and collect the destination states of the rules. <br>
-	 * The triple (symbol, list of setstates, set of destination states) is
-	 * stored. <br>
-	 * If this setstate has not been created before, the toDo-list is extended
-	 * as described above.
+	 * The sets of states (='setstates') which shall become the states of the
+	 * new finite tree automaton are constructed on the fly, beginning with the
+	 * constants: For each constant, all states that can be reached by this
+	 * constant form a setstate. For each new setstate, all pairs consisting
+	 * of a symbol having an arity >= 1 and a list of already known setstates
+	 * containing the new setstate are considered. Collecting the destination
+	 * states of all rules with this symbol, such that the first source state
+	 * is contained in the first set of the list and so on, yields another
+	 * setstate, which is added if it is new. For each such pair with a non-empty
+	 * setstate, a rule of the new finite tree automaton is created.<br>
+	 * Setstates are kept as interned bitsets, and for each symbol, position and
+	 * state the rules having this state at this position are indexed, so that
+	 * the applicable rules are found by intersecting bitsets instead of scanning
+	 * all rules. See {@link Determinizer} for details.
 	 *
 	 * @param <Q>
 	 *            state type of the finite tree automaton to be determinized
@@ -282,246 +295,82 @@ public class FTAOps {
 	public static <Q extends State, Q0 extends State, F extends RankedSymbol, R0 extends FTARule<F, Q0>, U extends FTA<F, Q0, R0>> U determinize(
 			FTA<F, Q, ? extends FTARule<F, Q>> fta,
 					FTACreator<F, Q0, R0, U> fc, Converter<Set<Q>, Q0> sc) {
-
-		// this shall become the new tree automaton
-		LinkedList<Q0> newStates = new LinkedList<Q0>();
-		LinkedList<Q0> newFinals = new LinkedList<Q0>();
-		LinkedList<R0> newRules = new LinkedList<R0>();
-
-		// and to create this new automaton, we first work with sets of states
-		Set<Set<Q>> setStates = new HashSet<Set<Q>>();
-		Set<Set<Q>> setFinals = new HashSet<Set<Q>>();
-
-		// and use a set to store what symbols with which list of sets of states
-		// create which set of state;
-		// because this determines the new rules
-		HashSet<Triple<F, List<Set<Q>>, Set<Q>>> helpRules = new HashSet<Triple<F, List<Set<Q>>, Set<Q>>>();
-
-		// alphabet
-		Collection<F> alphabet = fta.getAlphabet();
-
-		// we need a list the arities of the symbols of the alphabet
-		Set<Integer> arities = new HashSet<Integer>();
-		for (RankedSymbol f : alphabet) {
-			arities.add(f.getArity());
-		}
-
-		// If the alphabet of the automaton contains no constants,
-		// it's language is empty, so we return an empty automaton
-		if (!arities.contains(0))
-			return fc.createFTA(alphabet, newStates, newFinals, newRules);
-
-		// otherwise it is a bit more complicated ;-)
-		// But, 0 is contained in arities, and that is a good thing!
-		else {
-			// in the following we distinguish between symbols of different
-			// arities
-			// so we create a set that gives to an arity all symbols with this
-			// arity
-			HashMap<Integer, Set<F>> symbols = new HashMap<Integer, Set<F>>();
-			for (Integer ar : arities) {
-				// set that shall contain all symbols with the arity ar
-				Set<F> arSymbols = new HashSet<F>();
-				for (F f : alphabet) {
-					if (f.getArity() == ar)
-						arSymbols.add(f);
-				}
-				symbols.put(ar, arSymbols);
-			}
-			// we will not need the arity 0 later on, so we remove it from
-			// 'arities'
-			arities.remove(0);
-
-			// all pairs of symbols and lists of sets of states, that are still
-			// to consider
-			Stack<Pair<F, List<Set<Q>>>> toDo = new Stack<Pair<F, List<Set<Q>>>>();
-
-			// we need to consider all constants (symbols with arity 0);
-			// constants do not need any source states,
-			// so we make pairs (symbol, empty list)
-			for (F c : symbols.get(0)) {
-				List<Set<Q>> srcStates = new LinkedList<Set<Q>>();
-				Pair<Set<Q>, Boolean> resultedPair = getDestStates(fta, c,
-						srcStates);
-				Set<Q> destState = resultedPair.getFirst();
-
-				// no destination states, we have a dead end; ignore!
-				if (destState.isEmpty())
-					continue;
-
-				// if the state is not already contained in setStates,
-				boolean isContained = setStates.contains(destState);
-				// it must be added to the new set of states
-				if (!isContained) {
-					setStates.add(destState);
-					// and, maybe, it must be added to the new set of final
-					// states
-					if (resultedPair.getSecond()) {
-						setFinals.add(destState);
-					}
-					// and if the destState is not already contained in
-					// setStates,
-					// the toDo-stack must be extended by new pairs of symbol
-					// and list of
-					// sets of states containing this state
-					for (int n : arities) {
-						for (List<Set<Q>> srcState : Combinator
-								.allListsContainingXCombine(setStates,
-										destState, n)) {
-							for (F f : symbols.get(n)) {
-								toDo
-								.push(new Pair<F, List<Set<Q>>>(f,
-										srcState));
-							}
-						}
-					}
-				}
-				// and later on we need to create a new rule with this symbol c
-				// and the destState
-				helpRules.add(new Triple<F, List<Set<Q>>, Set<Q>>(c, srcStates,
-						destState));
-			}
-
-			// add reachable states as long as possible
-			while (!toDo.isEmpty()) {
-				Pair<F, List<Set<Q>>> consideredPair = toDo.pop();
-				Pair<Set<Q>, Boolean> resultedPair = getDestStates(fta,
-						consideredPair.getFirst(), consideredPair.getSecond());
-
-				Set<Q> destState = resultedPair.getFirst();
-
-				// no destination states, we have a dead end; ignore!
-				if (destState.isEmpty())
-					continue;
-
-				// add computed rule
-				helpRules.add(new Triple<F, List<Set<Q>>, Set<Q>>(
-						consideredPair.getFirst(), consideredPair.getSecond(),
-						resultedPair.getFirst()));
-
-				// if this state has not already been created
-				if (!setStates.contains(destState)) {
-					// then it must be added to the new set of states
-					setStates.add(destState);
-					// and, maybe, it must be added to the new set of final
-					// states
-					if (resultedPair.getSecond()) {
-						setFinals.add(destState);
-					}
-					// and the toDo-stack must be extended by new pairs of
-					// symbol and list of sets of states containing this state
-
-					for (int n : arities) {
-
-						for (List<Set<Q>> srcState : Combinator
-								.allListsContainingXCombine(setStates,
-										destState, n)) {
-							for (F f : symbols.get(n)) {
-								toDo
-								.push(new Pair<F, List<Set<Q>>>(f,
-										srcState));
-							}
-						}
-					}
-				}
-				// if this state has been created before, go on with the next
-				// element of toDo
-				// until toDo is empty
-			}
-
-			// convert the set of states (states and final states) into
-			// setstates
-			// we use a HasMap because we later want to create the rules
-			HashMap<Set<Q>, Q0> save = new HashMap<Set<Q>, Q0>();
-
-			for (Set<Q> set : setStates) {
-				Q0 newstate = sc.convert(set);
-				newStates.add(newstate);
-				save.put(set, newstate);
-				if (setFinals.contains(set))
-					newFinals.add(newstate);
-			}
-
-			// create new rules
-			List<Q0> srcStates = new LinkedList<Q0>();
-			for (Triple<F, List<Set<Q>>, Set<Q>> triple : helpRules) {
-				// function symbol of the rule
-				F symbol = triple.getFirst();
-				// source states of the rule
-				srcStates.clear();
-				for (Set<Q> set : triple.getSecond()) {
-					srcStates.add(save.get(set));
-				}
-				// dest state of the rule
-				Q0 destState = save.get(triple.getThird());
-				// create the new rule and add it
-				R0 rule = fc.createRule(symbol, srcStates, destState);
-				newRules.add(rule);
-			}
-
-			// return the deterministic tree Automaton
-			return fc.createFTA(fta.getAlphabet(), newStates, newFinals,
-					newRules);
-		}
+		return determinize(fta, fc, sc, 0, 0);
 	}
 
 	/**
-	 * For a given finite tree automaton, a list (s1,...,sn) of state sets and a
-	 * symbol f, computes all states for which there is a rule f(q1,...,qn) with
-	 * qi \in s_i for i=1,...,n <br>
-	 * Used as helper method for determinize.
+	 * Given a given finite tree automaton A, computes an equivalent
+	 * deterministic finite tree automaton, but gives up if the result would
+	 * get too large or the computation takes too long. <br>
+	 * The algorithm is the same as in
+	 * {@link #determinize(FTA, FTACreator, Converter)}. The limits are checked
+	 * while the new states are constructed, so the computation is aborted
+	 * before it runs out of memory.
 	 *
-	 * @param fta
-	 *            finite tree automaton to examine
-	 * @param combi
-	 *            list of set of states to examine every combination from
-	 * @param symbol
-	 *            symbol to examine
 	 * @param <Q>
-	 *            state type of finite tree automaton to be analysed
+	 *            state type of the finite tree automaton to be determinized
+	 * @param <Q0>
+	 *            state type of the determinized finite tree automaton
 	 * @param <F>
-	 *            symbol type of finite tree automaton to be analysed
-	 * @return the set of all states q, for which there is a rule f(q1,...,qn)
-	 *         with (q1,...,qn) \in combi(0)x...xcombi(combi.length()-1)
+	 *            symbol type of the finite tree automaton to be determinized
+	 * @param <R0>
+	 *            rule type of the determinized finite tree automaton
+	 * @param <U>
+	 *            type of the determinized finite tree automaton
+	 * @param fta
+	 *            automaton to be determinized
+	 * @param fc
+	 *            {@link FTACreator} to create the determinized finite tree
+	 *            automaton and fitting rules
+	 * @param sc
+	 *            state converter which converts sets of states of type Q to
+	 *            states of type Q0. It must be injective, that means if s1 and
+	 *            s2 are different sets of Q, then sc.convert(s1) and
+	 *            sc.convert(s2) must also be different!
+	 * @param maxStates
+	 *            maximal number of states of the determinized finite tree
+	 *            automaton, 0 means no limit
+	 * @param maxMillis
+	 *            maximal running time in milliseconds, 0 means no limit
 	 *
-	 * @see #determinize(FTA, FTACreator, Converter)
+	 * @throws LimitExceededException
+	 *             if the determinized finite tree automaton has more than
+	 *             maxStates states or the computation takes more than
+	 *             maxMillis milliseconds
+	 *
+	 * @return deterministic finite tree automaton equivalent to the given one
 	 */
-	private static <Q extends State, F extends RankedSymbol> Pair<Set<Q>, Boolean> getDestStates(
-			FTA<F, Q, ? extends FTARule<F, Q>> fta, F symbol, List<Set<Q>> combi) {
-		// states that can be reached by using the given symbol and source
-		// states
-		Set<Q> destSet = new HashSet<Q>();
-		// indicates, whether destSet contains a final state of the finite tree
-		// automaton
-		boolean finState = false;
-		// consider each rule that uses the given symbol
-		for (FTARule<F, Q> r : fta.getSymbolRules(symbol)) {
-			// ... and check, whether the source states fit
-			Iterator<Q> srcStateIter = r.getSrcStates().listIterator();
-			Iterator<Set<Q>> srcStateDomainIter = combi.listIterator();
-			// indicates whether the i-th source state is contained in the i-th
-			// set of the list
-			boolean allContained = true;
-			while (srcStateIter.hasNext()) {
-				Q srcState = srcStateIter.next();
-				Set<Q> srcStateDomain = srcStateDomainIter.next();
-				if (!srcStateDomain.contains(srcState)) {
-					allContained = false;
-					break;
-				}
-			}
-			// if the rule fits, add the destination state of the rule to
-			// destSet ...
-			if (allContained) {
-				destSet.add(r.getDestState());
-				// ... and set finState true, if necessary
-				if (!finState
-						&& fta.getFinalStates().contains(r.getDestState()))
-					finState = true;
-			}
+	public static <Q extends State, Q0 extends State, F extends RankedSymbol, R0 extends FTARule<F, Q0>, U extends FTA<F, Q0, R0>> U determinize(
+			FTA<F, Q, ? extends FTARule<F, Q>> fta,
+					FTACreator<F, Q0, R0, U> fc, Converter<Set<Q>, Q0> sc,
+					int maxStates, long maxMillis) {
+		if (maxStates < 0) throw new IllegalArgumentException("determinize(): maxStates must not be negative.");
+		if (maxMillis < 0) throw new IllegalArgumentException("determinize(): maxMillis must not be negative.");
+
+		Determinizer<F, Q> det = new Determinizer<F, Q>(fta, maxStates, maxMillis);
+		det.run();
+
+		// convert the setstates into states
+		List<Q0> newStates = new ArrayList<Q0>(det.getNumberOfSubsets());
+		LinkedList<Q0> newFinals = new LinkedList<Q0>();
+		for (int i = 0; i < det.getNumberOfSubsets(); i++) {
+			Q0 newstate = sc.convert(det.getSubset(i));
+			newStates.add(newstate);
+			if (det.isFinal(i))
+				newFinals.add(newstate);
+		}
+
+		// create new rules
+		LinkedList<R0> newRules = new LinkedList<R0>();
+		for (int[] rule : det.getRules()) {
+			List<Q0> srcStates = new ArrayList<Q0>(rule.length - 2);
+			for (int i = 1; i < rule.length - 1; i++)
+				srcStates.add(newStates.get(rule[i]));
+			newRules.add(fc.createRule(det.getSymbol(rule[0]), srcStates,
+					newStates.get(rule[rule.length - 1])));
 		}
 
-		return new Pair<Set<Q>, Boolean>(destSet, finState);
+		return fc.createFTA(fta.getAlphabet(), newStates, newFinals, newRules);
 	}
 
 	/**
@@ -536,7 +385,9 @@ public class FTAOps {
 	 * are marked and then all states which can be reached with the marked
 	 * states are marked. The process ends if no rule can be used to mark an
 	 * additional state. For the new finite tree automaton only marked states
-	 * and rules (that do not contain any not marked state) are used.
+	 * and rules (that do not contain any not marked state) are used. <br>
+	 * Each rule counts its source positions with unmarked states, so that each
+	 * source position is looked at once, see {@link FTAReachability}.
 	 *
 	 * @param <Q>
 	 *            state type of finite tree automaton to be reduced
@@ -556,62 +407,8 @@ public class FTAOps {
 	public static <Q extends State, F extends RankedSymbol, R extends FTARule<F, Q>, T extends FTA<F, Q, R>> T reduceBottomUp(
 			FTA<F, Q, ? extends FTARule<F, Q>> fta, FTACreator<F, Q, R, T> fc) {
 
-		LinkedList<FTARule<F,Q>> worklist = new LinkedList<FTARule<F,Q>>();
-
-		/* group rules by source state */
-		Map<Q, Collection<FTARule<F,Q>>> rulesBySrcState = new HashMap<Q, Collection<FTARule<F,Q>>>();
-		for (FTARule<F,Q> rule: fta.getRules()) {
-
-			/*
-			 * add all rules starting at leaves to worklist
-			 */
-			if (rule.getSymbol().getArity()==0) {
-				worklist.add(rule);
-			}
-
-			for (Q qsrc: rule.getSrcStates()) {
-				Collection<FTARule<F,Q>> qsrcRules;
-				if (rulesBySrcState.containsKey(qsrc))
-					qsrcRules = rulesBySrcState.get(qsrc);
-				else {
-					qsrcRules = new LinkedList<FTARule<F,Q>>();
-					rulesBySrcState.put(qsrc, qsrcRules);
-				}
-				qsrcRules.add(rule);
-			}
-		}
-
-		HashSet<Q> marked = new HashSet<Q>();
-		HashSet<Q> markedFinals = new HashSet<Q>();
-		LinkedList<FTARule<F, Q>> markedRules = new LinkedList<FTARule<F, Q>>();
-		while (!worklist.isEmpty()) {
-			FTARule<F,Q> nextRule = worklist.poll();
-			Q nextState = nextRule.getDestState();
-			boolean allMarked = true;
-			for (Q qsrc: nextRule.getSrcStates()) {
-				if (!marked.contains(qsrc)) {
-					allMarked = false;
-					break;
-				}
-			}
-
-			if (allMarked) {
-				markedRules.add(nextRule);
-				boolean isNew = marked.add(nextState);
-
-				if (isNew) {
-					if (fta.getFinalStates().contains(nextState))
-						markedFinals.add(nextState);
-
-
-					if (rulesBySrcState.containsKey(nextState))
-						for (FTARule<F,Q> ruleFromNextState: rulesBySrcState.get(nextState))
-							worklist.add(ruleFromNextState);
-				}
-			}
-		}
-
-		return fc.createFTA(fta.getAlphabet(), marked, markedFinals,markedRules);
+		FTAReachability<F,Q> reach = new FTAReachability<F,Q>(fta);
+		return fc.createFTA(fta.getAlphabet(), reach.getAccessibleStates(), reach.getAccessibleFinalStates(), reach.getAccessibleRules());
 		//		// HashSet<State> states = getStates();
 		//		// marked is the set of accessible states
 		//		HashSet<Q> marked = new HashSet<Q>();
@@ -685,7 +482,8 @@ public class FTAOps {
 	 * work list all rules that have this state as destination state and add the
 	 * rule and the corresponding source states to the resulting states of the
 	 * new automaton.<br>
-	 * Do this until the work list is empty.
+	 * Do this until the work list is empty. The states are marked in a bit set,
+	 * see {@link FTAReachability}.
 	 *
 	 * @param <Q>
 	 *            state type of the finite tree automaton to be reduced
@@ -707,52 +505,8 @@ public class FTAOps {
 	public static <Q extends State, F extends RankedSymbol, R extends FTARule<F, Q>, T extends FTA<F, Q, R>> T reduceTopDown(
 			FTA<F, Q, ? extends FTARule<F, Q>> fta, FTACreator<F, Q, R, T> fc) {
 
-		// initialize work list with all final states
-		LinkedList<Q> worklist = new LinkedList<Q>();
-		Set<Q> redStates = new HashSet<Q>(), redFinals = new HashSet<Q>();
-		Set<FTARule<F, Q>> redRules = new HashSet<FTARule<F, Q>>();
-		for (Q qf : fta.getFinalStates()) {
-			worklist.add(qf);
-			redStates.add(qf);
-			redFinals.add(qf);
-		}
-
-		/* */
-		Map<Q, Set<FTARule<F, Q>>> rulesByDestState = new HashMap<Q, Set<FTARule<F, Q>>>();
-		for (FTARule<F, Q> r : fta.getRules()) {
-			Q q = r.getDestState();
-			Set<FTARule<F, Q>> qRules;
-			if (rulesByDestState.containsKey(q))
-				qRules = rulesByDestState.get(q);
-			else {
-				qRules = new HashSet<FTARule<F, Q>>();
-				rulesByDestState.put(q, qRules);
-			}
-			qRules.add(r);
-		}
-
-		// for states in the work list search rules
-		// which have them as destination state
-		// and add the corresponding source states to the work list
-		// and the rules for the reduced automaton
-		while (!worklist.isEmpty()) {
-			Q next = worklist.poll();
-			if (rulesByDestState.containsKey(next)) {
-				for (FTARule<F, Q> r : rulesByDestState.get(next)) {
-					Iterator<Q> srcIter = r.getSrcStates().listIterator();
-					while (srcIter.hasNext()) {
-						Q q = srcIter.next();
-						if (!redStates.contains(q)) {
-							worklist.add(q);
-							redStates.add(q);
-						}
-					}
-					redRules.add(r);
-				}
-			}
-		}
-
-		return fc.createFTA(fta.getAlphabet(), redStates, redFinals, redRules);
+		FTAReachability<F,Q> reach = new FTAReachability<F,Q>(fta);
+		return fc.createFTA(fta.getAlphabet(), reach.getCoaccessibleStates(), new HashSet<Q>(fta.getFinalStates()), reach.getCoaccessibleRules());
 	}
 
 	/**
@@ -767,7 +521,13 @@ public class FTAOps {
 	 * </ul>
 	 * In conclusion, for each rule of the resulting automaton there is a tree t
 	 * and a final state qf, such that t can be reduced to a configuration tree
-	 * containing the left-hand side of the rule, which can be reduced to qf.
+	 * containing the left-hand side of the rule, which can be reduced to qf.<br>
+	 * <br>
+	 * Algorithm:<br>
+	 * First the bottom-up reachable rules are computed as in {@link #reduceBottomUp},
+	 * then the top-down reduction as in {@link #reduceTopDown} is carried out on them,
+	 * starting with the reachable final states. Both steps work on bit sets and take
+	 * linear time, see {@link FTAReachability}.
 	 *
 	 * @param <Q>
 	 *            state type of the finite tree automaton to be reduced
@@ -794,7 +554,8 @@ public class FTAOps {
 	 */
 	public static <Q extends State, F extends RankedSymbol, R extends FTARule<F, Q>, T extends FTA<F, Q, R>> T reduceFull(
 			FTA<F, Q, ? extends FTARule<F, Q>> fta, FTACreator<F, Q, R, T> fc) {
-		return reduceBottomUp(reduceTopDown(fta, fc), fc);
+		FTAReachability<F,Q> reach = new FTAReachability<F,Q>(fta);
+		return fc.createFTA(fta.getAlphabet(), reach.getUsefulStates(), reach.getUsefulFinalStates(), reach.getUsefulRules());
 	}
 
 	/**
@@ -1058,6 +819,264 @@ public class FTAOps {
 		return ret;
 	}
 
+	/**
+	 * Given a deterministic finite tree automaton, constructs an equivalent
+	 * finite tree automaton with an almost minimal number of states, using
+	 * partition refinement.<br>
+	 * The result is the same as the one of
+	 * {@link #minimize(FTA, State, FTACreator, Converter, FTACreator) minimize},
+	 * but pairs of states are never compared explicitly, so this variant is
+	 * applicable to automata with thousands of states. As there, the given
+	 * automaton is completed first, if necessary.<br>
+	 * Note that this method throws an exception if the given finite tree
+	 * automaton is not deterministic. <br>
+	 * <em>Algorithm:</em><br>
+	 * A context of a state q is a symbol f, a position i and states
+	 * q1,...,qi-1,qi+1,...,qn, such that there is a rule
+	 * f(q1,...,qi-1,q,qi+1,...,qn) -> p. Two states are equivalent if and only
+	 * if either both or none of them are final and each context leads to
+	 * equivalent destination states for both of them.<br>
+	 * <em>1. step:</em> The contexts are numbered, and for each state p the pairs
+	 * of a context and a state q are collected, such that the context leads from q to p.
+	 * The states are partitioned into final and non-final states. <br>
+	 * <em>2. step:</em> A worklist contains blocks to split by. For such a block
+	 * and each context leading into it, the states for which the context leads into
+	 * the block are moved to the front of their blocks, and each block containing
+	 * such states and others is split into these two parts. Only the moved states
+	 * are touched, so a splitter costs time proportional to the pairs leading into it.
+	 * Of the two parts, the smaller one is added to the worklist, both if the block
+	 * was waiting already. This is repeated until the worklist is empty.<br>
+	 * <em>3. step:</em> Each block is converted into a state, which is final if
+	 * the block contains final states. The new rules are created out of the former
+	 * rules by substituting occurring states by their blocks.
+	 *
+	 * @param fta
+	 *            finite tree automaton to be minimized
+	 * @param qbot
+	 *            state to be added by completion
+	 * @param fc
+	 *            {@link FTACreator} for reduction and completion
+	 * @param sc0
+	 *            state converter used for the minimization (after the
+	 *            determinization) - conversion must be injective!.
+	 * @param fc0
+	 *            {@link FTACreator} used for the minimization
+	 * @param <Q>
+	 *            state type of the given finite tree automaton
+	 * @param <F>
+	 *            symbol type of the given finite tree automaton
+	 * @param <R>
+	 *            rule type of the reduced and completed version of the given
+	 *            finite tree automaton
+	 * @param <T>
+	 *            type of the reduced and completed version of the given finite
+	 *            tree automaton
+	 * @param <Q0>
+	 *            state type of the resulting finite tree automaton
+	 * @param <R0>
+	 *            rule type of the resulting finite tree automaton
+	 * @param <U>
+	 *            type of the finite tree automaton to be returned
+	 *
+	 * @throws IllegalArgumentException
+	 *             if the given finite tree automaton is not deterministic
+	 *
+	 * @return finite tree automaton with a minimal number of states which has
+	 *         the same language as the given one
+	 *
+	 * @see #minimize(FTA, State, FTACreator, Converter, FTACreator)
+	 */
+	public static <Q extends State, Q0 extends State, F extends RankedSymbol, R extends FTARule<F, Q>, T extends FTA<F, Q, R>, R0 extends FTARule<F, Q0>, U extends FTA<F, Q0, R0>> U minimizeHopcroft(
+			FTA<F, Q, ? extends FTARule<F, Q>> fta, Q qbot,
+					FTACreator<F, Q, R, T> fc, Converter<Set<Q>, Q0> sc0,
+					FTACreator<F, Q0, R0, U> fc0) {
+		if (!FTAProperties.checkDeterministic(fta))
+			throw new IllegalArgumentException(
+			"Cannot minimize a non-deterministic finite tree automaton! You have to determinize first!");
+		T ta = reduceBottomUp(complete(fta, qbot, fc), fc);
+
+		// number states and rules
+		List<Q> states = new ArrayList<Q>(ta.getStates());
+		Map<Q, Integer> stateIds = new HashMap<Q, Integer>();
+		for (Q q : states)
+			stateIds.put(q, stateIds.size());
+		List<R> rules = new ArrayList<R>(ta.getRules());
+		int[] dest = new int[rules.size()];
+		for (int r = 0; r < rules.size(); r++)
+			dest[r] = stateIds.get(rules.get(r).getDestState());
+
+		// 1. step: index the contexts of each state, a context is represented by
+		// the symbol and the source states, where the position of the state itself
+		// is marked by null; since the automaton is deterministic and complete,
+		// each context maps each state to exactly one destination state
+		Map<List<Object>, Integer> contextIds = new HashMap<List<Object>, Integer>();
+		int edges = 0;
+		for (R r : rules)
+			edges += r.getSrcStates().size();
+		int[] context = new int[edges];
+		int[] src = new int[edges];
+		int[] invStart = new int[states.size() + 1];
+		int e = 0;
+		for (int r = 0; r < rules.size(); r++) {
+			List<Q> srcStates = rules.get(r).getSrcStates();
+			for (int i = 0; i < srcStates.size(); i++) {
+				List<Object> c = new ArrayList<Object>(srcStates.size() + 1);
+				c.add(rules.get(r).getSymbol());
+				c.addAll(srcStates);
+				c.set(i + 1, null);
+				Integer cId = contextIds.get(c);
+				if (cId == null) {
+					cId = contextIds.size();
+					contextIds.put(c, cId);
+				}
+				context[e] = cId;
+				src[e++] = stateIds.get(srcStates.get(i));
+				invStart[dest[r] + 1]++;
+			}
+		}
+		// sort the edges by destination state, such that the edges into p are
+		// invContext[k] and invSrc[k] with invStart[p] <= k < invStart[p+1]
+		for (int p = 0; p < states.size(); p++)
+			invStart[p + 1] += invStart[p];
+		int[] invContext = new int[edges];
+		int[] invSrc = new int[edges];
+		int[] fill = Arrays.copyOf(invStart, states.size());
+		e = 0;
+		for (int r = 0; r < rules.size(); r++)
+			for (int i = 0; i < rules.get(r).getSrcStates().size(); i++, e++) {
+				int k = fill[dest[r]]++;
+				invContext[k] = context[e];
+				invSrc[k] = src[e];
+			}
+		context = null;
+		src = null;
+
+		// the blocks are stored as ranges first[b] <= k < end[b] of elems,
+		// the states at first[b] <= k < mid[b] are marked during a split
+		int n = states.size();
+		int[] elems = new int[n];
+		int[] loc = new int[n];
+		int[] block = new int[n];
+		int[] first = new int[n];
+		int[] mid = new int[n];
+		int[] end = new int[n];
+		boolean[] waiting = new boolean[n];
+		int numBlocks = 0;
+
+		// initial partition: non-final and final states
+		int k = 0;
+		for (boolean isFinal : new boolean[] { false, true }) {
+			int start = k;
+			for (int q = 0; q < n; q++)
+				if (ta.getFinalStates().contains(states.get(q)) == isFinal) {
+					elems[k] = q;
+					loc[q] = k++;
+					block[q] = numBlocks;
+				}
+			if (k > start) {
+				first[numBlocks] = start;
+				mid[numBlocks] = start;
+				end[numBlocks] = k;
+				numBlocks++;
+			}
+		}
+		LinkedList<Integer> worklist = new LinkedList<Integer>();
+		if (numBlocks == 2) {
+			int smaller = end[0] - first[0] <= end[1] - first[1] ? 0 : 1;
+			worklist.add(smaller);
+			waiting[smaller] = true;
+		}
+
+		// 2. step: refine the partition
+		int[] head = new int[contextIds.size()];
+		Arrays.fill(head, -1);
+		int[] nextEdge = new int[edges];
+		List<Integer> touchedContexts = new ArrayList<Integer>();
+		List<Integer> touchedBlocks = new ArrayList<Integer>();
+		while (!worklist.isEmpty()) {
+			int s = worklist.removeFirst();
+			waiting[s] = false;
+			// group the edges into the splitter by their contexts
+			for (k = first[s]; k < end[s]; k++) {
+				int p = elems[k];
+				for (e = invStart[p]; e < invStart[p + 1]; e++) {
+					int c = invContext[e];
+					if (head[c] < 0)
+						touchedContexts.add(c);
+					nextEdge[e] = head[c];
+					head[c] = e;
+				}
+			}
+			for (int c : touchedContexts) {
+				// mark the states whose context c leads into the splitter
+				for (e = head[c]; e >= 0; e = nextEdge[e]) {
+					int q = invSrc[e];
+					int b = block[q];
+					if (loc[q] < mid[b])
+						continue;
+					if (mid[b] == first[b])
+						touchedBlocks.add(b);
+					int other = elems[mid[b]];
+					elems[loc[q]] = other;
+					loc[other] = loc[q];
+					elems[mid[b]] = q;
+					loc[q] = mid[b]++;
+				}
+				head[c] = -1;
+				// split each touched block into its marked and unmarked states
+				for (int b : touchedBlocks) {
+					if (mid[b] == end[b]) {
+						mid[b] = first[b];
+						continue;
+					}
+					int nb = numBlocks++;
+					first[nb] = first[b];
+					mid[nb] = first[b];
+					end[nb] = mid[b];
+					first[b] = mid[b];
+					for (k = first[nb]; k < end[nb]; k++)
+						block[elems[k]] = nb;
+					// a waiting block is split by all of its parts, otherwise
+					// the largest part need not be added
+					int add = nb;
+					if (!waiting[b] && end[b] - first[b] < end[nb] - first[nb])
+						add = b;
+					worklist.add(add);
+					waiting[add] = true;
+				}
+				touchedBlocks.clear();
+			}
+			touchedContexts.clear();
+		}
+
+		// 3. step: convert blocks into states and rules
+		Map<Q, Q0> equivalenceClass = new HashMap<Q, Q0>();
+		LinkedList<R0> newRules = new LinkedList<R0>();
+		LinkedList<Q0> newFinals = new LinkedList<Q0>();
+		for (int b = 0; b < numBlocks; b++) {
+			Set<Q> eClass = new HashSet<Q>();
+			for (k = first[b]; k < end[b]; k++)
+				eClass.add(states.get(elems[k]));
+			Q0 stateNewEClass = sc0.convert(eClass);
+			for (Q q : eClass)
+				equivalenceClass.put(q, stateNewEClass);
+			if (ta.getFinalStates().contains(states.get(elems[first[b]])))
+				newFinals.add(stateNewEClass);
+		}
+		for (R r : ta.getRules()) {
+			List<Q0> newSrcStates = new ArrayList<Q0>();
+			Q0 newDestState = equivalenceClass.get(r.getDestState());
+			for (Q q0 : r.getSrcStates()) {
+				newSrcStates.add(equivalenceClass.get(q0));
+			}
+			newRules.add(fc0.createRule(r.getSymbol(), newSrcStates,
+					newDestState));
+		}
+
+		return fc0.createFTA(ta.getAlphabet(), equivalenceClass.values(),
+				newFinals, newRules);
+	}
+
 	/**
 	 * Given a finite tree automaton A, constructs a finite tree automaton which
 	 * accepts a tree over the alphabet of A if and only if A denies it. <br>
@@ -1271,54 +1290,6 @@ public class FTAOps {
 
 	}
 
-	/**
-	 * Given a collection of rules, groups them by the states, which occur as
-	 * source states and the position in the source state list. In particular, a
-	 * map m is returned which maps every state which occurs as source state in
-	 * a rule and every possible number i to all rules, in which q occurs in the
-	 * source state list at position i.
-	 *
-	 * @param <F>
-	 *            symbol type of rules to be examined
-	 * @param <Q>
-	 *            state type of rules to be examined
-	 * @param rules
-	 *            the rules which are to be grouped
-	 * @return a map m is returned which maps every state which occurs as source
-	 *         state in a rule and every possible number i to all rules, in
-	 *         which q occurs in the source state list at position i.
-	 */
-	private static <F extends RankedSymbol,
-	Q extends State>
-	Map<Q, Map<Pair<F,Integer>, Collection<FTARule<F,Q>>>> groupRulesBySrcState(Set<? extends FTARule<F,Q>> rules) {
-		Map<Q, Map<Pair<F, Integer>, Collection<FTARule<F, Q>>>> ret = new HashMap<Q, Map<Pair<F,Integer>,Collection<FTARule<F,Q>>>>();
-		for (FTARule<F,Q> r: rules) {
-			int index = 0;
-			for (Q qsrc: r.getSrcStates()) {
-				Map<Pair<F,Integer>, Collection<FTARule<F,Q>>> qsrcRules;
-				if (ret.containsKey(qsrc))
-					qsrcRules = ret.get(qsrc);
-				else {
-					qsrcRules = new HashMap<Pair<F,Integer>,Collection<FTARule<F,Q>>>();
-					ret.put(qsrc, qsrcRules);
-				}
-				Pair<F,Integer> key = new Pair<F,Integer>(r.getSymbol(), index);
-				Collection<FTARule<F,Q>> qsrcKeyRules;
-				if (qsrcRules.containsKey(key)) {
-					qsrcKeyRules = qsrcRules.get(key);
-				}
-				else {
-					qsrcKeyRules = new LinkedList<FTARule<F,Q>>();
-					qsrcRules.put(key, qsrcKeyRules);
-				}
-				qsrcKeyRules.add(r);
-			}
-			index++;
-		}
-
-		return ret;
-	}
-
 	/**
 	 * Given two finite tree automata, constructs a finite tree automaton which
 	 * accepts a tree if and only if both finite tree automata accept it. The
@@ -1367,10 +1338,8 @@ public class FTAOps {
 			FTA<F, Q1, ? extends FTARule<F, Q1>> fta1,
 					FTA<F, Q2, ? extends FTARule<F, Q2>> fta2,
 							Converter<Pair<Q1, Q2>, Q3> pc, FTACreator<F, Q3, R, T> fc) {
-		//System.out.println("precalculation on first automaton...");
-		Map<Q1, Map<Pair<F,Integer>, Collection<FTARule<F,Q1>>>> rules1BySrcStates = groupRulesBySrcState(fta1.getRules());
-		//System.out.println("precalculation on second automaton...");
-		Map<Q2, Map<Pair<F,Integer>, Collection<FTARule<F,Q2>>>> rules2BySrcStates = groupRulesBySrcState(fta2.getRules());
+		IndexedFTARuleSet<F,Q1,? extends FTARule<F,Q1>> index1 = getRuleIndex(fta1);
+		IndexedFTARuleSet<F,Q2,? extends FTARule<F,Q2>> index2 = getRuleIndex(fta2);
 		LinkedList<Pair<FTARule<F, Q1>, FTARule<F, Q2>>> worklist = new LinkedList<Pair<FTARule<F, Q1>, FTARule<F, Q2>>>();
 		Set<Pair<Q1, Q2>> pairStates = new HashSet<Pair<Q1, Q2>>();
 		ArrayList<Pair<FTARule<F, Q1>, FTARule<F, Q2>>> pairRules = new ArrayList<Pair<FTARule<F, Q1>, FTARule<F, Q2>>>();
@@ -1411,14 +1380,14 @@ public class FTAOps {
 							&& fta2.getFinalStates().contains(q2))
 						pairFinals.add(statePair);
 
-					if (rules1BySrcStates.containsKey(q1) && rules2BySrcStates.containsKey(q2)) {
-						for (Pair<F,Integer> key: rules1BySrcStates.get(q1).keySet()) {
-							if (rules2BySrcStates.get(q2).containsKey(key)) {
-								for (FTARule<F,Q1> r1: rules1BySrcStates.get(q1).get(key))
-									for (FTARule<F,Q2> r2: rules2BySrcStates.get(q2).get(key)) {
-										worklist.add(new Pair<FTARule<F, Q1>, FTARule<F, Q2>>(r1,r2));
-									}
-							}
+					// pair the rules with q1 and q2 at the same position
+					for (FTARule<F,Q1> r1: index1.getSrcRules(q1)) {
+						int i = 0;
+						for (Q1 qsrc: r1.getSrcStates()) {
+							if (qsrc.equals(q1))
+								for (FTARule<F,Q2> r2: index2.getSrcRules(r1.getSymbol(), i, q2))
+									worklist.add(new Pair<FTARule<F, Q1>, FTARule<F, Q2>>(r1,r2));
+							i++;
 						}
 					}
 					//System.out.println("work list has grown by "+(worklist.size()-wlsize)+" items.");
@@ -1585,19 +1554,8 @@ public class FTAOps {
 					Converter<Pair<Q1, Q2>, Q3> pc, FTACreator<F, Q3, R, T> fc) {
 
 
-		/* group the rules of the first automaton by destination state */
-		Map<Q1, Collection<FTARule<F,Q1>>> rules1ByDestState = new HashMap<Q1, Collection<FTARule<F,Q1>>>();
-		for (FTARule<F,Q1> r1: fta1.getRules()) {
-			Q1 q = r1.getDestState();
-			Collection<FTARule<F,Q1>> qRules;
-			if (rules1ByDestState.containsKey(q))
-				qRules = rules1ByDestState.get(q);
-			else {
-				qRules = new LinkedList<FTARule<F,Q1>>();
-				rules1ByDestState.put(q, qRules);
-			}
-			qRules.add(r1);
-		}
+		/* the rules of the first automaton by destination state */
+		IndexedFTARuleSet<F,Q1,? extends FTARule<F,Q1>> index1 = getRuleIndex(fta1);
 
 		/* group the rules of the second automaton by destination state and symbol */
 		Map<Pair<F,Q2>, Collection<FTARule<F,Q2>>> rules2ByDSSymb = new HashMap<Pair<F,Q2>, Collection<FTARule<F,Q2>>>();
@@ -1622,18 +1580,16 @@ public class FTAOps {
 
 		/* initialize worklist */
 		for (Q1 qf1: fta1.getFinalStates()) {
-			if (rules1ByDestState.containsKey(qf1)) {
-				for (FTARule<F,Q1> r1: rules1ByDestState.get(qf1)) {
-					for (Q2 qf2: fta2.getFinalStates()) {
-						Pair<F,Q2> key = new Pair<F,Q2>(r1.getSymbol(),qf2);
-						if (rules2ByDSSymb.containsKey(key))
-							for (FTARule<F,Q2> r2: rules2ByDSSymb.get(key)) {
-								Pair<Q1,Q2> pairFinal = new Pair<Q1,Q2>(r1.getDestState(), r2.getDestState());
-								worklist.add(new Pair<FTARule<F,Q1>, FTARule<F,Q2>>(r1,r2));
-								pairStates.add(pairFinal);
-								pairFinals.add(pairFinal);
-							}
-					}
+			for (FTARule<F,Q1> r1: index1.getDestRules(qf1)) {
+				for (Q2 qf2: fta2.getFinalStates()) {
+					Pair<F,Q2> key = new Pair<F,Q2>(r1.getSymbol(),qf2);
+					if (rules2ByDSSymb.containsKey(key))
+						for (FTARule<F,Q2> r2: rules2ByDSSymb.get(key)) {
+							Pair<Q1,Q2> pairFinal = new Pair<Q1,Q2>(r1.getDestState(), r2.getDestState());
+							worklist.add(new Pair<FTARule<F,Q1>, FTARule<F,Q2>>(r1,r2));
+							pairStates.add(pairFinal);
+							pairFinals.add(pairFinal);
+						}
 				}
 			}
 		}
@@ -1654,13 +1610,11 @@ public class FTAOps {
 				 **/
 				boolean isNew = pairStates.add(statePair);
 				if (isNew) {
-					if (rules1ByDestState.containsKey(q1)) {
-						for (FTARule<F,Q1> r1: rules1ByDestState.get(q1)) {
-							key.setFirst(r1.getSymbol());
-							if (rules2ByDSSymb.containsKey(key)) {
-								for (FTARule<F,Q2> r2: rules2ByDSSymb.get(key)) {
-									worklist.add(new Pair<FTARule<F,Q1>, FTARule<F,Q2>>(r1,r2));
-								}
+					for (FTARule<F,Q1> r1: index1.getDestRules(q1)) {
+						key.setFirst(r1.getSymbol());
+						if (rules2ByDSSymb.containsKey(key)) {
+							for (FTARule<F,Q2> r2: rules2ByDSSymb.get(key)) {
+								worklist.add(new Pair<FTARule<F,Q1>, FTARule<F,Q2>>(r1,r2));
 							}
 						}
 					}
@@ -1728,20 +1682,8 @@ public class FTAOps {
 				newFinals.add(p);
 			}
 
-		// construct a map which maps each state of the first automaton
-		// to all rules, which have this state as destination state
-		Map<Q1, Set<FTARule<F, Q1>>> dstRules1 = new HashMap<Q1, Set<FTARule<F, Q1>>>();
-		for (FTARule<F, Q1> r : fta1.getRules()) {
-			Q1 q = r.getDestState();
-			Set<FTARule<F, Q1>> qRules;
-			if (dstRules1.containsKey(q))
-				qRules = dstRules1.get(r.getDestState());
-			else {
-				qRules = new HashSet<FTARule<F, Q1>>();
-				dstRules1.put(q, qRules);
-			}
-			qRules.add(r);
-		}
+		// the rules of the first automaton by destination state
+		IndexedFTARuleSet<F,Q1,? extends FTARule<F,Q1>> index1 = getRuleIndex(fta1);
 
 		// second step: process work list
 		while (!worklist.isEmpty()) {
@@ -1755,8 +1697,7 @@ public class FTAOps {
 			// take next element of the work list
 
 			// check all rules f(...)->q1 of the first automaton
-			if (dstRules1.containsKey(q1))
-				for (FTARule<F, Q1> r1 : dstRules1.get(q1)) {
+			for (FTARule<F, Q1> r1 : index1.getDestRules(q1)) {
 				// search in the rules of the second automaton
 				// rules like f(...)->q2
 				for (FTARule<F, Q2> r2 : fta2.getSymbolRules(r1.getSymbol()))
@@ -1891,6 +1832,59 @@ public class FTAOps {
 		return fc.createFTA(newAlphabet, newStates.values(), newFinals.values(), newRules);
 	}
 
+
+	/**
+	 * Given a list of finite tree automata, constructs a finite tree automaton
+	 * which accepts a tree if and only if all of the automata accept it.<br>
+	 * Other than a chain of binary intersections, this needs no intermediate
+	 * automata.<br>
+	 * <br>
+	 * <em>Algorithm:</em><br>
+	 * The states of the result are tuples (q_1,...,q_n) of states of the given
+	 * automata, which are only constructed if they are reachable: if there are
+	 * rules f(p_1^i,...,p_m^i) -> q_i of the automata such that the tuples
+	 * (p_j^1,...,p_j^n) are reachable, then (q_1,...,q_n) is reachable, and
+	 * f((p_1^1,...,p_1^n),...,(p_m^1,...,p_m^n)) -> (q_1,...,q_n) is a rule of
+	 * the result. While searching, the tuples are kept as arrays of state
+	 * numbers, and the fitting rules of the automata are found by bitsets of
+	 * the rules having a given state at a given position. Afterwards, the tuples
+	 * from which no final tuple can be reached are dropped, so the result is
+	 * reduced.
+	 *
+	 * @param <F>
+	 *            symbol type of the automata
+	 * @param <Q>
+	 *            state type of the given automata
+	 * @param <Q3>
+	 *            state type of the result finite tree automaton
+	 * @param <R>
+	 *            rule type of the result finite tree automaton
+	 * @param <T>
+	 *            type of the result finite tree automaton
+	 * @param ftas
+	 *            finite tree automata to be intersected, must not be empty
+	 * @param tc
+	 *            takes the tuples of states of the automata as lists and returns
+	 *            a state of the result state type. Must be injective, that means,
+	 *            the converted versions of two different tuples must be different
+	 * @param fc
+	 *            {@link FTACreator} for creating the result automaton and its
+	 *            rules
+	 * @return reduced finite tree automaton which accepts a tree if and only if
+	 *         all given finite tree automata accept it
+	 */
+	public static <F extends RankedSymbol, Q extends State, Q3 extends State, R extends FTARule<F, Q3>, T extends FTA<F, Q3, R>> T intersection(
+			List<? extends FTA<F, Q, ? extends FTARule<F, Q>>> ftas,
+					Converter<List<Q>, Q3> tc, FTACreator<F, Q3, R, T> fc) {
+		if (ftas == null) throw new IllegalArgumentException("intersection(): ftas must not be null.");
+		if (ftas.isEmpty()) throw new IllegalArgumentException("intersection(): ftas must not be empty.");
+		if (tc == null) throw new IllegalArgumentException("intersection(): tc must not be null.");
+		if (fc == null) throw new IllegalArgumentException("intersection(): fc must not be null.");
+		ProductIntersection<F,Q> product = new ProductIntersection<F,Q>(ftas);
+		product.run();
+		return product.createFTA(tc, fc);
+	}
+
 	/**
 	 * Given two finite tree automata, constructs a finite tree automaton which
 	 * recognizes a tree if and only if it is recognized by the first but not by
@@ -2510,27 +2504,16 @@ public class FTAOps {
 		 */
 		LinkedList<FTARule<F,Q>> worklist = new LinkedList<FTARule<F,Q>>();
 
-		/* group rules by source state */
-		Map<Q, Collection<FTARule<F,Q>>> rulesBySrcState = new HashMap<Q, Collection<FTARule<F,Q>>>();
-		for (FTARule<F,Q> rule: fta.getRules()) {
+		/* rules grouped by source state */
+		IndexedFTARuleSet<F,Q,? extends FTARule<F,Q>> index = getRuleIndex(fta);
 
-			/*
-			 * initialize worklist with all rules having leaves as symbols
-			 */
+		/*
+		 * initialize worklist with all rules having leaves as symbols
+		 */
+		for (FTARule<F,Q> rule: index) {
 			if (rule.getSymbol().getArity()==0) {
 				worklist.add(rule);
 			}
-
-			for (Q qsrc: rule.getSrcStates()) {
-				Collection<FTARule<F,Q>> qsrcRules;
-				if (rulesBySrcState.containsKey(qsrc))
-					qsrcRules = rulesBySrcState.get(qsrc);
-				else {
-					qsrcRules = new LinkedList<FTARule<F,Q>>();
-					rulesBySrcState.put(qsrc, qsrcRules);
-				}
-				qsrcRules.add(rule);
-			}
 		}
 
 		while (!worklist.isEmpty()) {
@@ -2572,15 +2555,13 @@ public class FTAOps {
 						 * the next step, i.e. all rules which have the current state
 						 * as source state
 						 */
-						if (rulesBySrcState.containsKey(dest)) {
-							for (FTARule<F,Q> considerNext: rulesBySrcState.get(dest))
-								if (depthFirst)
-									worklist.push(considerNext);
-								else {
-									worklist.add(considerNext);
-									//System.out.println(considerNext+" added.");
-								}
-						}
+						for (FTARule<F,Q> considerNext: index.getSrcRules(dest))
+							if (depthFirst)
+								worklist.push(considerNext);
+							else {
+								worklist.add(considerNext);
+								//System.out.println(considerNext+" added.");
+							}
 					}
 				}
 			}
@@ -2639,6 +2620,33 @@ public class FTAOps {
 	}
 
 
+	/**
+	 * Given a finite tree automaton, returns a stream of all trees accepted by it in the order
+	 * of increasing size or height. <br>
+	 * The stream is lazy: the trees of a size or height are constructed only when the stream
+	 * reaches them, out of tables containing the trees of the smaller sizes or heights, respectively,
+	 * which are annotated with each state. So the number of trees can be limited by
+	 * {@link Stream#limit}, or by the given maximal size or height, which also lets the stream end
+	 * on infinite languages.
+	 *
+	 * @param <F> symbol type of the finite tree automaton to be examined
+	 * @param <Q> state type of the finite tree automaton to be examined
+	 * @param <T> type of the trees to be constructed
+	 * @param fta finite tree automaton whose trees are to be enumerated
+	 * @param tc {@link TreeCreator} to create the trees
+	 * @param byHeight whether the trees are ordered by height, otherwise they are ordered by size
+	 * @param maxLevel maximal height or size, respectively, of the trees, 0 for no limit
+	 * @return stream of the trees accepted by the given finite tree automaton, each exactly once
+	 * @see TreeEnumerator
+	 */
+	public static <Q extends State, F extends RankedSymbol, T extends Tree<F>> Stream<T> streamTrees(
+			FTA<F, Q, ? extends FTARule<F, Q>> fta, TreeCreator<F, T> tc, boolean byHeight, int maxLevel) {
+		TreeEnumerator<F,Q,T> trees = new TreeEnumerator<F,Q,T>(fta, tc, byHeight, maxLevel);
+		return StreamSupport.stream(Spliterators.spliteratorUnknownSize(trees,
+				Spliterator.ORDERED | Spliterator.DISTINCT | Spliterator.NONNULL), false);
+	}
+
+
 	/**
 	 * Converts a finite tree automaton into another one by converting the types
 	 * of states and symbols. <br>
@@ -2718,7 +2726,9 @@ public class FTAOps {
 
 	/**
 	 * Annotates a given tree and all its subtrees with states they can be
-	 * annotated with by a given finite tree automaton.
+	 * annotated with by a given finite tree automaton.<br>
+	 * The automaton is evaluated in its {@link CompiledFTA compiled form}, which computes the states of
+	 * every node once from the states of its children and evaluates shared subtrees only once.
 	 *
 	 * @param fta
 	 *            finite tree automaton which is used to annotate the given tree
@@ -2733,20 +2743,13 @@ public class FTAOps {
 	 *            tree to be annotated
 	 * @return a map which assigns each tree contained in t the set of states
 	 *         which the automaton can annotate this tree with
+	 * @see CompiledFTA#annotateTreeWithStates(Tree)
 	 */
 	public static <F extends RankedSymbol, Q extends State> Map<Tree<F>, Set<Q>> annotateTreeWithStates(
 			FTA<F, Q, ? extends FTARule<F, Q>> fta, Tree<F> tree) {
-		Map<Tree<F>, Set<Q>> ret = new HashMap<Tree<F>, Set<Q>>();
-		Stack<Tree<F>> toDo = new Stack<Tree<F>>();
-		toDo.add(tree);
-		while (!toDo.isEmpty()) {
-			Tree<F> s = toDo.pop();
-			if (!ret.containsKey(s))
-				ret.put(s, FTAProperties.accessibleStates(fta, s));
-			for (Tree<F> u : s.getSubTrees())
-				toDo.push(u);
-		}
-		return ret;
+		CompiledFTA<F,Q> compiled = fta instanceof AbstractFTA
+				? ((AbstractFTA<F,Q,?>)fta).getCompiledForm() : new CompiledFTA<F,Q>(fta);
+		return compiled.annotateTreeWithStates(tree);
 	}
 
 	/**
@@ -22,23 +22,24 @@
 package de.uni_muenster.cs.sev.lethal.treeautomata.common;
 
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
-import java.util.Iterator;
-import java.util.LinkedList;
 import java.util.List;
-import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
 
 import de.uni_muenster.cs.sev.lethal.states.State;
 import de.uni_muenster.cs.sev.lethal.symbol.common.BiSymbol;
 import de.uni_muenster.cs.sev.lethal.symbol.common.RankedSymbol;
 import de.uni_muenster.cs.sev.lethal.tree.common.Tree;
+import de.uni_muenster.cs.sev.lethal.tree.common.TreeCreator;
+import de.uni_muenster.cs.sev.lethal.tree.common.TreeFolder;
 import de.uni_muenster.cs.sev.lethal.treeautomata.generic.GenFTA;
 import de.uni_muenster.cs.sev.lethal.treeautomata.generic.GenFTACreator;
-import de.uni_muenster.cs.sev.lethal.treeautomata.generic.GenFTARule;
+import de.uni_muenster.cs.sev.lethal.utils.BatchEvaluator;
 import de.uni_muenster.cs.sev.lethal.utils.Converter;
-import de.uni_muenster.cs.sev.lethal.utils.Pair;
 
 /**
  * A class for checking properties of a finite tree automaton, for example if it is
@@ -183,8 +184,8 @@ public class FTAProperties {
 	 * That means that no tree is accepted by the tree automaton.<br>
 	 * <br>
 	 * Algorithm:<br>
-	 * This is simply checked by reducing the finite tree automaton.
-	 * If there are no final states in the reduced automaton, than the language is empty.
+	 * This is simply checked by computing the states of the bottom-up reduced finite tree automaton.
+	 * If there are no final states among them, than the language is empty.
 	 *
 	 * @param <Q> state type of the given finite tree automaton
 	 * @param <F> symbol type of the given finite tree automaton
@@ -193,9 +194,78 @@ public class FTAProperties {
 	 */
 	public static <F extends RankedSymbol, Q extends State>
 	boolean emptyLanguage(FTA<F,Q,? extends FTARule<F,Q>> fta){
-		FTACreator<F,Q,GenFTARule<F,Q>,GenFTA<F,Q>> fc
-		= new GenFTACreator<F,Q>();
-		return FTAOps.reduceBottomUp(fta,fc).getFinalStates().isEmpty();
+		return new FTAReachability<F,Q>(fta).isEmpty();
+	}
+
+
+	/**
+	 * Checks if the intersection of the languages recognised by the given finite tree automata
+	 * is empty, that means, no tree is accepted by all of them.<br>
+	 * <br>
+	 * Algorithm:<br>
+	 * The tuples of states of the automata reachable by some tree are searched bottom-up, as in
+	 * {@link FTAOps#intersection(List, Converter, FTACreator) intersection}, but without storing
+	 * product rules or creating states. The search stops as soon as a tuple of final states is
+	 * reached.
+	 *
+	 * @param <F> symbol type of the given finite tree automata
+	 * @param <Q> state type of the given finite tree automata
+	 * @param ftas finite tree automata whose languages are intersected, must not be empty
+	 * @return true if and only if there is no tree accepted by all given finite tree automata
+	 */
+	public static <F extends RankedSymbol, Q extends State>
+	boolean emptyIntersection(List<? extends FTA<F,Q,? extends FTARule<F,Q>>> ftas) {
+		if (ftas == null) throw new IllegalArgumentException("emptyIntersection(): ftas must not be null.");
+		if (ftas.isEmpty()) throw new IllegalArgumentException("emptyIntersection(): ftas must not be empty.");
+		return new ProductIntersection<F,Q>(ftas, true).run();
+	}
+
+
+	/**
+	 * Checks if the intersection of the languages recognised by two finite tree automata
+	 * is empty, that means, no tree is accepted by both of them.
+	 *
+	 * @param <F> symbol type of the given finite tree automata
+	 * @param <Q> state type of the given finite tree automata
+	 * @param fta1 first finite tree automaton
+	 * @param fta2 second finite tree automaton
+	 * @return true if and only if there is no tree accepted by both given finite tree automata
+	 * @see #emptyIntersection(List)
+	 */
+	public static <F extends RankedSymbol, Q extends State>
+	boolean emptyIntersection(FTA<F,Q,? extends FTARule<F,Q>> fta1, FTA<F,Q,? extends FTARule<F,Q>> fta2) {
+		if (fta1 == null) throw new IllegalArgumentException("emptyIntersection(): fta1 must not be null.");
+		if (fta2 == null) throw new IllegalArgumentException("emptyIntersection(): fta2 must not be null.");
+		List<FTA<F,Q,? extends FTARule<F,Q>>> ftas = new ArrayList<FTA<F,Q,? extends FTARule<F,Q>>>(2);
+		ftas.add(fta1);
+		ftas.add(fta2);
+		return emptyIntersection(ftas);
+	}
+
+
+	/**
+	 * Searches a tree which is accepted by all given finite tree automata.<br>
+	 * <br>
+	 * Algorithm:<br>
+	 * The search is the one of {@link #emptyIntersection(List) emptyIntersection}. Each tuple
+	 * of states remembers the rule and the tuples it was first reached with, so the tree
+	 * leading to the first tuple of final states can be reconstructed.
+	 *
+	 * @param <F> symbol type of the given finite tree automata
+	 * @param <Q> state type of the given finite tree automata
+	 * @param <T> type of the witness tree
+	 * @param ftas finite tree automata whose languages are intersected, must not be empty
+	 * @param tc creator for the witness tree
+	 * @return a tree accepted by all given finite tree automata, or null if there is none
+	 */
+	public static <F extends RankedSymbol, Q extends State, T extends Tree<F>>
+	T intersectionWitness(List<? extends FTA<F,Q,? extends FTARule<F,Q>>> ftas, TreeCreator<F,T> tc) {
+		if (ftas == null) throw new IllegalArgumentException("intersectionWitness(): ftas must not be null.");
+		if (ftas.isEmpty()) throw new IllegalArgumentException("intersectionWitness(): ftas must not be empty.");
+		if (tc == null) throw new IllegalArgumentException("intersectionWitness(): tc must not be null.");
+		ProductIntersection<F,Q> product = new ProductIntersection<F,Q>(ftas, true);
+		product.run();
+		return product.getWitness(tc);
 	}
 
 
@@ -203,11 +273,11 @@ public class FTAProperties {
 	 * Given a finite tree automaton, decides whether the language recognized by the automaton is finite.<br>
 	 * <br>
 	 * Algorithm:<br>
-	 * First, the finite tree automaton is {@link FTAOps#reduceFull fully reduced}. Afterwards, a mapping is constructed using
-	 * constructed, which assigns each state q the set of states r, from which q can be reached, that
-	 * means that there is a configuration tree which contains q as leaf and can be annotated with q.<br>
-	 * Finally, it is checked, whether there is a state which can be reached from itself. If such a state
-	 * is found, the given finite tree automaton recognizes infinitely many trees since
+	 * First, the useful rules of the finite tree automaton are computed, that are the rules kept by
+	 * {@link FTAOps#reduceFull}. Afterwards, the strongly connected components of the graph having
+	 * an edge from the destination state of each useful rule to each of its source states are computed.
+	 * If there is a state q which can be reached from itself, that is a component with more than one
+	 * state or a loop, the given finite tree automaton recognizes infinitely many trees since
 	 * <ul>
 	 * <li> a configuration tree t1, which can be annotated with a final state and which has q as leaf </li>
 	 * <li> a configuration tree t2, which can be annotated with q and which as q as leaf </li>
@@ -231,104 +301,7 @@ public class FTAProperties {
 	 */
 	public static <F extends RankedSymbol, Q extends State>
 	boolean finiteLanguage(FTA<F,Q,? extends FTARule<F,Q>> fta){
-
-		//make FTACreator
-		//FTACreator<Q,F,FTARule<Q,F>,T> fc
-		FTACreator<F,Q,GenFTARule<F,Q>,GenFTA<F,Q>> fc
-		= new GenFTACreator<F,Q>();
-
-		FTA<F,Q,? extends FTARule<F,Q>> redFTA = FTAOps.reduceFull(fta,fc);
-
-		/*
-		 * For every state q, we store all states r, from which q can be reached.
-		 * We say that q can be reached from a state r, if there is a configuration
-		 * tree which contains q as leaf and can be annotated with r.
-		 */
-		Map<Q,Set<Q>> reachableStates = new HashMap<Q,Set<Q>>();
-		Set<Q> workSet = new HashSet<Q>();
-		Map<Q,Set<FTARule<F,Q>>> rulesByDestState = new HashMap<Q,Set<FTARule<F,Q>>>();
-		for (Q q: redFTA.getStates())
-			reachableStates.put(q, new HashSet<Q>());
-
-		/*
-		 * group rules of the reduced automaton by destination state
-		 */
-		for (FTARule<F,Q> rule: redFTA.getRules()) {
-			Set<FTARule<F,Q>> destRules;
-			if (!rulesByDestState.containsKey(rule.getDestState())) {
-				destRules = new HashSet<FTARule<F,Q>>();
-				rulesByDestState.put(rule.getDestState(), destRules);
-			}
-			else
-				destRules = rulesByDestState.get(rule.getDestState());
-			destRules.add(rule);
-			workSet.add(rule.getDestState());
-		}
-
-
-		/*
-		 * idea:
-		 * examine rule f(q1,...qn) -> q
-		 * qi can be reached directly from q and indirectly from every state r,
-		 * from which q can be reached. So, it must be assured, that
-		 * q and reachableStates.get(q) are contained in reachableStates(qi).
-		 * This leads to a system of monotonic constraints, which is solvable by
-		 * a worklist iteration
-		 */
-		while (!workSet.isEmpty()) {
-			Q next = workSet.iterator().next();
-			workSet.remove(next);
-
-			/* reachNext contains all states from which next can be reached */
-			Set<Q> reachNext = reachableStates.get(next);
-			for (FTARule<F,Q> ruleOfNext: rulesByDestState.get(next)) {
-				for (Q src: ruleOfNext.getSrcStates()) {
-					boolean somethingChanged = false;
-
-					/* reachSrc contains all states from which src can be reached */
-					Set<Q> reachSrc = reachableStates.get(src);
-
-					/* src can be reached from next */
-					somethingChanged = somethingChanged || reachSrc.add(next);
-
-					/* src can also be reached from every state r, from which next
-					 * can be reached - just take a configuration tree, which contains
-					 * next as leaf and which can be annotated with r and replace next
-					 * by the current rule. This leads to a configuration tree containing
-					 * src as leaf, which still can be annotated with r. Thus, src can
-					 * be reached from each state r, from which next can be reached */
-					somethingChanged = somethingChanged || reachSrc.addAll(reachNext);
-
-					if (somethingChanged)
-
-						/*
-						 * the set of states, from which src can be reached, has been enriched
-						 * by at least one state s. Let q be a state, which can be reached
-						 * from src in one step. Then q can also be reached from s.
-						 * So, we have to make sure, that the sets associated with each of those
-						 * states q are also enriched by s and thus add src to the worklist because
-						 * then we will eventually visit these states.
-						 */
-						workSet.add(src);
-				}
-			}
-		}
-
-		for (Q q: reachableStates.keySet())
-			if (reachableStates.get(q).contains(q))
-				/* Since q is reachable from q, we can find a configuration
-				 * tree tqc which can be reduced to q, such that q is a leaf of tqc.
-				 * Sinced the automaton is top-down reduced, we can find a final state
-				 * qf and a configuration tree tc such that q is a leaf of tc.
-				 * Thus, by substituting tqc for q, we can construct infinitely many configuration
-				 * trees which are, since the automaton is also bottom-up reduced,
-				 * all reducible to full trees. Thus, the automaton recognizes infinitely many trees.*/
-				return false;
-
-		/* if this point is reached, no cycle could be found, so the language is finite. */
-		return true;
-
-
+		return new FTAReachability<F,Q>(fta).isFinite();
 	}
 
 	/**
@@ -338,9 +311,11 @@ public class FTAProperties {
 	 * are also contained in the second language.<br>
 	 * <br>
 	 * Algorithm:<br>
-	 * For this it is checked whether the difference from the first automaton and
-	 * the second automaton is empty. It is a simple mathematical observation, that in this case
-	 * the first language is contained in the second one.
+	 * The product of the first automaton with the subset construction of the second automaton
+	 * is explored bottom-up, constructing only the pairs which are reachable. The first language is
+	 * contained in the second one if no reachable pair combines a final state of the first automaton
+	 * with a set of states of the second automaton without final state.
+	 * See {@link #subsetCounterexample subsetCounterexample} for details.
 	 *
 	 * @param <F> type of the symbols
 	 * @param <Q1> type of the states of the first finite tree automaton
@@ -355,14 +330,166 @@ public class FTAProperties {
 	Q2 extends State>
 	boolean subsetLanguage(FTA<F,Q1,? extends FTARule<F,Q1>> fta1,
 			FTA<F,Q2,? extends FTARule<F,Q2>> fta2) {
-		// make converters
-		Converter<Set<Q2>,State> sc2 = new StateConverter<Set<Q2>>();
-		Converter<Pair<Q1,State>,State> pc3 = new StateConverter<Pair<Q1,State>>();
-		// make standard creator
-		FTACreator<F,State,GenFTARule<F,State>,GenFTA<F,State>> fc
-		= new GenFTACreator<F,State>();
-
-		return FTAOps.difference(fta1,fta2,sc2,fc,pc3,fc).getFinalStates().isEmpty();
+		if (fta1 == null) throw new IllegalArgumentException("subsetLanguage(): fta1 must not be null.");
+		if (fta2 == null) throw new IllegalArgumentException("subsetLanguage(): fta2 must not be null.");
+		return new InclusionChecker<F,Q1,Q2>(fta1, fta2).run();
+	}
+
+
+	/**
+	 * Searches a tree which is accepted by a first finite tree automaton, but not by a second one.
+	 * Such a tree exists if and only if the language of the first automaton is not
+	 * {@link #subsetLanguage contained} in the language of the second one.<br>
+	 * <br>
+	 * Algorithm:<br>
+	 * Instead of building the complete difference automaton, which needs the complete
+	 * determinization of the second automaton, the product of the first automaton with the
+	 * subset construction of the second automaton is explored bottom-up on demand. A pair (p,S)
+	 * is constructed if some tree can be reduced to p by the first automaton and S is the set of
+	 * states the second automaton can reduce this tree to. The search stops at the first pair
+	 * where p is a final state and S contains no final state, and the tree it has been constructed
+	 * for is returned.
+	 *
+	 * @param <F> type of the symbols
+	 * @param <Q1> type of the states of the first finite tree automaton
+	 * @param <Q2> type of the states of the second finite tree automaton
+	 * @param <T> type of the counterexample tree
+	 * @param fta1 first finite tree automaton
+	 * @param fta2 second finite tree automaton
+	 * @param tc creator for the counterexample tree
+	 *
+	 * @return a tree accepted by fta1, but not by fta2, or null if the language of fta1 is
+	 * contained in the language of fta2
+	 */
+	public static <F extends RankedSymbol,
+	Q1 extends State,
+	Q2 extends State,
+	T extends Tree<F>>
+	T subsetCounterexample(FTA<F,Q1,? extends FTARule<F,Q1>> fta1,
+			FTA<F,Q2,? extends FTARule<F,Q2>> fta2, TreeCreator<F,T> tc) {
+		if (fta1 == null) throw new IllegalArgumentException("subsetCounterexample(): fta1 must not be null.");
+		if (fta2 == null) throw new IllegalArgumentException("subsetCounterexample(): fta2 must not be null.");
+		if (tc == null) throw new IllegalArgumentException("subsetCounterexample(): tc must not be null.");
+		InclusionChecker<F,Q1,Q2> checker = new InclusionChecker<F,Q1,Q2>(fta1, fta2);
+		checker.run();
+		return checker.getCounterexample(tc);
+	}
+
+
+	/**
+	 * Searches a tree which is accepted by exactly one of two given finite tree automata.
+	 * Such a tree exists if and only if the automata do not recognise the {@link #sameLanguage same language}.<br>
+	 * <br>
+	 * Algorithm:<br>
+	 * First a tree accepted by the first automaton, but not by the second one is searched
+	 * with {@link #subsetCounterexample subsetCounterexample}, then the other way round.
+	 *
+	 * @param <F> type of the symbols
+	 * @param <Q1> type of the states of the first finite tree automaton
+	 * @param <Q2> type of the states of the second finite tree automaton
+	 * @param <T> type of the counterexample tree
+	 * @param fta1 first finite tree automaton
+	 * @param fta2 second finite tree automaton
+	 * @param tc creator for the counterexample tree
+	 *
+	 * @return a tree accepted by exactly one of the given automata, or null if both recognise
+	 * the same language
+	 */
+	public static <F extends RankedSymbol,
+	Q1 extends State,
+	Q2 extends State,
+	T extends Tree<F>>
+	T sameLanguageCounterexample(FTA<F,Q1,? extends FTARule<F,Q1>> fta1,
+			FTA<F,Q2,? extends FTARule<F,Q2>> fta2, TreeCreator<F,T> tc) {
+		T t = subsetCounterexample(fta1, fta2, tc);
+		if (t != null)
+			return t;
+		return subsetCounterexample(fta2, fta1, tc);
+	}
+
+
+	/**
+	 * Checks whether the language of a first finite tree automaton is a subset of the
+	 * language of a second finite tree automaton, like {@link #subsetLanguage subsetLanguage},
+	 * but suited for nondeterministic second automata with large subset constructions.<br>
+	 * <br>
+	 * Algorithm:<br>
+	 * As in {@link #subsetCounterexample subsetCounterexample}, pairs (p,S) of a state of the
+	 * first automaton and a set of states of the second automaton are explored bottom-up.
+	 * But only the minimal pairs are kept: a pair (p,S') is dropped if there is a pair (p,S)
+	 * with S contained in S', since each counterexample built from (p,S') can also be built
+	 * from (p,S). If simulation is requested, additionally an upward simulation R on the
+	 * states of the second automaton is computed first, and (p,S') is already dropped if
+	 * each state of S is related by R to some state of S'. Computing the simulation needs
+	 * time quadratic in the number of states, but can prune much more pairs.
+	 *
+	 * @param <F> type of the symbols
+	 * @param <Q1> type of the states of the first finite tree automaton
+	 * @param <Q2> type of the states of the second finite tree automaton
+	 * @param fta1 first finite tree automaton
+	 * @param fta2 second finite tree automaton
+	 * @param simulation whether an upward simulation of fta2 is used for pruning
+	 *
+	 * @return whether the language produced by fta1 is contained in the language produced by fta2
+	 */
+	public static <F extends RankedSymbol,
+	Q1 extends State,
+	Q2 extends State>
+	boolean subsetLanguageAntichain(FTA<F,Q1,? extends FTARule<F,Q1>> fta1,
+			FTA<F,Q2,? extends FTARule<F,Q2>> fta2, boolean simulation) {
+		if (fta1 == null) throw new IllegalArgumentException("subsetLanguageAntichain(): fta1 must not be null.");
+		if (fta2 == null) throw new IllegalArgumentException("subsetLanguageAntichain(): fta2 must not be null.");
+		return new InclusionChecker<F,Q1,Q2>(fta1, fta2, true, simulation).run();
+	}
+
+
+	/**
+	 * Checks whether two given finite tree automata recognise the same language, like
+	 * {@link #sameLanguage sameLanguage}, but using
+	 * {@link #subsetLanguageAntichain subsetLanguageAntichain} in both directions.
+	 *
+	 * @param <F> type of the symbols
+	 * @param <Q1> type of the states of the first finite tree automaton
+	 * @param <Q2> type of the states of the second finite tree automaton
+	 * @param fta1 first finite tree automaton
+	 * @param fta2 second finite tree automaton
+	 * @param simulation whether upward simulations of the automata are used for pruning
+	 *
+	 * @return true if and only if the two tree automata recognise the same language
+	 */
+	public static <F extends RankedSymbol,
+	Q1 extends State,
+	Q2 extends State>
+	boolean sameLanguageAntichain(FTA<F,Q1,? extends FTARule<F,Q1>> fta1,
+			FTA<F,Q2,? extends FTARule<F,Q2>> fta2, boolean simulation) {
+		return subsetLanguageAntichain(fta1, fta2, simulation) && subsetLanguageAntichain(fta2, fta1, simulation);
+	}
+
+
+	/**
+	 * Checks whether a given finite tree automaton accepts all trees over a given alphabet.<br>
+	 * <br>
+	 * Algorithm:<br>
+	 * The automaton with only one state accepting all trees over the alphabet is computed
+	 * with {@link FTAOps#computeAlphabetFTA computeAlphabetFTA}, and it is checked with
+	 * {@link #subsetLanguageAntichain subsetLanguageAntichain} whether its language is contained
+	 * in the language of the given automaton. Thus only the minimal sets of states the given
+	 * automaton can reduce some tree to are explored.
+	 *
+	 * @param <F> type of the symbols
+	 * @param <Q> type of the states of the finite tree automaton
+	 * @param fta finite tree automaton to be checked
+	 * @param alphabet alphabet of the trees which shall be accepted
+	 * @param simulation whether an upward simulation of fta is used for pruning
+	 *
+	 * @return true if and only if the given automaton accepts all trees over the given alphabet
+	 */
+	public static <F extends RankedSymbol, Q extends State>
+	boolean universalLanguage(FTA<F,Q,? extends FTARule<F,Q>> fta, Collection<F> alphabet, boolean simulation) {
+		if (fta == null) throw new IllegalArgumentException("universalLanguage(): fta must not be null.");
+		if (alphabet == null) throw new IllegalArgumentException("universalLanguage(): alphabet must not be null.");
+		GenFTA<F,State> all = FTAOps.computeAlphabetFTA(alphabet, new State(){}, new GenFTACreator<F,State>());
+		return subsetLanguageAntichain(all, fta, simulation);
 	}
 
 	/**
@@ -372,6 +499,7 @@ public class FTAProperties {
 	 * First all states which can be reached by the automaton can annotate the root symbol
 	 * of the tree with are computed and it is checked whether they contain a final state.
 	 * To find the states the helper function {@link #accessibleStates} is used.
+	 * If the automaton is an {@link AbstractFTA}, its {@link CompiledFTA compiled form} is used instead.
 	 *
 	 * @param <Q> state type of finite tree automaton
 	 * @param <F> symbol type of finite tree automaton
@@ -385,6 +513,8 @@ public class FTAProperties {
 	 */
 	public static <F extends RankedSymbol, Q extends State>
 	boolean decide(FTA<F,Q,? extends FTARule<F,Q>> fta, Tree<? extends F> tree) {
+		if (fta instanceof AbstractFTA)
+			return ((AbstractFTA<F,Q,?>)fta).getCompiledForm().decide(tree, fta.getFinalStates());
 		Set<Q> accStates = FTAProperties.accessibleStates(fta,tree);
 		for (Q q: accStates)
 			if (fta.getFinalStates().contains(q))
@@ -392,15 +522,67 @@ public class FTAProperties {
 		return false;
 	}
 
+
+	/**
+	 * Decides for each of the given trees whether a given finite tree automaton accepts it.
+	 * The trees are evaluated in parallel on the common {@link java.util.concurrent.ForkJoinPool}.<br>
+	 * <br>
+	 * Algorithm: <br>
+	 * See {@link #batchDecider batchDecider}.
+	 *
+	 * @param <Q> state type of finite tree automaton
+	 * @param <F> symbol type of finite tree automaton
+	 * @param fta finite tree automaton for which the tree problems are to be decided
+	 * @param trees trees for which the tree problem shall be decided
+	 * @return for each given tree in the same order, whether the automaton accepts it
+	 */
+	public static <F extends RankedSymbol, Q extends State>
+	List<Boolean> decideAll(FTA<F,Q,? extends FTARule<F,Q>> fta, Iterable<? extends Tree<? extends F>> trees) {
+		return batchDecider(fta, null).evaluateAll(trees);
+	}
+
+
+	/**
+	 * Returns an evaluator which decides for many trees in parallel whether a given finite tree
+	 * automaton accepts them. Besides returning the results in order, the evaluator can hand
+	 * them out as soon as they are available and reports its throughput.<br>
+	 * <br>
+	 * Algorithm: <br>
+	 * The automaton is compiled into a {@link CompiledFTA} once, which is then shared by all
+	 * threads, since a run of a compiled automaton only uses its own scratch space. Later
+	 * modifications of the automaton are not seen by the evaluator.
+	 *
+	 * @param <Q> state type of finite tree automaton
+	 * @param <F> symbol type of finite tree automaton
+	 * @param fta finite tree automaton for which the tree problems are to be decided
+	 * @param executor executor the trees are evaluated on, null for the common
+	 * {@link java.util.concurrent.ForkJoinPool}
+	 * @return an evaluator which decides whether the given automaton accepts a tree
+	 */
+	public static <F extends RankedSymbol, Q extends State>
+	BatchEvaluator<Tree<? extends F>,Boolean> batchDecider(FTA<F,Q,? extends FTARule<F,Q>> fta, ExecutorService executor) {
+		if (fta == null) throw new IllegalArgumentException("batchDecider(): fta must not be null.");
+		final CompiledFTA<F,Q> compiled = fta instanceof AbstractFTA
+				? ((AbstractFTA<F,Q,?>)fta).getCompiledForm() : new CompiledFTA<F,Q>(fta);
+		return new BatchEvaluator<Tree<? extends F>,Boolean>(new Converter<Tree<? extends F>,Boolean>() {
+			@Override
+			public Boolean convert(Tree<? extends F> tree) {
+				return compiled.decide(tree);
+			}
+		}, executor, BatchEvaluator.DFLT_CHUNK_SIZE);
+	}
+
 	/**
 	 * Computes the set of states which a finite tree automaton A can reduce a given tree
 	 * consisting of ranked symbols to.<br>
 	 * Helper function for {@link FTAProperties#decide}.<br>
 	 * <br>
 	 * Algorithm:<br>
-	 * The function works recursively on the tree. First the method calculates the accessible states
+	 * The function works bottom-up on the tree. First the method calculates the accessible states
 	 * of the subtrees, then calculates the corresponding accessible states which are accessible
-	 * with the rules fitting to the root symbol of the tree.
+	 * with the rules fitting to the root symbol of the tree. The tree is traversed by a
+	 * {@link TreeFolder}, so it may be arbitrarily deep.
+	 * If the automaton is an {@link AbstractFTA}, its {@link CompiledFTA compiled form} is used instead.
 	 *
 	 * @param <Q> state type of the given finite tree automaton
 	 * @param <F> symbol type of the given finite tree automaton
@@ -410,26 +592,93 @@ public class FTAProperties {
 	 * @see FTAProperties#decide(FTA, Tree)
 	 */
 	public static <F extends RankedSymbol, Q extends State>
-	Set<Q> accessibleStates(FTA<F,Q,? extends FTARule<F,Q>> fta, Tree<? extends F> tree) {
-		Set<Q> ret = new HashSet<Q>();
-		List<Set<Q>> subStateSets = new LinkedList<Set<Q>>();
-		for (Tree<? extends F> s: tree.getSubTrees())
-			subStateSets.add(accessibleStates(fta,s));
-
-		for (FTARule<F,Q> r: fta.getSymbolRules(tree.getSymbol())) {
-			Iterator<Set<Q>> accSet = subStateSets.listIterator();
-			Iterator<Q> srcState = r.getSrcStates().listIterator();
-			boolean ruleApplicable=true;
-			while (accSet.hasNext()) {
-				if (!accSet.next().contains(srcState.next())) {
-					ruleApplicable=false;
-					break;
-				}
+	Set<Q> accessibleStates(final FTA<F,Q,? extends FTARule<F,Q>> fta, Tree<? extends F> tree) {
+		if (fta instanceof AbstractFTA)
+			return ((AbstractFTA<F,Q,?>)fta).getCompiledForm().accessibleStates(tree);
+		return new TreeFolder<F,Set<Q>>() {
+			@Override
+			protected Set<Q> combine(Tree<? extends F> node, List<Set<Q>> subStateSets) {
+				Set<Q> ret = new HashSet<Q>();
+				for (FTARule<F,Q> r: fta.getSymbolRules(node.getSymbol()))
+					if (isApplicable(r, subStateSets))
+						ret.add(r.getDestState());
+				return ret;
 			}
-			if (ruleApplicable)
-				ret.add(r.getDestState());
-		}
-		return ret;
+		}.fold(tree);
+	}
+
+
+	/**
+	 * Checks whether a rule can be applied to a tree whose subtrees can be reduced
+	 * to the given sets of states.
+	 *
+	 * @param <Q> state type of the given rule
+	 * @param <F> symbol type of the given rule
+	 * @param r rule to be checked
+	 * @param subStateSets for each subtree, the states it can be reduced to
+	 * @return true if the i-th source state of the rule is contained in the i-th set for all i
+	 */
+	private static <F extends RankedSymbol, Q extends State>
+	boolean isApplicable(FTARule<F,Q> r, List<Set<Q>> subStateSets) {
+		List<Q> srcStates = r.getSrcStates();
+		int n = subStateSets.size();
+		if (srcStates.size() != n)
+			return false;
+		for (int i=0; i<n; i++)
+			if (!subStateSets.get(i).contains(srcStates.get(i)))
+				return false;
+		return true;
+	}
+
+
+	/**
+	 * Decides whether a given finite tree automaton accepts a given tree whose subtrees may be
+	 * shared, such as a tree created by a
+	 * {@link de.uni_muenster.cs.sev.lethal.factories.HashConsingTreeFactory HashConsingTreeFactory}. <br>
+	 * <br>
+	 * Algorithm: <br>
+	 * The accessible states are computed by {@link #accessibleStatesDAG} and it is checked
+	 * whether they contain a final state.
+	 *
+	 * @param <Q> state type of finite tree automaton
+	 * @param <F> symbol type of finite tree automaton
+	 * @param fta finite tree automaton for which the tree problem is to be decided
+	 * @param tree tree for which the tree problem shall be decided
+	 * @return true if the given finite tree automaton accepts the given tree, false otherwise
+	 * @see FTAProperties#decide(FTA, Tree)
+	 */
+	public static <F extends RankedSymbol, Q extends State>
+	boolean decideDAG(FTA<F,Q,? extends FTARule<F,Q>> fta, Tree<? extends F> tree) {
+		for (Q q: accessibleStatesDAG(fta, tree))
+			if (fta.getFinalStates().contains(q))
+				return true;
+		return false;
+	}
+
+
+	/**
+	 * Computes the set of states which a finite tree automaton can reduce a given tree to,
+	 * treating the tree as directed acyclic graph. <br>
+	 * <br>
+	 * Algorithm:<br>
+	 * Like {@link #accessibleStates}, but the state sets of the subtrees are remembered by
+	 * identity, so that a subtree occurring several times as the same object is evaluated only once.
+	 * For maximally shared trees the running time is linear in the number of distinct subtrees
+	 * instead of the size of the tree.
+	 *
+	 * @param <Q> state type of the given finite tree automaton
+	 * @param <F> symbol type of the given finite tree automaton
+	 * @param fta finite tree automaton to be applied to tree
+	 * @param tree tree to be analysed, whose subtrees may be shared
+	 * @return the set of states which the given finite tree automaton can reduce the given tree to
+	 */
+	public static <F extends RankedSymbol, Q extends State>
+	Set<Q> accessibleStatesDAG(FTA<F,Q,? extends FTARule<F,Q>> fta, Tree<? extends F> tree) {
+		if (fta == null) throw new IllegalArgumentException("accessibleStatesDAG(): fta must not be null.");
+		if (tree == null) throw new IllegalArgumentException("accessibleStatesDAG(): tree must not be null.");
+		CompiledFTA<F,Q> compiled = fta instanceof AbstractFTA
+				? ((AbstractFTA<F,Q,?>)fta).getCompiledForm() : new CompiledFTA<F,Q>(fta);
+		return compiled.accessibleStatesDAG(tree);
 	}
 
 	/**
@@ -437,8 +686,8 @@ public class FTAProperties {
 	 * consisting of ranked symbols<br>
 	 * <br>
 	 * Algorithm:<br>
-	 * The function works recursively on the tree. First the method calculates the accessible states
-	 * of the subtrees, then calculates the corresponding rules fitting to the root symbol of the tree.
+	 * First the method calculates the accessible states of the subtrees,
+	 * then calculates the corresponding rules fitting to the root symbol of the tree.
 	 *
 	 * @param <Q> state type of the given finite tree automaton
 	 * @param <F> symbol type of the given finite tree automaton
@@ -449,23 +698,14 @@ public class FTAProperties {
 	public static <F extends RankedSymbol, Q extends State>
 	Set<FTARule<F,Q>> applicableRules(FTA<F,Q,? extends FTARule<F,Q>> fta, Tree<? extends F> tree) {
 		Set<FTARule<F,Q>> ret = new HashSet<FTARule<F,Q>>();
-		List<Set<Q>> subStateSets = new LinkedList<Set<Q>>();
-		for (Tree<? extends F> s: tree.getSubTrees())
-			subStateSets.add(accessibleStates(fta,s));
-
-		for (FTARule<F,Q> r: fta.getSymbolRules(tree.getSymbol())) {
-			Iterator<Set<Q>> accSet = subStateSets.listIterator();
-			Iterator<Q> srcState = r.getSrcStates().listIterator();
-			boolean ruleApplicable=true;
-			while (accSet.hasNext()) {
-				if (!accSet.next().contains(srcState.next())) {
-					ruleApplicable=false;
-					break;
-				}
-			}
-			if (ruleApplicable)
+		List<? extends Tree<? extends F>> subTrees = tree.getSubTrees();
+		List<Set<Q>> subStateSets = new ArrayList<Set<Q>>(subTrees.size());
+		for (int i=0; i<subTrees.size(); i++)
+			subStateSets.add(accessibleStates(fta,subTrees.get(i)));
+
+		for (FTARule<F,Q> r: fta.getSymbolRules(tree.getSymbol()))
+			if (isApplicable(r, subStateSets))
 				ret.add(r);
-		}
 		return ret;
 	}
 
@@ -474,7 +714,7 @@ public class FTAProperties {
 	 * tree consisting of states and ranked symbols to.<br>
 	 * <br>
 	 * Algorithm:<br>
-	 * The function works recursively on the tree.
+	 * The function works bottom-up on the tree, which is traversed by a {@link TreeFolder}.
 	 * If the root symbol is a state, the reachable states contains only this state.
 	 * If the root symbol is a ranked symbol, the method first calculates the accessible states
 	 * of the subtrees, then calculates the corresponding accessible states which are accessible
@@ -488,43 +728,26 @@ public class FTAProperties {
 	 * @return the set of states which the given finite tree automaton can reduce the given tree to
 	 */
 	public static <F extends RankedSymbol, Q extends State>
-	Set<Q> accessibleStatesFromConfigTree(FTA<F,Q,? extends FTARule<F,Q>> fta, Tree<BiSymbol<F,Q>> tree) {
-		// set if reachable states
-		Set<Q> ret = new HashSet<Q>();
-
-		// if the root of t is a state, this state is reachable (and the only reachable one)
-		if (tree.getSymbol().isLeafType()){
-			ret.add(tree.getSymbol().asLeafSymbol());
-			return ret;
-		} else {
-			// states that can be reached at the subtrees of t
-			List<Set<Q>> subStateSets = new LinkedList<Set<Q>>();
-			for (Tree<BiSymbol<F,Q>> s: tree.getSubTrees())
-				subStateSets.add(accessibleStatesFromConfigTree(fta,s));
-
-			// consider all rules r = f(q1,..,qn)->q having f = root of t and
-			// qi \in states that can be reached in the i-th subtree
-			for (FTARule<F,Q> r: fta.getRules()) {
-				// 'f = root of t'
-				if (tree.getSymbol().asInnerSymbol().equals(r.getSymbol())) {
-					// 'qi \in states that ...'
-					Iterator<Set<Q>> accSet = subStateSets.listIterator();
-					Iterator<Q> srcState = r.getSrcStates().listIterator();
-					boolean ruleApplicable = true;
-					while (accSet.hasNext()) {
-						// if qi is not contained for some i, the rule cannot be applied
-						if (!accSet.next().contains(srcState.next())) {
-							ruleApplicable = false;
-							break;
-						}
-					}
-					// if the rule is applicable, the destination state is a reachable state
-					if (ruleApplicable)
-						ret.add(r.getDestState());
+	Set<Q> accessibleStatesFromConfigTree(final FTA<F,Q,? extends FTARule<F,Q>> fta, Tree<BiSymbol<F,Q>> tree) {
+		return new TreeFolder<BiSymbol<F,Q>,Set<Q>>() {
+			@Override
+			protected Set<Q> combine(Tree<? extends BiSymbol<F,Q>> node, List<Set<Q>> subStateSets) {
+				// set if reachable states
+				Set<Q> ret = new HashSet<Q>();
+				// if the root of t is a state, this state is reachable (and the only reachable one)
+				if (node.getSymbol().isLeafType()) {
+					ret.add(node.getSymbol().asLeafSymbol());
+					return ret;
 				}
+				// consider all rules r = f(q1,..,qn)->q having f = root of t and
+				// qi \in states that can be reached in the i-th subtree
+				for (FTARule<F,Q> r: fta.getSymbolRules(node.getSymbol().asInnerSymbol()))
+					if (isApplicable(r, subStateSets))
+						ret.add(r.getDestState());
+				return ret;
 			}
-			return ret;
-		}
+		}.fold(tree);
 	}
 
+
 }
@@ -0,0 +1,439 @@
+/*
+ * Copyright 2009 Dorothea Jansen <d.jansen@uni-muenster.de>, Martin Mohr <mohrfrosch@uni-muenster.de>, Irene Thesing <i_thes01@uni-muenster.de>, Anton Reis <antonreis@gmx.de>, Maria Schatz <m_scha17@uni-muenster.de>, Philipp Claves <philipp.claves@uni-muenster.de>, Sezar Jarrous <sezar.jarrous@gmail.com>
+ *
+ * This file is part of LETHAL.
+ *
+ * LETHAL is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * LETHAL is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with LETHAL.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.uni_muenster.cs.sev.lethal.treeautomata.common;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import de.uni_muenster.cs.sev.lethal.states.State;
+import de.uni_muenster.cs.sev.lethal.symbol.common.RankedSymbol;
+
+/**
+ * Computes which states and rules of a finite tree automaton are needed for its language:
+ * <ul>
+ * <li>the <em>accessible</em> states and rules, that is the states annotating some tree and the
+ * rules whose source states are all accessible, as kept by {@link FTAOps#reduceBottomUp},</li>
+ * <li>the <em>coaccessible</em> states and rules, that is the final states, the rules whose
+ * destination state is coaccessible and their source states, as kept by {@link FTAOps#reduceTopDown},</li>
+ * <li>the <em>useful</em> states and rules, that is the coaccessible states and rules of the automaton
+ * restricted to its accessible rules and final states, as kept by {@link FTAOps#reduceFull}.</li>
+ * </ul>
+ * Furthermore, it decides whether the language of the automaton is finite. <br>
+ * <br>
+ * Algorithm:<br>
+ * The numbers of the states and rules, and for each state the rules having it as source state
+ * (once per position) and the rules having it as destination state, are taken from the rule index
+ * of the automaton, see {@link FTAOps#getRuleIndex}. So apart from the {@link BitSet}s the results
+ * are kept in, nothing has to be built for the analyses. The automaton must not be changed
+ * while they are used.
+ * <ul>
+ * <li>For the accessible rules, each rule counts its source positions whose state is not yet
+ * known to be accessible. Whenever a state becomes accessible, the counters of the rules having
+ * it as source state are decremented, and a rule whose counter drops to zero makes its destination
+ * state accessible. Thus each source position is looked at once.</li>
+ * <li>The coaccessible rules are found by a search from the final states along the rules having
+ * the current state as destination state.</li>
+ * <li>The language is infinite if and only if the graph of the useful rules, having an edge from
+ * the destination state of each rule to each of its source states, contains a cycle. This is decided
+ * by computing the strongly connected components of this graph with Tarjan's algorithm.</li>
+ * </ul>
+ * All computations take linear time in the size of the automaton.
+ *
+ * @param <F> symbol type of the finite tree automaton
+ * @param <Q> state type of the finite tree automaton
+ *
+ * @author Martin
+ */
+public class FTAReachability<F extends RankedSymbol, Q extends State> {
+
+	/** Index of the rules of the automaton, providing the numbers of states and rules. */
+	private final IndexedFTARuleSet<F,Q,? extends FTARule<F,Q>> index;
+
+	/** Upper bound of the rule numbers. */
+	private final int ruleIdBound;
+
+	/** Upper bound of the state numbers in the index. */
+	private final int stateIdBound;
+
+	/** Final states occurring in no rule, which are numbered from stateIdBound on. */
+	private final List<Q> extraFinals = new ArrayList<Q>();
+
+	/** Final states of the automaton. */
+	private final BitSet finals = new BitSet();
+
+	/** Accessible states and rules, computed on demand. */
+	private BitSet[] accessible;
+
+	/** Coaccessible states and rules, computed on demand. */
+	private BitSet[] coaccessible;
+
+	/** Useful states and rules, computed on demand. */
+	private BitSet[] useful;
+
+
+	/**
+	 * Prepares the reachability analyses of the given finite tree automaton.
+	 *
+	 * @param fta finite tree automaton to be analysed
+	 */
+	public FTAReachability(FTA<F,Q,? extends FTARule<F,Q>> fta) {
+		if (fta == null) throw new IllegalArgumentException("FTAReachability(): fta must not be null.");
+		index = FTAOps.getRuleIndex(fta);
+		ruleIdBound = index.getRuleIdBound();
+		stateIdBound = index.getStateIdBound();
+		for (Q q: fta.getFinalStates()) {
+			int id = index.getStateId(q);
+			if (id < 0) {
+				id = stateIdBound + extraFinals.size();
+				extraFinals.add(q);
+			}
+			finals.set(id);
+		}
+	}
+
+
+	/**
+	 * Returns the number of states, including the final states occurring in no rule.
+	 */
+	private int stateCount() {
+		return stateIdBound + extraFinals.size();
+	}
+
+
+	/**
+	 * Computes the accessible states and rules.
+	 *
+	 * @return the accessible states and the accessible rules
+	 */
+	private BitSet[] computeAccessible() {
+		BitSet states = new BitSet(), ruleSet = new BitSet();
+		int[] missing = new int[ruleIdBound];
+		int[] queue = new int[stateCount()];
+		int tail = 0;
+		for (int r=0; r<ruleIdBound; r++) {
+			if (index.getRule(r) == null)
+				continue;
+			missing[r] = index.getSrcIds(r).length;
+			if (missing[r] == 0) {
+				ruleSet.set(r);
+				int dest = index.getDestId(r);
+				if (!states.get(dest)) {
+					states.set(dest);
+					queue[tail++] = dest;
+				}
+			}
+		}
+		for (int head=0; head<tail; head++) {
+			IndexedFTARuleSet.IntList occ = index.getSrcOccurrences(queue[head]);
+			for (int j=0; j<occ.size; j+=2) {
+				int r = occ.data[j];
+				if (index.getRule(r) != null && --missing[r] == 0) {
+					ruleSet.set(r);
+					int dest = index.getDestId(r);
+					if (!states.get(dest)) {
+						states.set(dest);
+						queue[tail++] = dest;
+					}
+				}
+			}
+		}
+		return new BitSet[]{states, ruleSet};
+	}
+
+
+	/**
+	 * Computes the states and rules reachable top-down from the given states, using
+	 * only the given rules.
+	 *
+	 * @param start states to start with, which are contained in the result
+	 * @param allowed rules which may be used, or null if all rules may be used
+	 * @return the reached states and the reached rules
+	 */
+	private BitSet[] computeCoaccessible(BitSet start, BitSet allowed) {
+		BitSet states = (BitSet)start.clone(), ruleSet = new BitSet();
+		int[] queue = new int[stateCount()];
+		int tail = 0;
+		for (int q=start.nextSetBit(0); q>=0; q=start.nextSetBit(q+1))
+			queue[tail++] = q;
+		for (int head=0; head<tail; head++) {
+			int q = queue[head];
+			if (q >= stateIdBound)
+				continue;
+			IndexedFTARuleSet.IntList destRules = index.getDestRuleIds(q);
+			for (int j=0; j<destRules.size; j++) {
+				int r = destRules.data[j];
+				if (index.getRule(r) == null || (allowed != null && !allowed.get(r)))
+					continue;
+				ruleSet.set(r);
+				for (int p: index.getSrcIds(r))
+					if (!states.get(p)) {
+						states.set(p);
+						queue[tail++] = p;
+					}
+			}
+		}
+		return new BitSet[]{states, ruleSet};
+	}
+
+
+	/**
+	 * Returns the accessible states and rules, computing them at the first call.
+	 */
+	private BitSet[] accessible() {
+		if (accessible == null)
+			accessible = computeAccessible();
+		return accessible;
+	}
+
+
+	/**
+	 * Returns the coaccessible states and rules, computing them at the first call.
+	 */
+	private BitSet[] coaccessible() {
+		if (coaccessible == null)
+			coaccessible = computeCoaccessible(finals, null);
+		return coaccessible;
+	}
+
+
+	/**
+	 * Returns the useful states and rules, computing them at the first call.
+	 */
+	private BitSet[] useful() {
+		if (useful == null) {
+			BitSet start = (BitSet)finals.clone();
+			start.and(accessible()[0]);
+			useful = computeCoaccessible(start, accessible()[1]);
+		}
+		return useful;
+	}
+
+
+	/**
+	 * Returns the states with the given numbers.
+	 */
+	private Set<Q> toStates(BitSet ids) {
+		Set<Q> ret = new HashSet<Q>();
+		for (int q=ids.nextSetBit(0); q>=0; q=ids.nextSetBit(q+1))
+			ret.add(q < stateIdBound ? index.getState(q) : extraFinals.get(q-stateIdBound));
+		return ret;
+	}
+
+
+	/**
+	 * Returns the final states with the given numbers.
+	 */
+	private Set<Q> toFinalStates(BitSet ids) {
+		BitSet ret = (BitSet)ids.clone();
+		ret.and(finals);
+		return toStates(ret);
+	}
+
+
+	/**
+	 * Returns the rules with the given numbers.
+	 */
+	private List<FTARule<F,Q>> toRules(BitSet ids) {
+		List<FTARule<F,Q>> ret = new ArrayList<FTARule<F,Q>>(ids.cardinality());
+		for (int r=ids.nextSetBit(0); r>=0; r=ids.nextSetBit(r+1))
+			ret.add(index.getRule(r));
+		return ret;
+	}
+
+
+	/**
+	 * Returns the accessible states, that is the states which annotate some tree.
+	 *
+	 * @return the accessible states
+	 */
+	public Set<Q> getAccessibleStates() {
+		return toStates(accessible()[0]);
+	}
+
+
+	/**
+	 * Returns the accessible final states.
+	 *
+	 * @return the accessible final states
+	 */
+	public Set<Q> getAccessibleFinalStates() {
+		return toFinalStates(accessible()[0]);
+	}
+
+
+	/**
+	 * Returns the accessible rules, that is the rules whose source states are all accessible.
+	 *
+	 * @return the accessible rules
+	 */
+	public List<FTARule<F,Q>> getAccessibleRules() {
+		return toRules(accessible()[1]);
+	}
+
+
+	/**
+	 * Returns the coaccessible states, that is the final states and the source states of
+	 * the coaccessible rules.
+	 *
+	 * @return the coaccessible states
+	 */
+	public Set<Q> getCoaccessibleStates() {
+		return toStates(coaccessible()[0]);
+	}
+
+
+	/**
+	 * Returns the coaccessible rules, that is the rules whose destination state is coaccessible.
+	 *
+	 * @return the coaccessible rules
+	 */
+	public List<FTARule<F,Q>> getCoaccessibleRules() {
+		return toRules(coaccessible()[1]);
+	}
+
+
+	/**
+	 * Returns the useful states, that is the accessible final states and the source states of
+	 * the useful rules.
+	 *
+	 * @return the useful states
+	 */
+	public Set<Q> getUsefulStates() {
+		return toStates(useful()[0]);
+	}
+
+
+	/**
+	 * Returns the useful final states, that is the accessible final states.
+	 *
+	 * @return the useful final states
+	 */
+	public Set<Q> getUsefulFinalStates() {
+		return toFinalStates(useful()[0]);
+	}
+
+
+	/**
+	 * Returns the useful rules, that is the accessible rules which can be used in an accepting
+	 * run of the automaton restricted to its accessible rules.
+	 *
+	 * @return the useful rules
+	 */
+	public List<FTARule<F,Q>> getUsefulRules() {
+		return toRules(useful()[1]);
+	}
+
+
+	/**
+	 * Decides whether the language of the finite tree automaton is empty, that is whether
+	 * no final state is accessible.
+	 *
+	 * @return true if and only if the finite tree automaton accepts no tree
+	 */
+	public boolean isEmpty() {
+		return !accessible()[0].intersects(finals);
+	}
+
+
+	/**
+	 * Decides whether the language of the finite tree automaton is finite, that is whether
+	 * the useful rules do not allow arbitrarily high trees. This is the case if and only if
+	 * no useful state can be reached from itself by going from the destination state of a
+	 * useful rule to one of its source states.
+	 *
+	 * @return true if and only if the finite tree automaton accepts finitely many trees
+	 */
+	public boolean isFinite() {
+		BitSet usefulRules = useful()[1];
+		int n = stateCount();
+		int[] order = new int[n];
+		int[] lowlink = new int[n];
+		boolean[] onStack = new boolean[n];
+		int[] nextRule = new int[n];
+		int[] nextSrc = new int[n];
+		int[] stack = new int[n];
+		int[] callStack = new int[n];
+		Arrays.fill(order, -1);
+		int counter = 0, stackSize = 0;
+
+		for (int root=0; root<n; root++) {
+			if (order[root] >= 0)
+				continue;
+			int calls = 0;
+			callStack[calls++] = root;
+			order[root] = lowlink[root] = counter++;
+			nextRule[root] = 0;
+			nextSrc[root] = 0;
+			stack[stackSize++] = root;
+			onStack[root] = true;
+			while (calls > 0) {
+				int q = callStack[calls-1];
+				// the next edge of q is the source position nextSrc[q] of the rule at nextRule[q]
+				int p = -1;
+				IndexedFTARuleSet.IntList destRules = q < stateIdBound ? index.getDestRuleIds(q) : IndexedFTARuleSet.IntList.EMPTY;
+				while (nextRule[q] < destRules.size) {
+					int r = destRules.data[nextRule[q]];
+					if (!usefulRules.get(r)) {
+						nextRule[q]++;
+						continue;
+					}
+					int[] src = index.getSrcIds(r);
+					if (nextSrc[q] < src.length) {
+						p = src[nextSrc[q]++];
+						break;
+					}
+					nextRule[q]++;
+					nextSrc[q] = 0;
+				}
+				if (p >= 0) {
+					if (p == q)
+						return false;
+					if (order[p] < 0) {
+						order[p] = lowlink[p] = counter++;
+						nextRule[p] = 0;
+						nextSrc[p] = 0;
+						stack[stackSize++] = p;
+						onStack[p] = true;
+						callStack[calls++] = p;
+					} else if (onStack[p] && order[p] < lowlink[q])
+						lowlink[q] = order[p];
+					continue;
+				}
+				calls--;
+				if (calls > 0) {
+					int parent = callStack[calls-1];
+					if (lowlink[q] < lowlink[parent])
+						lowlink[parent] = lowlink[q];
+				}
+				if (lowlink[q] == order[q]) {
+					// q is the root of a component, which is cyclic if it has more than one state
+					if (stack[stackSize-1] != q)
+						return false;
+					stackSize--;
+					onStack[q] = false;
+				}
+			}
+		}
+		return true;
+	}
+}
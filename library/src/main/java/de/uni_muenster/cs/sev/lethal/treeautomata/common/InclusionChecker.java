@@ -0,0 +1,399 @@
+/*
+ * Copyright 2009 Dorothea Jansen <d.jansen@uni-muenster.de>, Martin Mohr <mohrfrosch@uni-muenster.de>, Irene Thesing <i_thes01@uni-muenster.de>, Anton Reis <antonreis@gmx.de>, Maria Schatz <m_scha17@uni-muenster.de>, Philipp Claves <philipp.claves@uni-muenster.de>, Sezar Jarrous <sezar.jarrous@gmail.com>
+ *
+ * This file is part of LETHAL.
+ *
+ * LETHAL is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * LETHAL is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with LETHAL.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.uni_muenster.cs.sev.lethal.treeautomata.common;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import de.uni_muenster.cs.sev.lethal.states.State;
+import de.uni_muenster.cs.sev.lethal.symbol.common.RankedSymbol;
+import de.uni_muenster.cs.sev.lethal.tree.common.Tree;
+import de.uni_muenster.cs.sev.lethal.tree.common.TreeCreator;
+
+/**
+ * Checks whether the language of a first finite tree automaton is contained in the language
+ * of a second one, used by {@link FTAProperties#subsetCounterexample subsetCounterexample}.<br>
+ * <br>
+ * The check explores the product of the first automaton with the subset construction of
+ * the second automaton bottom-up and on demand: a pair (p,S) is constructed if some tree
+ * can be reduced to p by the first automaton and S is exactly the set of states the second
+ * automaton can reduce this tree to. Only pairs reachable in this sense are constructed, so
+ * the parts of the determinized second automaton which the first automaton never meets
+ * are not built. The sets S are interned by a {@link SubsetIndex}.<br>
+ * A pair (p,S) with p final and S not containing any final state is a counterexample.
+ * The check stops at the first one. Each pair remembers the rule and the pairs it was built
+ * from, so the tree witnessing a counterexample can be reconstructed.<br>
+ * <br>
+ * Optionally, only an antichain of the pairs is kept: a pair (p,S') is not used any further
+ * if there is a pair (p,S) with S contained in S', since each context leading the tree of
+ * (p,S') to a counterexample also leads the tree of (p,S) to one. If additionally an
+ * {@link SubsetIndex#upwardSimulation upward simulation} R of the second automaton is given,
+ * (p,S') is already subsumed by (p,S) if each state of S is related by R to some state of S'.
+ *
+ * @param <F> symbol type of the automata
+ * @param <Q1> state type of the first automaton
+ * @param <Q2> state type of the second automaton
+ *
+ * @author Dorothea, Irene, Martin
+ */
+class InclusionChecker<F extends RankedSymbol, Q1 extends State, Q2 extends State> {
+
+	/** Rules of the first automaton. */
+	private final List<FTARule<F,Q1>> rules1 = new ArrayList<FTARule<F,Q1>>();
+
+	/** Source states of the rules of the first automaton as state numbers, indexed like rules1. */
+	private final List<int[]> ruleSrc1 = new ArrayList<int[]>();
+
+	/** Destination states of the rules of the first automaton as state numbers, indexed like rules1. */
+	private final List<Integer> ruleDest1 = new ArrayList<Integer>();
+
+	/**
+	 * For each state of the first automaton, the occurrences of this state in rules,
+	 * each encoded as pair of rule number and position.
+	 */
+	private final List<List<int[]>> occurrences = new ArrayList<List<int[]>>();
+
+	/** Final states of the first automaton as bitset. */
+	private final BitSet finals1 = new BitSet();
+
+	/** Rule index of the second automaton, which interns the subsets. */
+	private final SubsetIndex<F,Q2> index2;
+
+	/** Number of the empty subset of states of the second automaton. */
+	private final int emptySubset;
+
+	/** State of the first automaton of each pair, indexed by pair number. */
+	private final List<Integer> pairState = new ArrayList<Integer>();
+
+	/** Subset of the second automaton of each pair, indexed by pair number. */
+	private final List<Integer> pairSubset = new ArrayList<Integer>();
+
+	/** Rule of the first automaton a pair was built with, indexed by pair number. */
+	private final List<Integer> pairRule = new ArrayList<Integer>();
+
+	/** Pairs a pair was built from, indexed by pair number. */
+	private final List<int[]> pairChildren = new ArrayList<int[]>();
+
+	/** Numbers of the pairs, indexed by state number shifted left by 32 bits plus subset number. */
+	private final Map<Long,Integer> pairIds = new HashMap<Long,Integer>();
+
+	/** For each state of the first automaton, the pairs with this state in increasing order. */
+	private final List<List<Integer>> pairsByState = new ArrayList<List<Integer>>();
+
+	/** Number of the first counterexample pair found, or -1. */
+	private int counterexample = -1;
+
+	/** Whether subsumed pairs are dropped. */
+	private final boolean antichain;
+
+	/**
+	 * For each state r of the second automaton, the states simulated by r, or null
+	 * if subsumption is plain set inclusion.
+	 */
+	private final BitSet[] simulated;
+
+	/**
+	 * For each subset of the second automaton, the states simulated by some of its states,
+	 * indexed by subset number and computed on demand.
+	 */
+	private final List<BitSet> closures = new ArrayList<BitSet>();
+
+	/** Pairs which are subsumed by other pairs and not used any further. */
+	private final BitSet subsumed = new BitSet();
+
+
+	/**
+	 * Prepares the inclusion check of the given finite tree automata, which constructs
+	 * all reachable pairs.
+	 *
+	 * @param fta1 automaton whose language is checked to be contained in the other one
+	 * @param fta2 automaton whose language is checked to contain the other one
+	 */
+	InclusionChecker(FTA<F,Q1,? extends FTARule<F,Q1>> fta1, FTA<F,Q2,? extends FTARule<F,Q2>> fta2) {
+		this(fta1, fta2, false, false);
+	}
+
+
+	/**
+	 * Prepares the inclusion check of the given finite tree automata.
+	 *
+	 * @param fta1 automaton whose language is checked to be contained in the other one
+	 * @param fta2 automaton whose language is checked to contain the other one
+	 * @param antichain whether subsumed pairs are dropped
+	 * @param simulation whether subsumption takes an upward simulation of fta2 into account,
+	 * only used if antichain is set
+	 */
+	InclusionChecker(FTA<F,Q1,? extends FTARule<F,Q1>> fta1, FTA<F,Q2,? extends FTARule<F,Q2>> fta2,
+			boolean antichain, boolean simulation) {
+		this.antichain = antichain;
+		Map<Q1,Integer> stateIds = new HashMap<Q1,Integer>();
+		for (FTARule<F,Q1> r: fta1.getRules()) {
+			int[] src = new int[r.getSrcStates().size()];
+			for (int i=0; i<src.length; i++)
+				src[i] = number(r.getSrcStates().get(i), stateIds);
+			int dest = number(r.getDestState(), stateIds);
+			for (int i=0; i<src.length; i++)
+				occurrences.get(src[i]).add(new int[]{rules1.size(), i});
+			rules1.add(r);
+			ruleSrc1.add(src);
+			ruleDest1.add(dest);
+		}
+		for (Q1 q: fta1.getFinalStates())
+			if (stateIds.containsKey(q))
+				finals1.set(stateIds.get(q));
+		index2 = new SubsetIndex<F,Q2>(fta2);
+		emptySubset = index2.intern(new BitSet());
+		simulated = antichain && simulation ? index2.upwardSimulation() : null;
+	}
+
+
+	/**
+	 * Numbers the given state of the first automaton, if it is new.
+	 */
+	private int number(Q1 q, Map<Q1,Integer> stateIds) {
+		Integer id = stateIds.get(q);
+		if (id == null) {
+			id = occurrences.size();
+			stateIds.put(q, id);
+			occurrences.add(new ArrayList<int[]>());
+			pairsByState.add(new ArrayList<Integer>());
+		}
+		return id;
+	}
+
+
+	/**
+	 * Runs the check.
+	 *
+	 * @return true if the language of the first automaton is contained in the language of
+	 * the second one, false if a counterexample has been found
+	 */
+	boolean run() {
+		BitSet dest = new BitSet();
+		for (int r=0; r<rules1.size() && counterexample < 0; r++) {
+			if (ruleSrc1.get(r).length > 0)
+				continue;
+			int f2 = index2.getSymbolId(rules1.get(r).getSymbol());
+			dest.clear();
+			if (f2 >= 0) {
+				long[] rules = new long[index2.getRuleWords(f2)];
+				index2.setAllRules(f2, rules);
+				index2.addDestStates(f2, rules, dest);
+			}
+			addPair(ruleDest1.get(r), index2.intern(dest), r, new int[0]);
+		}
+
+		// the pairs grow while they are processed, so they serve as work list
+		for (int k=0; k<pairState.size() && counterexample < 0; k++) {
+			if (subsumed.get(k))
+				continue;
+			for (int[] occ: occurrences.get(pairState.get(k))) {
+				int r = occ[0];
+				int n = ruleSrc1.get(r).length;
+				int f2 = index2.getSymbolId(rules1.get(r).getSymbol());
+				long[][] prefix = new long[n+1][f2 >= 0 ? index2.getRuleWords(f2) : 0];
+				if (f2 >= 0)
+					index2.setAllRules(f2, prefix[0]);
+				int[] tuple = new int[n];
+				tuple[occ[1]] = k;
+				extend(r, f2, 0, occ[1], k, tuple, prefix, dest);
+				if (counterexample >= 0)
+					break;
+			}
+		}
+		return counterexample < 0;
+	}
+
+
+	/**
+	 * Enumerates all tuples of pairs fitting the source states of rule r of the first
+	 * automaton, which contain pair k at position first, only pairs with smaller
+	 * numbers before and pairs with numbers up to k behind, and creates the resulting
+	 * pairs. The positions before pos are already fixed in tuple, and prefix[pos]
+	 * contains the rules of the second automaton applicable to this part of the tuple.
+	 */
+	private void extend(int r, int f2, int pos, int first, int k, int[] tuple, long[][] prefix, BitSet dest) {
+		int[] src = ruleSrc1.get(r);
+		int n = src.length;
+		if (pos == n) {
+			dest.clear();
+			if (f2 >= 0)
+				index2.addDestStates(f2, prefix[n], dest);
+			addPair(ruleDest1.get(r), index2.intern(dest), r, tuple.clone());
+			return;
+		}
+		long[] prev = prefix[pos];
+		long[] cur = prefix[pos+1];
+		List<Integer> candidates = pos == first ? null : pairsByState.get(src[pos]);
+		int count = pos == first ? 1 : candidates.size();
+		for (int c=0; c<count && counterexample < 0; c++) {
+			int s = pos == first ? k : candidates.get(c);
+			if (s > k || (s == k && pos < first))
+				break;
+			if (subsumed.get(s))
+				continue;
+			boolean applicable = false;
+			if (f2 >= 0) {
+				long[] m = index2.getRulesAt(f2, pos, pairSubset.get(s));
+				for (int w=0; w<cur.length; w++) {
+					cur[w] = prev[w] & m[w];
+					applicable |= cur[w] != 0;
+				}
+			}
+			// all completions of the tuple yield the same pair with the empty subset
+			if (!applicable && pairIds.containsKey(key(ruleDest1.get(r), emptySubset)))
+				continue;
+			tuple[pos] = s;
+			extend(r, f2, pos+1, first, k, tuple, prefix, dest);
+		}
+	}
+
+
+	/**
+	 * Returns the key of the pair of the given state and subset in pairIds.
+	 */
+	private static long key(int state, int subset) {
+		return ((long)state << 32) | subset;
+	}
+
+
+	/**
+	 * Creates the pair of the given state and subset, if it is new, and checks whether it
+	 * is a counterexample.
+	 */
+	private void addPair(int state, int subset, int rule, int[] children) {
+		long key = key(state, subset);
+		if (pairIds.containsKey(key))
+			return;
+		int id = pairState.size();
+		pairIds.put(key, id);
+		pairState.add(state);
+		pairSubset.add(subset);
+		pairRule.add(rule);
+		pairChildren.add(children);
+		if (finals1.get(state) && !index2.containsFinal(subset)) {
+			counterexample = id;
+			return;
+		}
+		if (antichain) {
+			List<Integer> others = pairsByState.get(state);
+			BitSet bits = index2.getSubsetBits(subset);
+			BitSet closure = closure(subset);
+			for (int other: others) {
+				if (!subsumed.get(other) && contains(closure, index2.getSubsetBits(pairSubset.get(other)))) {
+					subsumed.set(id);
+					break;
+				}
+			}
+			if (subsumed.get(id))
+				return;
+			for (int other: others)
+				if (!subsumed.get(other) && contains(closure(pairSubset.get(other)), bits))
+					subsumed.set(other);
+		}
+		pairsByState.get(state).add(id);
+	}
+
+
+	/**
+	 * Returns the states of the second automaton simulated by some state of the given subset.
+	 */
+	private BitSet closure(int subset) {
+		if (simulated == null)
+			return index2.getSubsetBits(subset);
+		while (closures.size() <= subset) {
+			BitSet bits = index2.getSubsetBits(closures.size());
+			BitSet closure = new BitSet();
+			for (int r = bits.nextSetBit(0); r >= 0; r = bits.nextSetBit(r+1))
+				closure.or(simulated[r]);
+			closures.add(closure);
+		}
+		return closures.get(subset);
+	}
+
+
+	/**
+	 * Returns whether the first bitset contains the second one.
+	 */
+	private static boolean contains(BitSet a, BitSet b) {
+		for (int i = b.nextSetBit(0); i >= 0; i = b.nextSetBit(i+1))
+			if (!a.get(i))
+				return false;
+		return true;
+	}
+
+
+	/**
+	 * Returns a tree which is accepted by the first automaton, but not by the second one,
+	 * if {@link #run} has found one.
+	 *
+	 * @param <T> type of the tree to be created
+	 * @param tc creator for the tree
+	 * @return a tree which is accepted by the first automaton, but not by the second one,
+	 * or null if there is no such tree
+	 */
+	<T extends Tree<F>> T getCounterexample(TreeCreator<F,T> tc) {
+		if (counterexample < 0)
+			return null;
+		return makeTree(counterexample, tc);
+	}
+
+
+	/**
+	 * Reconstructs the tree the given pair was built for. <br>
+	 * The pairs are visited in post-order with an explicit stack, so the tree may be
+	 * arbitrarily deep. Since each pair is built from pairs found before, there are
+	 * no cycles, and the tree of a pair occurring several times is built once.
+	 */
+	private <T extends Tree<F>> T makeTree(int pair, TreeCreator<F,T> tc) {
+		Map<Integer,T> built = new HashMap<Integer,T>();
+		List<Integer> toDo = new ArrayList<Integer>();
+		toDo.add(pair);
+		while (!toDo.isEmpty()) {
+			int next = toDo.get(toDo.size()-1);
+			if (built.containsKey(next)) {
+				toDo.remove(toDo.size()-1);
+				continue;
+			}
+			int[] children = pairChildren.get(next);
+			boolean ready = true;
+			for (int child: children)
+				if (!built.containsKey(child)) {
+					toDo.add(child);
+					ready = false;
+				}
+			if (!ready)
+				continue;
+			toDo.remove(toDo.size()-1);
+			F f = rules1.get(pairRule.get(next)).getSymbol();
+			if (children.length == 0)
+				built.put(next, tc.makeTree(f));
+			else {
+				List<T> subTrees = new ArrayList<T>(children.length);
+				for (int child: children)
+					subTrees.add(built.get(child));
+				built.put(next, tc.makeTree(f, subTrees));
+			}
+		}
+		return built.get(pair);
+	}
+}
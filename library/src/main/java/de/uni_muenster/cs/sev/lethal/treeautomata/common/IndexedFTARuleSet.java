@@ -0,0 +1,531 @@
+/*
+ * Copyright 2009 Dorothea Jansen <d.jansen@uni-muenster.de>, Martin Mohr <mohrfrosch@uni-muenster.de>, Irene Thesing <i_thes01@uni-muenster.de>, Anton Reis <antonreis@gmx.de>, Maria Schatz <m_scha17@uni-muenster.de>, Philipp Claves <philipp.claves@uni-muenster.de>, Sezar Jarrous <sezar.jarrous@gmail.com>
+ *
+ * This file is part of LETHAL.
+ *
+ * LETHAL is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * LETHAL is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with LETHAL.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.uni_muenster.cs.sev.lethal.treeautomata.common;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import de.uni_muenster.cs.sev.lethal.states.State;
+import de.uni_muenster.cs.sev.lethal.symbol.common.RankedSymbol;
+import de.uni_muenster.cs.sev.lethal.utils.Numbering;
+
+/**
+ * Rule set which maintains indexes of its rules by symbol, by symbol, position and
+ * source state and by destination state, so that the algorithms need not build such
+ * indexes themselves. It is the rule set of {@link AbstractFTA}, the indexes of any
+ * finite tree automaton are obtained by {@link FTAOps#getRuleIndex}. <br>
+ * <br>
+ * The rules are numbered in the order they are added, symbols and states are numbered
+ * by {@link Numbering}. For each symbol, each state and position and each destination state,
+ * the numbers of the corresponding rules are stored in int arrays, which are updated when a
+ * rule is added. A removed rule leaves a gap, which the index lookups skip; when there are
+ * more gaps than rules, the rules are renumbered and the indexes are rebuilt.
+ *
+ * @param <F> symbol type used in the rules
+ * @param <Q> state type used in the rules
+ * @param <R> rule type
+ *
+ * @see FTARuleSet
+ *
+ * @author Martin
+ */
+public class IndexedFTARuleSet<F extends RankedSymbol, Q extends State, R extends FTARule<F,Q>> extends FTARuleSet<F,Q,R> {
+
+	/** Rules, indexed by their number, null for removed rules. */
+	private final List<R> ruleList = new ArrayList<R>();
+
+	/** Numbers of the rules. */
+	private final Map<R,Integer> ruleIds = new HashMap<R,Integer>();
+
+	/** Number of removed rules still occupying a number. */
+	private int gaps = 0;
+
+	/** Numbering of the symbols of the rules. */
+	private Numbering<F> symbols = new Numbering<F>();
+
+	/** Numbering of the states of the rules. */
+	private Numbering<Q> states = new Numbering<Q>();
+
+	/** For each symbol, the numbers of its rules. */
+	private final List<IntList> bySymbol = new ArrayList<IntList>();
+
+	/** For each state, the numbers of the rules having it as destination state. */
+	private final List<IntList> byDest = new ArrayList<IntList>();
+
+	/**
+	 * For each state, the occurrences as source state, stored as pairs of rule number and position.
+	 * The occurrences of a rule are stored consecutively and ordered by position.
+	 */
+	private final List<IntList> bySrc = new ArrayList<IntList>();
+
+	/**
+	 * For each pair of symbol and state, the occurrences of the state as source state
+	 * in rules with the symbol, stored like in bySrc. The key consists of the number of
+	 * the symbol in the upper and the number of the state in the lower half.
+	 */
+	private final Map<Long,IntList> bySymbolSrc = new HashMap<Long,IntList>();
+
+	/** For each symbol, the set of its rules as returned by {@link #getSymbolRules}, or null if not yet computed. */
+	private final List<Set<R>> symbolSets = new ArrayList<Set<R>>();
+
+	/** Numbers of the source states of the rules, indexed by rule number. */
+	private final List<int[]> srcIds = new ArrayList<int[]>();
+
+	/** Numbers of the destination states of the rules, indexed by rule number. */
+	private final IntList destIds = new IntList();
+
+
+	/**
+	 * Growable array of ints.
+	 */
+	static class IntList {
+
+		/** Empty list, which is never changed. */
+		static final IntList EMPTY = new IntList();
+
+		/** Contents, valid up to size. */
+		int[] data = new int[4];
+
+		/** Number of valid entries. */
+		int size = 0;
+
+		/**
+		 * Appends a value.
+		 *
+		 * @param value value to be appended
+		 */
+		void add(int value) {
+			if (size == data.length)
+				data = Arrays.copyOf(data, 2*size);
+			data[size++] = value;
+		}
+	}
+
+
+	/**
+	 * Constructs an empty rule set.
+	 */
+	public IndexedFTARuleSet() {
+	}
+
+
+	/**
+	 * Constructs a rule set containing the given rules.
+	 *
+	 * @param newRules rules to be contained in the new rule set
+	 */
+	public IndexedFTARuleSet(Collection<? extends R> newRules) {
+		for (R r: newRules)
+			add(r);
+	}
+
+
+	/**
+	 * Returns the list for the given number, adding empty lists up to it if necessary.
+	 */
+	private static IntList list(List<IntList> lists, int i) {
+		while (lists.size() <= i)
+			lists.add(new IntList());
+		return lists.get(i);
+	}
+
+
+	/**
+	 * Returns the key of the given symbol and state numbers in bySymbolSrc.
+	 */
+	private static Long key(int f, int q) {
+		return ((long)f << 32) | q;
+	}
+
+
+	/**
+	 * @see java.util.Set#add(java.lang.Object)
+	 */
+	@Override
+	public boolean add(R r) {
+		if (ruleIds.containsKey(r))
+			return false;
+		int id = ruleList.size();
+		ruleList.add(r);
+		ruleIds.put(r, id);
+		index(r, id);
+		return true;
+	}
+
+
+	/**
+	 * Adds the given rule with the given number to the indexes.
+	 *
+	 * @param r rule to be indexed
+	 * @param id number of the rule
+	 */
+	private void index(R r, int id) {
+		int f = symbols.number(r.getSymbol());
+		list(bySymbol, f).add(id);
+		if (f < symbolSets.size())
+			symbolSets.set(f, null);
+		int destId = states.number(r.getDestState());
+		list(byDest, destId).add(id);
+		destIds.add(destId);
+		int[] src = new int[r.getSrcStates().size()];
+		srcIds.add(src);
+		int i = 0;
+		for (Q q: r.getSrcStates()) {
+			int qId = states.number(q);
+			src[i] = qId;
+			IntList occ = list(bySrc, qId);
+			occ.add(id);
+			occ.add(i);
+			Long key = key(f, qId);
+			IntList symbolOcc = bySymbolSrc.get(key);
+			if (symbolOcc == null) {
+				symbolOcc = new IntList();
+				bySymbolSrc.put(key, symbolOcc);
+			}
+			symbolOcc.add(id);
+			symbolOcc.add(i);
+			i++;
+		}
+	}
+
+
+	/**
+	 * @see java.util.Set#remove(java.lang.Object)
+	 */
+	@Override
+	public boolean remove(Object o) {
+		Integer id = ruleIds.remove(o);
+		if (id == null)
+			return false;
+		R r = ruleList.set(id, null);
+		int f = symbols.get(r.getSymbol());
+		if (f < symbolSets.size())
+			symbolSets.set(f, null);
+		gaps++;
+		if (gaps > ruleIds.size() && gaps > 16)
+			rebuild();
+		return true;
+	}
+
+
+	/**
+	 * Renumbers the rules without gaps and rebuilds the indexes.
+	 */
+	private void rebuild() {
+		List<R> live = new ArrayList<R>(ruleIds.size());
+		for (R r: ruleList)
+			if (r != null)
+				live.add(r);
+		clear();
+		for (R r: live)
+			add(r);
+	}
+
+
+	/**
+	 * @see java.util.Set#clear()
+	 */
+	@Override
+	public void clear() {
+		ruleList.clear();
+		ruleIds.clear();
+		gaps = 0;
+		symbols = new Numbering<F>();
+		states = new Numbering<Q>();
+		bySymbol.clear();
+		byDest.clear();
+		bySrc.clear();
+		bySymbolSrc.clear();
+		symbolSets.clear();
+		srcIds.clear();
+		destIds.size = 0;
+	}
+
+
+	/**
+	 * @see java.util.Set#contains(java.lang.Object)
+	 */
+	@Override
+	public boolean contains(Object o) {
+		return ruleIds.containsKey(o);
+	}
+
+
+	/**
+	 * @see java.util.Set#size()
+	 */
+	@Override
+	public int size() {
+		return ruleIds.size();
+	}
+
+
+	/**
+	 * Returns an iterator over the rules in the order they were added.
+	 *
+	 * @see java.util.Set#iterator()
+	 */
+	@Override
+	public Iterator<R> iterator() {
+		return new Iterator<R>() {
+
+			/** Number of the next rule to be returned. */
+			private int next = skip(0);
+
+			/** Number of the rule returned last, or -1. */
+			private int last = -1;
+
+			private int skip(int i) {
+				while (i < ruleList.size() && ruleList.get(i) == null)
+					i++;
+				return i;
+			}
+
+			@Override
+			public boolean hasNext() {
+				return next < ruleList.size();
+			}
+
+			@Override
+			public R next() {
+				if (!hasNext())
+					throw new NoSuchElementException();
+				last = next;
+				next = skip(next+1);
+				return ruleList.get(last);
+			}
+
+			@Override
+			public void remove() {
+				if (last < 0)
+					throw new IllegalStateException();
+				// no renumbering while iterating
+				R r = ruleList.set(last, null);
+				ruleIds.remove(r);
+				int f = symbols.get(r.getSymbol());
+				if (f < symbolSets.size())
+					symbolSets.set(f, null);
+				gaps++;
+				last = -1;
+			}
+		};
+	}
+
+
+	/**
+	 * Returns all rules f(q1,...,qn) -> q with specified symbol f. The returned set
+	 * must not be modified; it is computed when it is first requested after a change
+	 * of the rules of f.
+	 *
+	 * @see de.uni_muenster.cs.sev.lethal.treeautomata.common.FTARuleSet#getSymbolRules
+	 */
+	@Override
+	public Set<R> getSymbolRules(F f) {
+		int id = symbols.get(f);
+		if (id < 0)
+			return Collections.<R>emptySet();
+		while (symbolSets.size() <= id)
+			symbolSets.add(null);
+		Set<R> ret = symbolSets.get(id);
+		if (ret == null) {
+			IntList rules = bySymbol.get(id);
+			Set<R> set = new HashSet<R>();
+			for (int i=0; i<rules.size; i++) {
+				R r = ruleList.get(rules.data[i]);
+				if (r != null)
+					set.add(r);
+			}
+			ret = Collections.unmodifiableSet(set);
+			symbolSets.set(id, ret);
+		}
+		return ret;
+	}
+
+
+	/**
+	 * Returns all rules f(q1,...,qn) -> q with the given symbol f and the given state
+	 * at the given position i, that is qi.
+	 *
+	 * @param f symbol of the rules to be returned
+	 * @param i position of the given state in the source states of the rules, starting with 0
+	 * @param q source state at position i of the rules to be returned
+	 * @return all rules with the given symbol and the given state at the given position
+	 */
+	public List<R> getSrcRules(F f, int i, Q q) {
+		int fId = symbols.get(f);
+		int qId = states.get(q);
+		List<R> ret = new ArrayList<R>();
+		if (fId < 0 || qId < 0)
+			return ret;
+		IntList occ = bySymbolSrc.get(key(fId, qId));
+		if (occ == null)
+			return ret;
+		for (int k=0; k<occ.size; k+=2) {
+			R r = ruleList.get(occ.data[k]);
+			if (r != null && occ.data[k+1] == i)
+				ret.add(r);
+		}
+		return ret;
+	}
+
+
+	/**
+	 * Returns all rules having the given state among their source states, each rule once.
+	 *
+	 * @param q source state of the rules to be returned
+	 * @return all rules having the given state among their source states
+	 */
+	public List<R> getSrcRules(Q q) {
+		int qId = states.get(q);
+		List<R> ret = new ArrayList<R>();
+		if (qId < 0 || qId >= bySrc.size())
+			return ret;
+		IntList occ = bySrc.get(qId);
+		int last = -1;
+		for (int k=0; k<occ.size; k+=2) {
+			int id = occ.data[k];
+			if (id != last && ruleList.get(id) != null)
+				ret.add(ruleList.get(id));
+			last = id;
+		}
+		return ret;
+	}
+
+
+	/**
+	 * Returns all rules having the given state as destination state.
+	 *
+	 * @param q destination state of the rules to be returned
+	 * @return all rules having the given state as destination state
+	 */
+	public List<R> getDestRules(Q q) {
+		int qId = states.get(q);
+		List<R> ret = new ArrayList<R>();
+		if (qId < 0 || qId >= byDest.size())
+			return ret;
+		IntList rules = byDest.get(qId);
+		for (int k=0; k<rules.size; k++) {
+			R r = ruleList.get(rules.data[k]);
+			if (r != null)
+				ret.add(r);
+		}
+		return ret;
+	}
+
+
+	/**
+	 * Returns the upper bound of the rule numbers. The rules are numbered from 0 on, a number
+	 * whose rule has been removed is a gap. <br>
+	 * This and the following methods give the algorithms access to the numbers used by the
+	 * indexes; the numbers stay valid as long as the rules are not changed.
+	 */
+	int getRuleIdBound() {
+		return ruleList.size();
+	}
+
+
+	/**
+	 * Returns the rule with the given number, or null if it has been removed.
+	 */
+	R getRule(int id) {
+		return ruleList.get(id);
+	}
+
+
+	/**
+	 * Returns the numbers of the source states of the rule with the given number.
+	 * The returned array must not be modified.
+	 */
+	int[] getSrcIds(int id) {
+		return srcIds.get(id);
+	}
+
+
+	/**
+	 * Returns the number of the destination state of the rule with the given number.
+	 */
+	int getDestId(int id) {
+		return destIds.data[id];
+	}
+
+
+	/**
+	 * Returns the upper bound of the state numbers.
+	 */
+	int getStateIdBound() {
+		return states.size();
+	}
+
+
+	/**
+	 * Returns the state with the given number.
+	 */
+	Q getState(int id) {
+		return states.getObject(id);
+	}
+
+
+	/**
+	 * Returns the number of the given state, or -1 if it occurs in no rule added so far.
+	 */
+	int getStateId(Q q) {
+		return states.get(q);
+	}
+
+
+	/**
+	 * Returns the occurrences of the state with the given number as source state, as pairs
+	 * of rule number and position, including those of removed rules. The returned list must
+	 * not be modified.
+	 */
+	IntList getSrcOccurrences(int q) {
+		return q < bySrc.size() ? bySrc.get(q) : IntList.EMPTY;
+	}
+
+
+	/**
+	 * Returns the numbers of the rules having the state with the given number as destination
+	 * state, including removed rules. The returned list must not be modified.
+	 */
+	IntList getDestRuleIds(int q) {
+		return q < byDest.size() ? byDest.get(q) : IntList.EMPTY;
+	}
+
+
+	/**
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		StringBuffer text = new StringBuffer();
+		for(R rule: this){
+			text.append(rule.toString()).append("\n");
+		}
+		return text.toString();
+	}
+}
@@ -0,0 +1,590 @@
+/*
+ * Copyright 2009 Dorothea Jansen <d.jansen@uni-muenster.de>, Martin Mohr <mohrfrosch@uni-muenster.de>, Irene Thesing <i_thes01@uni-muenster.de>, Anton Reis <antonreis@gmx.de>, Maria Schatz <m_scha17@uni-muenster.de>, Philipp Claves <philipp.claves@uni-muenster.de>, Sezar Jarrous <sezar.jarrous@gmail.com>
+ *
+ * This file is part of LETHAL.
+ *
+ * LETHAL is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * LETHAL is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with LETHAL.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.uni_muenster.cs.sev.lethal.treeautomata.common;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import de.uni_muenster.cs.sev.lethal.states.State;
+import de.uni_muenster.cs.sev.lethal.symbol.common.RankedSymbol;
+import de.uni_muenster.cs.sev.lethal.tree.common.Tree;
+import de.uni_muenster.cs.sev.lethal.tree.common.TreeCreator;
+import de.uni_muenster.cs.sev.lethal.utils.Converter;
+
+/**
+ * Constructs the intersection of arbitrarily many finite tree automata in one product
+ * construction, used by {@link FTAOps#intersection(List, Converter, FTACreator) intersection},
+ * or only checks whether it is empty, used by {@link FTAProperties#emptyIntersection(List) emptyIntersection}.<br>
+ * <br>
+ * The states of the product are tuples (q_1,...,q_n) of states of the automata, which are
+ * kept as arrays of state numbers. Only tuples reachable bottom-up are constructed: starting
+ * with the constants, a rule f(q_1,...,q_m) -> q of the first automaton is combined with all
+ * fitting tuples of already reachable tuples, and for each further automaton the rules with
+ * symbol f and the corresponding source states are looked up in an index, which maps each
+ * position and state to the bitset of the rules having this state at this position.
+ * A tuple is only extended, if every automaton still has a rule fitting the part of the tuple
+ * chosen so far. The reachable tuples serve as work list, and each new tuple is only combined
+ * with tuples found before it, so that no combination is looked at twice.<br>
+ * Afterwards, only the tuples from which a final tuple can be reached are kept, so that
+ * the result is reduced, and only these are converted into states of the result.<br>
+ * <br>
+ * If only emptiness is to be checked, no product rules are stored and the search stops at
+ * the first final tuple. In both cases, each tuple remembers the rule and the tuples it was
+ * first built from, so that a tree witnessing a final tuple can be reconstructed.
+ *
+ * @param <F> symbol type of the automata
+ * @param <Q> state type of the automata
+ *
+ * @author Dorothea, Irene, Martin
+ */
+class ProductIntersection<F extends RankedSymbol, Q extends State> {
+
+	/**
+	 * Rules of one automaton with a fixed symbol, indexed for the lookup by source states.
+	 */
+	private static class SymbolRules {
+
+		/** Destination states of the rules as state numbers. */
+		final List<Integer> dest = new ArrayList<Integer>();
+
+		/** Source states of the rules as state numbers. */
+		final List<int[]> src = new ArrayList<int[]>();
+
+		/** For each position, the rules with the given state at this position. Filled by {@link #index}. */
+		List<Map<Integer,long[]>> at;
+
+		/** All rules. Filled by {@link #index}. */
+		long[] all;
+
+
+		/**
+		 * Builds the bitsets of the rules, after all rules have been added.
+		 *
+		 * @param arity arity of the symbol
+		 */
+		void index(int arity) {
+			int words = (dest.size()+63)/64;
+			all = new long[words];
+			at = new ArrayList<Map<Integer,long[]>>(arity);
+			for (int pos=0; pos<arity; pos++)
+				at.add(new HashMap<Integer,long[]>());
+			for (int r=0; r<dest.size(); r++) {
+				all[r >>> 6] |= 1L << r;
+				int[] s = src.get(r);
+				for (int pos=0; pos<arity; pos++) {
+					long[] bits = at.get(pos).get(s[pos]);
+					if (bits == null) {
+						bits = new long[words];
+						at.get(pos).put(s[pos], bits);
+					}
+					bits[r >>> 6] |= 1L << r;
+				}
+			}
+		}
+	}
+
+
+	/**
+	 * Tuple of state numbers, used as key of the numbering of the tuples.
+	 */
+	private static final class Tuple {
+
+		/** The state numbers. */
+		final int[] states;
+
+		/** Hash code of the state numbers. */
+		private final int hash;
+
+
+		/**
+		 * Creates a tuple.
+		 *
+		 * @param states state numbers of the tuple
+		 */
+		Tuple(int[] states) {
+			this.states = states;
+			this.hash = Arrays.hashCode(states);
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			return o instanceof Tuple && Arrays.equals(states, ((Tuple)o).states);
+		}
+	}
+
+
+	/** Number of automata. */
+	private final int n;
+
+	/** Union of the alphabets of all automata. */
+	private final Set<F> alphabet = new LinkedHashSet<F>();
+
+	/** For each automaton, its states indexed by state number. */
+	private final List<List<Q>> states = new ArrayList<List<Q>>();
+
+	/** For each automaton, its final states as bitset of state numbers. */
+	private final BitSet[] finals;
+
+	/** Rules of the first automaton. */
+	private final List<FTARule<F,Q>> rules0 = new ArrayList<FTARule<F,Q>>();
+
+	/** Source states of the rules of the first automaton as state numbers, indexed like rules0. */
+	private final List<int[]> ruleSrc0 = new ArrayList<int[]>();
+
+	/** Destination states of the rules of the first automaton as state numbers, indexed like rules0. */
+	private final List<Integer> ruleDest0 = new ArrayList<Integer>();
+
+	/**
+	 * For each state of the first automaton, the occurrences of this state in rules,
+	 * each encoded as pair of rule number and position.
+	 */
+	private final List<List<int[]>> occurrences = new ArrayList<List<int[]>>();
+
+	/** For each further automaton, its rules grouped by symbol. */
+	private final List<Map<F,SymbolRules>> symbolRules = new ArrayList<Map<F,SymbolRules>>();
+
+	/** State numbers of each tuple, indexed by tuple number. */
+	private final List<int[]> tuples = new ArrayList<int[]>();
+
+	/** Numbers of the tuples. */
+	private final Map<Tuple,Integer> tupleIds = new HashMap<Tuple,Integer>();
+
+	/** For each state of the first automaton, the tuples starting with this state in increasing order. */
+	private final List<List<Integer>> tuplesByFirst = new ArrayList<List<Integer>>();
+
+	/** Tuples all of whose states are final. */
+	private final BitSet finalTuples = new BitSet();
+
+	/** Rule of the first automaton each tuple was first built with, indexed by tuple number. */
+	private final List<Integer> tupleRule = new ArrayList<Integer>();
+
+	/** Tuples each tuple was first built from, indexed by tuple number. */
+	private final List<int[]> tupleChildren = new ArrayList<int[]>();
+
+	/** Whether the search stops at the first final tuple and no product rules are stored. */
+	private final boolean emptinessOnly;
+
+	/** Number of the first final tuple found, or -1. */
+	private int firstFinal = -1;
+
+	/** Rule of the first automaton each product rule was built with. */
+	private final List<Integer> productRule = new ArrayList<Integer>();
+
+	/** Source tuples of each product rule. */
+	private final List<int[]> productSrc = new ArrayList<int[]>();
+
+	/** Destination tuple of each product rule. */
+	private final List<Integer> productDest = new ArrayList<Integer>();
+
+
+	/**
+	 * Prepares the intersection of the given finite tree automata.
+	 *
+	 * @param ftas automata to be intersected, must not be empty
+	 */
+	ProductIntersection(List<? extends FTA<F,Q,? extends FTARule<F,Q>>> ftas) {
+		this(ftas, false);
+	}
+
+
+	/**
+	 * Prepares the intersection or the emptiness check of the intersection of the given
+	 * finite tree automata.
+	 *
+	 * @param ftas automata to be intersected, must not be empty
+	 * @param emptinessOnly whether the search stops at the first final tuple and no product
+	 * rules are stored
+	 */
+	ProductIntersection(List<? extends FTA<F,Q,? extends FTARule<F,Q>>> ftas, boolean emptinessOnly) {
+		this.emptinessOnly = emptinessOnly;
+		n = ftas.size();
+		finals = new BitSet[n];
+		for (int i=0; i<n; i++) {
+			FTA<F,Q,? extends FTARule<F,Q>> fta = ftas.get(i);
+			alphabet.addAll(fta.getAlphabet());
+			Map<Q,Integer> stateIds = new HashMap<Q,Integer>();
+			states.add(new ArrayList<Q>());
+			Map<F,SymbolRules> bySymbol = new HashMap<F,SymbolRules>();
+			for (FTARule<F,Q> r: fta.getRules()) {
+				List<Q> srcStates = r.getSrcStates();
+				int[] src = new int[srcStates.size()];
+				for (int j=0; j<src.length; j++)
+					src[j] = number(i, srcStates.get(j), stateIds);
+				int dest = number(i, r.getDestState(), stateIds);
+				if (i == 0) {
+					for (int j=0; j<src.length; j++)
+						occurrences.get(src[j]).add(new int[]{rules0.size(), j});
+					rules0.add(r);
+					ruleSrc0.add(src);
+					ruleDest0.add(dest);
+				} else {
+					SymbolRules sr = bySymbol.get(r.getSymbol());
+					if (sr == null) {
+						sr = new SymbolRules();
+						bySymbol.put(r.getSymbol(), sr);
+					}
+					sr.src.add(src);
+					sr.dest.add(dest);
+				}
+			}
+			for (Map.Entry<F,SymbolRules> e: bySymbol.entrySet())
+				e.getValue().index(e.getKey().getArity());
+			if (i > 0)
+				symbolRules.add(bySymbol);
+			finals[i] = new BitSet();
+			for (Q q: fta.getFinalStates())
+				if (stateIds.containsKey(q))
+					finals[i].set(stateIds.get(q));
+		}
+	}
+
+
+	/**
+	 * Numbers the given state of the i-th automaton, if it is new.
+	 */
+	private int number(int i, Q q, Map<Q,Integer> stateIds) {
+		Integer id = stateIds.get(q);
+		if (id == null) {
+			id = states.get(i).size();
+			stateIds.put(q, id);
+			states.get(i).add(q);
+			if (i == 0) {
+				occurrences.add(new ArrayList<int[]>());
+				tuplesByFirst.add(new ArrayList<Integer>());
+			}
+		}
+		return id;
+	}
+
+
+	/**
+	 * Constructs all reachable tuples and the product rules between them, or, if only
+	 * emptiness is checked, the reachable tuples up to the first final one.
+	 *
+	 * @return true if no final tuple is reachable, that means, the intersection is empty
+	 */
+	boolean run() {
+		for (int r=0; r<rules0.size() && !stopped(); r++) {
+			if (ruleSrc0.get(r).length > 0)
+				continue;
+			long[][][] prefix = initPrefix(r);
+			if (prefix != null)
+				combine(r, new int[0], prefix);
+		}
+
+		// the tuples grow while they are processed, so they serve as work list
+		for (int k=0; k<tuples.size() && !stopped(); k++) {
+			for (int[] occ: occurrences.get(tuples.get(k)[0])) {
+				if (stopped())
+					break;
+				int r = occ[0];
+				long[][][] prefix = initPrefix(r);
+				if (prefix == null)
+					continue;
+				int[] tuple = new int[ruleSrc0.get(r).length];
+				extend(r, 0, occ[1], k, tuple, prefix);
+			}
+		}
+		return finalTuples.isEmpty();
+	}
+
+
+	/**
+	 * Returns whether the search can stop, since only emptiness is checked and a final
+	 * tuple has been found.
+	 */
+	private boolean stopped() {
+		return emptinessOnly && firstFinal >= 0;
+	}
+
+
+	/**
+	 * Allocates the bitsets of applicable rules of the further automata for the given rule
+	 * of the first automaton, such that prefix[i][0] contains all rules of the (i+1)-th automaton
+	 * with the symbol of the rule.
+	 *
+	 * @return the bitsets, or null if some automaton has no rule with this symbol
+	 */
+	private long[][][] initPrefix(int r) {
+		F f = rules0.get(r).getSymbol();
+		int m = ruleSrc0.get(r).length;
+		long[][][] prefix = new long[n-1][][];
+		for (int i=0; i<n-1; i++) {
+			SymbolRules sr = symbolRules.get(i).get(f);
+			if (sr == null)
+				return null;
+			prefix[i] = new long[m+1][];
+			prefix[i][0] = sr.all;
+			for (int pos=1; pos<=m; pos++)
+				prefix[i][pos] = new long[sr.all.length];
+		}
+		return prefix;
+	}
+
+
+	/**
+	 * Enumerates all tuples of tuples fitting the source states of rule r of the first
+	 * automaton, which contain tuple k at position first, only tuples with smaller
+	 * numbers before and tuples with numbers up to k behind, and creates the resulting
+	 * product rules. The positions before pos are already fixed in tuple, and prefix[i][pos]
+	 * contains the rules of the (i+1)-th automaton applicable to this part of the tuple.
+	 */
+	private void extend(int r, int pos, int first, int k, int[] tuple, long[][][] prefix) {
+		int[] src = ruleSrc0.get(r);
+		if (pos == src.length) {
+			combine(r, tuple.clone(), prefix);
+			return;
+		}
+		F f = rules0.get(r).getSymbol();
+		List<Integer> candidates = pos == first ? null : tuplesByFirst.get(src[pos]);
+		int count = pos == first ? 1 : candidates.size();
+		for (int c=0; c<count && !stopped(); c++) {
+			int s = pos == first ? k : candidates.get(c);
+			if (s > k || (s == k && pos < first))
+				break;
+			int[] states = tuples.get(s);
+			boolean applicable = true;
+			for (int i=0; i<n-1 && applicable; i++) {
+				long[] m = symbolRules.get(i).get(f).at.get(pos).get(states[i+1]);
+				if (m == null) {
+					applicable = false;
+					break;
+				}
+				long[] prev = prefix[i][pos];
+				long[] cur = prefix[i][pos+1];
+				applicable = false;
+				for (int w=0; w<cur.length; w++) {
+					cur[w] = prev[w] & m[w];
+					applicable |= cur[w] != 0;
+				}
+			}
+			if (!applicable)
+				continue;
+			tuple[pos] = s;
+			extend(r, pos+1, first, k, tuple, prefix);
+		}
+	}
+
+
+	/**
+	 * Creates the product rules of rule r of the first automaton with the rules of the further
+	 * automata given by the bitsets prefix[i][m] applied to the given source tuples, and the
+	 * destination tuples of these rules.
+	 */
+	private void combine(int r, int[] src, long[][][] prefix) {
+		int m = src.length;
+		// destination states of each automaton
+		int[][] dests = new int[n][];
+		dests[0] = new int[]{ruleDest0.get(r)};
+		for (int i=1; i<n; i++) {
+			long[] bits = prefix[i-1][m];
+			List<Integer> d = symbolRules.get(i-1).get(rules0.get(r).getSymbol()).dest;
+			int count = 0;
+			for (long w: bits)
+				count += Long.bitCount(w);
+			dests[i] = new int[count];
+			count = 0;
+			for (int w=0; w<bits.length; w++)
+				for (long b = bits[w]; b != 0; b &= b-1)
+					dests[i][count++] = d.get((w << 6) + Long.numberOfTrailingZeros(b));
+		}
+		// all combinations of the destination states
+		int[] choice = new int[n];
+		while (!stopped()) {
+			int[] dest = new int[n];
+			for (int i=0; i<n; i++)
+				dest[i] = dests[i][choice[i]];
+			int id = addTuple(dest, r, src);
+			if (!emptinessOnly) {
+				productRule.add(r);
+				productSrc.add(src);
+				productDest.add(id);
+			}
+			int i = n-1;
+			while (i >= 0 && ++choice[i] == dests[i].length) {
+				choice[i] = 0;
+				i--;
+			}
+			if (i < 0)
+				return;
+		}
+	}
+
+
+	/**
+	 * Numbers the given tuple, if it is new, and remembers the rule of the first automaton
+	 * and the tuples it has been built from.
+	 *
+	 * @return number of the tuple
+	 */
+	private int addTuple(int[] states, int rule, int[] children) {
+		Tuple t = new Tuple(states);
+		Integer id = tupleIds.get(t);
+		if (id != null)
+			return id;
+		id = tuples.size();
+		tupleIds.put(t, id);
+		tuples.add(states);
+		tupleRule.add(rule);
+		tupleChildren.add(children);
+		tuplesByFirst.get(states[0]).add(id);
+		boolean isFinal = true;
+		for (int i=0; i<n && isFinal; i++)
+			isFinal = finals[i].get(states[i]);
+		if (isFinal) {
+			finalTuples.set(id);
+			if (firstFinal < 0)
+				firstFinal = id;
+		}
+		return id;
+	}
+
+
+	/**
+	 * Returns the tuples from which a final tuple can be reached.
+	 */
+	private BitSet usefulTuples() {
+		List<List<Integer>> rulesByDest = new ArrayList<List<Integer>>(tuples.size());
+		for (int k=0; k<tuples.size(); k++)
+			rulesByDest.add(new ArrayList<Integer>());
+		for (int p=0; p<productDest.size(); p++)
+			rulesByDest.get(productDest.get(p)).add(p);
+		BitSet useful = (BitSet)finalTuples.clone();
+		LinkedList<Integer> worklist = new LinkedList<Integer>();
+		for (int k = useful.nextSetBit(0); k >= 0; k = useful.nextSetBit(k+1))
+			worklist.add(k);
+		while (!worklist.isEmpty()) {
+			for (int p: rulesByDest.get(worklist.poll())) {
+				for (int s: productSrc.get(p)) {
+					if (!useful.get(s)) {
+						useful.set(s);
+						worklist.add(s);
+					}
+				}
+			}
+		}
+		return useful;
+	}
+
+
+	/**
+	 * Creates the reduced product automaton from the tuples and product rules constructed
+	 * by {@link #run}.
+	 *
+	 * @param <Q3> state type of the result
+	 * @param <R> rule type of the result
+	 * @param <T> type of the result
+	 * @param tc converts the tuples of states into states of the result, must be injective
+	 * @param fc creator for the result automaton and its rules
+	 * @return the reduced product automaton
+	 */
+	<Q3 extends State, R extends FTARule<F,Q3>, T extends FTA<F,Q3,R>>
+	T createFTA(Converter<List<Q>,Q3> tc, FTACreator<F,Q3,R,T> fc) {
+		BitSet useful = usefulTuples();
+		Map<Integer,Q3> newStates = new HashMap<Integer,Q3>();
+		List<Q3> newFinals = new LinkedList<Q3>();
+		for (int k = useful.nextSetBit(0); k >= 0; k = useful.nextSetBit(k+1)) {
+			int[] t = tuples.get(k);
+			List<Q> tuple = new ArrayList<Q>(n);
+			for (int i=0; i<n; i++)
+				tuple.add(states.get(i).get(t[i]));
+			Q3 q = tc.convert(tuple);
+			newStates.put(k, q);
+			if (finalTuples.get(k))
+				newFinals.add(q);
+		}
+		List<R> newRules = new LinkedList<R>();
+		for (int p=0; p<productDest.size(); p++) {
+			if (!useful.get(productDest.get(p)))
+				continue;
+			int[] src = productSrc.get(p);
+			List<Q3> srcStates = new ArrayList<Q3>(src.length);
+			for (int s: src)
+				srcStates.add(newStates.get(s));
+			newRules.add(fc.createRule(rules0.get(productRule.get(p)).getSymbol(), srcStates, newStates.get(productDest.get(p))));
+		}
+		return fc.createFTA(alphabet, newStates.values(), newFinals, newRules);
+	}
+
+
+	/**
+	 * Returns a tree which is accepted by all automata, if {@link #run} has found one.
+	 *
+	 * @param <T> type of the tree to be created
+	 * @param tc creator for the tree
+	 * @return a tree accepted by all automata, or null if the intersection is empty
+	 */
+	<T extends Tree<F>> T getWitness(TreeCreator<F,T> tc) {
+		if (firstFinal < 0)
+			return null;
+		return makeTree(firstFinal, tc);
+	}
+
+
+	/**
+	 * Reconstructs the tree the given tuple was first built for. <br>
+	 * The tuples are visited in post-order with an explicit stack, so the tree may be
+	 * arbitrarily deep. Since each tuple is built from tuples found before, there are
+	 * no cycles, and the tree of a tuple occurring several times is built once.
+	 */
+	private <T extends Tree<F>> T makeTree(int tuple, TreeCreator<F,T> tc) {
+		Map<Integer,T> built = new HashMap<Integer,T>();
+		List<Integer> toDo = new ArrayList<Integer>();
+		toDo.add(tuple);
+		while (!toDo.isEmpty()) {
+			int next = toDo.get(toDo.size()-1);
+			if (built.containsKey(next)) {
+				toDo.remove(toDo.size()-1);
+				continue;
+			}
+			int[] children = tupleChildren.get(next);
+			boolean ready = true;
+			for (int child: children)
+				if (!built.containsKey(child)) {
+					toDo.add(child);
+					ready = false;
+				}
+			if (!ready)
+				continue;
+			toDo.remove(toDo.size()-1);
+			F f = rules0.get(tupleRule.get(next)).getSymbol();
+			if (children.length == 0)
+				built.put(next, tc.makeTree(f));
+			else {
+				List<T> subTrees = new ArrayList<T>(children.length);
+				for (int child: children)
+					subTrees.add(built.get(child));
+				built.put(next, tc.makeTree(f, subTrees));
+			}
+		}
+		return built.get(tuple);
+	}
+}
@@ -0,0 +1,417 @@
+/*
+ * Copyright 2009 Dorothea Jansen <d.jansen@uni-muenster.de>, Martin Mohr <mohrfrosch@uni-muenster.de>, Irene Thesing <i_thes01@uni-muenster.de>, Anton Reis <antonreis@gmx.de>, Maria Schatz <m_scha17@uni-muenster.de>, Philipp Claves <philipp.claves@uni-muenster.de>, Sezar Jarrous <sezar.jarrous@gmail.com>
+ *
+ * This file is part of LETHAL.
+ *
+ * LETHAL is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * LETHAL is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with LETHAL.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.uni_muenster.cs.sev.lethal.treeautomata.common;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import de.uni_muenster.cs.sev.lethal.states.State;
+import de.uni_muenster.cs.sev.lethal.symbol.common.RankedSymbol;
+import de.uni_muenster.cs.sev.lethal.utils.Numbering;
+
+/**
+ * Index of the rules of a finite tree automaton for computing with sets of its states,
+ * as needed by subset constructions.<br>
+ * <br>
+ * The states of the automaton are numbered, and sets of states are kept as
+ * {@link BitSet bitsets}, which are interned, so that each set gets a number. For each
+ * symbol, position and state, the rules having this state at this position are stored
+ * as a bitset of rule numbers. When a set of states is interned, the rules having some
+ * of its states at each position are precomputed. Thus the rules applicable to a tuple
+ * of sets are obtained by intersecting these rule bitsets.
+ *
+ * @param <F> symbol type of the indexed automaton
+ * @param <Q> state type of the indexed automaton
+ *
+ * @see Determinizer
+ * @see InclusionChecker
+ *
+ * @author Dorothea, Irene, Martin
+ */
+class SubsetIndex<F extends RankedSymbol, Q extends State> {
+
+	/** Numbering of the states of the automaton. */
+	private final Numbering<Q> stateIds = new Numbering<Q>();
+
+	/** States of the automaton, indexed by their number. */
+	private final List<Q> stateList = stateIds.getObjects();
+
+	/** Final states of the automaton as bitset. */
+	private final BitSet finals = new BitSet();
+
+	/** Numbering of the symbols occurring in rules. */
+	private final Numbering<F> symbolIds = new Numbering<F>();
+
+	/** Symbols occurring in rules, indexed by their number. */
+	private final List<F> symbols = symbolIds.getObjects();
+
+	/** Destination states of the rules, indexed by symbol number and rule number. */
+	private final List<int[]> ruleDest = new ArrayList<int[]>();
+
+	/**
+	 * Source states of the rules, indexed by symbol number. The source states of rule r
+	 * of a symbol of arity n are found at positions r*n,...,r*n+n-1.
+	 */
+	private final List<int[]> ruleSrc = new ArrayList<int[]>();
+
+	/**
+	 * For each symbol, position i and state q at index i*|Q|+q, the bitset of the rules
+	 * having q at position i, or null if there is no such rule.
+	 */
+	private final List<long[][]> index = new ArrayList<long[][]>();
+
+	/**
+	 * For each symbol and position, the bitsets of the rules having a state of a set
+	 * at this position, indexed by the number of the set.
+	 */
+	private final List<List<List<long[]>>> subsetRules = new ArrayList<List<List<long[]>>>();
+
+	/** Interned sets of states, indexed by their number. */
+	private final List<BitSet> subsets = new ArrayList<BitSet>();
+
+	/** Numbers of the interned sets of states. */
+	private final Map<BitSet,Integer> subsetIds = new HashMap<BitSet,Integer>();
+
+
+	/**
+	 * Indexes the rules of the given finite tree automaton.
+	 *
+	 * @param fta automaton to be indexed
+	 */
+	SubsetIndex(FTA<F,Q,? extends FTARule<F,Q>> fta) {
+		List<List<FTARule<F,Q>>> rulesBySymbol = new ArrayList<List<FTARule<F,Q>>>();
+		for (FTARule<F,Q> r: fta.getRules()) {
+			int f = symbolIds.number(r.getSymbol());
+			if (f == rulesBySymbol.size())
+				rulesBySymbol.add(new ArrayList<FTARule<F,Q>>());
+			rulesBySymbol.get(f).add(r);
+			for (Q q: r.getSrcStates())
+				stateIds.number(q);
+			stateIds.number(r.getDestState());
+		}
+		for (Q q: fta.getFinalStates())
+			if (stateIds.get(q) >= 0)
+				finals.set(stateIds.get(q));
+
+		int numStates = stateList.size();
+		for (int f=0; f<symbols.size(); f++) {
+			List<FTARule<F,Q>> symRules = rulesBySymbol.get(f);
+			int n = symbols.get(f).getArity();
+			int[] dest = new int[symRules.size()];
+			int[] srcs = new int[symRules.size()*n];
+			long[][] idx = new long[n*numStates][];
+			int words = (symRules.size()+63) >>> 6;
+			for (int r=0; r<symRules.size(); r++) {
+				dest[r] = stateIds.get(symRules.get(r).getDestState());
+				List<Q> src = symRules.get(r).getSrcStates();
+				for (int i=0; i<n; i++) {
+					srcs[r*n+i] = stateIds.get(src.get(i));
+					int k = i*numStates + srcs[r*n+i];
+					if (idx[k] == null)
+						idx[k] = new long[words];
+					idx[k][r >>> 6] |= 1L << r;
+				}
+			}
+			ruleDest.add(dest);
+			ruleSrc.add(srcs);
+			index.add(idx);
+			List<List<long[]>> positions = new ArrayList<List<long[]>>();
+			for (int i=0; i<n; i++)
+				positions.add(new ArrayList<long[]>());
+			subsetRules.add(positions);
+		}
+	}
+
+
+	/**
+	 * Returns the number of states of the indexed automaton.
+	 *
+	 * @return the number of states of the indexed automaton
+	 */
+	int getNumberOfStates() {
+		return stateList.size();
+	}
+
+
+	/**
+	 * Returns the number of symbols occurring in rules.
+	 *
+	 * @return the number of symbols occurring in rules
+	 */
+	int getNumberOfSymbols() {
+		return symbols.size();
+	}
+
+
+	/**
+	 * Returns the symbol with the given number.
+	 *
+	 * @param f number of the symbol
+	 * @return the symbol with the given number
+	 */
+	F getSymbol(int f) {
+		return symbols.get(f);
+	}
+
+
+	/**
+	 * Returns the number of the given symbol.
+	 *
+	 * @param f symbol to be looked up
+	 * @return the number of the given symbol, or -1 if it does not occur in any rule
+	 */
+	int getSymbolId(F f) {
+		return symbolIds.get(f);
+	}
+
+
+	/**
+	 * Returns the number of longs of a rule bitset of the given symbol.
+	 *
+	 * @param f number of the symbol
+	 * @return the number of longs of a rule bitset of the given symbol
+	 */
+	int getRuleWords(int f) {
+		return (ruleDest.get(f).length+63) >>> 6;
+	}
+
+
+	/**
+	 * Sets the bits of all rules of the given symbol in the given rule bitset.
+	 *
+	 * @param f number of the symbol
+	 * @param rules rule bitset to be filled
+	 */
+	void setAllRules(int f, long[] rules) {
+		for (int r=0; r<ruleDest.get(f).length; r++)
+			rules[r >>> 6] |= 1L << r;
+	}
+
+
+	/**
+	 * Returns the rules of the given symbol having a state of the given set at the given position.
+	 *
+	 * @param f number of the symbol
+	 * @param pos position of the source state
+	 * @param subset number of the set
+	 * @return bitset of the rules of the given symbol having a state of the given set at the given position
+	 */
+	long[] getRulesAt(int f, int pos, int subset) {
+		return subsetRules.get(f).get(pos).get(subset);
+	}
+
+
+	/**
+	 * Adds the destination states of the given rules of the given symbol to the given set.
+	 *
+	 * @param f number of the symbol
+	 * @param rules bitset of rules of the symbol
+	 * @param dest set the destination states are added to
+	 */
+	void addDestStates(int f, long[] rules, BitSet dest) {
+		int[] ruleDests = ruleDest.get(f);
+		for (int w=0; w<rules.length; w++) {
+			long bits = rules[w];
+			while (bits != 0) {
+				dest.set(ruleDests[(w << 6) + Long.numberOfTrailingZeros(bits)]);
+				bits &= bits-1;
+			}
+		}
+	}
+
+
+	/**
+	 * Returns the number of the given set, interning it if it is new. The given bitset
+	 * is copied if necessary, so it can be reused by the caller.
+	 *
+	 * @param subset set of state numbers
+	 * @return the number of the given set
+	 */
+	int intern(BitSet subset) {
+		Integer id = subsetIds.get(subset);
+		if (id != null)
+			return id;
+		id = subsets.size();
+		BitSet copy = (BitSet)subset.clone();
+		subsets.add(copy);
+		subsetIds.put(copy, id);
+
+		// compute the rules having a state of the new set at each position
+		int numStates = stateList.size();
+		for (int f=0; f<symbols.size(); f++) {
+			long[][] idx = index.get(f);
+			int words = getRuleWords(f);
+			List<List<long[]>> positions = subsetRules.get(f);
+			for (int i=0; i<positions.size(); i++) {
+				long[] m = new long[words];
+				for (int q = copy.nextSetBit(0); q >= 0; q = copy.nextSetBit(q+1)) {
+					long[] qRules = idx[i*numStates + q];
+					if (qRules != null)
+						for (int w=0; w<words; w++)
+							m[w] |= qRules[w];
+				}
+				positions.get(i).add(m);
+			}
+		}
+		return id;
+	}
+
+
+	/**
+	 * Returns the number of interned sets.
+	 *
+	 * @return the number of interned sets
+	 */
+	int getNumberOfSubsets() {
+		return subsets.size();
+	}
+
+
+	/**
+	 * Returns the interned set with the given number as set of states.
+	 *
+	 * @param id number of the set
+	 * @return the interned set with the given number
+	 */
+	Set<Q> getSubset(int id) {
+		Set<Q> ret = new HashSet<Q>();
+		BitSet subset = subsets.get(id);
+		for (int q = subset.nextSetBit(0); q >= 0; q = subset.nextSetBit(q+1))
+			ret.add(stateList.get(q));
+		return ret;
+	}
+
+
+	/**
+	 * Returns the interned set with the given number as bitset of state numbers.
+	 * The returned bitset must not be modified.
+	 *
+	 * @param id number of the set
+	 * @return the interned set with the given number
+	 */
+	BitSet getSubsetBits(int id) {
+		return subsets.get(id);
+	}
+
+
+	/**
+	 * Returns whether the interned set with the given number contains a final state.
+	 *
+	 * @param id number of the set
+	 * @return whether the interned set with the given number contains a final state
+	 */
+	boolean containsFinal(int id) {
+		return subsets.get(id).intersects(finals);
+	}
+
+
+	/**
+	 * Computes an upward simulation of the indexed automaton, that is a relation R on
+	 * its states such that q R r implies:
+	 * <ul>
+	 * <li>if q is a final state, r is a final state, and</li>
+	 * <li>for each rule f(q1,...,qn) -> q' with qi = q, there is a rule
+	 * f(q1,...,qn) -> r' with qi replaced by r and q' R r'.</li>
+	 * </ul>
+	 * Hence each context which leads a tree from q to a final state also leads it from r
+	 * to a final state. The greatest such relation is computed by removing violating
+	 * pairs until nothing changes any more.
+	 *
+	 * @return for each state r, the states q with q R r as bitset
+	 */
+	BitSet[] upwardSimulation() {
+		int numStates = stateList.size();
+
+		// destination states of the rules, indexed by symbol number and source states
+		List<Map<List<Integer>,BitSet>> destsByLhs = new ArrayList<Map<List<Integer>,BitSet>>();
+		// occurrences of the states, each as triple of symbol, rule and position
+		List<List<int[]>> occurrences = new ArrayList<List<int[]>>();
+		for (int q=0; q<numStates; q++)
+			occurrences.add(new ArrayList<int[]>());
+		for (int f=0; f<symbols.size(); f++) {
+			int n = symbols.get(f).getArity();
+			int[] srcs = ruleSrc.get(f);
+			Map<List<Integer>,BitSet> dests = new HashMap<List<Integer>,BitSet>();
+			for (int r=0; r<ruleDest.get(f).length; r++) {
+				List<Integer> lhs = lhs(srcs, r*n, n, -1, 0);
+				if (!dests.containsKey(lhs))
+					dests.put(lhs, new BitSet());
+				dests.get(lhs).set(ruleDest.get(f)[r]);
+				for (int i=0; i<n; i++)
+					occurrences.get(srcs[r*n+i]).add(new int[]{f, r, i});
+			}
+			destsByLhs.add(dests);
+		}
+
+		// simulating[q] contains all r with q R r
+		BitSet[] simulating = new BitSet[numStates];
+		for (int q=0; q<numStates; q++) {
+			simulating[q] = new BitSet();
+			if (finals.get(q))
+				simulating[q].or(finals);
+			else
+				simulating[q].set(0, numStates);
+		}
+		boolean changed = true;
+		while (changed) {
+			changed = false;
+			for (int q=0; q<numStates; q++) {
+				for (int r = simulating[q].nextSetBit(0); r >= 0; r = simulating[q].nextSetBit(r+1)) {
+					if (r == q)
+						continue;
+					for (int[] occ: occurrences.get(q)) {
+						int f = occ[0];
+						int n = symbols.get(f).getArity();
+						BitSet dests = destsByLhs.get(f).get(lhs(ruleSrc.get(f), occ[1]*n, n, occ[2], r));
+						if (dests == null || !dests.intersects(simulating[ruleDest.get(f)[occ[1]]])) {
+							simulating[q].clear(r);
+							changed = true;
+							break;
+						}
+					}
+				}
+			}
+		}
+
+		BitSet[] simulated = new BitSet[numStates];
+		for (int r=0; r<numStates; r++)
+			simulated[r] = new BitSet();
+		for (int q=0; q<numStates; q++)
+			for (int r = simulating[q].nextSetBit(0); r >= 0; r = simulating[q].nextSetBit(r+1))
+				simulated[r].set(q);
+		return simulated;
+	}
+
+
+	/**
+	 * Returns the source states of a rule as list, where the state at the given position
+	 * is replaced by the given state, if the position is not negative.
+	 */
+	private static List<Integer> lhs(int[] srcs, int offset, int n, int pos, int q) {
+		List<Integer> ret = new ArrayList<Integer>(n);
+		for (int i=0; i<n; i++)
+			ret.add(i == pos ? q : srcs[offset+i]);
+		return ret;
+	}
+}
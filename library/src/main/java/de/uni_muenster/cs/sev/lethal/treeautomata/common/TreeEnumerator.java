@@ -0,0 +1,253 @@
+/*
+ * Copyright 2009 Dorothea Jansen <d.jansen@uni-muenster.de>, Martin Mohr <mohrfrosch@uni-muenster.de>, Irene Thesing <i_thes01@uni-muenster.de>, Anton Reis <antonreis@gmx.de>, Maria Schatz <m_scha17@uni-muenster.de>, Philipp Claves <philipp.claves@uni-muenster.de>, Sezar Jarrous <sezar.jarrous@gmail.com>
+ *
+ * This file is part of LETHAL.
+ *
+ * LETHAL is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * LETHAL is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with LETHAL.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.uni_muenster.cs.sev.lethal.treeautomata.common;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import de.uni_muenster.cs.sev.lethal.states.State;
+import de.uni_muenster.cs.sev.lethal.symbol.common.RankedSymbol;
+import de.uni_muenster.cs.sev.lethal.tree.common.Tree;
+import de.uni_muenster.cs.sev.lethal.tree.common.TreeCreator;
+import de.uni_muenster.cs.sev.lethal.treeautomata.generic.GenFTACreator;
+
+/**
+ * Enumerates the trees accepted by a finite tree automaton in the order of increasing size
+ * or increasing height, each tree exactly once.<br>
+ * <br>
+ * Algorithm:<br>
+ * The trees are computed level by level, where the level of a tree is its size or its height,
+ * respectively, and a leaf has level 1. For each state, the trees of each level annotated with
+ * it are stored in a table. The trees of level l annotated with a state q are obtained from the
+ * rules f(q1,...,qn) -> q by combining the stored trees of the states qi, whose levels add up
+ * to l-1 or whose maximal level is l-1, respectively. Trees found by several rules are stored
+ * only once. The accepted trees of a level are those annotated with some final state.<br>
+ * A level is computed only when the trees of the previous levels have all been returned.
+ * The enumeration ends, if a maximal level is given and reached, or if no level to come can
+ * contain trees. This is the case, if no state annotates a tree of a level from which a tree of
+ * the next level could be built, i.e. of level l or, when ordering by size, of a level
+ * between l/n and l, where n is the maximal arity and l is the last computed level.<br>
+ * Before, the given automaton is reduced top-down, so that no trees are stored for states
+ * which cannot contribute to an accepted tree. The automaton is read only at construction,
+ * so later changes of it do not affect the enumeration.
+ *
+ * @param <F> symbol type of the finite tree automaton
+ * @param <Q> state type of the finite tree automaton
+ * @param <T> type of the trees to be enumerated
+ *
+ * @author Martin
+ */
+public class TreeEnumerator<F extends RankedSymbol, Q extends State, T extends Tree<F>> implements Iterator<T> {
+
+	/** Creator of the enumerated trees. */
+	private final TreeCreator<F,T> tc;
+
+	/** Whether the trees are ordered by height, otherwise they are ordered by size. */
+	private final boolean byHeight;
+
+	/** Maximal level of the enumerated trees, 0 means unlimited. */
+	private final int maxLevel;
+
+	/** Maximal arity of the rules, but at least 1. */
+	private int maxArity = 1;
+
+	/** Symbols of the rules. */
+	private final List<F> ruleSymbols = new ArrayList<F>();
+
+	/** Source state numbers of the rules. */
+	private final List<int[]> ruleSrc = new ArrayList<int[]>();
+
+	/** Destination state numbers of the rules. */
+	private final List<Integer> ruleDest = new ArrayList<Integer>();
+
+	/** Numbers of the final states. */
+	private final List<Integer> finals = new ArrayList<Integer>();
+
+	/**
+	 * For each state number and each level l, the trees of level l+1 which are annotated
+	 * with this state.
+	 */
+	private final List<List<List<T>>> trees = new ArrayList<List<List<T>>>();
+
+	/** Last computed level. */
+	private int level = 0;
+
+	/** Last level containing trees of some state. */
+	private int lastNonEmpty = 0;
+
+	/** Whether no further level can contain trees. */
+	private boolean finished = false;
+
+	/** Remaining accepted trees of the last computed level. */
+	private Iterator<T> current = Collections.<T>emptyList().iterator();
+
+
+	/**
+	 * Prepares the enumeration of the trees accepted by the given finite tree automaton.
+	 *
+	 * @param fta finite tree automaton whose trees are to be enumerated
+	 * @param tc creator of the enumerated trees
+	 * @param byHeight whether the trees are to be ordered by height, otherwise they are
+	 * ordered by size
+	 * @param maxLevel maximal height or size, respectively, of the enumerated trees, 0 for no limit
+	 */
+	public TreeEnumerator(FTA<F,Q,? extends FTARule<F,Q>> fta, TreeCreator<F,T> tc, boolean byHeight, int maxLevel) {
+		if (fta == null) throw new IllegalArgumentException("TreeEnumerator(): fta must not be null.");
+		if (tc == null) throw new IllegalArgumentException("TreeEnumerator(): tc must not be null.");
+		if (maxLevel < 0) throw new IllegalArgumentException("TreeEnumerator(): maxLevel must not be negative.");
+		this.tc = tc;
+		this.byHeight = byHeight;
+		this.maxLevel = maxLevel;
+
+		FTA<F,Q,? extends FTARule<F,Q>> reduced = FTAOps.reduceTopDown(fta, new GenFTACreator<F,Q>());
+		Map<Q,Integer> stateIds = new HashMap<Q,Integer>();
+		for (Q q: reduced.getStates()) {
+			stateIds.put(q, stateIds.size());
+			trees.add(new ArrayList<List<T>>());
+		}
+		for (Q q: reduced.getFinalStates())
+			finals.add(stateIds.get(q));
+		for (FTARule<F,Q> r: reduced.getRules()) {
+			List<Q> srcStates = r.getSrcStates();
+			int[] src = new int[srcStates.size()];
+			for (int i=0; i<src.length; i++)
+				src[i] = stateIds.get(srcStates.get(i));
+			ruleSymbols.add(r.getSymbol());
+			ruleSrc.add(src);
+			ruleDest.add(stateIds.get(r.getDestState()));
+			maxArity = Math.max(maxArity, src.length);
+		}
+	}
+
+
+	/**
+	 * @see java.util.Iterator#hasNext()
+	 */
+	@Override
+	public boolean hasNext() {
+		while (!current.hasNext() && !finished)
+			computeNextLevel();
+		return current.hasNext();
+	}
+
+
+	/**
+	 * @see java.util.Iterator#next()
+	 */
+	@Override
+	public T next() {
+		if (!hasNext())
+			throw new NoSuchElementException("next(): there are no more trees.");
+		return current.next();
+	}
+
+
+	/**
+	 * @see java.util.Iterator#remove()
+	 */
+	@Override
+	public void remove() {
+		throw new UnsupportedOperationException("Deletion of elements not allowed!");
+	}
+
+
+	/**
+	 * Computes the trees of the next level for all states and provides the accepted ones.
+	 */
+	private void computeNextLevel() {
+		level++;
+		List<Set<T>> newTrees = new ArrayList<Set<T>>(trees.size());
+		for (int q=0; q<trees.size(); q++)
+			newTrees.add(new LinkedHashSet<T>());
+		List<T> children = new ArrayList<T>(Collections.<T>nCopies(maxArity, null));
+		for (int r=0; r<ruleSymbols.size(); r++) {
+			int[] src = ruleSrc.get(r);
+			if (src.length == 0) {
+				if (level == 1)
+					newTrees.get(ruleDest.get(r)).add(tc.makeTree(ruleSymbols.get(r)));
+			} else if (level > 1)
+				combine(ruleSymbols.get(r), src, 0, level-1, false, children, newTrees.get(ruleDest.get(r)));
+		}
+
+		boolean empty = true;
+		for (int q=0; q<trees.size(); q++) {
+			trees.get(q).add(new ArrayList<T>(newTrees.get(q)));
+			empty &= newTrees.get(q).isEmpty();
+		}
+		if (!empty)
+			lastNonEmpty = level;
+
+		Set<T> accepted = new LinkedHashSet<T>();
+		for (int qf: finals)
+			accepted.addAll(newTrees.get(qf));
+		current = accepted.iterator();
+
+		// lowest level of which a subtree of a tree of the next level must be
+		int minNeeded = byHeight ? level : (level + maxArity - 1) / maxArity;
+		if (level == maxLevel || lastNonEmpty < minNeeded)
+			finished = true;
+	}
+
+
+	/**
+	 * Adds all trees of the current level with the given symbol at the root, whose i-th subtree
+	 * is annotated with the i-th given state, for all positions from the given one on. The
+	 * subtrees at the positions before are fixed already.
+	 *
+	 * @param f symbol at the root
+	 * @param src numbers of the states annotating the subtrees
+	 * @param pos first position whose subtree is to be chosen
+	 * @param budget if ordered by size, the sum of the levels of the subtrees still to be chosen,
+	 * otherwise the maximal level of them
+	 * @param maxReached if ordered by height, whether some subtree chosen so far has the maximal level
+	 * @param children subtrees chosen so far
+	 * @param result set to which the built trees are added
+	 */
+	private void combine(F f, int[] src, int pos, int budget, boolean maxReached, List<T> children, Set<T> result) {
+		if (pos == src.length) {
+			result.add(tc.makeTree(f, new ArrayList<T>(children.subList(0, src.length))));
+			return;
+		}
+		int remaining = src.length - pos - 1;
+		int from = 1, to = budget;
+		if (byHeight) {
+			if (remaining == 0 && !maxReached)
+				from = budget;
+		} else {
+			to = budget - remaining;
+			if (remaining == 0)
+				from = budget;
+		}
+		List<List<T>> stateTrees = trees.get(src[pos]);
+		for (int l=from; l<=to; l++) {
+			int nextBudget = byHeight ? budget : budget - l;
+			for (T t: stateTrees.get(l-1)) {
+				children.set(pos, t);
+				combine(f, src, pos+1, nextBudget, maxReached || l == budget, children, result);
+			}
+		}
+	}
+}
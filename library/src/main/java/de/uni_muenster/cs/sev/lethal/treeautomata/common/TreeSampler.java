@@ -0,0 +1,355 @@
+/*
+ * Copyright 2009 Dorothea Jansen <d.jansen@uni-muenster.de>, Martin Mohr <mohrfrosch@uni-muenster.de>, Irene Thesing <i_thes01@uni-muenster.de>, Anton Reis <antonreis@gmx.de>, Maria Schatz <m_scha17@uni-muenster.de>, Philipp Claves <philipp.claves@uni-muenster.de>, Sezar Jarrous <sezar.jarrous@gmail.com>
+ *
+ * This file is part of LETHAL.
+ *
+ * LETHAL is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * LETHAL is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with LETHAL.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.uni_muenster.cs.sev.lethal.treeautomata.common;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import de.uni_muenster.cs.sev.lethal.states.NamedState;
+import de.uni_muenster.cs.sev.lethal.states.State;
+import de.uni_muenster.cs.sev.lethal.symbol.common.RankedSymbol;
+import de.uni_muenster.cs.sev.lethal.tree.common.Tree;
+import de.uni_muenster.cs.sev.lethal.tree.common.TreeCreator;
+import de.uni_muenster.cs.sev.lethal.treeautomata.generic.GenFTA;
+import de.uni_muenster.cs.sev.lethal.treeautomata.generic.GenFTACreator;
+import de.uni_muenster.cs.sev.lethal.utils.Converter;
+
+/**
+ * Draws trees of a given size uniformly at random from the language of a finite tree automaton.<br>
+ * <br>
+ * Algorithm:<br>
+ * If the given automaton is not deterministic, it is determinized first, so that each accepted
+ * tree has exactly one run and counting runs means counting trees. For each state q and size s,
+ * the number N(q,s) of trees of size s annotated with q is computed. For each rule f(q1,...,qn) -> q
+ * and each position i, the number P(i,m) of tuples of trees annotated with qi,...,qn of total
+ * size m is computed, too, such that N(q,s) is the sum of P(1,s-1) over the rules leading to q.
+ * These tables are computed up to the largest size requested so far and reused by all later
+ * samples, until {@link #clearCache} is called.<br>
+ * A tree of size s is drawn by choosing a final state q with probability proportional to N(q,s),
+ * then a rule leading to q with probability proportional to P(1,s-1), and then, from left to right,
+ * the size t of the i-th subtree with probability proportional to N(qi,t)*P(i+1,m-t). The sizes t are
+ * tried alternately from the smallest and the largest one, which keeps the number of tried sizes
+ * small for unbalanced splits. The subtrees are drawn in the same way, with an explicit stack,
+ * so arbitrarily deep trees can be drawn.
+ *
+ * @param <F> symbol type of the finite tree automaton
+ * @param <Q> state type of the finite tree automaton
+ * @param <T> type of the trees to be drawn
+ *
+ * @author Martin
+ */
+public class TreeSampler<F extends RankedSymbol, Q extends State, T extends Tree<F>> {
+
+	/** Creator of the drawn trees. */
+	private final TreeCreator<F,T> tc;
+
+	/** Source of randomness. */
+	private final Random random;
+
+	/** Symbols of the rules of the deterministic automaton. */
+	private final List<F> ruleSymbols = new ArrayList<F>();
+
+	/** Source state numbers of the rules of the deterministic automaton. */
+	private final List<int[]> ruleSrc = new ArrayList<int[]>();
+
+	/** For each state number, the numbers of the rules leading to it. */
+	private final List<List<Integer>> rulesByDest = new ArrayList<List<Integer>>();
+
+	/** Numbers of the final states. */
+	private final List<Integer> finals = new ArrayList<Integer>();
+
+	/** For each state number q and size s, the number N(q,s) of trees of size s annotated with q. */
+	private final List<List<BigInteger>> counts = new ArrayList<List<BigInteger>>();
+
+	/**
+	 * For each rule number, each position i and each size m, the number P(i,m) of tuples of trees
+	 * for the positions from i on with total size m. The position after the last one holds the
+	 * empty tuple.
+	 */
+	private final List<List<List<BigInteger>>> suffixCounts = new ArrayList<List<List<BigInteger>>>();
+
+	/** Largest size up to which the tables are computed. */
+	private int computedSize = 0;
+
+
+	/**
+	 * Prepares the sampling of the trees accepted by the given finite tree automaton.
+	 *
+	 * @param fta finite tree automaton whose trees are to be drawn
+	 * @param tc creator of the drawn trees
+	 * @param random source of randomness
+	 */
+	public TreeSampler(FTA<F,Q,? extends FTARule<F,Q>> fta, TreeCreator<F,T> tc, Random random) {
+		if (fta == null) throw new IllegalArgumentException("TreeSampler(): fta must not be null.");
+		if (tc == null) throw new IllegalArgumentException("TreeSampler(): tc must not be null.");
+		if (random == null) throw new IllegalArgumentException("TreeSampler(): random must not be null.");
+		this.tc = tc;
+		this.random = random;
+		if (FTAProperties.checkDeterministic(fta))
+			init(fta);
+		else {
+			Converter<Set<Q>,NamedState<Set<Q>>> sc = new Converter<Set<Q>,NamedState<Set<Q>>>() {
+				@Override
+				public NamedState<Set<Q>> convert(Set<Q> a) {
+					return new NamedState<Set<Q>>(a);
+				}
+			};
+			GenFTA<F,NamedState<Set<Q>>> det = FTAOps.determinize(fta, new GenFTACreator<F,NamedState<Set<Q>>>(), sc);
+			init(det);
+		}
+	}
+
+
+	/**
+	 * Numbers the states and rules of the given deterministic automaton.
+	 *
+	 * @param <P> state type of the given automaton
+	 * @param fta deterministic finite tree automaton whose trees are to be drawn
+	 */
+	private <P extends State> void init(FTA<F,P,? extends FTARule<F,P>> fta) {
+		Map<P,Integer> stateIds = new HashMap<P,Integer>();
+		for (P q: fta.getStates()) {
+			stateIds.put(q, stateIds.size());
+			rulesByDest.add(new ArrayList<Integer>());
+			counts.add(new ArrayList<BigInteger>(Collections.singletonList(BigInteger.ZERO)));
+		}
+		for (P q: fta.getFinalStates())
+			finals.add(stateIds.get(q));
+		for (FTARule<F,P> r: fta.getRules()) {
+			List<P> srcStates = r.getSrcStates();
+			int[] src = new int[srcStates.size()];
+			for (int i=0; i<src.length; i++)
+				src[i] = stateIds.get(srcStates.get(i));
+			rulesByDest.get(stateIds.get(r.getDestState())).add(ruleSymbols.size());
+			ruleSymbols.add(r.getSymbol());
+			ruleSrc.add(src);
+		}
+		clearCache();
+	}
+
+
+	/**
+	 * Drops the count tables, which are computed again when needed. The tables grow quadratically
+	 * with the largest requested size, so they may be dropped after drawing large trees.
+	 */
+	public void clearCache() {
+		for (List<BigInteger> stateCounts: counts)
+			stateCounts.subList(1, stateCounts.size()).clear();
+		suffixCounts.clear();
+		for (int[] src: ruleSrc) {
+			List<List<BigInteger>> positions = new ArrayList<List<BigInteger>>(src.length+1);
+			for (int i=0; i<=src.length; i++)
+				positions.add(new ArrayList<BigInteger>());
+			suffixCounts.add(positions);
+		}
+		computedSize = 0;
+	}
+
+
+	/**
+	 * Computes the tables up to the given size.
+	 *
+	 * @param size size up to which the tables are to be computed
+	 */
+	private void computeUpTo(int size) {
+		for (int s=computedSize+1; s<=size; s++) {
+			int m = s-1;
+			for (int r=0; r<ruleSrc.size(); r++) {
+				int[] src = ruleSrc.get(r);
+				List<List<BigInteger>> positions = suffixCounts.get(r);
+				positions.get(src.length).add(m == 0 ? BigInteger.ONE : BigInteger.ZERO);
+				for (int i=src.length-1; i>=0; i--) {
+					List<BigInteger> stateCounts = counts.get(src[i]);
+					List<BigInteger> rest = positions.get(i+1);
+					BigInteger sum = BigInteger.ZERO;
+					for (int t=1; t<=m; t++) {
+						BigInteger c = stateCounts.get(t);
+						if (c.signum() != 0) {
+							BigInteger d = rest.get(m-t);
+							if (d.signum() != 0)
+								sum = sum.add(c.multiply(d));
+						}
+					}
+					positions.get(i).add(sum);
+				}
+			}
+			for (int q=0; q<counts.size(); q++) {
+				BigInteger sum = BigInteger.ZERO;
+				for (int r: rulesByDest.get(q))
+					sum = sum.add(suffixCounts.get(r).get(0).get(m));
+				counts.get(q).add(sum);
+			}
+			computedSize = s;
+		}
+	}
+
+
+	/**
+	 * Returns the number of accepted trees of the given size.
+	 *
+	 * @param size number of nodes of the trees to be counted
+	 * @return the number of trees of the given size accepted by the automaton
+	 */
+	public BigInteger count(int size) {
+		if (size < 1) throw new IllegalArgumentException("count(): size must be positive.");
+		computeUpTo(size);
+		BigInteger sum = BigInteger.ZERO;
+		for (int qf: finals)
+			sum = sum.add(counts.get(qf).get(size));
+		return sum;
+	}
+
+
+	/**
+	 * Draws a tree of the given size uniformly at random from all accepted trees of this size.
+	 *
+	 * @param size number of nodes of the tree to be drawn
+	 * @return random accepted tree of the given size, or null if there is no such tree
+	 */
+	public T sample(int size) {
+		return sample(size, size);
+	}
+
+
+	/**
+	 * Draws a tree uniformly at random from all accepted trees whose size lies in the given range.
+	 *
+	 * @param minSize minimal number of nodes of the tree to be drawn
+	 * @param maxSize maximal number of nodes of the tree to be drawn
+	 * @return random accepted tree of a size in the given range, or null if there is no such tree
+	 */
+	public T sample(int minSize, int maxSize) {
+		if (minSize < 1) throw new IllegalArgumentException("sample(): minSize must be positive.");
+		if (maxSize < minSize) throw new IllegalArgumentException("sample(): maxSize must not be smaller than minSize.");
+		computeUpTo(maxSize);
+		BigInteger total = BigInteger.ZERO;
+		for (int s=minSize; s<=maxSize; s++)
+			total = total.add(count(s));
+		if (total.signum() == 0)
+			return null;
+
+		// choose size and final state
+		BigInteger x = randomBelow(total);
+		int root = -1, rootSize = 0;
+		for (int s=minSize; s<=maxSize && root < 0; s++)
+			for (int qf: finals) {
+				x = x.subtract(counts.get(qf).get(s));
+				if (x.signum() < 0) {
+					root = qf;
+					rootSize = s;
+					break;
+				}
+			}
+
+		// choose rules and subtree sizes top-down, the nodes are collected in pre-order
+		List<F> symbols = new ArrayList<F>(rootSize);
+		List<int[]> toDo = new ArrayList<int[]>();
+		toDo.add(new int[] {root, rootSize});
+		int[] sizes = new int[0];
+		while (!toDo.isEmpty()) {
+			int[] next = toDo.remove(toDo.size()-1);
+			int q = next[0], m = next[1]-1;
+			int rule = -1;
+			x = randomBelow(counts.get(q).get(next[1]));
+			for (int r: rulesByDest.get(q)) {
+				x = x.subtract(suffixCounts.get(r).get(0).get(m));
+				if (x.signum() < 0) {
+					rule = r;
+					break;
+				}
+			}
+			symbols.add(ruleSymbols.get(rule));
+			int[] src = ruleSrc.get(rule);
+			if (sizes.length < src.length)
+				sizes = new int[src.length];
+			List<List<BigInteger>> positions = suffixCounts.get(rule);
+			for (int i=0; i<src.length; i++) {
+				sizes[i] = chooseSize(counts.get(src[i]), positions.get(i+1), positions.get(i).get(m), m, src.length-i-1);
+				m -= sizes[i];
+			}
+			for (int i=src.length-1; i>=0; i--)
+				toDo.add(new int[] {src[i], sizes[i]});
+		}
+
+		// build the tree bottom-up from the nodes in reverse pre-order
+		List<T> built = new ArrayList<T>();
+		for (int j=symbols.size()-1; j>=0; j--) {
+			F f = symbols.get(j);
+			int n = f.getArity();
+			if (n == 0)
+				built.add(tc.makeTree(f));
+			else {
+				List<T> subTrees = new ArrayList<T>(n);
+				for (int i=0; i<n; i++)
+					subTrees.add(built.remove(built.size()-1));
+				built.add(tc.makeTree(f, subTrees));
+			}
+		}
+		return built.get(0);
+	}
+
+
+	/**
+	 * Chooses the size t of a subtree with probability proportional to N(q,t)*P(i+1,m-t),
+	 * trying the sizes alternately from the smallest and the largest one.
+	 *
+	 * @param stateCounts the numbers N(q,t) of the state q of the subtree
+	 * @param rest the numbers P(i+1,.) of the positions after the subtree
+	 * @param total the number P(i,m), which is the sum of all weights
+	 * @param m total size of the subtree and the subtrees after it
+	 * @param remaining number of subtrees after it, each of which has at least one node
+	 * @return chosen size of the subtree
+	 */
+	private int chooseSize(List<BigInteger> stateCounts, List<BigInteger> rest, BigInteger total, int m, int remaining) {
+		BigInteger x = randomBelow(total);
+		int low = 1, high = m - remaining;
+		boolean fromLow = true;
+		while (low < high) {
+			int t = fromLow ? low++ : high--;
+			fromLow = !fromLow;
+			x = x.subtract(stateCounts.get(t).multiply(rest.get(m-t)));
+			if (x.signum() < 0)
+				return t;
+		}
+		return low;
+	}
+
+
+	/**
+	 * Returns a number drawn uniformly from 0 to the given bound, exclusively.
+	 *
+	 * @param bound positive upper bound
+	 * @return random number between 0 and the given bound, exclusively
+	 */
+	private BigInteger randomBelow(BigInteger bound) {
+		if (bound.bitLength() < 63)
+			return BigInteger.valueOf(random.nextLong(bound.longValue()));
+		BigInteger x;
+		do {
+			x = new BigInteger(bound.bitLength(), random);
+		} while (x.compareTo(bound) >= 0);
+		return x;
+	}
+}
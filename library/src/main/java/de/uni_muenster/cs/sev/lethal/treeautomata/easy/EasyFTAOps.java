@@ -23,8 +23,10 @@ package de.uni_muenster.cs.sev.lethal.treeautomata.easy;
 
 
 import java.util.Collection;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.stream.Stream;
 
 import de.uni_muenster.cs.sev.lethal.factories.StateFactory;
 import de.uni_muenster.cs.sev.lethal.states.NamedState;
@@ -38,6 +40,7 @@ import de.uni_muenster.cs.sev.lethal.treeautomata.common.FTA;
 import de.uni_muenster.cs.sev.lethal.treeautomata.common.FTACreator;
 import de.uni_muenster.cs.sev.lethal.treeautomata.common.FTAOps;
 import de.uni_muenster.cs.sev.lethal.treeautomata.common.FTARule;
+import de.uni_muenster.cs.sev.lethal.treeautomata.common.LimitExceededException;
 import de.uni_muenster.cs.sev.lethal.utils.Converter;
 import de.uni_muenster.cs.sev.lethal.utils.IdentityConverter;
 import de.uni_muenster.cs.sev.lethal.utils.Pair;
@@ -145,6 +148,27 @@ public class EasyFTAOps {
 	}
 
 
+	/**
+	 * Given a given finite tree automaton A, computes an equivalent deterministic
+	 * finite tree automaton, but gives up if the result would get too large or the
+	 * computation takes too long.
+	 *
+	 * @param fta automaton to be determinized
+	 * @param maxStates maximal number of states of the result, 0 means no limit
+	 * @param maxMillis maximal running time in milliseconds, 0 means no limit
+	 *
+	 * @return deterministic finite tree automaton equivalent to the given one
+	 * @throws LimitExceededException if one of the limits is exceeded
+	 *
+	 * @see FTAOps#determinize(FTA, FTACreator, Converter, int, long)
+	 */
+	public static EasyFTA determinize(FTA<RankedSymbol,State,? extends FTARule<RankedSymbol,State>> fta, int maxStates, long maxMillis) {
+		EasyFTACreator fc = new EasyFTACreator();
+		StdStateBuilder<Set<State>> sc = new StdStateBuilder<Set<State>>();
+		return FTAOps.determinize(fta, fc, sc, maxStates, maxMillis);
+	}
+
+
 	/**
 	 * Given a finite tree automaton A, constructs an equivalent reduced finite tree automaton.
 	 *
@@ -212,6 +236,26 @@ public class EasyFTAOps {
 	}
 
 
+	/**
+	 * Given a deterministic finite tree automaton, constructs an equivalent finite tree automaton
+	 * with an almost minimal number of states by partition refinement.
+	 *
+	 * @param fta  finite tree automaton to be minimized
+	 * @return finite tree automaton with a minimal number of states which has the same
+	 * language as the given one
+	 *
+	 * @see FTAOps#minimizeHopcroft
+	 */
+	public static EasyFTA minimizeHopcroft(FTA<RankedSymbol,State,? extends FTARule<RankedSymbol,State>> fta) {
+		StdStateBuilder<Set<State>> sc = new StdStateBuilder<Set<State>>();
+		EasyFTACreator fc = new EasyFTACreator();
+		State qbot = StateFactory.getStateFactory().makeState();
+		while (fta.getStates().contains(qbot))
+			qbot = StateFactory.getStateFactory().makeState();
+		return FTAOps.minimizeHopcroft(fta, qbot, fc, sc, fc);
+	}
+
+
 	/**
 	 * Given a finite tree automaton A, constructs a finite tree automaton
 	 * which accepts a tree over the alphabet of A if and only if A denies it.
@@ -345,6 +389,21 @@ public class EasyFTAOps {
 	}
 
 
+	/**
+	 * Given a list of finite tree automata, constructs a finite tree automaton which accepts a tree
+	 * if and only if all automata accept it. The result is reduced.
+	 *
+	 * @param ftas finite tree automata to be intersected, must not be empty
+	 * @return finite tree automaton which accepts a tree if and only if all given finite tree automata accept it
+	 * @see FTAOps#intersection
+	 */
+	public static EasyFTA intersection(List<? extends FTA<RankedSymbol,State,? extends FTARule<RankedSymbol,State>>> ftas) {
+		EasyFTACreator fc = new EasyFTACreator();
+		StdStateBuilder<List<State>> tc = new StdStateBuilder<List<State>>();
+		return FTAOps.intersection(ftas, tc, fc);
+	}
+
+
 	/**
 	 *  Given two finite tree automata, constructs a finite tree automaton which
 	 * recognizes a tree if and only if it is recognized by the first but not by the second
@@ -530,4 +589,19 @@ public class EasyFTAOps {
 		return FTAOps.constructTreeAcceptedInState(fta, new StdTreeCreator<RankedSymbol>(), null, minHeight, depthFirst);
 	}
 
+
+	/**
+	 * Returns a lazy stream of all trees accepted by a finite tree automaton in the
+	 * order of increasing size or height.
+	 * @param fta finite tree automaton whose trees are to be enumerated
+	 * @param byHeight whether the trees are ordered by height, otherwise they are ordered by size
+	 * @param maxLevel maximal height or size, respectively, of the trees, 0 for no limit
+	 * @return stream of the trees accepted by the given finite tree automaton
+	 * @see FTAOps#streamTrees
+	 */
+	public static Stream<Tree<RankedSymbol>> streamTrees(
+			FTA<RankedSymbol, State, ? extends FTARule<RankedSymbol, State>> fta, boolean byHeight, int maxLevel) {
+		return FTAOps.streamTrees(fta, new StdTreeCreator<RankedSymbol>(), byHeight, maxLevel);
+	}
+
 }
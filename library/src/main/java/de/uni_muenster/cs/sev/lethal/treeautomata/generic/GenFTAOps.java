@@ -23,8 +23,10 @@ package de.uni_muenster.cs.sev.lethal.treeautomata.generic;
 
 
 import java.util.Collection;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.stream.Stream;
 
 import de.uni_muenster.cs.sev.lethal.factories.StateFactory;
 import de.uni_muenster.cs.sev.lethal.states.BiState;
@@ -37,6 +39,7 @@ import de.uni_muenster.cs.sev.lethal.treeautomata.common.FTA;
 import de.uni_muenster.cs.sev.lethal.treeautomata.common.FTACreator;
 import de.uni_muenster.cs.sev.lethal.treeautomata.common.FTAOps;
 import de.uni_muenster.cs.sev.lethal.treeautomata.common.FTARule;
+import de.uni_muenster.cs.sev.lethal.treeautomata.common.LimitExceededException;
 import de.uni_muenster.cs.sev.lethal.utils.Converter;
 import de.uni_muenster.cs.sev.lethal.utils.IdentityConverter;
 import de.uni_muenster.cs.sev.lethal.utils.Pair;
@@ -251,6 +254,27 @@ public class GenFTAOps {
 	}
 
 
+	/**
+	 * Given a given finite tree automaton A, computes an equivalent deterministic
+	 * finite tree automaton, but gives up if the result would get too large or the
+	 * computation takes too long.
+	 *
+	 * @param <Q> state type of the finite tree automaton to be determinized
+	 * @param <F> symbol type of the finite tree automaton to be determinized
+	 * @param fta automaton to be determinized
+	 * @param maxStates maximal number of states of the result, 0 means no limit
+	 * @param maxMillis maximal running time in milliseconds, 0 means no limit
+	 *
+	 * @return deterministic finite tree automaton equivalent to the given one
+	 * @throws LimitExceededException if one of the limits is exceeded
+	 *
+	 * @see FTAOps#determinize(FTA, FTACreator, Converter, int, long)
+	 */
+	public static <F extends RankedSymbol,Q extends State> GenFTA<F,NamedState<Set<Q>>> determinize(FTA<F,Q,? extends FTARule<F,Q>> fta, int maxStates, long maxMillis) {
+		return FTAOps.determinize(fta, new GenFTACreator<F,NamedState<Set<Q>>>(), new StdStateBuilder<Set<Q>>(), maxStates, maxMillis);
+	}
+
+
 	/**
 	 * Given a finite tree automaton A, constructs an equivalent reduced finite tree automaton.
 	 *
@@ -325,6 +349,26 @@ public class GenFTAOps {
 	}
 
 
+	/**
+	 * Given a deterministic finite tree automaton, constructs an equivalent finite tree automaton
+	 * with an almost minimal number of states by partition refinement.
+	 *
+	 * @param fta  finite tree automaton to be minimized
+	 * @param qbot state to be added by completion
+	 * @param <Q> state type of the given finite tree automaton
+	 * @param <F> symbol type of the given finite tree automaton
+	 *
+	 * @return finite tree automaton with a minimal number of states which has the same
+	 * language as the given one
+	 *
+	 * @see FTAOps#minimizeHopcroft
+	 */
+	public static <F extends RankedSymbol, Q extends State>
+	GenFTA<F, NamedState<Set<Q>>> minimizeHopcroft(FTA<F,Q,? extends FTARule<F,Q>> fta, Q qbot) {
+		return FTAOps.minimizeHopcroft(fta, qbot, new GenFTACreator<F,Q>(), new StdStateBuilder<Set<Q>>(), new GenFTACreator<F,NamedState<Set<Q>>>());
+	}
+
+
 	/**
 	 * Given a finite tree automaton A, constructs a finite tree automaton
 	 * which accepts a tree over the alphabet of A if and only if A denies it.
@@ -482,6 +526,26 @@ public class GenFTAOps {
 
 
 
+	/**
+	 * Given a list of finite tree automata, constructs a finite tree automaton which accepts a tree
+	 * if and only if all automata accept it. The result is reduced.
+	 *
+	 * @param <F> symbol type of the automata
+	 * @param <Q> state type of the automata
+	 * @param ftas automata to be intersected, must not be empty
+	 * @return an automaton which accepts a tree if and only if all given automata accept it
+	 * @see FTAOps#intersection
+	 */
+	public static <F extends RankedSymbol,
+	Q extends State>
+	GenFTA<F,NamedState<List<Q>>> intersection(List<? extends FTA<F,Q,? extends FTARule<F,Q>>> ftas) {
+		StdStateBuilder<List<Q>> tc = new StdStateBuilder<List<Q>>();
+		GenFTACreator<F,NamedState<List<Q>>> fc = new GenFTACreator<F,NamedState<List<Q>>>();
+		return FTAOps.intersection(ftas, tc, fc);
+	}
+
+
+
 
 	/**
 	 *  Given two finite tree automata, constructs a finite tree automaton which
@@ -672,4 +736,21 @@ public class GenFTAOps {
 			FTA<F, Q, ? extends FTARule<F, Q>> fta, int minHeight, boolean depthFirst) {
 		return FTAOps.constructTreeAcceptedInState(fta, new StdTreeCreator<F>(), null, minHeight, depthFirst);
 	}
+
+
+	/**
+	 * Given a finite tree automaton, returns a lazy stream of all trees accepted by it in the
+	 * order of increasing size or height.
+	 * @param <F> symbol type of the finite tree automaton to be examined
+	 * @param <Q> state type of the finite tree automaton to be examined
+	 * @param fta finite tree automaton whose trees are to be enumerated
+	 * @param byHeight whether the trees are ordered by height, otherwise they are ordered by size
+	 * @param maxLevel maximal height or size, respectively, of the trees, 0 for no limit
+	 * @return stream of the trees accepted by the given finite tree automaton
+	 * @see FTAOps#streamTrees
+	 */
+	public static <Q extends State, F extends RankedSymbol> Stream<Tree<F>> streamTrees(
+			FTA<F, Q, ? extends FTARule<F, Q>> fta, boolean byHeight, int maxLevel) {
+		return FTAOps.streamTrees(fta, new StdTreeCreator<F>(), byHeight, maxLevel);
+	}
 }
@@ -0,0 +1,419 @@
+/*
+ * Copyright 2009 Dorothea Jansen <d.jansen@uni-muenster.de>, Martin Mohr <mohrfrosch@uni-muenster.de>, Irene Thesing <i_thes01@uni-muenster.de>, Anton Reis <antonreis@gmx.de>, Maria Schatz <m_scha17@uni-muenster.de>, Philipp Claves <philipp.claves@uni-muenster.de>, Sezar Jarrous <sezar.jarrous@gmail.com>
+ *
+ * This file is part of LETHAL.
+ *
+ * LETHAL is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * LETHAL is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with LETHAL.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.uni_muenster.cs.sev.lethal.treeautomata.symbolic;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.regex.Pattern;
+
+import de.uni_muenster.cs.sev.lethal.symbol.common.NamedSymbol;
+import de.uni_muenster.cs.sev.lethal.symbol.common.RankedSymbol;
+
+/**
+ * Set of ranked symbols of one arity, used as label of the rules of a {@link SymbolicFTA}
+ * instead of a single symbol. A predicate is a conjunction of the following conditions:
+ * <ul>
+ * <li>the symbol is contained in a finite set of symbols,</li>
+ * <li>the symbol is not contained in a finite set of symbols,</li>
+ * <li>the name of the symbol matches a regular expression or does not match it.</li>
+ * </ul>
+ * So a predicate may stand for infinitely many symbols, for example all symbols except
+ * some finitely many ones. The name of a {@link NamedSymbol} is its name converted to a
+ * string, the name of any other symbol is its string representation. <br>
+ * <br>
+ * Predicates are immutable. They are closed under conjunction, and the negation of each
+ * single condition is a condition again, which is what the predicate-aware algorithms in
+ * {@link SymbolicFTAOps} need to split predicates into disjoint parts. <br>
+ * Emptiness is decided exactly for predicates having a finite set condition. Predicates
+ * consisting of other conditions only are regarded as empty only if they require a name to
+ * match and not to match the same regular expression; otherwise they are assumed to be
+ * satisfiable, since the symbols are not restricted to any finite alphabet.
+ *
+ * @param <F> type of the symbols described by the predicate
+ *
+ * @author Martin
+ */
+public final class SymbolPredicate<F extends RankedSymbol> {
+
+	/** Arity of the symbols described by this predicate. */
+	private final int arity;
+
+	/** Symbols one of which must be matched, or null if this condition is absent. */
+	private final Set<F> included;
+
+	/** Symbols which must not be matched. */
+	private final Set<F> excluded;
+
+	/** Regular expressions the name must match or must not match, mapped to true or false, respectively. */
+	private final Map<String,Boolean> patterns;
+
+	/** Compiled regular expressions. */
+	private final Map<String,Pattern> compiled;
+
+	/** Hash code, computed once since predicates are immutable. */
+	private final int hashcode;
+
+
+	/**
+	 * Creates a predicate from its conditions. The given collections are not copied.
+	 */
+	private SymbolPredicate(int arity, Set<F> included, Set<F> excluded, Map<String,Boolean> patterns, Map<String,Pattern> compiled) {
+		this.arity = arity;
+		this.included = included;
+		this.excluded = excluded;
+		this.patterns = patterns;
+		this.compiled = compiled;
+		this.hashcode = 31*(31*(31*arity + (included == null ? 0 : included.hashCode())) + excluded.hashCode()) + patterns.hashCode();
+	}
+
+
+	/**
+	 * Returns a predicate which matches all symbols of the given arity.
+	 *
+	 * @param <F> type of the symbols described by the predicate
+	 * @param arity arity of the matched symbols
+	 * @return predicate which matches all symbols of the given arity
+	 */
+	public static <F extends RankedSymbol> SymbolPredicate<F> all(int arity) {
+		if (arity < 0) throw new IllegalArgumentException("all(): arity must not be negative.");
+		return new SymbolPredicate<F>(arity, null, Collections.<F>emptySet(), Collections.<String,Boolean>emptyMap(), Collections.<String,Pattern>emptyMap());
+	}
+
+
+	/**
+	 * Returns a predicate which matches exactly the given symbols of the given arity.
+	 *
+	 * @param <F> type of the symbols described by the predicate
+	 * @param arity arity of the matched symbols
+	 * @param symbols symbols to be matched, symbols of other arities are ignored
+	 * @return predicate which matches exactly the given symbols of the given arity
+	 */
+	public static <F extends RankedSymbol> SymbolPredicate<F> of(int arity, Collection<? extends F> symbols) {
+		if (symbols == null) throw new IllegalArgumentException("of(): symbols must not be null.");
+		if (arity < 0) throw new IllegalArgumentException("of(): arity must not be negative.");
+		return new SymbolPredicate<F>(arity, withArity(arity, symbols), Collections.<F>emptySet(), Collections.<String,Boolean>emptyMap(), Collections.<String,Pattern>emptyMap());
+	}
+
+
+	/**
+	 * Returns a predicate which matches exactly the given symbol.
+	 *
+	 * @param <F> type of the symbols described by the predicate
+	 * @param symbol symbol to be matched
+	 * @return predicate which matches exactly the given symbol
+	 */
+	public static <F extends RankedSymbol> SymbolPredicate<F> of(F symbol) {
+		if (symbol == null) throw new IllegalArgumentException("of(): symbol must not be null.");
+		return of(symbol.getArity(), Collections.singleton(symbol));
+	}
+
+
+	/**
+	 * Returns a predicate which matches all symbols of the given arity except the given ones.
+	 *
+	 * @param <F> type of the symbols described by the predicate
+	 * @param arity arity of the matched symbols
+	 * @param symbols symbols not to be matched
+	 * @return predicate which matches all symbols of the given arity except the given ones
+	 */
+	public static <F extends RankedSymbol> SymbolPredicate<F> allExcept(int arity, Collection<? extends F> symbols) {
+		if (symbols == null) throw new IllegalArgumentException("allExcept(): symbols must not be null.");
+		if (arity < 0) throw new IllegalArgumentException("allExcept(): arity must not be negative.");
+		return new SymbolPredicate<F>(arity, null, withArity(arity, symbols), Collections.<String,Boolean>emptyMap(), Collections.<String,Pattern>emptyMap());
+	}
+
+
+	/**
+	 * Returns a predicate which matches all symbols of the given arity whose names match
+	 * the given regular expression.
+	 *
+	 * @param <F> type of the symbols described by the predicate
+	 * @param arity arity of the matched symbols
+	 * @param regex regular expression the whole name of the matched symbols must match
+	 * @return predicate which matches all symbols of the given arity whose names match the given regular expression
+	 */
+	public static <F extends RankedSymbol> SymbolPredicate<F> matching(int arity, String regex) {
+		return pattern(arity, regex, true);
+	}
+
+
+	/**
+	 * Returns a predicate which matches all symbols of the given arity whose names do not match
+	 * the given regular expression.
+	 *
+	 * @param <F> type of the symbols described by the predicate
+	 * @param arity arity of the matched symbols
+	 * @param regex regular expression the whole name of the matched symbols must not match
+	 * @return predicate which matches all symbols of the given arity whose names do not match the given regular expression
+	 */
+	public static <F extends RankedSymbol> SymbolPredicate<F> notMatching(int arity, String regex) {
+		return pattern(arity, regex, false);
+	}
+
+
+	/**
+	 * Returns a predicate consisting of one regular expression condition.
+	 */
+	private static <F extends RankedSymbol> SymbolPredicate<F> pattern(int arity, String regex, boolean match) {
+		if (regex == null) throw new IllegalArgumentException("matching(): regex must not be null.");
+		if (arity < 0) throw new IllegalArgumentException("matching(): arity must not be negative.");
+		return new SymbolPredicate<F>(arity, null, Collections.<F>emptySet(), Collections.singletonMap(regex, match), Collections.singletonMap(regex, Pattern.compile(regex)));
+	}
+
+
+	/**
+	 * Returns the symbols of the given arity from the given collection.
+	 */
+	private static <F extends RankedSymbol> Set<F> withArity(int arity, Collection<? extends F> symbols) {
+		Set<F> ret = new HashSet<F>();
+		for (F f: symbols)
+			if (f.getArity() == arity)
+				ret.add(f);
+		return Collections.unmodifiableSet(ret);
+	}
+
+
+	/**
+	 * Returns the arity of the symbols described by this predicate.
+	 *
+	 * @return the arity of the symbols described by this predicate
+	 */
+	public int getArity() {
+		return arity;
+	}
+
+
+	/**
+	 * Returns the name of the given symbol which the regular expressions are matched against.
+	 */
+	private static String nameOf(RankedSymbol f) {
+		if (f instanceof NamedSymbol<?>)
+			return String.valueOf(((NamedSymbol<?>)f).getName());
+		return f.toString();
+	}
+
+
+	/**
+	 * Checks whether the given symbol satisfies the regular expression conditions of this predicate.
+	 */
+	private boolean matchesPatterns(RankedSymbol f) {
+		if (patterns.isEmpty())
+			return true;
+		String name = nameOf(f);
+		for (Map.Entry<String,Boolean> p: patterns.entrySet())
+			if (compiled.get(p.getKey()).matcher(name).matches() != p.getValue())
+				return false;
+		return true;
+	}
+
+
+	/**
+	 * Checks whether the given symbol is described by this predicate.
+	 *
+	 * @param f symbol to be checked
+	 * @return true if and only if the given symbol has the arity of this predicate and satisfies all its conditions
+	 */
+	public boolean accepts(RankedSymbol f) {
+		if (f == null) throw new IllegalArgumentException("accepts(): f must not be null.");
+		return f.getArity() == arity
+		&& (included == null || included.contains(f))
+		&& !excluded.contains(f)
+		&& matchesPatterns(f);
+	}
+
+
+	/**
+	 * Returns the conjunction of this predicate and the given one.
+	 *
+	 * @param other predicate with the same arity as this one
+	 * @return predicate matching exactly the symbols matched by both predicates
+	 */
+	public SymbolPredicate<F> and(SymbolPredicate<F> other) {
+		if (other == null) throw new IllegalArgumentException("and(): other must not be null.");
+		if (other.arity != arity) throw new IllegalArgumentException("and(): other must have the same arity.");
+		Set<F> newIncluded;
+		if (included == null)
+			newIncluded = other.included;
+		else if (other.included == null)
+			newIncluded = included;
+		else {
+			Set<F> inter = new HashSet<F>(included);
+			inter.retainAll(other.included);
+			newIncluded = Collections.unmodifiableSet(inter);
+		}
+		Set<F> newExcluded = excluded;
+		if (!other.excluded.isEmpty()) {
+			Set<F> union = new HashSet<F>(excluded);
+			union.addAll(other.excluded);
+			newExcluded = Collections.unmodifiableSet(union);
+		}
+		if (newIncluded != null && !newExcluded.isEmpty()) {
+			// keep the excluded symbols in the included set only
+			Set<F> rest = new HashSet<F>(newIncluded);
+			rest.removeAll(newExcluded);
+			newIncluded = Collections.unmodifiableSet(rest);
+			newExcluded = Collections.<F>emptySet();
+		}
+		Map<String,Boolean> newPatterns = patterns;
+		Map<String,Pattern> newCompiled = compiled;
+		if (!other.patterns.isEmpty()) {
+			newPatterns = new TreeMap<String,Boolean>(patterns);
+			newCompiled = new TreeMap<String,Pattern>(compiled);
+			for (Map.Entry<String,Boolean> p: other.patterns.entrySet()) {
+				Boolean old = newPatterns.put(p.getKey(), p.getValue());
+				if (old != null && !old.equals(p.getValue()))
+					// contradicting conditions
+					return of(arity, Collections.<F>emptySet());
+			}
+			newCompiled.putAll(other.compiled);
+		}
+		return new SymbolPredicate<F>(arity, newIncluded, newExcluded, newPatterns, newCompiled);
+	}
+
+
+	/**
+	 * Checks whether this predicate matches no symbol. For predicates without a finite set of
+	 * symbols one of which must be matched, this is only the case if the conditions on the names
+	 * contradict each other syntactically.
+	 *
+	 * @return true if this predicate is known to match no symbol
+	 */
+	public boolean isEmpty() {
+		if (included == null)
+			return false;
+		for (F f: included)
+			if (matchesPatterns(f))
+				return false;
+		return true;
+	}
+
+
+	/**
+	 * Returns the finite set of symbols this predicate is restricted to.
+	 *
+	 * @return the symbols matched by this predicate, if it has a finite set of symbols one of which must
+	 * be matched, or null otherwise
+	 */
+	public Set<F> getSymbols() {
+		if (included == null)
+			return null;
+		if (patterns.isEmpty())
+			return included;
+		Set<F> ret = new HashSet<F>();
+		for (F f: included)
+			if (matchesPatterns(f))
+				ret.add(f);
+		return Collections.unmodifiableSet(ret);
+	}
+
+
+	/**
+	 * Returns the single conditions of this predicate, each as a predicate of its own.
+	 * Each of them can be negated by {@link #negateCondition}.
+	 *
+	 * @return the conditions of this predicate
+	 */
+	List<SymbolPredicate<F>> getConditions() {
+		List<SymbolPredicate<F>> ret = new ArrayList<SymbolPredicate<F>>();
+		if (included != null)
+			ret.add(new SymbolPredicate<F>(arity, included, Collections.<F>emptySet(), Collections.<String,Boolean>emptyMap(), Collections.<String,Pattern>emptyMap()));
+		if (!excluded.isEmpty())
+			ret.add(new SymbolPredicate<F>(arity, null, excluded, Collections.<String,Boolean>emptyMap(), Collections.<String,Pattern>emptyMap()));
+		for (Map.Entry<String,Boolean> p: patterns.entrySet())
+			ret.add(new SymbolPredicate<F>(arity, null, Collections.<F>emptySet(), Collections.singletonMap(p.getKey(), p.getValue()), Collections.singletonMap(p.getKey(), compiled.get(p.getKey()))));
+		return ret;
+	}
+
+
+	/**
+	 * Returns the negation of a predicate consisting of a single condition, as returned by
+	 * {@link #getConditions}.
+	 *
+	 * @return predicate matching exactly the symbols of the same arity not matched by this one
+	 */
+	SymbolPredicate<F> negateCondition() {
+		if (included != null)
+			return new SymbolPredicate<F>(arity, null, included, patterns, compiled);
+		if (!excluded.isEmpty())
+			return new SymbolPredicate<F>(arity, excluded, Collections.<F>emptySet(), patterns, compiled);
+		if (patterns.size() == 1) {
+			String regex = patterns.keySet().iterator().next();
+			return new SymbolPredicate<F>(arity, null, excluded, Collections.singletonMap(regex, !patterns.get(regex)), compiled);
+		}
+		throw new IllegalStateException("negateCondition(): predicate must consist of a single condition.");
+	}
+
+
+	/**
+	 * @see java.lang.Object#equals(java.lang.Object)
+	 */
+	@Override
+	public boolean equals(Object o) {
+		if (this == o)
+			return true;
+		if (!(o instanceof SymbolPredicate<?>))
+			return false;
+		SymbolPredicate<?> other = (SymbolPredicate<?>)o;
+		return arity == other.arity && hashcode == other.hashcode
+		&& (included == null ? other.included == null : included.equals(other.included))
+		&& excluded.equals(other.excluded) && patterns.equals(other.patterns);
+	}
+
+
+	/**
+	 * @see java.lang.Object#hashCode()
+	 */
+	@Override
+	public int hashCode() {
+		return hashcode;
+	}
+
+
+	/**
+	 * Returns a string representation like {a, b}/2 or !{a, b}&~"x.*"/2, where ! stands for
+	 * all symbols except the given ones and ~ and !~ for matching and not matching a regular expression.
+	 *
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		List<String> parts = new ArrayList<String>();
+		if (included != null)
+			parts.add(included.toString().replace('[', '{').replace(']', '}'));
+		if (!excluded.isEmpty())
+			parts.add("!" + excluded.toString().replace('[', '{').replace(']', '}'));
+		for (Map.Entry<String,Boolean> p: patterns.entrySet())
+			parts.add((p.getValue() ? "~\"" : "!~\"") + p.getKey() + "\"");
+		StringBuffer text = new StringBuffer();
+		for (String part: parts) {
+			if (text.length() > 0)
+				text.append("&");
+			text.append(part);
+		}
+		if (text.length() == 0)
+			text.append("*");
+		return text.append("/").append(arity).toString();
+	}
+}
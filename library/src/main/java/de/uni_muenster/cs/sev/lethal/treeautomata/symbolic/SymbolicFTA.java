@@ -0,0 +1,237 @@
+/*
+ * Copyright 2009 Dorothea Jansen <d.jansen@uni-muenster.de>, Martin Mohr <mohrfrosch@uni-muenster.de>, Irene Thesing <i_thes01@uni-muenster.de>, Anton Reis <antonreis@gmx.de>, Maria Schatz <m_scha17@uni-muenster.de>, Philipp Claves <philipp.claves@uni-muenster.de>, Sezar Jarrous <sezar.jarrous@gmail.com>
+ *
+ * This file is part of LETHAL.
+ *
+ * LETHAL is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * LETHAL is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with LETHAL.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.uni_muenster.cs.sev.lethal.treeautomata.symbolic;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import de.uni_muenster.cs.sev.lethal.states.State;
+import de.uni_muenster.cs.sev.lethal.symbol.common.RankedSymbol;
+import de.uni_muenster.cs.sev.lethal.tree.common.Tree;
+
+/**
+ * Finite tree automaton whose rules are labeled with {@link SymbolPredicate symbol predicates}
+ * instead of single symbols. A rule p(q1,...,qn) -> q can be applied to each symbol matched by p,
+ * so that an automaton over a huge or even unbounded set of symbols - like the element names of
+ * XML documents - needs only few rules. <br>
+ * The alphabet of a symbolic finite tree automaton is given by the arities of its symbols: it
+ * consists of all symbols of these arities. This matters for the completion and complementation
+ * in {@link SymbolicFTAOps}. <br>
+ * Symbolic finite tree automata are immutable.
+ *
+ * @param <F> symbol type of the finite tree automaton
+ * @param <Q> state type of the finite tree automaton
+ *
+ * @see SymbolicFTAOps
+ *
+ * @author Martin
+ */
+public class SymbolicFTA<F extends RankedSymbol, Q extends State> {
+
+	/** Arities of the symbols of the alphabet. */
+	private final Set<Integer> arities;
+
+	/** Rules of the finite tree automaton. */
+	private final Set<SymbolicFTARule<F,Q>> rules;
+
+	/** Final states of the finite tree automaton. */
+	private final Set<Q> finalStates;
+
+	/** States of the finite tree automaton. */
+	private final Set<Q> states;
+
+	/** Rules grouped by the arity of their predicates. */
+	private final Map<Integer,List<SymbolicFTARule<F,Q>>> rulesByArity = new HashMap<Integer,List<SymbolicFTARule<F,Q>>>();
+
+
+	/**
+	 * Creates a symbolic finite tree automaton from the given rules and final states.
+	 * The alphabet consists of all symbols of the arities of the predicates of the rules.
+	 *
+	 * @param rules rules of the new finite tree automaton
+	 * @param finalStates final states of the new finite tree automaton
+	 */
+	public SymbolicFTA(Collection<? extends SymbolicFTARule<F,Q>> rules, Collection<Q> finalStates) {
+		this(Collections.<Integer>emptySet(), rules, finalStates);
+	}
+
+
+	/**
+	 * Creates a symbolic finite tree automaton from the given arities, rules and final states.
+	 * The alphabet consists of all symbols of the given arities and of the arities of the
+	 * predicates of the rules.
+	 *
+	 * @param arities arities of the symbols of the alphabet
+	 * @param rules rules of the new finite tree automaton
+	 * @param finalStates final states of the new finite tree automaton
+	 */
+	public SymbolicFTA(Collection<Integer> arities, Collection<? extends SymbolicFTARule<F,Q>> rules, Collection<Q> finalStates) {
+		if (arities == null) throw new IllegalArgumentException("SymbolicFTA(): arities must not be null.");
+		if (rules == null) throw new IllegalArgumentException("SymbolicFTA(): rules must not be null.");
+		if (finalStates == null) throw new IllegalArgumentException("SymbolicFTA(): finalStates must not be null.");
+		this.arities = new TreeSet<Integer>(arities);
+		this.rules = new HashSet<SymbolicFTARule<F,Q>>(rules);
+		this.finalStates = new HashSet<Q>(finalStates);
+		this.states = new HashSet<Q>(finalStates);
+		for (SymbolicFTARule<F,Q> r: this.rules) {
+			int n = r.getPredicate().getArity();
+			this.arities.add(n);
+			if (!rulesByArity.containsKey(n))
+				rulesByArity.put(n, new ArrayList<SymbolicFTARule<F,Q>>());
+			rulesByArity.get(n).add(r);
+			states.addAll(r.getSrcStates());
+			states.add(r.getDestState());
+		}
+	}
+
+
+	/**
+	 * Returns the arities of the symbols of the alphabet.
+	 *
+	 * @return the arities of the symbols of the alphabet in ascending order
+	 */
+	public Set<Integer> getArities() {
+		return Collections.unmodifiableSet(arities);
+	}
+
+
+	/**
+	 * Returns the rules of this finite tree automaton.
+	 *
+	 * @return the rules of this finite tree automaton
+	 */
+	public Set<SymbolicFTARule<F,Q>> getRules() {
+		return Collections.unmodifiableSet(rules);
+	}
+
+
+	/**
+	 * Returns the rules of this finite tree automaton whose predicates have the given arity.
+	 *
+	 * @param arity arity of the predicates of the rules to be returned
+	 * @return the rules whose predicates have the given arity
+	 */
+	public List<SymbolicFTARule<F,Q>> getRules(int arity) {
+		List<SymbolicFTARule<F,Q>> ret = rulesByArity.get(arity);
+		if (ret == null)
+			return Collections.<SymbolicFTARule<F,Q>>emptyList();
+		return Collections.unmodifiableList(ret);
+	}
+
+
+	/**
+	 * Returns the final states of this finite tree automaton.
+	 *
+	 * @return the final states of this finite tree automaton
+	 */
+	public Set<Q> getFinalStates() {
+		return Collections.unmodifiableSet(finalStates);
+	}
+
+
+	/**
+	 * Returns the states of this finite tree automaton, that are the final states and
+	 * the states occurring in the rules.
+	 *
+	 * @return the states of this finite tree automaton
+	 */
+	public Set<Q> getStates() {
+		return Collections.unmodifiableSet(states);
+	}
+
+
+	/**
+	 * Computes the states the given tree can be reduced to. <br>
+	 * The tree is traversed iteratively, so that deep trees do not exhaust the stack.
+	 *
+	 * @param tree tree to be examined
+	 * @return the states the given tree can be reduced to
+	 */
+	public Set<Q> accessibleStates(Tree<? extends F> tree) {
+		if (tree == null) throw new IllegalArgumentException("accessibleStates(): tree must not be null.");
+		List<Tree<? extends F>> path = new ArrayList<Tree<? extends F>>();
+		List<List<Set<Q>>> childStates = new ArrayList<List<Set<Q>>>();
+		path.add(tree);
+		childStates.add(new ArrayList<Set<Q>>());
+		Set<Q> result = null;
+		while (!path.isEmpty()) {
+			int top = path.size()-1;
+			Tree<? extends F> node = path.get(top);
+			List<Set<Q>> children = childStates.get(top);
+			List<? extends Tree<? extends F>> subTrees = node.getSubTrees();
+			if (children.size() < subTrees.size()) {
+				path.add(subTrees.get(children.size()));
+				childStates.add(new ArrayList<Set<Q>>());
+				continue;
+			}
+			Set<Q> reached = new HashSet<Q>();
+			F f = node.getSymbol();
+			for (SymbolicFTARule<F,Q> r: getRules(subTrees.size())) {
+				if (!r.getPredicate().accepts(f))
+					continue;
+				boolean applicable = true;
+				for (int i=0; i<subTrees.size() && applicable; i++)
+					applicable = children.get(i).contains(r.getSrcStates().get(i));
+				if (applicable)
+					reached.add(r.getDestState());
+			}
+			path.remove(top);
+			childStates.remove(top);
+			if (top == 0)
+				result = reached;
+			else
+				childStates.get(top-1).add(reached);
+		}
+		return result;
+	}
+
+
+	/**
+	 * Decides whether the given tree is accepted by this finite tree automaton.
+	 *
+	 * @param tree tree to be examined
+	 * @return true if and only if the given tree can be reduced to a final state
+	 */
+	public boolean decide(Tree<? extends F> tree) {
+		return !Collections.disjoint(accessibleStates(tree), finalStates);
+	}
+
+
+	/**
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		StringBuffer text = new StringBuffer();
+		text.append("Arities: ").append(arities).append("\n");
+		text.append("States: ").append(states).append("\n");
+		text.append("Final states: ").append(finalStates).append("\n");
+		text.append("Rules:\n");
+		for (SymbolicFTARule<F,Q> r: rules)
+			text.append(r).append("\n");
+		return text.toString();
+	}
+}
@@ -0,0 +1,351 @@
+/*
+ * Copyright 2009 Dorothea Jansen <d.jansen@uni-muenster.de>, Martin Mohr <mohrfrosch@uni-muenster.de>, Irene Thesing <i_thes01@uni-muenster.de>, Anton Reis <antonreis@gmx.de>, Maria Schatz <m_scha17@uni-muenster.de>, Philipp Claves <philipp.claves@uni-muenster.de>, Sezar Jarrous <sezar.jarrous@gmail.com>
+ *
+ * This file is part of LETHAL.
+ *
+ * LETHAL is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * LETHAL is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with LETHAL.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.uni_muenster.cs.sev.lethal.treeautomata.symbolic;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import de.uni_muenster.cs.sev.lethal.states.NamedState;
+import de.uni_muenster.cs.sev.lethal.states.State;
+import de.uni_muenster.cs.sev.lethal.symbol.common.RankedSymbol;
+import de.uni_muenster.cs.sev.lethal.treeautomata.common.FTA;
+import de.uni_muenster.cs.sev.lethal.treeautomata.common.FTARule;
+import de.uni_muenster.cs.sev.lethal.treeautomata.generic.GenFTA;
+import de.uni_muenster.cs.sev.lethal.treeautomata.generic.GenFTARule;
+import de.uni_muenster.cs.sev.lethal.utils.Pair;
+
+/**
+ * Operations on {@link SymbolicFTA symbolic finite tree automata}. <br>
+ * <br>
+ * The operations which have to consider all symbols, like determinization and completion,
+ * do not enumerate the symbols but split the predicates of the rules into disjoint parts:
+ * The predicates applicable to a tuple of states are split along their single conditions,
+ * so that each part either lies within a predicate or is disjoint to it. Thus the number of
+ * rules of the result depends on the number of different conditions, not on the number of symbols.
+ *
+ * @author Martin
+ */
+public class SymbolicFTAOps {
+
+	/**
+	 * Converts a finite tree automaton into a symbolic one. All rules with the same source states
+	 * and destination state are combined into one rule whose predicate is the finite set of their
+	 * symbols. The arities of the alphabet of the given automaton form the alphabet of the result.
+	 *
+	 * @param <F> symbol type of the given finite tree automaton
+	 * @param <Q> state type of the given finite tree automaton
+	 * @param fta finite tree automaton to be converted
+	 * @return symbolic finite tree automaton accepting the same trees as the given one
+	 */
+	public static <F extends RankedSymbol, Q extends State> SymbolicFTA<F,Q> fromFTA(FTA<F,Q,? extends FTARule<F,Q>> fta) {
+		if (fta == null) throw new IllegalArgumentException("fromFTA(): fta must not be null.");
+		Map<Pair<List<Q>,Q>,Set<F>> symbols = new HashMap<Pair<List<Q>,Q>,Set<F>>();
+		for (FTARule<F,Q> r: fta.getRules()) {
+			Pair<List<Q>,Q> key = new Pair<List<Q>,Q>(r.getSrcStates(), r.getDestState());
+			if (!symbols.containsKey(key))
+				symbols.put(key, new HashSet<F>());
+			symbols.get(key).add(r.getSymbol());
+		}
+		List<SymbolicFTARule<F,Q>> rules = new ArrayList<SymbolicFTARule<F,Q>>();
+		for (Map.Entry<Pair<List<Q>,Q>,Set<F>> e: symbols.entrySet()) {
+			List<Q> src = e.getKey().getFirst();
+			rules.add(new SymbolicFTARule<F,Q>(SymbolPredicate.<F>of(src.size(), e.getValue()), src, e.getKey().getSecond()));
+		}
+		Set<Integer> arities = new HashSet<Integer>();
+		for (F f: fta.getAlphabet())
+			arities.add(f.getArity());
+		return new SymbolicFTA<F,Q>(arities, rules, fta.getFinalStates());
+	}
+
+
+	/**
+	 * Converts a symbolic finite tree automaton into a finite tree automaton over the given
+	 * finite alphabet. Each rule p(q1,...,qn) -> q is replaced by the rules f(q1,...,qn) -> q
+	 * for all symbols f of the alphabet matched by p.
+	 *
+	 * @param <F> symbol type of the given finite tree automaton
+	 * @param <Q> state type of the given finite tree automaton
+	 * @param fta symbolic finite tree automaton to be converted
+	 * @param alphabet symbols the result is restricted to
+	 * @return finite tree automaton which accepts the trees over the given alphabet accepted by the given one
+	 */
+	public static <F extends RankedSymbol, Q extends State> GenFTA<F,Q> toGenFTA(SymbolicFTA<F,Q> fta, Collection<F> alphabet) {
+		if (fta == null) throw new IllegalArgumentException("toGenFTA(): fta must not be null.");
+		if (alphabet == null) throw new IllegalArgumentException("toGenFTA(): alphabet must not be null.");
+		Set<F> symbols = new HashSet<F>(alphabet);
+		Map<Integer,List<F>> byArity = new HashMap<Integer,List<F>>();
+		for (F f: symbols) {
+			if (!byArity.containsKey(f.getArity()))
+				byArity.put(f.getArity(), new ArrayList<F>());
+			byArity.get(f.getArity()).add(f);
+		}
+		List<GenFTARule<F,Q>> rules = new ArrayList<GenFTARule<F,Q>>();
+		for (SymbolicFTARule<F,Q> r: fta.getRules()) {
+			Set<F> matched = r.getPredicate().getSymbols();
+			if (matched != null) {
+				for (F f: matched)
+					if (symbols.contains(f))
+						rules.add(new GenFTARule<F,Q>(f, r.getSrcStates(), r.getDestState()));
+			} else if (byArity.containsKey(r.getPredicate().getArity())) {
+				for (F f: byArity.get(r.getPredicate().getArity()))
+					if (r.getPredicate().accepts(f))
+						rules.add(new GenFTARule<F,Q>(f, r.getSrcStates(), r.getDestState()));
+			}
+		}
+		return new GenFTA<F,Q>(symbols, fta.getStates(), fta.getFinalStates(), rules);
+	}
+
+
+	/**
+	 * Splits the symbols of the given arity into disjoint predicates, such that each of them
+	 * either is contained in the predicate of a given rule or is disjoint to it.
+	 *
+	 * @param arity arity of the symbols to be split
+	 * @param rules rules whose predicates are to be respected
+	 * @return disjoint predicates covering all symbols of the given arity
+	 */
+	private static <F extends RankedSymbol, Q extends State> List<SymbolPredicate<F>> split(int arity, Collection<SymbolicFTARule<F,Q>> rules) {
+		Set<SymbolPredicate<F>> conditions = new LinkedHashSet<SymbolPredicate<F>>();
+		for (SymbolicFTARule<F,Q> r: rules)
+			conditions.addAll(r.getPredicate().getConditions());
+		List<SymbolPredicate<F>> parts = new ArrayList<SymbolPredicate<F>>();
+		parts.add(SymbolPredicate.<F>all(arity));
+		for (SymbolPredicate<F> cond: conditions) {
+			SymbolPredicate<F> neg = cond.negateCondition();
+			List<SymbolPredicate<F>> newParts = new ArrayList<SymbolPredicate<F>>();
+			for (SymbolPredicate<F> part: parts) {
+				SymbolPredicate<F> in = part.and(cond);
+				if (!in.isEmpty())
+					newParts.add(in);
+				SymbolPredicate<F> out = part.and(neg);
+				if (!out.isEmpty())
+					newParts.add(out);
+			}
+			parts = newParts;
+		}
+		return parts;
+	}
+
+
+	/**
+	 * Receives the tuples enumerated by {@link SymbolicFTAOps#forEachTuple}.
+	 */
+	private interface TupleVisitor {
+		/**
+		 * Visits a tuple.
+		 *
+		 * @param tuple visited tuple, which is reused for the next tuple
+		 */
+		void visit(int[] tuple);
+	}
+
+
+	/**
+	 * Enumerates all tuples of the given length over the numbers below <code>to</code> which
+	 * contain a number not below <code>from</code>. The empty tuple is enumerated if <code>from</code> is 0.
+	 */
+	private static void forEachTuple(int length, int from, int to, TupleVisitor visitor) {
+		int[] tuple = new int[length];
+		if (length == 0) {
+			if (from == 0)
+				visitor.visit(tuple);
+			return;
+		}
+		if (to == 0)
+			return;
+		while (true) {
+			boolean isNew = false;
+			for (int i: tuple)
+				isNew |= i >= from;
+			if (isNew)
+				visitor.visit(tuple);
+			int i = 0;
+			while (i < length && ++tuple[i] == to)
+				tuple[i++] = 0;
+			if (i == length)
+				return;
+		}
+	}
+
+
+	/**
+	 * Given a symbolic finite tree automaton, computes an equivalent deterministic one, that is
+	 * the predicates of the rules with the same source states are disjoint. <br>
+	 * <br>
+	 * Algorithm:<br>
+	 * The usual subset construction, see {@link de.uni_muenster.cs.sev.lethal.treeautomata.common.FTAOps#determinize},
+	 * but instead of considering each symbol, for each tuple of sets of states the predicates of
+	 * the applicable rules are split into disjoint parts. Each part yields one rule whose destination
+	 * state is the set of destination states of the applicable rules containing the part.
+	 *
+	 * @param <F> symbol type of the given finite tree automaton
+	 * @param <Q> state type of the given finite tree automaton
+	 * @param fta symbolic finite tree automaton to be determinized
+	 * @return deterministic symbolic finite tree automaton equivalent to the given one
+	 */
+	public static <F extends RankedSymbol, Q extends State> SymbolicFTA<F,NamedState<Set<Q>>> determinize(SymbolicFTA<F,Q> fta) {
+		if (fta == null) throw new IllegalArgumentException("determinize(): fta must not be null.");
+		return determinize(fta, false);
+	}
+
+
+	/**
+	 * Determinizes the given symbolic finite tree automaton, optionally with a state for the
+	 * empty set of states, which makes the result complete.
+	 *
+	 * @param fta symbolic finite tree automaton to be determinized
+	 * @param complete whether the result shall be complete
+	 * @return deterministic symbolic finite tree automaton equivalent to the given one
+	 */
+	private static <F extends RankedSymbol, Q extends State> SymbolicFTA<F,NamedState<Set<Q>>> determinize(final SymbolicFTA<F,Q> fta, final boolean complete) {
+		final List<Set<Q>> subsets = new ArrayList<Set<Q>>();
+		final Map<Set<Q>,NamedState<Set<Q>>> names = new HashMap<Set<Q>,NamedState<Set<Q>>>();
+		final Set<SymbolicFTARule<F,NamedState<Set<Q>>>> newRules = new HashSet<SymbolicFTARule<F,NamedState<Set<Q>>>>();
+		int from = 0;
+		do {
+			final int to = subsets.size();
+			for (final int n: fta.getArities()) {
+				forEachTuple(n, from, to, new TupleVisitor() {
+					@Override
+					public void visit(int[] tuple) {
+						List<SymbolicFTARule<F,Q>> applicable = new ArrayList<SymbolicFTARule<F,Q>>();
+						for (SymbolicFTARule<F,Q> r: fta.getRules(n)) {
+							boolean ok = true;
+							for (int i=0; i<n && ok; i++)
+								ok = subsets.get(tuple[i]).contains(r.getSrcStates().get(i));
+							if (ok)
+								applicable.add(r);
+						}
+						List<NamedState<Set<Q>>> src = new ArrayList<NamedState<Set<Q>>>(n);
+						for (int i: tuple)
+							src.add(names.get(subsets.get(i)));
+						for (SymbolPredicate<F> part: split(n, applicable)) {
+							Set<Q> dest = new HashSet<Q>();
+							for (SymbolicFTARule<F,Q> r: applicable)
+								if (!part.and(r.getPredicate()).isEmpty())
+									dest.add(r.getDestState());
+							if (dest.isEmpty() && !complete)
+								continue;
+							if (!names.containsKey(dest)) {
+								names.put(dest, new NamedState<Set<Q>>(dest));
+								subsets.add(dest);
+							}
+							newRules.add(new SymbolicFTARule<F,NamedState<Set<Q>>>(part, src, names.get(dest)));
+						}
+					}
+				});
+			}
+			from = to;
+		} while (from < subsets.size());
+
+		Set<NamedState<Set<Q>>> newFinals = new HashSet<NamedState<Set<Q>>>();
+		for (Set<Q> subset: subsets)
+			for (Q q: subset)
+				if (fta.getFinalStates().contains(q)) {
+					newFinals.add(names.get(subset));
+					break;
+				}
+		return new SymbolicFTA<F,NamedState<Set<Q>>>(fta.getArities(), newRules, newFinals);
+	}
+
+
+	/**
+	 * Given a symbolic finite tree automaton, constructs an equivalent complete one, that is
+	 * for each tuple of states and each symbol of the alphabet there is an applicable rule. <br>
+	 * <br>
+	 * Algorithm:<br>
+	 * For each tuple of states, including the new state, the predicates of the rules with these source
+	 * states are split into disjoint parts. For each part not contained in one of the predicates,
+	 * a rule to the new state is added.
+	 *
+	 * @param <F> symbol type of the given finite tree automaton
+	 * @param <Q> state type of the given finite tree automaton
+	 * @param fta symbolic finite tree automaton to be completed
+	 * @param qbot fresh state for the rules to be added
+	 * @return complete symbolic finite tree automaton equivalent to the given one
+	 */
+	public static <F extends RankedSymbol, Q extends State> SymbolicFTA<F,Q> complete(SymbolicFTA<F,Q> fta, Q qbot) {
+		if (fta == null) throw new IllegalArgumentException("complete(): fta must not be null.");
+		if (qbot == null) throw new IllegalArgumentException("complete(): qbot must not be null.");
+		final List<Q> states = new ArrayList<Q>(fta.getStates());
+		if (!fta.getStates().contains(qbot))
+			states.add(qbot);
+		final Map<List<Q>,List<SymbolicFTARule<F,Q>>> bySrc = new HashMap<List<Q>,List<SymbolicFTARule<F,Q>>>();
+		for (SymbolicFTARule<F,Q> r: fta.getRules()) {
+			if (!bySrc.containsKey(r.getSrcStates()))
+				bySrc.put(r.getSrcStates(), new ArrayList<SymbolicFTARule<F,Q>>());
+			bySrc.get(r.getSrcStates()).add(r);
+		}
+		final Set<SymbolicFTARule<F,Q>> newRules = new HashSet<SymbolicFTARule<F,Q>>(fta.getRules());
+		final Q bot = qbot;
+		for (final int n: fta.getArities()) {
+			forEachTuple(n, 0, states.size(), new TupleVisitor() {
+				@Override
+				public void visit(int[] tuple) {
+					List<Q> src = new ArrayList<Q>(n);
+					for (int i: tuple)
+						src.add(states.get(i));
+					List<SymbolicFTARule<F,Q>> rules = bySrc.get(src);
+					if (rules == null)
+						rules = new ArrayList<SymbolicFTARule<F,Q>>();
+					for (SymbolPredicate<F> part: split(n, rules)) {
+						boolean covered = false;
+						for (SymbolicFTARule<F,Q> r: rules)
+							if (!part.and(r.getPredicate()).isEmpty()) {
+								covered = true;
+								break;
+							}
+						if (!covered)
+							newRules.add(new SymbolicFTARule<F,Q>(part, src, bot));
+					}
+				}
+			});
+		}
+		return new SymbolicFTA<F,Q>(fta.getArities(), newRules, fta.getFinalStates());
+	}
+
+
+	/**
+	 * Given a symbolic finite tree automaton, constructs a symbolic finite tree automaton which
+	 * accepts exactly the trees over the symbols of the alphabet arities that are not accepted
+	 * by the given one. <br>
+	 * <br>
+	 * Algorithm:<br>
+	 * The automaton is determinized with a state for the empty set of states, which makes it
+	 * complete, and the final states are inverted.
+	 *
+	 * @param <F> symbol type of the given finite tree automaton
+	 * @param <Q> state type of the given finite tree automaton
+	 * @param fta symbolic finite tree automaton to be complemented
+	 * @return symbolic finite tree automaton accepting the complement of the language of the given one
+	 */
+	public static <F extends RankedSymbol, Q extends State> SymbolicFTA<F,NamedState<Set<Q>>> complement(SymbolicFTA<F,Q> fta) {
+		if (fta == null) throw new IllegalArgumentException("complement(): fta must not be null.");
+		SymbolicFTA<F,NamedState<Set<Q>>> det = determinize(fta, true);
+		Set<NamedState<Set<Q>>> finals = new HashSet<NamedState<Set<Q>>>(det.getStates());
+		finals.removeAll(det.getFinalStates());
+		return new SymbolicFTA<F,NamedState<Set<Q>>>(det.getArities(), det.getRules(), finals);
+	}
+}
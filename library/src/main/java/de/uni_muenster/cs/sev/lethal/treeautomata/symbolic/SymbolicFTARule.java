@@ -0,0 +1,145 @@
+/*
+ * Copyright 2009 Dorothea Jansen <d.jansen@uni-muenster.de>, Martin Mohr <mohrfrosch@uni-muenster.de>, Irene Thesing <i_thes01@uni-muenster.de>, Anton Reis <antonreis@gmx.de>, Maria Schatz <m_scha17@uni-muenster.de>, Philipp Claves <philipp.claves@uni-muenster.de>, Sezar Jarrous <sezar.jarrous@gmail.com>
+ *
+ * This file is part of LETHAL.
+ *
+ * LETHAL is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * LETHAL is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with LETHAL.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.uni_muenster.cs.sev.lethal.treeautomata.symbolic;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import de.uni_muenster.cs.sev.lethal.states.State;
+import de.uni_muenster.cs.sev.lethal.symbol.common.RankedSymbol;
+
+/**
+ * Rule p(q1,...,qn) -> q of a {@link SymbolicFTA}, which can be applied to every symbol
+ * matched by the predicate p.
+ *
+ * @param <F> symbol type of the rule
+ * @param <Q> state type of the rule
+ *
+ * @author Martin
+ */
+public class SymbolicFTARule<F extends RankedSymbol, Q extends State> {
+
+	/** Predicate p of the rule p(q1,...,qn) -> q. */
+	private final SymbolPredicate<F> predicate;
+
+	/** Source states q1,...,qn of the rule p(q1,...,qn) -> q. */
+	private final List<Q> srcStates;
+
+	/** Destination state q of the rule p(q1,...,qn) -> q. */
+	private final Q destState;
+
+	/** Hash code, computed once since rules are immutable. */
+	private final int hashcode;
+
+
+	/**
+	 * Constructs a rule from the given predicate, source states and destination state.
+	 *
+	 * @param predicate predicate of the symbols the rule can be applied to
+	 * @param srcStates source states of the rule
+	 * @param destState destination state of the rule
+	 */
+	public SymbolicFTARule(SymbolPredicate<F> predicate, List<Q> srcStates, Q destState) {
+		if (predicate == null) throw new IllegalArgumentException("SymbolicFTARule(): predicate must not be null.");
+		if (srcStates == null) throw new IllegalArgumentException("SymbolicFTARule(): srcStates must not be null.");
+		if (destState == null) throw new IllegalArgumentException("SymbolicFTARule(): destState must not be null.");
+		if (predicate.getArity() != srcStates.size()) throw new IllegalArgumentException("SymbolicFTARule(): Length of srcStates must be the arity of the predicate.");
+		for (State s: srcStates)
+			if (s == null) throw new IllegalArgumentException("SymbolicFTARule(): States must not be null.");
+		this.predicate = predicate;
+		this.srcStates = new ArrayList<Q>(srcStates);
+		this.destState = destState;
+		this.hashcode = 31*(31*predicate.hashCode() + this.srcStates.hashCode()) + destState.hashCode();
+	}
+
+
+	/**
+	 * Returns the predicate of the symbols this rule can be applied to.
+	 *
+	 * @return the predicate of this rule
+	 */
+	public SymbolPredicate<F> getPredicate() {
+		return predicate;
+	}
+
+
+	/**
+	 * Returns the source states of this rule.
+	 *
+	 * @return the source states of this rule
+	 */
+	public List<Q> getSrcStates() {
+		return Collections.unmodifiableList(srcStates);
+	}
+
+
+	/**
+	 * Returns the destination state of this rule.
+	 *
+	 * @return the destination state of this rule
+	 */
+	public Q getDestState() {
+		return destState;
+	}
+
+
+	/**
+	 * @see java.lang.Object#equals(java.lang.Object)
+	 */
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (!(obj instanceof SymbolicFTARule<?,?>))
+			return false;
+		SymbolicFTARule<?,?> other = (SymbolicFTARule<?,?>)obj;
+		return hashcode == other.hashcode && predicate.equals(other.predicate)
+		&& srcStates.equals(other.srcStates) && destState.equals(other.destState);
+	}
+
+
+	/**
+	 * @see java.lang.Object#hashCode()
+	 */
+	@Override
+	public int hashCode() {
+		return hashcode;
+	}
+
+
+	/**
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		StringBuffer buffer = new StringBuffer(predicate.toString());
+		if (!srcStates.isEmpty()) {
+			buffer.append('(');
+			boolean first = true;
+			for (State state: srcStates) {
+				if (!first) buffer.append(',');
+				buffer.append(state.toString());
+				first = false;
+			}
+			buffer.append(')');
+		}
+		return buffer.append(" -> ").append(destState).toString();
+	}
+}
@@ -18,17 +18,24 @@
  */
 package de.uni_muenster.cs.sev.lethal.treetransducer;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
 
 import de.uni_muenster.cs.sev.lethal.states.State;
 import de.uni_muenster.cs.sev.lethal.symbol.common.BiSymbol;
 import de.uni_muenster.cs.sev.lethal.symbol.common.RankedSymbol;
 import de.uni_muenster.cs.sev.lethal.symbol.common.Variable;
 import de.uni_muenster.cs.sev.lethal.tree.common.Tree;
+import de.uni_muenster.cs.sev.lethal.tree.common.TreeCreator;
+import de.uni_muenster.cs.sev.lethal.tree.common.TreeFolder;
 import de.uni_muenster.cs.sev.lethal.tree.common.TreeOps;
 import de.uni_muenster.cs.sev.lethal.tree.common.VarTreeOps;
 import de.uni_muenster.cs.sev.lethal.tree.standard.StdTreeCreator;
@@ -39,7 +46,8 @@ import de.uni_muenster.cs.sev.lethal.treeautomata.common.FTAOps;
 import de.uni_muenster.cs.sev.lethal.treeautomata.common.FTARule;
 import de.uni_muenster.cs.sev.lethal.treeautomata.generic.GenFTA;
 import de.uni_muenster.cs.sev.lethal.treeautomata.generic.GenFTARule;
-import de.uni_muenster.cs.sev.lethal.utils.Combinator;
+import de.uni_muenster.cs.sev.lethal.utils.BatchEvaluator;
+import de.uni_muenster.cs.sev.lethal.utils.Converter;
 import de.uni_muenster.cs.sev.lethal.utils.Pair;
 
 
@@ -233,125 +241,257 @@ implements FTA<F,TTState<Q,G>,TTRule<F,G,Q>>{
 	/**
 	 * Checks whether the tree transducer accepts a given tree. <br>
 	 * It works equivalent to the corresponding procedure at automatons,
-	 * it uses the doARun function.
+	 * it uses the output forest of the tree, without building any output tree.
 	 *
 	 * @param tree tree to check whether the tree transducer will accept it
 	 * @return whether a tree is accepted by the tree transducer
 	 */
 	public boolean decide(Tree<F> tree){
-		return !doARun(tree).isEmpty();
+		return !outputForest(tree).isEmpty();
 	}
 
 	/**
 	 * Checks which trees are gained by transducing an given input tree.<br>
-	 * The method works recursively on the given tree, it is similar to the method
+	 * The method works on the given tree bottom-up, it is similar to the method
 	 * in the class {@link FTAOps}. Additionally trees are constructed
-	 * by applying the tree transducer rules.
+	 * by applying the tree transducer rules. <br>
+	 * The trees are the set view {@link OutputForest#toSet()} of the output forest of the tree.
+	 * If the tree transducer is deterministic, the only tree is computed by {@link #transduce}
+	 * instead.
 	 *
 	 * @param tree input tree that is to be transduced
 	 * @return the transduced trees where the tree transducer accepts the tree
+	 * @see #outputForest
 	 */
 	public Set<Tree<G>> doARun(Tree<F> tree){
-		if (!startAlphabet.containsAll(TreeOps.getAllContainedSymbols(tree))){
-			//throw new IllegalArgumentException("tree must have the same alphabet as the start alphabet of this tree transducer");
-			return new HashSet<Tree<G>>();
+		if (isDeterministic()){
+			Set<Tree<G>> ret = new HashSet<Tree<G>>();
+			Tree<G> out = transduce(tree);
+			if (out != null)
+				ret.add(out);
+			return ret;
 		}
-		Set<Tree<G>> ret = new HashSet<Tree<G>>();
-
-		//compute accessible states
-		Set<Pair<Q,Tree<G>>> accStates = accessibleStates(tree);
-		//check if there is a final state
-		for (Pair<Q,Tree<G>> pair: accStates){
-			if (this.getFinalStates().contains(new TTState<Q,G>(pair.getFirst()))){
-				ret.add(pair.getSecond());
+		return outputForest(tree).toSet();
+	}
+
+
+	/**
+	 * Computes the packed representation of the trees gained by transducing a given input tree,
+	 * from which the trees can be counted, enumerated and drawn without building all of them. <br>
+	 * The forest has a node for each subtree of the input and each state reachable there,
+	 * its roots are the nodes of the whole tree in the final states.
+	 *
+	 * @param tree input tree that is to be transduced
+	 * @return the output forest of the transduced trees where the tree transducer accepts the tree
+	 * @see OutputForest
+	 */
+	public OutputForest<G> outputForest(Tree<F> tree){
+		List<OutputForest.Node<G>> roots = new LinkedList<OutputForest.Node<G>>();
+		if (startAlphabet.containsAll(TreeOps.getAllContainedSymbols(tree))){
+			for (Map.Entry<Q,OutputForest.Node<G>> entry: forestNodes(tree).entrySet()){
+				if (finalStates.contains(new TTState<Q,G>(entry.getKey())))
+					roots.add(entry.getValue());
 			}
 		}
+		return new OutputForest<G>(roots);
+	}
 
-		return ret;
+
+	/**
+	 * Transduces a given input tree with a deterministic tree transducer. <br>
+	 * Since each subtree has at most one run, the states are computed in a single bottom-up
+	 * pass by a {@link TreeFolder}, looking up the rule of each node from the states of its
+	 * subtrees in the index of the rules. Then the output is built top-down from the rules
+	 * of the run, descending only into the subtrees whose variables occur in the rules, so
+	 * that no output is built for subtrees which are deleted.
+	 *
+	 * @param tree input tree that is to be transduced
+	 * @return the only transduced tree, or null if the tree transducer does not accept the tree
+	 * @throws IllegalStateException if the tree transducer is not deterministic
+	 * @see #isDeterministic()
+	 */
+	public Tree<G> transduce(Tree<F> tree){
+		if (tree == null) throw new IllegalArgumentException("transduce(): tree must not be null.");
+		if (!isDeterministic())
+			throw new IllegalStateException("transduce(): the tree transducer must be deterministic.");
+		Run<Q,G> run = new TreeFolder<F,Run<Q,G>>() {
+			@Override
+			protected Run<Q,G> combine(Tree<? extends F> node, List<Run<Q,G>> subRuns) {
+				List<Q> subStates = new ArrayList<Q>(subRuns.size());
+				for (Run<Q,G> sub: subRuns){
+					// a subtree without run
+					if (sub == null)
+						return null;
+					subStates.add(sub.rule.getState());
+				}
+				TTState<Q,G> rule = rules.findDestState(node.getSymbol(), subStates);
+				return rule == null ? null : new Run<Q,G>(rule, subRuns);
+			}
+		}.fold(tree);
+		if (run == null || !finalStates.contains(new TTState<Q,G>(run.rule.getState())))
+			return null;
+		return run.output(new StdTreeCreator<G>());
 	}
 
 
 	/**
-	 * Given a set of pairs of State and InputTree, collects all inputTrees
-	 * that are the second parameter of a pair where the first parameter is equal to
-	 * the given state q.
+	 * Run of a deterministic tree transducer on a tree, i.e. the applied rule at each node.
 	 *
-	 * @param set set of pairs of state and input tree
-	 * @param state the state which is to be the first parameter of collected pairs
-	 * @return all trees t where (q,t) is in set
+	 * @param <Q> type of used states
+	 * @param <G> type of symbols of the destination alphabet
 	 */
-	private Set<Tree<G>> contained(Set<Pair<Q,Tree<G>>> set, Q state){
-		Set<Tree<G>> ret = new HashSet<Tree<G>>();
-		for (Pair<Q,Tree<G>> pair: set){
-			if (pair.getFirst().equals(state)){
-				ret.add(pair.getSecond());
+	private static final class Run<Q extends State, G extends RankedSymbol> {
+
+		/** Right hand side of the rule applied at the node. */
+		private final TTState<Q,G> rule;
+
+		/** Runs on the subtrees of the node. */
+		private final List<Run<Q,G>> subRuns;
+
+
+		private Run(TTState<Q,G> rule, List<Run<Q,G>> subRuns) {
+			this.rule = rule;
+			this.subRuns = subRuns.isEmpty() ? Collections.<Run<Q,G>>emptyList() : new ArrayList<Run<Q,G>>(subRuns);
+		}
+
+
+		/**
+		 * Builds the output of this run. The runs whose outputs are used are visited in
+		 * post-order with an explicit stack, so the run may be arbitrarily deep.
+		 */
+		private Tree<G> output(TreeCreator<G,Tree<G>> tc) {
+			List<Run<Q,G>> path = new ArrayList<Run<Q,G>>();
+			List<List<Integer>> vars = new ArrayList<List<Integer>>();
+			List<List<Tree<G>>> outputs = new ArrayList<List<Tree<G>>>();
+			path.add(this);
+			vars.add(this.usedVariables());
+			outputs.add(new ArrayList<Tree<G>>(Collections.<Tree<G>>nCopies(subRuns.size(), null)));
+			while (true) {
+				int top = path.size()-1;
+				Run<Q,G> run = path.get(top);
+				List<Integer> todo = vars.get(top);
+				if (!todo.isEmpty()) {
+					Run<Q,G> sub = run.subRuns.get(todo.get(todo.size()-1));
+					path.add(sub);
+					vars.add(sub.usedVariables());
+					outputs.add(new ArrayList<Tree<G>>(Collections.<Tree<G>>nCopies(sub.subRuns.size(), null)));
+					continue;
+				}
+				Tree<G> out = VarTreeOps.replaceVariables(run.rule.getVarTree(), outputs.get(top), tc);
+				path.remove(top);
+				vars.remove(top);
+				outputs.remove(top);
+				if (top == 0)
+					return out;
+				List<Integer> parentTodo = vars.get(top-1);
+				outputs.get(top-1).set(parentTodo.remove(parentTodo.size()-1), out);
 			}
 		}
-		return ret;
+
+
+		/**
+		 * Returns the numbers of the variables occurring in the rule of this run.
+		 */
+		private List<Integer> usedVariables() {
+			List<Integer> ret = new ArrayList<Integer>();
+			if (subRuns.isEmpty())
+				return ret;
+			for (Variable x: VarTreeOps.getVariables(rule.getVarTree()))
+				ret.add(x.getComponentNumber());
+			return ret;
+		}
+	}
+
+
+	/**
+	 * Transduces each of the given input trees, like {@link #doARun}. The trees are
+	 * transduced in parallel on the common {@link java.util.concurrent.ForkJoinPool}.
+	 *
+	 * @param trees input trees that are to be transduced
+	 * @return for each given tree in the same order, the transduced trees
+	 * @see #batchRunner
+	 */
+	public List<Set<Tree<G>>> doARunAll(Iterable<? extends Tree<F>> trees) {
+		return batchRunner(null).evaluateAll(trees);
 	}
 
+
+	/**
+	 * Returns an evaluator which transduces many input trees in parallel, like {@link #doARun}.
+	 * Besides returning the results in order, the evaluator can hand them out as soon as they
+	 * are available and reports its throughput.<br>
+	 * The tree transducer must not be modified while the evaluator is used.
+	 *
+	 * @param executor executor the trees are transduced on, null for the common
+	 * {@link java.util.concurrent.ForkJoinPool}
+	 * @return an evaluator which transduces input trees with this tree transducer
+	 */
+	public BatchEvaluator<Tree<F>,Set<Tree<G>>> batchRunner(ExecutorService executor) {
+		return new BatchEvaluator<Tree<F>,Set<Tree<G>>>(new Converter<Tree<F>,Set<Tree<G>>>() {
+			@Override
+			public Set<Tree<G>> convert(Tree<F> tree) {
+				return doARun(tree);
+			}
+		}, executor, BatchEvaluator.DFLT_CHUNK_SIZE);
+	}
+
+
 	/**
 	 * Method which is used for the decide-method to get all states
 	 * which can be reached with a given tree. It does not matter whether
 	 * it is a final state or not. <br>
-	 * Algorithm:<br>
-	 * The method works recursively on the tree, first it is applied to all subtrees.
-	 * Having collected the accessible states for the subtrees, all rules are collected
-	 * which can be applied. Then the transduced tree is computed from the right side of the rule
-	 * and state and tree are stored in a set which is, at last, returned.
+	 * The pairs are read off the nodes of the output forest of the tree in the reachable states.
 	 *
 	 * @param t tree, input for the tree automaton, should be an input tree
 	 * @return the set of reachable states and reached trees of destination alphabet
 	 */
 	public Set<Pair<Q,Tree<G>>> accessibleStates(Tree<F> t) {
-		List<Set<Pair<Q,Tree<G>>>> subStates = new LinkedList<Set<Pair<Q,Tree<G>>>>();
 		Set<Pair<Q,Tree<G>>> ret = new HashSet<Pair<Q,Tree<G>>>();
-
-		// get states and trees of the subtrees
-		for (Tree<F> sub: t.getSubTrees()){
-			subStates.add(this.accessibleStates(sub));
+		for (Map.Entry<Q,OutputForest.Node<G>> entry: forestNodes(t).entrySet()){
+			for (Tree<G> tree: new OutputForest<G>(Collections.singletonList(entry.getValue())).toSet())
+				ret.add(new Pair<Q,Tree<G>>(entry.getKey(), tree));
 		}
+		return ret;
+	}
 
-		F f = t.getSymbol();
-		int n = f.getArity();
-		// checks whether there are some fitting states for the rules, breaks otherwise
-		boolean someFittingRules = true;
-
-		// for every rule look if there must be added something (or something more)
-		for (List<TTState<Q,G>> ruleStates: this.rules.getSymbolRules(f).keySet()){
-			// for all accessible states
-			Collection<TTState<Q,G>> destStates = rules.getDestStates(f, ruleStates);
-			for (TTState<Q,G> q: destStates){
-				// get the variable trees to insert the sub tree things
-				Tree<BiSymbol<G,Variable>> varTree = q.getVarTree();
-				// build subtrees things
-				LinkedList<Set<Tree<G>>> treesToInsert = new LinkedList<Set<Tree<G>>>();
-
-				for (int i = 0; i<n; i++){
-					// accessible Input {t_ji, j runs}
-					Set<Tree<G>> allTreesWithStatei = contained(subStates.get(i),ruleStates.get(i).getState());
-
-					//break if there is nothing
-					if (allTreesWithStatei.isEmpty()){
-						someFittingRules = false;
-						break;
-					}
-					treesToInsert.add(allTreesWithStatei);
-				}
 
-				if (!someFittingRules){
-					someFittingRules = true;
-					break;
-				} else {
-					for (List<Tree<G>> replaceTrees: Combinator.cartesianProduct(treesToInsert)){
-						// build tree for output
-						Tree<G> functionTree = VarTreeOps.replaceVariables(varTree,replaceTrees, new StdTreeCreator<G>());
-						ret.add(new Pair<Q,Tree<G>>(q.getState(),functionTree));
+	/**
+	 * Builds the nodes of the output forest of a given tree. <br>
+	 * Algorithm:<br>
+	 * The method works bottom-up on the tree, the tree is traversed by a {@link TreeFolder},
+	 * so it may be arbitrarily deep. Having computed the nodes of the subtrees in their
+	 * reachable states, for every rule whose left hand side states are reachable in the
+	 * subtrees, the right hand side of the rule together with these nodes is added to
+	 * the node of the destination state of the rule.
+	 *
+	 * @param t input tree
+	 * @return for each state reachable with the tree, the node of the output forest of the tree in this state
+	 */
+	private Map<Q,OutputForest.Node<G>> forestNodes(Tree<F> t) {
+		return new TreeFolder<F,Map<Q,OutputForest.Node<G>>>() {
+			@Override
+			protected Map<Q,OutputForest.Node<G>> combine(Tree<? extends F> node, List<Map<Q,OutputForest.Node<G>>> subNodes) {
+				Map<Q,OutputForest.Node<G>> ret = new HashMap<Q,OutputForest.Node<G>>();
+				List<Set<Q>> subStates = new ArrayList<Set<Q>>(subNodes.size());
+				for (Map<Q,OutputForest.Node<G>> sub: subNodes)
+					subStates.add(sub.keySet());
+				for (Pair<List<TTState<Q,G>>,Set<TTState<Q,G>>> rule: rules.getMatchingRules(node.getSymbol(), subStates)){
+					List<TTState<Q,G>> ruleStates = rule.getFirst();
+					List<OutputForest.Node<G>> children = new ArrayList<OutputForest.Node<G>>(ruleStates.size());
+					for (int i = 0; i<ruleStates.size(); i++)
+						children.add(subNodes.get(i).get(ruleStates.get(i).getState()));
+					for (TTState<Q,G> q: rule.getSecond()){
+						OutputForest.Node<G> dest = ret.get(q.getState());
+						if (dest == null){
+							dest = new OutputForest.Node<G>();
+							ret.put(q.getState(), dest);
+						}
+						dest.add(q.getVarTree(), children);
 					}
 				}
+				return ret;
 			}
-		}
-		return ret;
+		}.fold(t);
 	}
 
 	/**
@@ -421,6 +561,18 @@ implements FTA<F,TTState<Q,G>,TTRule<F,G,Q>>{
 	}
 
 
+	/**
+	 * Checks whether the tree transducer is deterministic, i.e. for each symbol and source states
+	 * there is at most one rule. Then every tree has at most one run and at most one output,
+	 * which {@link #doARun} computes by {@link #transduce}.
+	 *
+	 * @return true if and only if for each left hand side there is at most one rule
+	 */
+	public boolean isDeterministic(){
+		return rules.isDeterministic();
+	}
+
+
 	/**
 	 * A part of the functionality of a tree transducer is the same as the one of a finite tree automaton.
 	 * Thus such a corresponding the finite tree automaton can be obtained from the transducer by
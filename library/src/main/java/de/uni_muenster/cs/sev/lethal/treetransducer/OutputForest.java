@@ -0,0 +1,410 @@
+/*
+ * Copyright 2009 Dorothea Jansen <d.jansen@uni-muenster.de>, Martin Mohr <mohrfrosch@uni-muenster.de>, Irene Thesing <i_thes01@uni-muenster.de>, Anton Reis <antonreis@gmx.de>, Maria Schatz <m_scha17@uni-muenster.de>, Philipp Claves <philipp.claves@uni-muenster.de>, Sezar Jarrous <sezar.jarrous@gmail.com>
+ *
+ * This file is part of LETHAL.
+ *
+ * LETHAL is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * LETHAL is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with LETHAL.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.uni_muenster.cs.sev.lethal.treetransducer;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import java.util.Set;
+
+import de.uni_muenster.cs.sev.lethal.symbol.common.BiSymbol;
+import de.uni_muenster.cs.sev.lethal.symbol.common.RankedSymbol;
+import de.uni_muenster.cs.sev.lethal.symbol.common.Variable;
+import de.uni_muenster.cs.sev.lethal.tree.common.Tree;
+import de.uni_muenster.cs.sev.lethal.tree.common.TreeCreator;
+import de.uni_muenster.cs.sev.lethal.tree.common.VarTreeOps;
+import de.uni_muenster.cs.sev.lethal.tree.standard.StdTreeCreator;
+import de.uni_muenster.cs.sev.lethal.utils.Combinator;
+
+/**
+ * Packed representation of the trees a tree transducer produces from an input tree. <br>
+ * <br>
+ * A nondeterministic tree transducer may produce exponentially many trees from one input tree,
+ * but they share their parts: the trees produced in state q from a subtree of the input are
+ * the same whichever rule uses them. Hence the output forest has one node per subtree of the
+ * input and state, and each such node lists the rules applicable there, each with the right
+ * hand side of the rule and the nodes of the subtrees whose outputs are inserted for its
+ * variables. This is a regular tree grammar with one nonterminal per node; its size is
+ * linear in the size of the input tree and the number of rules, not in the number of outputs. <br>
+ * <br>
+ * The outputs are not built unless asked for. A derivation chooses one rule at each node
+ * which is reached, and yields one output tree. The derivations are numbered, so that they can
+ * be counted, enumerated lazily ({@link #iterator}), accessed by their number ({@link #get}) and
+ * drawn uniformly ({@link #sample}). Different derivations may yield the same tree if the
+ * transducer is ambiguous, for example if a rule deletes a subtree which can be translated in
+ * several ways. {@link #toSet} returns the set of the different output trees, like
+ * {@link GenTT#doARun}; it is computed once per node and shared between the nodes using it. <br>
+ * An output forest may be used by several threads at once, except for {@link #toSet}.
+ *
+ * @param <G> type of symbols of the output trees
+ *
+ * @see GenTT#outputForest
+ *
+ * @author Martin
+ */
+public class OutputForest<G extends RankedSymbol> implements Iterable<Tree<G>> {
+
+	/**
+	 * Node of an output forest, i.e. the outputs of a subtree of the input in a state.
+	 *
+	 * @param <G> type of symbols of the output trees
+	 */
+	static final class Node<G extends RankedSymbol> {
+
+		/** Rules applicable at this node. */
+		private final List<Alternative<G>> alternatives = new ArrayList<Alternative<G>>();
+
+		/** Number of derivations of this node. */
+		private BigInteger count = BigInteger.ZERO;
+
+		/** Different output trees of this node, computed by {@link OutputForest#toSet}. */
+		private Set<Tree<G>> trees;
+
+
+		/**
+		 * Adds an applicable rule to this node. The outputs of the given nodes must be complete.
+		 *
+		 * @param varTree right hand side of the rule
+		 * @param subNodes nodes of the subtrees of the input, in the states of the left hand side of the rule
+		 */
+		void add(Tree<BiSymbol<G,Variable>> varTree, List<Node<G>> subNodes) {
+			Alternative<G> alt = new Alternative<G>(varTree, subNodes);
+			alternatives.add(alt);
+			count = count.add(alt.count);
+		}
+
+
+		/**
+		 * Returns the nodes whose outputs are used by the rules of this node.
+		 *
+		 * @return the nodes whose outputs are used by the rules of this node
+		 */
+		private List<Node<G>> successors() {
+			List<Node<G>> ret = new ArrayList<Node<G>>();
+			for (Alternative<G> alt: alternatives)
+				ret.addAll(Arrays.asList(alt.children));
+			return ret;
+		}
+	}
+
+
+	/**
+	 * Rule applied at a node of an output forest.
+	 *
+	 * @param <G> type of symbols of the output trees
+	 */
+	private static final class Alternative<G extends RankedSymbol> {
+
+		/** Right hand side of the rule. */
+		private final Tree<BiSymbol<G,Variable>> varTree;
+
+		/** Number of subtrees of the input. */
+		private final int arity;
+
+		/** Numbers of the variables occurring in the right hand side, in ascending order. */
+		private final int[] vars;
+
+		/** For each variable occurring in the right hand side, the node of the corresponding subtree. */
+		private final Node<G>[] children;
+
+		/** Number of derivations using this rule, i.e. the product of the numbers of the children. */
+		private final BigInteger count;
+
+
+		private Alternative(Tree<BiSymbol<G,Variable>> varTree, List<Node<G>> subNodes) {
+			this.varTree = varTree;
+			this.arity = subNodes.size();
+			// subtrees which are deleted by the rule do not contribute to the outputs
+			Set<Integer> occurring = new HashSet<Integer>();
+			for (Variable x: VarTreeOps.getVariables(varTree))
+				occurring.add(x.getComponentNumber());
+			List<Integer> numbers = new ArrayList<Integer>(occurring);
+			Collections.sort(numbers);
+			vars = new int[numbers.size()];
+			children = newNodes(numbers.size());
+			BigInteger c = BigInteger.ONE;
+			for (int i=0; i<vars.length; i++) {
+				vars[i] = numbers.get(i);
+				children[i] = subNodes.get(vars[i]);
+				c = c.multiply(children[i].count);
+			}
+			count = c;
+		}
+
+
+		/**
+		 * Creates an array of nodes of the given length.
+		 */
+		private Node<G>[] newNodes(int length) {
+			@SuppressWarnings("unchecked")
+			Node<G>[] ret = (Node<G>[]) new Node<?>[length];
+			return ret;
+		}
+
+
+		/**
+		 * Builds the output tree of this rule from the output trees of its children.
+		 */
+		private Tree<G> build(List<Tree<G>> childTrees, TreeCreator<G,Tree<G>> tc) {
+			List<Tree<G>> replaceTrees = new ArrayList<Tree<G>>(Collections.<Tree<G>>nCopies(arity, null));
+			for (int i=0; i<vars.length; i++)
+				replaceTrees.set(vars[i], childTrees.get(i));
+			return VarTreeOps.replaceVariables(varTree, replaceTrees, tc);
+		}
+	}
+
+
+	/** Nodes whose outputs are the outputs of this forest. */
+	private final List<Node<G>> roots;
+
+	/** Number of derivations of this forest. */
+	private final BigInteger count;
+
+	/** Creates the output trees. */
+	private final TreeCreator<G,Tree<G>> tc = new StdTreeCreator<G>();
+
+
+	/**
+	 * Creates an output forest whose outputs are the outputs of the given nodes.
+	 *
+	 * @param roots nodes whose outputs are the outputs of the forest
+	 */
+	OutputForest(List<Node<G>> roots) {
+		this.roots = new ArrayList<Node<G>>(roots);
+		BigInteger c = BigInteger.ZERO;
+		for (Node<G> root: roots)
+			c = c.add(root.count);
+		count = c;
+	}
+
+
+	/**
+	 * Returns whether the forest has no outputs, i.e. whether the input tree is not accepted.
+	 *
+	 * @return whether the forest has no outputs
+	 */
+	public boolean isEmpty() {
+		return count.signum() == 0;
+	}
+
+
+	/**
+	 * Returns the number of derivations of the forest. This is the number of output trees,
+	 * counted with the number of ways they can be produced. <br>
+	 * It is computed while the forest is built, so this takes constant time.
+	 *
+	 * @return the number of derivations of the forest
+	 */
+	public BigInteger count() {
+		return count;
+	}
+
+
+	/**
+	 * Returns the output tree of the derivation with the given number.
+	 *
+	 * @param index number of the derivation, between 0 and {@link #count()}-1
+	 * @return the output tree of the derivation with the given number
+	 */
+	public Tree<G> get(BigInteger index) {
+		if (index == null) throw new IllegalArgumentException("get(): index must not be null.");
+		if (index.signum() < 0 || index.compareTo(count) >= 0)
+			throw new IndexOutOfBoundsException("get(): index " + index + " is not below " + count + ".");
+		BigInteger rest = index;
+		for (Node<G> root: roots) {
+			if (rest.compareTo(root.count) < 0)
+				return build(root, rest);
+			rest = rest.subtract(root.count);
+		}
+		throw new IllegalStateException();
+	}
+
+
+	/**
+	 * Builds the output tree of the derivation of a node with the given number.<br>
+	 * <br>
+	 * Algorithm:<br>
+	 * The number selects the rule at the node, the rest of it is split into the numbers of
+	 * the derivations of the children like the digits of a number with mixed radices. The
+	 * output tree is built bottom-up, with an explicit stack, since the output may be as deep
+	 * as the input tree.
+	 */
+	private Tree<G> build(Node<G> node, BigInteger index) {
+		List<Alternative<G>> alts = new ArrayList<Alternative<G>>();
+		List<BigInteger[]> indices = new ArrayList<BigInteger[]>();
+		List<List<Tree<G>>> built = new ArrayList<List<Tree<G>>>();
+		push(node, index, alts, indices, built);
+		while (true) {
+			int top = alts.size()-1;
+			Alternative<G> alt = alts.get(top);
+			List<Tree<G>> childTrees = built.get(top);
+			int i = childTrees.size();
+			if (i < alt.children.length) {
+				push(alt.children[i], indices.get(top)[i], alts, indices, built);
+				continue;
+			}
+			Tree<G> tree = alt.build(childTrees, tc);
+			alts.remove(top);
+			indices.remove(top);
+			built.remove(top);
+			if (top == 0)
+				return tree;
+			built.get(top-1).add(tree);
+		}
+	}
+
+
+	/**
+	 * Selects the rule of the derivation of a node with the given number and puts it on the stack.
+	 */
+	private static <G extends RankedSymbol> void push(Node<G> node, BigInteger index,
+			List<Alternative<G>> alts, List<BigInteger[]> indices, List<List<Tree<G>>> built) {
+		BigInteger rest = index;
+		for (Alternative<G> alt: node.alternatives) {
+			if (rest.compareTo(alt.count) >= 0) {
+				rest = rest.subtract(alt.count);
+				continue;
+			}
+			BigInteger[] childIndices = new BigInteger[alt.children.length];
+			for (int i=0; i<childIndices.length; i++) {
+				BigInteger[] qr = rest.divideAndRemainder(alt.children[i].count);
+				childIndices[i] = qr[1];
+				rest = qr[0];
+			}
+			alts.add(alt);
+			indices.add(childIndices);
+			built.add(new ArrayList<Tree<G>>(childIndices.length));
+			return;
+		}
+		throw new IllegalStateException();
+	}
+
+
+	/**
+	 * Draws an output tree such that each derivation has the same probability.
+	 *
+	 * @param random source of randomness
+	 * @return an output tree of a uniformly drawn derivation
+	 * @throws NoSuchElementException if the forest is empty
+	 */
+	public Tree<G> sample(Random random) {
+		if (random == null) throw new IllegalArgumentException("sample(): random must not be null.");
+		if (isEmpty())
+			throw new NoSuchElementException("sample(): the forest has no outputs.");
+		BigInteger index;
+		do {
+			index = new BigInteger(count.bitLength(), random);
+		} while (index.compareTo(count) >= 0);
+		return get(index);
+	}
+
+
+	/**
+	 * Enumerates the output trees of all derivations lazily, in the order of their numbers.
+	 * Trees produced by several derivations are returned several times.
+	 *
+	 * @return an iterator over the output trees of all derivations
+	 */
+	@Override
+	public Iterator<Tree<G>> iterator() {
+		return new Iterator<Tree<G>>() {
+			private BigInteger next = BigInteger.ZERO;
+
+			@Override
+			public boolean hasNext() {
+				return next.compareTo(count) < 0;
+			}
+
+			@Override
+			public Tree<G> next() {
+				if (!hasNext())
+					throw new NoSuchElementException();
+				Tree<G> ret = get(next);
+				next = next.add(BigInteger.ONE);
+				return ret;
+			}
+
+			@Override
+			public void remove() {
+				throw new UnsupportedOperationException();
+			}
+		};
+	}
+
+
+	/**
+	 * Returns the set of the different output trees. <br>
+	 * The sets of the nodes are computed bottom-up and kept, so that each set is computed
+	 * once, however many rules use it. Of course, the result may be exponentially large.
+	 *
+	 * @return the set of the different output trees
+	 */
+	public Set<Tree<G>> toSet() {
+		Set<Tree<G>> ret = new HashSet<Tree<G>>();
+		for (Node<G> root: roots)
+			ret.addAll(trees(root));
+		return ret;
+	}
+
+
+	/**
+	 * Computes the different output trees of a node and of all nodes below it, if not done yet.
+	 * The nodes are visited in post-order with an explicit stack.
+	 */
+	private Set<Tree<G>> trees(Node<G> root) {
+		if (root.trees != null)
+			return root.trees;
+		List<Node<G>> path = new ArrayList<Node<G>>();
+		List<Iterator<Node<G>>> successors = new ArrayList<Iterator<Node<G>>>();
+		Set<Node<G>> visited = new HashSet<Node<G>>();
+		path.add(root);
+		successors.add(root.successors().iterator());
+		visited.add(root);
+		while (!path.isEmpty()) {
+			int top = path.size()-1;
+			Iterator<Node<G>> it = successors.get(top);
+			if (it.hasNext()) {
+				Node<G> next = it.next();
+				if (next.trees == null && visited.add(next)) {
+					path.add(next);
+					successors.add(next.successors().iterator());
+				}
+				continue;
+			}
+			Node<G> node = path.remove(top);
+			successors.remove(top);
+			Set<Tree<G>> trees = new HashSet<Tree<G>>();
+			for (Alternative<G> alt: node.alternatives) {
+				List<Set<Tree<G>>> childSets = new ArrayList<Set<Tree<G>>>(alt.children.length);
+				for (Node<G> child: alt.children)
+					childSets.add(child.trees);
+				for (List<Tree<G>> childTrees: Combinator.cartesianProduct(childSets))
+					trees.add(alt.build(childTrees, tc));
+			}
+			node.trees = trees;
+		}
+		return root.trees;
+	}
+}
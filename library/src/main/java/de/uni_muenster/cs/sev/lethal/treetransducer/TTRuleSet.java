@@ -21,6 +21,7 @@
  */
 package de.uni_muenster.cs.sev.lethal.treetransducer;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -38,8 +39,10 @@ import de.uni_muenster.cs.sev.lethal.tree.common.TreeCreator;
 import de.uni_muenster.cs.sev.lethal.tree.common.TreeOps;
 import de.uni_muenster.cs.sev.lethal.tree.common.VarTreeOps;
 import de.uni_muenster.cs.sev.lethal.tree.standard.StdTreeCreator;
+import de.uni_muenster.cs.sev.lethal.treeautomata.common.EpsilonClosure;
 import de.uni_muenster.cs.sev.lethal.treeautomata.common.FTAEpsRule;
 import de.uni_muenster.cs.sev.lethal.treeautomata.common.FTARule;
+import de.uni_muenster.cs.sev.lethal.utils.Pair;
 
 /**
  * This class encapsulates the rule set of an {@link EasyTT} and
@@ -72,6 +75,39 @@ public class TTRuleSet<F extends RankedSymbol, G extends RankedSymbol, Q extends
 	 */
 	private Map<F,HashMap<List<TTState<Q,G>>,Set<TTState<Q,G>>>> rules;
 
+	/**
+	 * Index of the rules by their left hand sides. <br>
+	 * For each symbol f there is a trie whose i-th level branches on the state of the i-th
+	 * subtree, and whose leaves are the left hand sides f(q_1,...,q_n) with their right
+	 * hand sides, which are shared with {@link #rules}. Hence the rules fitting the states
+	 * of the subtrees of a node are found without looking at the other rules of the symbol.
+	 */
+	private Map<F,RuleTrie<Q,G>> index;
+
+	/**
+	 * Whether each left hand side has at most one right hand side, null if not known yet.
+	 */
+	private Boolean deterministic;
+
+
+	/**
+	 * Node of the trie of the left hand sides of the rules of a symbol.
+	 *
+	 * @param <Q> type of used states
+	 * @param <G> type of symbols of the destination alphabet
+	 */
+	private static final class RuleTrie<Q extends State, G extends RankedSymbol> {
+
+		/** Subtries by the state of the next subtree. */
+		private final Map<Q,RuleTrie<Q,G>> next = new HashMap<Q,RuleTrie<Q,G>>();
+
+		/** At a leaf, the source states of the left hand side. */
+		private List<TTState<Q,G>> src;
+
+		/** At a leaf, the right hand sides of the rules. */
+		private Set<TTState<Q,G>> dests;
+	}
+
 
 	/**
 	 * Constructs a new TTRuleSet using the inner efficient structure of the TTRuleSet with HashMap.
@@ -91,6 +127,7 @@ public class TTRuleSet<F extends RankedSymbol, G extends RankedSymbol, Q extends
 			}
 			this.rules.put(f, newmap);
 		}
+		buildIndex();
 	}
 
 
@@ -128,163 +165,65 @@ public class TTRuleSet<F extends RankedSymbol, G extends RankedSymbol, Q extends
 	 * Given rules, final states and additional epsilon rules, eliminates the epsilon rules.<br>
 	 * First, the epsilon cover of each state is calculated, that is the set of all states
 	 * which can be reached by only applying epsilon rules. Then, for each rule f(q1,...qn)->q
-	 * and each state r in the epsilon cover of q, a rule f(q1,...,qn)->r is added.
+	 * and each state r in the epsilon cover of q, a rule f(q1,...,qn)->r is added.<br>
+	 * The epsilon covers are computed by {@link EpsilonClosure}. The variable trees of the
+	 * epsilon rules are combined along a shortest path of epsilon rules from q to r.
 	 *
 	 * @param rules normal rules of the represented finite tree automaton
 	 * @param epsRules epsilon rules of the represented finite tree automaton which are to be eliminated
 	 *
-	 * @return a pair consisting of normal rules and final states, which represents a finite tree
-	 * automaton where the supplied epsilon rules have been eliminated.
+	 * @return the given rules together with the rules replacing the supplied epsilon rules
 	 */
 	protected Collection<FTARule<F,TTState<Q,G>>> eliminateEpsilonRules(Collection<? extends FTARule<F,TTState<Q,G>>> rules,
 			Collection<? extends FTAEpsRule<TTState<Q,G>>> epsRules) {
-		Collection<FTARule<F,TTState<Q,G>>> newRules = new LinkedList<FTARule<F,TTState<Q,G>>>(rules);
-
-		/* map each state q to the states which can be reached from q by applying only epsilon rules */
-		Map<TTState<Q,G>,Collection<TTState<Q,G>>> epsCover = new HashMap<TTState<Q,G>,Collection<TTState<Q,G>>>();
-
-		/* map each state q to the states p, such that p -> q is an epsilon rule */
-		Map<TTState<Q,G>,Collection<TTState<Q,G>>> srcStates = new HashMap<TTState<Q,G>,Collection<TTState<Q,G>>>();
-
-		/* map each state q to the states r, such that q -> r is an epsilon rule */
-		Map<TTState<Q,G>,Collection<TTState<Q,G>>> destStates = new HashMap<TTState<Q,G>,Collection<TTState<Q,G>>>();
-
-		/* list of states which still have to be examined*/
-		LinkedList<TTState<Q,G>> worklist = new LinkedList<TTState<Q,G>>();
-
+		Collection<FTARule<F,TTState<Q,G>>> newRules = new ArrayList<FTARule<F,TTState<Q,G>>>(rules);
+		EpsilonClosure<TTState<Q,G>> closure = new EpsilonClosure<TTState<Q,G>>(epsRules);
 		TreeCreator<BiSymbol<G,Variable>,Tree<BiSymbol<G,Variable>>> tc = new StdTreeCreator<BiSymbol<G,Variable>>();
 
-		/* initialize epsCover, destStates and srcStates:
-		 * for each epsilon rule (q,r) make sure that:
-		 * - r \in destStates(q)
-		 * - q \in srcStates(r)
-		 * - q \in epsCover(q) (Note, that this is sufficient, since
-		 * - the epsCover of a state s is trivial, if s is not the source state of
-		 * an epsilon rule)
-		 * - r is on the work list
-		 */
-		for (FTAEpsRule<TTState<Q,G>> e: epsRules) {
-			TTState<Q,G> qsrc = e.getSrcState();
-			TTState<Q,G> qdest = e.getDestState();
-			worklist.add(e.getSrcState());
-			Collection<TTState<Q,G>> qEpsCover;
-			Collection<TTState<Q,G>> qdestSrcStates;
-			Collection<TTState<Q,G>> qsrcDestStates;
-
-			if (epsCover.containsKey(qsrc))
-				qEpsCover = epsCover.get(qsrc);
-			else {
-				qEpsCover = new HashSet<TTState<Q,G>>();
-			//	qEpsCover.add(qsrc);
-				epsCover.put(qsrc, qEpsCover);
-			}
-
-			/* add qsrc to destStates(qdest) */
-			if (srcStates.containsKey(qdest))
-				qdestSrcStates = srcStates.get(qdest);
-			else {
-				/* a list is sufficient since the epsilon rules are represented
-				 * as a set, so a rule q->r is contained at most once, so
-				 * qdestSrcStates won't contain duplicates as well */
-				qdestSrcStates = new LinkedList<TTState<Q,G>>();
-				srcStates.put(qdest, qdestSrcStates);
-			}
-			qdestSrcStates.add(qsrc);
-
-
-			/* add qdest to srcStates(qsrc) */
-			if (destStates.containsKey(qsrc))
-				qsrcDestStates = destStates.get(qsrc);
-			else {
-				/*
-				 * list is sufficient - see above, why
-				 */
-				qsrcDestStates = new LinkedList<TTState<Q,G>>();
-				destStates.put(qsrc, qsrcDestStates);
-			}
-			qsrcDestStates.add(qdest);
-		}
-
-		//System.out.println("epsCover: " + epsCover);
-		//System.out.println("destStates: " + destStates);
-		//System.out.println("srcStates: " + srcStates);
-
-		/* compute the eps-cover of the left sides of the eps rules */
-		while (!worklist.isEmpty()) {
-			TTState<Q,G> q = worklist.poll();
-			Collection<TTState<Q,G>> qEpsCover = epsCover.get(q);
-			boolean changed = false;
-
-			/*
-			 * update the eps-cover of q by adding all eps-covers of
-			 * adjacent states, i.e. all elements of destStates(q)
-			 */
-			for (TTState<Q,G> r: destStates.get(q)) {
-
-				changed = changed || qEpsCover.add(r);
-
-				if (epsCover.containsKey(r)) {
-					for (TTState<Q,G> s: epsCover.get(r)){
-						//System.out.println(s);
-						if (qEpsCover.add(new TTState<Q,G>(s.getState(),
-								VarTreeOps.replaceOneVariable(s.getVarTree(), r.getVarTree(), tc)))){
-							changed = false;
-						}
-					}
-					// changed = changed || qEpsCover.addAll(epsCover.get(r));
-				}
-			}
-
-			/* if the epsilon cover of q has changed, this information needs to be
-			 * propagated to the predecessors of q, i.e. srcStates(q), if there are any */
-			if (changed) {
-				/* the eps-Cover of q has changed, so all states p
-				 * for which there is an epsilon rule p->q have to
-				 * be considered again
-				 */
-				if (srcStates.containsKey(q))
-					worklist.addAll(srcStates.get(q));
-			}
-		}
-	//	System.out.println("epsCover " +epsCover);
-
 		/*
 		 * group the rules by destination states, so that rules
-		 * can easily be found later
+		 * can easily be found later - only destination states with
+		 * a non-empty epsilon cover are needed
 		 */
 		Map<TTState<Q,G>,Collection<FTARule<F,TTState<Q,G>>>> rulesByDestStates =
 			new HashMap<TTState<Q,G>,Collection<FTARule<F,TTState<Q,G>>>>();
 		for (FTARule<F,TTState<Q,G>> r: rules) {
 			TTState<Q,G> qdest = r.getDestState();
-			Collection<FTARule<F,TTState<Q,G>>> qdestRules;
-			if (rulesByDestStates.containsKey(qdest))
-				qdestRules = rulesByDestStates.get(qdest);
-			else {
-				/* each rule occurs at most once, so a list is sufficient */
-				qdestRules = new LinkedList<FTARule<F,TTState<Q,G>>>();
+			if (!closure.hasCover(qdest))
+				continue;
+			Collection<FTARule<F,TTState<Q,G>>> qdestRules = rulesByDestStates.get(qdest);
+			if (qdestRules == null) {
+				qdestRules = new ArrayList<FTARule<F,TTState<Q,G>>>();
 				rulesByDestStates.put(qdest, qdestRules);
 			}
 			qdestRules.add(r);
 		}
 
-		for (TTState<Q,G> q: epsCover.keySet()) {
-			for (TTState<Q,G> r: epsCover.get(q)) {
-				if (rulesByDestStates.containsKey(q))
-					for (FTARule<F,TTState<Q,G>> qRule: rulesByDestStates.get(q)) {
-						/*
-						 * for each rule of the form f(q1,...,qn) -> q and
-						 * each state r contained in the eps-cover of q,
-						 * add a rule f(q1,...,qn) -> r
-						 */
-						newRules.add(new TTRule<F,G,Q>(qRule.getSymbol(), qRule.getSrcStates(),
-								new TTState<Q,G>(r.getState(),
-								VarTreeOps.replaceOneVariable(r.getVarTree(),qRule.getDestState().getVarTree(),tc))));
-					}
+		for (TTState<Q,G> q: rulesByDestStates.keySet()) {
+			/*
+			 * combine the variable trees along the epsilon rules reaching the states
+			 * of the epsilon cover of q, null stands for the variable itself
+			 */
+			Map<TTState<Q,G>,Tree<BiSymbol<G,Variable>>> coverTrees = new HashMap<TTState<Q,G>,Tree<BiSymbol<G,Variable>>>();
+			for (FTAEpsRule<TTState<Q,G>> e: closure.getSpanningRules(q)) {
+				TTState<Q,G> r = e.getDestState();
+				if (r.equals(q))
+					continue;
+				Tree<BiSymbol<G,Variable>> srcTree = coverTrees.get(e.getSrcState());
+				Tree<BiSymbol<G,Variable>> rTree = (srcTree == null) ? r.getVarTree() : VarTreeOps.replaceOneVariable(r.getVarTree(), srcTree, tc);
+				coverTrees.put(r, rTree);
+				for (FTARule<F,TTState<Q,G>> qRule: rulesByDestStates.get(q)) {
+					/*
+					 * for each rule of the form f(q1,...,qn) -> q and
+					 * each state r contained in the eps-cover of q,
+					 * add a rule f(q1,...,qn) -> r
+					 */
+					newRules.add(new TTRule<F,G,Q>(qRule.getSymbol(), qRule.getSrcStates(),
+							new TTState<Q,G>(r.getState(),
+							VarTreeOps.replaceOneVariable(rTree,qRule.getDestState().getVarTree(),tc))));
+				}
 			}
-
-
 		}
-		//System.out.println(newRules);
 		return newRules;
 	}
 
@@ -330,6 +269,47 @@ public class TTRuleSet<F extends RankedSymbol, G extends RankedSymbol, Q extends
 			}
 		}
 		//epsRules = new HashMap<TTState<Q,G>,Set<TTState<Q,G>>>();
+		buildIndex();
+	}
+
+
+	/**
+	 * Builds the index of the rules by their left hand sides from scratch.
+	 */
+	private void buildIndex(){
+		index = new HashMap<F,RuleTrie<Q,G>>();
+		deterministic = null;
+		for (Map.Entry<F,HashMap<List<TTState<Q,G>>,Set<TTState<Q,G>>>> symbolRules: rules.entrySet()){
+			for (Map.Entry<List<TTState<Q,G>>,Set<TTState<Q,G>>> rule: symbolRules.getValue().entrySet()){
+				index(symbolRules.getKey(), rule.getKey(), rule.getValue());
+			}
+		}
+	}
+
+
+	/**
+	 * Adds a left hand side to the index of the rules.
+	 *
+	 * @param f symbol of the left hand side
+	 * @param src source states of the left hand side
+	 * @param dests right hand sides of the rules with this left hand side, shared with {@link #rules}
+	 */
+	private void index(F f, List<TTState<Q,G>> src, Set<TTState<Q,G>> dests){
+		RuleTrie<Q,G> trie = index.get(f);
+		if (trie == null){
+			trie = new RuleTrie<Q,G>();
+			index.put(f, trie);
+		}
+		for (TTState<Q,G> q: src){
+			RuleTrie<Q,G> next = trie.next.get(q.getState());
+			if (next == null){
+				next = new RuleTrie<Q,G>();
+				trie.next.put(q.getState(), next);
+			}
+			trie = next;
+		}
+		trie.src = src;
+		trie.dests = dests;
 	}
 
 
@@ -398,6 +378,7 @@ public class TTRuleSet<F extends RankedSymbol, G extends RankedSymbol, Q extends
 	 * maps the list of source states to the corresponsing destination state,
 	 * where all states are given as tree transducer states.<br>
 	 * This method is efficient because of the choosen structure.
+	 * The returned map must not be modified, since the rules are indexed.
 	 *
 	 * @param f function symbol we search in rules
 	 * @return rest of the rules, you need to put in a list of states
@@ -445,6 +426,95 @@ public class TTRuleSet<F extends RankedSymbol, G extends RankedSymbol, Q extends
 	}
 
 
+	/**
+	 * Collects the rules with the given symbol whose i-th source state is one of the
+	 * given states of the i-th subtree. <br>
+	 * The trie of the symbol is walked along the given states, at each level the smaller one
+	 * of the branches of the trie and the given states is iterated. Thus only the left hand
+	 * sides which fit the states of the first subtrees are looked at.
+	 *
+	 * @param f ranked symbol
+	 * @param subStates for each subtree, its states
+	 * @return the left hand sides which fit the given states, each with its right hand sides
+	 */
+	public List<Pair<List<TTState<Q,G>>,Set<TTState<Q,G>>>> getMatchingRules(F f, List<? extends Set<Q>> subStates) {
+		List<Pair<List<TTState<Q,G>>,Set<TTState<Q,G>>>> ret = new ArrayList<Pair<List<TTState<Q,G>>,Set<TTState<Q,G>>>>();
+		RuleTrie<Q,G> trie = index.get(f);
+		if (trie != null)
+			collect(trie, 0, subStates, ret);
+		return ret;
+	}
+
+
+	/**
+	 * Collects the left hand sides below the given node of a trie which fit the given states
+	 * from the given level on.
+	 */
+	private void collect(RuleTrie<Q,G> trie, int level, List<? extends Set<Q>> subStates,
+			List<Pair<List<TTState<Q,G>>,Set<TTState<Q,G>>>> ret) {
+		if (level == subStates.size()){
+			if (trie.src != null)
+				ret.add(new Pair<List<TTState<Q,G>>,Set<TTState<Q,G>>>(trie.src, trie.dests));
+			return;
+		}
+		Set<Q> states = subStates.get(level);
+		if (trie.next.size() <= states.size()){
+			for (Map.Entry<Q,RuleTrie<Q,G>> e: trie.next.entrySet()){
+				if (states.contains(e.getKey()))
+					collect(e.getValue(), level+1, subStates, ret);
+			}
+		} else {
+			for (Q q: states){
+				RuleTrie<Q,G> next = trie.next.get(q);
+				if (next != null)
+					collect(next, level+1, subStates, ret);
+			}
+		}
+	}
+
+
+	/**
+	 * Returns a right hand side of a rule with the given left hand side. <br>
+	 * The left hand side is looked up in the trie of the symbol, without creating a list
+	 * of tree transducer states. If the rules are deterministic, the right hand side is unique.
+	 *
+	 * @param f ranked symbol
+	 * @param srcStates source states of the left hand side
+	 * @return a right hand side of a rule with the given left hand side, null if there is none
+	 */
+	public TTState<Q,G> findDestState(F f, List<Q> srcStates) {
+		RuleTrie<Q,G> trie = index.get(f);
+		for (int i=0; trie != null && i<srcStates.size(); i++)
+			trie = trie.next.get(srcStates.get(i));
+		if (trie == null || trie.dests == null || trie.dests.isEmpty())
+			return null;
+		return trie.dests.iterator().next();
+	}
+
+
+	/**
+	 * Checks whether the rules are deterministic, i.e. for each left hand side there is at
+	 * most one rule. Since epsilon rules have been eliminated, every tree then has at most
+	 * one run. <br>
+	 * The result is computed once and kept until a rule is added.
+	 *
+	 * @return whether for each left hand side there is at most one rule
+	 */
+	public boolean isDeterministic() {
+		if (deterministic == null){
+			boolean det = true;
+			for (HashMap<List<TTState<Q,G>>,Set<TTState<Q,G>>> symbolRules: rules.values()){
+				for (Set<TTState<Q,G>> dests: symbolRules.values()){
+					if (dests.size() > 1)
+						det = false;
+				}
+			}
+			deterministic = det;
+		}
+		return deterministic;
+	}
+
+
 	/**
 	 * Returns the states on the right side, i.e. the destination state
 	 * of a rule with the given left side.
@@ -649,6 +719,7 @@ public class TTRuleSet<F extends RankedSymbol, G extends RankedSymbol, Q extends
 				Set<TTState<Q,G>> set = new HashSet<TTState<Q,G>>();
 				set.add(dest);
 				rules.get(symbol).put(src, set);
+				index(symbol, src, set);
 			}
 
 		} else {
@@ -657,7 +728,9 @@ public class TTRuleSet<F extends RankedSymbol, G extends RankedSymbol, Q extends
 			set.add(dest);
 			map.put(src, set);
 			rules.put(symbol,map);
+			index(symbol, src, set);
 		}
+		deterministic = null;
 	}
 
 
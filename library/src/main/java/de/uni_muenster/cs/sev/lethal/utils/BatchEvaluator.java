@@ -0,0 +1,362 @@
+/*
+ * Copyright 2009 Dorothea Jansen <d.jansen@uni-muenster.de>, Martin Mohr <mohrfrosch@uni-muenster.de>, Irene Thesing <i_thes01@uni-muenster.de>, Anton Reis <antonreis@gmx.de>, Maria Schatz <m_scha17@uni-muenster.de>, Philipp Claves <philipp.claves@uni-muenster.de>, Sezar Jarrous <sezar.jarrous@gmail.com>
+ *
+ * This file is part of LETHAL.
+ *
+ * LETHAL is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * LETHAL is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with LETHAL.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.uni_muenster.cs.sev.lethal.utils;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Stream;
+
+/**
+ * Applies a {@link Converter} to many inputs in parallel, for example an automaton
+ * deciding a large number of trees.<br>
+ * <br>
+ * The inputs are split into chunks of a fixed size, and each chunk is evaluated as one task
+ * on an {@link ExecutorService}. By default the common {@link ForkJoinPool} is used, but any
+ * executor can be given, e.g. one returned by
+ * {@link java.util.concurrent.Executors#newVirtualThreadPerTaskExecutor()}.
+ * The results are either returned as list in the order of the inputs, or handed to a
+ * {@link ResultListener} as soon as they are available. <br>
+ * The converter is called from several threads at once, so it must be thread-safe.
+ * The evaluator counts the evaluated inputs and the time spent, from which the throughput
+ * can be obtained.
+ *
+ * @param <A> type of the inputs
+ * @param <B> type of the results
+ *
+ * @author Martin
+ */
+public class BatchEvaluator<A,B> {
+
+	/**
+	 * Receives the results of {@link BatchEvaluator#evaluateAll(Iterable, ResultListener)}
+	 * as soon as they are available. The listener is called from several threads at once.
+	 *
+	 * @param <A> type of the inputs
+	 * @param <B> type of the results
+	 */
+	public interface ResultListener<A,B> {
+
+		/**
+		 * Is called when the result for an input is available.
+		 *
+		 * @param index position of the input in the sequence of inputs, starting with 0
+		 * @param input the evaluated input
+		 * @param result the result for the input
+		 */
+		void resultAvailable(long index, A input, B result);
+	}
+
+
+	/** Default number of inputs evaluated by one task. */
+	public static final int DFLT_CHUNK_SIZE = 64;
+
+	/** Function which is applied to each input. */
+	private final Converter<? super A,? extends B> function;
+
+	/** Executor the chunks are evaluated on. */
+	private final ExecutorService executor;
+
+	/** Number of inputs evaluated by one task. */
+	private final int chunkSize;
+
+	/** Maximal number of chunks waiting or being evaluated when streaming the results. */
+	private final int maxPendingChunks;
+
+	/** Maximal number of chunks submitted but not yet collected when collecting the results in order. */
+	private final int maxOrderedChunks;
+
+	/** Number of evaluated inputs. */
+	private final AtomicLong evaluated = new AtomicLong();
+
+	/** Time spent in evaluateAll in nanoseconds. */
+	private final AtomicLong elapsedNanos = new AtomicLong();
+
+
+	/**
+	 * Creates an evaluator which uses the common {@link ForkJoinPool} and chunks of
+	 * {@link #DFLT_CHUNK_SIZE default size}.
+	 *
+	 * @param function function to be applied to each input, must be thread-safe
+	 */
+	public BatchEvaluator(Converter<? super A,? extends B> function) {
+		this(function, null, DFLT_CHUNK_SIZE);
+	}
+
+
+	/**
+	 * Creates an evaluator.
+	 *
+	 * @param function function to be applied to each input, must be thread-safe
+	 * @param executor executor the chunks are evaluated on, null for the common {@link ForkJoinPool}
+	 * @param chunkSize number of inputs evaluated by one task
+	 */
+	public BatchEvaluator(Converter<? super A,? extends B> function, ExecutorService executor, int chunkSize) {
+		if (function == null) throw new IllegalArgumentException("BatchEvaluator(): function must not be null.");
+		if (chunkSize < 1) throw new IllegalArgumentException("BatchEvaluator(): chunkSize must be positive.");
+		this.function = function;
+		this.executor = executor == null ? ForkJoinPool.commonPool() : executor;
+		this.chunkSize = chunkSize;
+		this.maxPendingChunks = 4*Runtime.getRuntime().availableProcessors();
+		int parallelism = this.executor instanceof ForkJoinPool
+				? ((ForkJoinPool)this.executor).getParallelism()
+				: Runtime.getRuntime().availableProcessors();
+		this.maxOrderedChunks = 2*Math.max(1, parallelism);
+	}
+
+
+	/**
+	 * Evaluates all given inputs in parallel and returns the results in the order of the inputs.
+	 * Only a bounded number of chunks is submitted ahead of the results collected so far, so
+	 * the inputs may be produced lazily.
+	 *
+	 * @param inputs inputs to be evaluated
+	 * @return the results for the inputs, in the same order
+	 */
+	public List<B> evaluateAll(Iterable<? extends A> inputs) {
+		if (inputs == null) throw new IllegalArgumentException("evaluateAll(): inputs must not be null.");
+		return evaluateOrdered(inputs.iterator());
+	}
+
+
+	/**
+	 * Evaluates all inputs of the given stream in parallel and returns the results in the
+	 * order of the inputs.
+	 *
+	 * @param inputs inputs to be evaluated
+	 * @return the results for the inputs, in the same order
+	 */
+	public List<B> evaluateAll(Stream<? extends A> inputs) {
+		if (inputs == null) throw new IllegalArgumentException("evaluateAll(): inputs must not be null.");
+		return evaluateOrdered(inputs.iterator());
+	}
+
+
+	/**
+	 * Evaluates all given inputs in parallel and hands each result to the given listener as
+	 * soon as it is available. Only a bounded number of inputs is read ahead, so the inputs
+	 * may be produced lazily. The method returns when all results have been handed out.
+	 *
+	 * @param inputs inputs to be evaluated
+	 * @param listener listener receiving the results, must be thread-safe
+	 */
+	public void evaluateAll(Iterable<? extends A> inputs, ResultListener<? super A,? super B> listener) {
+		if (inputs == null) throw new IllegalArgumentException("evaluateAll(): inputs must not be null.");
+		evaluateStreaming(inputs.iterator(), listener);
+	}
+
+
+	/**
+	 * Evaluates all inputs of the given stream in parallel and hands each result to the given
+	 * listener as soon as it is available.
+	 *
+	 * @param inputs inputs to be evaluated
+	 * @param listener listener receiving the results, must be thread-safe
+	 * @see #evaluateAll(Iterable, ResultListener)
+	 */
+	public void evaluateAll(Stream<? extends A> inputs, ResultListener<? super A,? super B> listener) {
+		if (inputs == null) throw new IllegalArgumentException("evaluateAll(): inputs must not be null.");
+		evaluateStreaming(inputs.iterator(), listener);
+	}
+
+
+	/**
+	 * Evaluates the inputs of the given iterator and collects the results in order,
+	 * keeping at most maxOrderedChunks chunks in flight: before another chunk is submitted,
+	 * the results of the oldest one are collected.
+	 */
+	private List<B> evaluateOrdered(Iterator<? extends A> it) {
+		long start = System.nanoTime();
+		LinkedList<Future<List<B>>> futures = new LinkedList<Future<List<B>>>();
+		try {
+			List<B> ret = new ArrayList<B>();
+			while (it.hasNext()) {
+				if (futures.size() >= maxOrderedChunks)
+					ret.addAll(await(futures.removeFirst()));
+				final List<A> chunk = nextChunk(it);
+				futures.add(executor.submit(new Callable<List<B>>() {
+					@Override
+					public List<B> call() {
+						List<B> ret = new ArrayList<B>(chunk.size());
+						for (A a: chunk)
+							ret.add(function.convert(a));
+						evaluated.addAndGet(chunk.size());
+						return ret;
+					}
+				}));
+			}
+			while (!futures.isEmpty())
+				ret.addAll(await(futures.removeFirst()));
+			return ret;
+		} finally {
+			// after a failure, the remaining chunks need not be evaluated
+			for (Future<List<B>> future: futures)
+				future.cancel(false);
+			elapsedNanos.addAndGet(System.nanoTime() - start);
+		}
+	}
+
+
+	/**
+	 * Evaluates the inputs of the given iterator and hands the results to the given listener,
+	 * keeping at most maxPendingChunks chunks in flight.
+	 */
+	private void evaluateStreaming(Iterator<? extends A> it, final ResultListener<? super A,? super B> listener) {
+		if (listener == null) throw new IllegalArgumentException("evaluateAll(): listener must not be null.");
+		long start = System.nanoTime();
+		final Semaphore pending = new Semaphore(maxPendingChunks);
+		final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+		try {
+			long index = 0;
+			while (it.hasNext() && failure.get() == null) {
+				final List<A> chunk = nextChunk(it);
+				final long first = index;
+				index += chunk.size();
+				pending.acquireUninterruptibly();
+				try {
+					executor.execute(new Runnable() {
+						@Override
+						public void run() {
+							try {
+								long i = first;
+								for (A a: chunk) {
+									if (failure.get() != null)
+										return;
+									listener.resultAvailable(i++, a, function.convert(a));
+									evaluated.incrementAndGet();
+								}
+							} catch (Throwable t) {
+								failure.compareAndSet(null, t);
+							} finally {
+								pending.release();
+							}
+						}
+					});
+				} catch (RuntimeException e) {
+					pending.release();
+					throw e;
+				}
+			}
+			pending.acquireUninterruptibly(maxPendingChunks);
+			pending.release(maxPendingChunks);
+			if (failure.get() != null)
+				rethrow(failure.get());
+		} finally {
+			elapsedNanos.addAndGet(System.nanoTime() - start);
+		}
+	}
+
+
+	/**
+	 * Reads the next chunk of inputs from the given iterator.
+	 */
+	private List<A> nextChunk(Iterator<? extends A> it) {
+		List<A> chunk = new ArrayList<A>(chunkSize);
+		while (chunk.size() < chunkSize && it.hasNext())
+			chunk.add(it.next());
+		return chunk;
+	}
+
+
+	/**
+	 * Waits for the given future and passes on a failure of its task.
+	 */
+	private static <T> T await(Future<T> future) {
+		try {
+			return future.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("evaluateAll(): interrupted while waiting for results.", e);
+		} catch (ExecutionException e) {
+			rethrow(e.getCause());
+			return null;
+		}
+	}
+
+
+	/**
+	 * Throws the given throwable, wrapped into a RuntimeException if it is checked.
+	 */
+	private static void rethrow(Throwable t) {
+		if (t instanceof RuntimeException)
+			throw (RuntimeException)t;
+		if (t instanceof Error)
+			throw (Error)t;
+		throw new RuntimeException(t);
+	}
+
+
+	/**
+	 * Returns the function which is applied to each input.
+	 *
+	 * @return the function which is applied to each input
+	 */
+	public Converter<? super A,? extends B> getFunction() {
+		return function;
+	}
+
+
+	/**
+	 * Returns the number of inputs evaluated so far.
+	 *
+	 * @return the number of inputs evaluated so far
+	 */
+	public long getEvaluatedCount() {
+		return evaluated.get();
+	}
+
+
+	/**
+	 * Returns the time spent in the evaluateAll methods so far in nanoseconds.
+	 *
+	 * @return the time spent in the evaluateAll methods so far in nanoseconds
+	 */
+	public long getElapsedNanos() {
+		return elapsedNanos.get();
+	}
+
+
+	/**
+	 * Returns the number of inputs evaluated per second, computed from the counters.
+	 *
+	 * @return the number of inputs evaluated per second, or 0 if no time has been spent yet
+	 */
+	public double getThroughput() {
+		long nanos = elapsedNanos.get();
+		return nanos == 0 ? 0 : evaluated.get()*1e9/nanos;
+	}
+
+
+	/**
+	 * Resets the counters of evaluated inputs and spent time.
+	 */
+	public void resetCounters() {
+		evaluated.set(0);
+		elapsedNanos.set(0);
+	}
+}
@@ -0,0 +1,38 @@
+/*
+ * Copyright 2009 Dorothea Jansen <d.jansen@uni-muenster.de>, Martin Mohr <mohrfrosch@uni-muenster.de>, Irene Thesing <i_thes01@uni-muenster.de>, Anton Reis <antonreis@gmx.de>, Maria Schatz <m_scha17@uni-muenster.de>, Philipp Claves <philipp.claves@uni-muenster.de>, Sezar Jarrous <sezar.jarrous@gmail.com>
+ *
+ * This file is part of LETHAL.
+ *
+ * LETHAL is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * LETHAL is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with LETHAL.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.uni_muenster.cs.sev.lethal.utils;
+
+/**
+ * Implemented by canonical instances handed out by an interning factory, like
+ * {@link de.uni_muenster.cs.sev.lethal.factories.InterningStateFactory}. <br>
+ * An interned object is equal only to itself and carries a number, which is unique
+ * among the objects of its factory. The numbers of a factory start with 0 and have no gaps,
+ * so they can be used as array indices instead of hash map keys, see {@link Numbering}.
+ *
+ * @author Martin
+ */
+public interface Interned {
+
+	/**
+	 * Returns the number of this object within its factory.
+	 *
+	 * @return the number of this object within its factory
+	 */
+	int getId();
+}
@@ -0,0 +1,278 @@
+/*
+ * Copyright 2009 Dorothea Jansen <d.jansen@uni-muenster.de>, Martin Mohr <mohrfrosch@uni-muenster.de>, Irene Thesing <i_thes01@uni-muenster.de>, Anton Reis <antonreis@gmx.de>, Maria Schatz <m_scha17@uni-muenster.de>, Philipp Claves <philipp.claves@uni-muenster.de>, Sezar Jarrous <sezar.jarrous@gmail.com>
+ *
+ * This file is part of LETHAL.
+ *
+ * LETHAL is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * LETHAL is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with LETHAL.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.uni_muenster.cs.sev.lethal.utils;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Thread-safe cache which keeps the most recently used entries up to a given total weight.
+ * When an entry is added and the total weight exceeds the maximum, the least recently
+ * used entries are evicted until it fits again; the entry added last is always kept. <br>
+ * By default each entry weighs 1, so the maximum weight is the maximum number of entries.
+ * Subclasses may weigh entries differently by overriding {@link #weigh}, and may keep
+ * other data in sync with the cache by overriding {@link #entryRemoved}. <br>
+ * The cache counts hits, misses and evictions, for example to tune its maximum weight.
+ *
+ * @param <K> type of the keys
+ * @param <V> type of the cached values
+ *
+ * @author Martin
+ */
+public class LRUCache<K,V> {
+
+	/**
+	 * Cached value together with its weight.
+	 */
+	private static final class Entry<V> {
+		private final V value;
+		private final long weight;
+
+		private Entry(V value, long weight) {
+			this.value = value;
+			this.weight = weight;
+		}
+	}
+
+	/** Entries in order of their last use, least recently used first. */
+	private final LinkedHashMap<K,Entry<V>> entries = new LinkedHashMap<K,Entry<V>>(16, 0.75f, true);
+
+	/** Maximum total weight of the entries. */
+	private long maxWeight;
+
+	/** Current total weight of the entries. */
+	private long weight;
+
+	/** Number of lookups which found a value. */
+	private long hits;
+
+	/** Number of lookups which found no value. */
+	private long misses;
+
+	/** Number of entries evicted because the maximum weight was exceeded. */
+	private long evictions;
+
+
+	/**
+	 * Creates an empty cache with the given maximum total weight.
+	 *
+	 * @param maxWeight maximum total weight of the entries, must be positive
+	 */
+	public LRUCache(long maxWeight) {
+		if (maxWeight < 1) throw new IllegalArgumentException("LRUCache(): maxWeight must be positive.");
+		this.maxWeight = maxWeight;
+	}
+
+
+	/**
+	 * Returns the value cached for the given key and marks it as most recently used.
+	 *
+	 * @param key key to look up
+	 * @return the value cached for the given key, null if there is none
+	 */
+	public synchronized V get(K key) {
+		Entry<V> e = entries.get(key);
+		if (e == null) {
+			misses++;
+			return null;
+		}
+		hits++;
+		return e.value;
+	}
+
+
+	/**
+	 * Caches a value for the given key, replacing a value cached before, and evicts
+	 * least recently used entries if the maximum weight is exceeded.
+	 *
+	 * @param key key of the value
+	 * @param value value to be cached
+	 */
+	public synchronized void put(K key, V value) {
+		if (value == null) throw new IllegalArgumentException("put(): value must not be null.");
+		Entry<V> e = new Entry<V>(value, weigh(key, value));
+		Entry<V> old = entries.put(key, e);
+		if (old != null) {
+			weight -= old.weight;
+			if (old.value != value)
+				entryRemoved(key, old.value);
+		}
+		weight += e.weight;
+		evict();
+	}
+
+
+	/**
+	 * Removes least recently used entries until the total weight does not exceed the
+	 * maximum or only one entry is left.
+	 */
+	private void evict() {
+		Iterator<Map.Entry<K,Entry<V>>> it = entries.entrySet().iterator();
+		while (weight > maxWeight && entries.size() > 1) {
+			Map.Entry<K,Entry<V>> e = it.next();
+			it.remove();
+			weight -= e.getValue().weight;
+			evictions++;
+			entryRemoved(e.getKey(), e.getValue().value);
+		}
+	}
+
+
+	/**
+	 * Removes the value cached for the given key.
+	 *
+	 * @param key key of the value to be removed
+	 * @return the removed value, null if there was none
+	 */
+	public synchronized V remove(K key) {
+		Entry<V> e = entries.remove(key);
+		if (e == null)
+			return null;
+		weight -= e.weight;
+		entryRemoved(key, e.value);
+		return e.value;
+	}
+
+
+	/**
+	 * Removes all entries. The statistics are kept.
+	 */
+	public synchronized void clear() {
+		for (Map.Entry<K,Entry<V>> e: entries.entrySet())
+			entryRemoved(e.getKey(), e.getValue().value);
+		entries.clear();
+		weight = 0;
+	}
+
+
+	/**
+	 * Returns the weight of an entry. The weight of an entry must not change while it is cached.
+	 *
+	 * @param key key of the entry
+	 * @param value value of the entry
+	 * @return weight of the entry, 1 by default
+	 */
+	protected long weigh(K key, V value) {
+		return 1;
+	}
+
+
+	/**
+	 * Is called, with the lock of the cache held, whenever an entry leaves the cache
+	 * because it is evicted, removed, replaced or cleared.
+	 *
+	 * @param key key of the entry
+	 * @param value value of the entry
+	 */
+	protected void entryRemoved(K key, V value) {
+	}
+
+
+	/**
+	 * Sets the maximum total weight of the entries and evicts entries if necessary.
+	 *
+	 * @param maxWeight maximum total weight of the entries, must be positive
+	 */
+	public synchronized void setMaxWeight(long maxWeight) {
+		if (maxWeight < 1) throw new IllegalArgumentException("setMaxWeight(): maxWeight must be positive.");
+		this.maxWeight = maxWeight;
+		evict();
+	}
+
+
+	/**
+	 * Returns the maximum total weight of the entries.
+	 *
+	 * @return the maximum total weight of the entries
+	 */
+	public synchronized long getMaxWeight() {
+		return maxWeight;
+	}
+
+
+	/**
+	 * Returns the current total weight of the entries.
+	 *
+	 * @return the current total weight of the entries
+	 */
+	public synchronized long getWeight() {
+		return weight;
+	}
+
+
+	/**
+	 * Returns the number of cached entries.
+	 *
+	 * @return the number of cached entries
+	 */
+	public synchronized int size() {
+		return entries.size();
+	}
+
+
+	/**
+	 * Returns the number of lookups which found a value.
+	 *
+	 * @return the number of lookups which found a value
+	 */
+	public synchronized long getHits() {
+		return hits;
+	}
+
+
+	/**
+	 * Returns the number of lookups which found no value.
+	 *
+	 * @return the number of lookups which found no value
+	 */
+	public synchronized long getMisses() {
+		return misses;
+	}
+
+
+	/**
+	 * Returns the number of entries evicted because the maximum weight was exceeded.
+	 *
+	 * @return the number of evicted entries
+	 */
+	public synchronized long getEvictions() {
+		return evictions;
+	}
+
+
+	/**
+	 * Sets the numbers of hits, misses and evictions to 0.
+	 */
+	public synchronized void resetStatistics() {
+		hits = 0;
+		misses = 0;
+		evictions = 0;
+	}
+
+
+	/**
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public synchronized String toString() {
+		return "LRUCache[size=" + entries.size() + ", weight=" + weight + "/" + maxWeight
+				+ ", hits=" + hits + ", misses=" + misses + ", evictions=" + evictions + "]";
+	}
+}
@@ -0,0 +1,169 @@
+/*
+ * Copyright 2009 Dorothea Jansen <d.jansen@uni-muenster.de>, Martin Mohr <mohrfrosch@uni-muenster.de>, Irene Thesing <i_thes01@uni-muenster.de>, Anton Reis <antonreis@gmx.de>, Maria Schatz <m_scha17@uni-muenster.de>, Philipp Claves <philipp.claves@uni-muenster.de>, Sezar Jarrous <sezar.jarrous@gmail.com>
+ *
+ * This file is part of LETHAL.
+ *
+ * LETHAL is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * LETHAL is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with LETHAL.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.uni_muenster.cs.sev.lethal.utils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Numbers objects consecutively from 0 in the order they are added, as needed by
+ * algorithms working on arrays instead of collections of states or symbols. <br>
+ * {@link Interned Interned} objects are looked up by their interning number in an open-addressed
+ * table, without computing hash codes or comparing them. The table grows with the number of
+ * numbered objects, not with the interning numbers, which can be large for long-lived factories.
+ * Its slots remember the objects, so that interned objects of different factories with the same
+ * number do not get mixed up.
+ * All other objects are looked up in a hash map.
+ *
+ * @param <T> type of the numbered objects
+ *
+ * @author Martin
+ */
+public class Numbering<T> {
+
+	/** Numbered objects, indexed by their number. */
+	private final List<T> objects = new ArrayList<T>();
+
+	/** Numbers of the objects which are not looked up by their interning number. */
+	private final Map<T,Integer> numbers = new HashMap<T,Integer>();
+
+	/** Interned objects, placed by their interning number with linear probing. */
+	private Object[] interned = new Object[16];
+
+	/** Numbers of the interned objects, in the slots of the objects. */
+	private int[] internedNumbers = new int[16];
+
+	/** Number of the interned objects in the table. */
+	private int internedCount = 0;
+
+	/** Shift of the hashed interning numbers to the bits of a table index. */
+	private int shift = 32 - 4;
+
+
+	/**
+	 * Returns the number of the given object, numbering it if it has no number yet.
+	 *
+	 * @param t object to be numbered
+	 * @return number of the given object
+	 */
+	public int number(T t) {
+		int n = get(t);
+		if (n >= 0)
+			return n;
+		n = objects.size();
+		objects.add(t);
+		if (t instanceof Interned) {
+			if (2*(internedCount+1) > interned.length)
+				grow();
+			put(t, n);
+			internedCount++;
+		} else
+			numbers.put(t, n);
+		return n;
+	}
+
+
+	/**
+	 * Returns the number of the given object.
+	 *
+	 * @param t object whose number is to be returned
+	 * @return number of the given object, or -1 if it has no number
+	 */
+	public int get(Object t) {
+		if (t instanceof Interned) {
+			int mask = interned.length-1;
+			for (int i = slot(((Interned)t).getId()); interned[i] != null; i = (i+1) & mask)
+				if (interned[i] == t)
+					return internedNumbers[i];
+			return -1;
+		}
+		Integer n = numbers.get(t);
+		return (n == null) ? -1 : n;
+	}
+
+
+	/**
+	 * Returns the first slot to be probed for the given interning number.
+	 */
+	private int slot(int id) {
+		return (id * 0x9E3779B9) >>> shift;
+	}
+
+
+	/**
+	 * Puts the given interned object with the given number into the first free slot.
+	 */
+	private void put(Object t, int n) {
+		int mask = interned.length-1;
+		int i = slot(((Interned)t).getId());
+		while (interned[i] != null)
+			i = (i+1) & mask;
+		interned[i] = t;
+		internedNumbers[i] = n;
+	}
+
+
+	/**
+	 * Doubles the size of the table of the interned objects.
+	 */
+	private void grow() {
+		Object[] oldInterned = interned;
+		int[] oldNumbers = internedNumbers;
+		interned = new Object[2*oldInterned.length];
+		internedNumbers = new int[2*oldInterned.length];
+		shift--;
+		for (int i=0; i<oldInterned.length; i++)
+			if (oldInterned[i] != null)
+				put(oldInterned[i], oldNumbers[i]);
+	}
+
+
+	/**
+	 * Returns the object with the given number.
+	 *
+	 * @param n number of the object to be returned
+	 * @return object with the given number
+	 */
+	public T getObject(int n) {
+		return objects.get(n);
+	}
+
+
+	/**
+	 * Returns the numbered objects in the order of their numbers.
+	 *
+	 * @return unmodifiable list of the numbered objects
+	 */
+	public List<T> getObjects() {
+		return Collections.unmodifiableList(objects);
+	}
+
+
+	/**
+	 * Returns the number of numbered objects.
+	 *
+	 * @return the number of numbered objects
+	 */
+	public int size() {
+		return objects.size();
+	}
+}
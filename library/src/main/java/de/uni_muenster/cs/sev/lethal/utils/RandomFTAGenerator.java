@@ -12,6 +12,12 @@ import de.uni_muenster.cs.sev.lethal.states.NamedState;
 import de.uni_muenster.cs.sev.lethal.states.State;
 import de.uni_muenster.cs.sev.lethal.symbol.common.RankedSymbol;
 import de.uni_muenster.cs.sev.lethal.symbol.standard.StdNamedRankedSymbol;
+import de.uni_muenster.cs.sev.lethal.tree.common.Tree;
+import de.uni_muenster.cs.sev.lethal.tree.standard.StdTreeCreator;
+import de.uni_muenster.cs.sev.lethal.treeautomata.common.AbstractFTA;
+import de.uni_muenster.cs.sev.lethal.treeautomata.common.FTA;
+import de.uni_muenster.cs.sev.lethal.treeautomata.common.FTARule;
+import de.uni_muenster.cs.sev.lethal.treeautomata.common.TreeSampler;
 import de.uni_muenster.cs.sev.lethal.treeautomata.easy.EasyFTA;
 import de.uni_muenster.cs.sev.lethal.treeautomata.easy.EasyFTAOps;
 import de.uni_muenster.cs.sev.lethal.treeautomata.generic.GenFTA;
@@ -35,6 +41,13 @@ public class RandomFTAGenerator {
 	private RankedSymbol [] symbols;
 	private Random rg = null;
 
+	/** Sampler for the automaton of the last call of {@link #sampleTrees}, kept to reuse its count tables. */
+	private TreeSampler<RankedSymbol,State,Tree<RankedSymbol>> sampler = null;
+	/** Automaton of the last call of {@link #sampleTrees}. */
+	private FTA<RankedSymbol,State,? extends FTARule<RankedSymbol,State>> samplerFTA = null;
+	/** Modification count of the automaton of the last call of {@link #sampleTrees} when its sampler was built. */
+	private int samplerStamp = 0;
+
 	/**
 	 * Default seed for the random number generator underlying the random FTA generation.
 	 */
@@ -212,6 +225,29 @@ public class RandomFTAGenerator {
 	}
 
 
-
-
+	/**
+	 * Generates random trees of the given size, each drawn uniformly from all trees of this size
+	 * accepted by the given automaton. If the automaton is an {@link AbstractFTA}, the counts needed
+	 * for drawing are kept until the automaton is modified, so repeated calls with the same
+	 * automaton only pay for drawing the trees. For other automata they are computed at each call.
+	 * @param fta automaton whose trees are to be drawn
+	 * @param size number of nodes of the trees
+	 * @param count number of trees to be generated
+	 * @return the generated trees, or an empty list if the automaton accepts no tree of the given size
+	 * @see TreeSampler
+	 */
+	public List<Tree<RankedSymbol>> sampleTrees(FTA<RankedSymbol,State,? extends FTARule<RankedSymbol,State>> fta, int size, int count) {
+		boolean stamped = fta instanceof AbstractFTA<?,?,?>;
+		int stamp = stamped ? ((AbstractFTA<?,?,?>)fta).getModificationCount() : 0;
+		if (sampler == null || !stamped || samplerFTA != fta || samplerStamp != stamp) {
+			sampler = new TreeSampler<RankedSymbol,State,Tree<RankedSymbol>>(fta, new StdTreeCreator<RankedSymbol>(), new Random(rg.nextLong()));
+			samplerFTA = stamped ? fta : null;
+			samplerStamp = stamp;
+		}
+		List<Tree<RankedSymbol>> trees = new ArrayList<Tree<RankedSymbol>>(count);
+		if (sampler.count(size).signum() > 0)
+			for (int i=0; i<count; i++)
+				trees.add(sampler.sample(size));
+		return trees;
+	}
 }
@@ -29,6 +29,7 @@ import de.uni_muenster.cs.sev.lethal.hedgeautomaton.expressions.OrExpression;
 import de.uni_muenster.cs.sev.lethal.hedgeautomaton.wordAutomata.WordAutomaton;
 import de.uni_muenster.cs.sev.lethal.hedgeautomaton.wordAutomata.WordRule;
 
+import java.util.Arrays;
 import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
@@ -166,6 +167,7 @@ public class HedgeTest extends TestCase {
     subs1.add(h1);
     Tree<UnrankedSymbol> h2 = new StdTree<UnrankedSymbol>(b, subs1);
     assertTrue(HAOps.decide(autom, h2));
+    assertEquals(Arrays.asList(true, false, true), HAOps.decideAll(autom, Arrays.asList(h2, h1, h2)));
     //System.out.println(ta);
   }
 
@@ -21,6 +21,7 @@
  */
 package de.uni_muenster.cs.sev.lethal.tests;
 
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedList;
@@ -380,6 +381,33 @@ public class HomomorphismTest {
 	}
 
 
+	/**
+	 * Applies a homomorphism on a tree of depth 200000, which must not overflow the call stack.
+	 */
+	@Test
+	public void testApplyOnDeepTree() {
+		final int depth = 200000;
+		StdNamedRankedSymbol<String> f = new StdNamedRankedSymbol<String>("f", 2);
+		StdNamedRankedSymbol<String> g = new StdNamedRankedSymbol<String>("g", 2);
+		StdNamedRankedSymbol<String> n = new StdNamedRankedSymbol<String>("n", 1);
+		StdNamedRankedSymbol<String> a = new StdNamedRankedSymbol<String>("a", 0);
+		StdNamedRankedSymbol<String> b = new StdNamedRankedSymbol<String>("b", 0);
+		Tree<RankedSymbol> tree = new StdTree<RankedSymbol>(b);
+		Tree<RankedSymbol> expected = new StdTree<RankedSymbol>(b);
+		for (int i=0; i<depth; i++) {
+			LinkedList<Tree<RankedSymbol>> subTrees = new LinkedList<Tree<RankedSymbol>>();
+			subTrees.add(new StdTree<RankedSymbol>(a));
+			subTrees.add(tree);
+			tree = new StdTree<RankedSymbol>(f, subTrees);
+			LinkedList<Tree<RankedSymbol>> expSubTrees = new LinkedList<Tree<RankedSymbol>>();
+			expSubTrees.add(new StdTree<RankedSymbol>(n, Collections.singletonList(new StdTree<RankedSymbol>(a))));
+			expSubTrees.add(expected);
+			expected = new StdTree<RankedSymbol>(g, expSubTrees);
+		}
+		Assert.assertEquals(expected, h1.apply(tree));
+	}
+
+
 	/**
 	 * Tests the method {@link EasyHom#isLinear()}.
 	 */
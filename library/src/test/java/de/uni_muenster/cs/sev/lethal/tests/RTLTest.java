@@ -4,11 +4,16 @@
 package de.uni_muenster.cs.sev.lethal.tests;
 
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.stream.Collectors;
 
 import junit.framework.Assert;
 
@@ -17,13 +22,19 @@ import org.junit.Test;
 
 import de.uni_muenster.cs.sev.lethal.languages.RegularTreeLanguage;
 import de.uni_muenster.cs.sev.lethal.states.NamedState;
+import de.uni_muenster.cs.sev.lethal.states.NumberedState;
 import de.uni_muenster.cs.sev.lethal.states.State;
 import de.uni_muenster.cs.sev.lethal.symbol.common.RankedSymbol;
 import de.uni_muenster.cs.sev.lethal.symbol.standard.StdNamedRankedSymbol;
 import de.uni_muenster.cs.sev.lethal.tree.common.Tree;
+import de.uni_muenster.cs.sev.lethal.tree.common.TreeOps;
+import de.uni_muenster.cs.sev.lethal.tree.standard.StdTree;
+import de.uni_muenster.cs.sev.lethal.treeautomata.common.FTAProperties;
 import de.uni_muenster.cs.sev.lethal.treeautomata.common.SimpleFTARuleSet;
 import de.uni_muenster.cs.sev.lethal.treeautomata.easy.EasyFTA;
+import de.uni_muenster.cs.sev.lethal.treeautomata.easy.EasyFTAOps;
 import de.uni_muenster.cs.sev.lethal.treeautomata.easy.EasyFTARule;
+import de.uni_muenster.cs.sev.lethal.utils.RandomFTAGenerator;
 
 /**
  * Tests the usage of {@link RegularTreeLanguage}.
@@ -156,4 +167,227 @@ public class RTLTest {
 		Assert.assertTrue(L.isEmpty());
 	}
 
+
+	/**
+	 * Tests the counterexamples of the subset and equality checks of regular tree languages.
+	 */
+	@Test
+	public void testCounterexample() {
+		RegularTreeLanguage<RankedSymbol> L = new RegularTreeLanguage<RankedSymbol>(Arrays.asList(alphabet.get("a"),alphabet.get("h")));
+		RegularTreeLanguage<RankedSymbol> L1 = new RegularTreeLanguage<RankedSymbol>(testAutom.get("fta_even"));
+		Assert.assertTrue(L1.subsetOf(L));
+		Assert.assertNull(L1.subsetCounterexample(L));
+		Assert.assertFalse(L.subsetOf(L1));
+		Tree<RankedSymbol> t = L.subsetCounterexample(L1);
+		Assert.assertNotNull(t);
+		Assert.assertTrue(L.contains(t));
+		Assert.assertFalse(L1.contains(t));
+		t = L1.sameAsCounterexample(L);
+		Assert.assertNotNull(t);
+		Assert.assertTrue(L.contains(t) != L1.contains(t));
+		Assert.assertNull(L1.sameAsCounterexample(L1));
+	}
+
+
+	/**
+	 * Returns the tree h^n(a).
+	 *
+	 * @param n number of h's on top of the a
+	 * @return the tree h^n(a)
+	 */
+	static Tree<RankedSymbol> hTree(int n) {
+		Tree<RankedSymbol> t = new StdTree<RankedSymbol>(alphabet.get("a"));
+		for (int i=0; i<n; i++)
+			t = new StdTree<RankedSymbol>(alphabet.get("h"), Util.makeList(t));
+		return t;
+	}
+
+
+	/**
+	 * Tests adding and removing single trees, which modify the underlying automaton
+	 * incrementally, against the operations on whole languages.
+	 */
+	@Test
+	public void testIncrementalTrees() {
+		RegularTreeLanguage<RankedSymbol> L = new RegularTreeLanguage<RankedSymbol>(testAutom.get("fta_even"));
+		Assert.assertFalse(L.isFinite());
+		L.retainAllTrees(new RegularTreeLanguage<RankedSymbol>(testAutom.get("fta_odd")));
+		Assert.assertTrue(L.isEmpty());
+		Assert.assertTrue(L.isFinite());
+		Assert.assertNull(L.constructWitness());
+
+		// the trees share their subtrees, so only one state per height is needed
+		for (int i=5; i>=0; i--) {
+			L.addTree(hTree(i));
+			Assert.assertFalse(L.isEmpty());
+			Assert.assertTrue(L.isFinite());
+		}
+		L.addTree(hTree(3));
+		Assert.assertEquals(6, L.getFTA().getStates().size());
+		RegularTreeLanguage<RankedSymbol> all = new RegularTreeLanguage<RankedSymbol>(Arrays.asList(alphabet.get("a"),alphabet.get("h")));
+		Assert.assertTrue(L.sameAs(all.restrictToMaxHeight(6)));
+
+		L.removeTree(hTree(2));
+		L.removeTree(hTree(7));
+		Assert.assertTrue(L.isFinite());
+		Set<Tree<RankedSymbol>> trees = new HashSet<Tree<RankedSymbol>>();
+		for (Tree<RankedSymbol> t: L)
+			trees.add(t);
+		Assert.assertEquals(new HashSet<Tree<RankedSymbol>>(Arrays.asList(hTree(0),hTree(1),hTree(3),hTree(4),hTree(5))), trees);
+		L.addTree(hTree(2));
+		Assert.assertTrue(L.sameAs(all.restrictToMaxHeight(6)));
+
+		// remove and add again trees of an infinite language
+		RegularTreeLanguage<RankedSymbol> L1 = new RegularTreeLanguage<RankedSymbol>(testAutom.get("fta_reallynondet"));
+		RegularTreeLanguage<RankedSymbol> L2 = L1.copy(L1);
+		List<Tree<RankedSymbol>> removed = new ArrayList<Tree<RankedSymbol>>();
+		Iterator<Tree<RankedSymbol>> it = L1.iterator();
+		for (int i=0; i<5; i++) {
+			Tree<RankedSymbol> t = it.next();
+			removed.add(t);
+			L2.removeTree(t);
+			Assert.assertFalse(L2.contains(t));
+			Assert.assertTrue(L1.contains(t));
+		}
+		Assert.assertFalse(L2.isEmpty());
+		Assert.assertFalse(L2.isFinite());
+		Assert.assertTrue(L2.subsetOf(L1));
+		Assert.assertFalse(L1.subsetOf(L2));
+		for (Tree<RankedSymbol> t: removed)
+			L2.addTree(t);
+		Assert.assertTrue(L2.sameAs(L1));
+		Assert.assertFalse(L2.isFinite());
+		for (State q: L2.getFTA().getStates())
+			Assert.assertTrue(((NumberedState)q).getIndex() < L2.getFTA().getStates().size());
+	}
+
+
+	/**
+	 * Tests the minimal deterministic automaton of a regular tree language and the
+	 * complement computed from it.
+	 */
+	@Test
+	public void testMinimalForm() {
+		RegularTreeLanguage<RankedSymbol> L = new RegularTreeLanguage<RankedSymbol>(testAutom.get("fta_reallynondet"));
+		Assert.assertTrue(FTAProperties.checkDeterministic(L.getMinimalFTA()));
+		Assert.assertTrue(FTAProperties.sameLanguage(L.getFTA(), L.getMinimalFTA()));
+		Assert.assertSame(L.getMinimalFTA(), L.getMinimalFTA());
+
+		RegularTreeLanguage<RankedSymbol> C = L.complement();
+		Assert.assertEquals(L.getMinimalFTA().getStates().size(), C.getMinimalFTA().getStates().size());
+		for (int i=0; i<10; i++)
+			Assert.assertTrue(L.contains(hTree(i)) != C.contains(hTree(i)));
+		Assert.assertTrue(C.complement().sameAs(L));
+
+		// adding a tree changes the minimal form
+		Tree<RankedSymbol> t = C.constructWitness();
+		L.addTree(t);
+		Assert.assertTrue(L.getMinimalFTA().getStates().size() > 0);
+		Assert.assertTrue(FTAProperties.decide(L.getMinimalFTA(), t));
+		Assert.assertFalse(L.complement().contains(t));
+	}
+
+
+	/**
+	 * Returns all trees over the given alphabet up to the given size, grouped by size.
+	 *
+	 * @param symbols alphabet of the trees
+	 * @param maxSize maximal size of the trees
+	 * @return list containing at index s-1 all trees of size s
+	 */
+	static List<List<Tree<RankedSymbol>>> allTrees(Collection<RankedSymbol> symbols, int maxSize) {
+		List<List<Tree<RankedSymbol>>> bySize = new ArrayList<List<Tree<RankedSymbol>>>();
+		for (int s=1; s<=maxSize; s++) {
+			List<Tree<RankedSymbol>> trees = new ArrayList<Tree<RankedSymbol>>();
+			for (RankedSymbol f: symbols)
+				addAllTrees(f, new ArrayList<Tree<RankedSymbol>>(), s-1, bySize, trees);
+			bySize.add(trees);
+		}
+		return bySize;
+	}
+
+
+	/**
+	 * Adds all trees with the given symbol at the root and the given first subtrees, whose
+	 * remaining subtrees have the given total size.
+	 */
+	private static void addAllTrees(RankedSymbol f, List<Tree<RankedSymbol>> subTrees, int size, List<List<Tree<RankedSymbol>>> bySize, List<Tree<RankedSymbol>> result) {
+		if (subTrees.size() == f.getArity()) {
+			if (size == 0)
+				result.add(new StdTree<RankedSymbol>(f, new ArrayList<Tree<RankedSymbol>>(subTrees)));
+			return;
+		}
+		for (int s=1; s<=size; s++)
+			for (Tree<RankedSymbol> t: bySize.get(s-1)) {
+				subTrees.add(t);
+				addAllTrees(f, subTrees, size-s, bySize, result);
+				subTrees.remove(subTrees.size()-1);
+			}
+	}
+
+
+	/**
+	 * Returns the number of nodes of a tree.
+	 *
+	 * @param t tree to be measured
+	 * @return the number of nodes of the given tree
+	 */
+	static int size(Tree<RankedSymbol> t) {
+		int size = 1;
+		for (Tree<RankedSymbol> sub: t.getSubTrees())
+			size += size(sub);
+		return size;
+	}
+
+
+	/**
+	 * Tests the enumeration of the trees of regular tree languages by size and by height.
+	 */
+	@Test
+	public void testEnumeration() {
+		RegularTreeLanguage<RankedSymbol> even = new RegularTreeLanguage<RankedSymbol>(testAutom.get("fta_even"));
+		List<Tree<RankedSymbol>> first = new ArrayList<Tree<RankedSymbol>>();
+		for (Tree<RankedSymbol> t: even) {
+			first.add(t);
+			if (first.size() == 5)
+				break;
+		}
+		Assert.assertEquals(Arrays.asList(hTree(0),hTree(2),hTree(4),hTree(6),hTree(8)), first);
+		Assert.assertEquals(first, even.stream().limit(5).collect(Collectors.toList()));
+		Assert.assertEquals(3, even.stream(true, 5).count());
+
+		// finite languages end by themselves
+		RegularTreeLanguage<RankedSymbol> all = new RegularTreeLanguage<RankedSymbol>(Arrays.asList(alphabet.get("a"),alphabet.get("h")));
+		Assert.assertEquals(4, all.restrictToMaxHeight(4).stream().count());
+		Assert.assertEquals(4, all.restrictToMaxHeight(4).stream(true, 0).count());
+
+		// compare with all trees up to some size
+		RandomFTAGenerator gen = new RandomFTAGenerator(4, 4, 2, 16, 2, RandomFTAGenerator.DFLT_SEED);
+		for (int i=0; i<10; i++) {
+			EasyFTA fta = gen.generateRaw();
+			// trees of height at most 3 have at most 7 nodes
+			List<List<Tree<RankedSymbol>>> bySize = allTrees(fta.getAlphabet(), 7);
+			Set<Tree<RankedSymbol>> expected = new HashSet<Tree<RankedSymbol>>();
+			Set<Tree<RankedSymbol>> expectedByHeight = new HashSet<Tree<RankedSymbol>>();
+			for (List<Tree<RankedSymbol>> trees: bySize)
+				for (Tree<RankedSymbol> t: trees)
+					if (FTAProperties.decide(fta, t)) {
+						expected.add(t);
+						if (TreeOps.getHeight(t) <= 3)
+							expectedByHeight.add(t);
+					}
+			List<Tree<RankedSymbol>> enumerated = EasyFTAOps.streamTrees(fta, false, 7).collect(Collectors.toList());
+			Assert.assertEquals(expected.size(), enumerated.size());
+			Assert.assertEquals(expected, new HashSet<Tree<RankedSymbol>>(enumerated));
+			for (int j=1; j<enumerated.size(); j++)
+				Assert.assertTrue(size(enumerated.get(j-1)) <= size(enumerated.get(j)));
+
+			List<Tree<RankedSymbol>> byHeight = EasyFTAOps.streamTrees(fta, true, 3).collect(Collectors.toList());
+			Assert.assertEquals(expectedByHeight.size(), byHeight.size());
+			Assert.assertEquals(expectedByHeight, new HashSet<Tree<RankedSymbol>>(byHeight));
+			for (int j=1; j<byHeight.size(); j++)
+				Assert.assertTrue(TreeOps.getHeight(byHeight.get(j-1)) <= TreeOps.getHeight(byHeight.get(j)));
+		}
+	}
+
 }
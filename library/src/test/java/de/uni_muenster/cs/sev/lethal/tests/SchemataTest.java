@@ -22,8 +22,21 @@
 package de.uni_muenster.cs.sev.lethal.tests;
 
 
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
 import de.uni_muenster.cs.sev.lethal.hedgeautomaton.HAOps;
 import de.uni_muenster.cs.sev.lethal.hedgeautomaton.HedgeAutomaton;
+import de.uni_muenster.cs.sev.lethal.hedgeautomaton.StreamingHedgeValidator;
+import de.uni_muenster.cs.sev.lethal.hedgeautomaton.internal.TreeCache;
+import de.uni_muenster.cs.sev.lethal.hedgegrammar.Alternation;
 import de.uni_muenster.cs.sev.lethal.hedgegrammar.Concatenation;
 import de.uni_muenster.cs.sev.lethal.hedgegrammar.Epsilon;
 import de.uni_muenster.cs.sev.lethal.hedgegrammar.Function;
@@ -38,11 +51,17 @@ import junit.framework.Assert;
 import org.junit.Before;
 import org.junit.Test;
 
+import de.uni_muenster.cs.sev.lethal.parser.xml.XMLTreeParser;
+import de.uni_muenster.cs.sev.lethal.states.HedgeState;
 import de.uni_muenster.cs.sev.lethal.states.State;
+import de.uni_muenster.cs.sev.lethal.symbol.common.RankedSymbol;
 import de.uni_muenster.cs.sev.lethal.symbol.common.UnrankedSymbol;
+import de.uni_muenster.cs.sev.lethal.symbol.special.HedgeSymbol;
 import de.uni_muenster.cs.sev.lethal.symbol.standard.StdNamedUnrankedSymbol;
 import de.uni_muenster.cs.sev.lethal.tree.common.Tree;
 import de.uni_muenster.cs.sev.lethal.tree.standard.StdTree;
+import de.uni_muenster.cs.sev.lethal.treeautomata.common.FTAProperties;
+import de.uni_muenster.cs.sev.lethal.utils.LRUCache;
 
 /**
  * Tests the use of LETHAL with a schema for XML-documents on an example.
@@ -131,4 +150,232 @@ public class SchemataTest {
 	}
 
 
+	/**
+	 * Tests that validating XML documents while reading them gives the same results as
+	 * deciding the parsed hedges, with and without attributes.
+	 *
+	 * @throws Exception if something goes wrong
+	 */
+	@Test
+	public void testStreamingValidation() throws Exception {
+		HedgeAutomaton<UnrankedSymbol,State> ha_doc = schema_document.getHA();
+		StringBuilder longList = new StringBuilder("<doc><head><title/></head><body><list>");
+		for (int i=0; i<10000; i++)
+			longList.append("<entry id=\"").append(i).append("\">text</entry>\n");
+		longList.append("</list></body></doc>");
+		String[] documents = {
+				"<doc><body/><head/></doc>",
+				"<doc><head><title/></head><body><list/></body></doc>",
+				"<doc>\n <head><title>A title</title></head>\n <body><list><entry/><entry>x</entry></list></body>\n</doc>",
+				"<doc><head><title/></head><body><list><title/></list></body></doc>",
+				"<doc><head><title/></head><body><list/></body><body/></doc>",
+				"<doc a=\"1\"><head><title/></head><body><list/></body></doc>",
+				longList.toString()};
+		boolean[] expected = {false, true, true, false, false, true, true};
+
+		StreamingHedgeValidator<UnrankedSymbol,State> validator = new StreamingHedgeValidator<UnrankedSymbol,State>(ha_doc);
+		for (int i=0; i<documents.length; i++) {
+			File xmlfile = File.createTempFile("lethal", ".xml");
+			try {
+				Writer w = new OutputStreamWriter(new FileOutputStream(xmlfile), "UTF-8");
+				w.write(documents[i]);
+				w.close();
+				for (boolean attributes: new boolean[]{false, true}) {
+					boolean result = HAOps.decide(ha_doc, XMLTreeParser.parseHedgeFromXML(xmlfile, attributes));
+					Assert.assertEquals(documents[i], result, XMLTreeParser.validateHedgeFromXML(xmlfile, validator, attributes));
+					Assert.assertEquals(documents[i], result, XMLTreeParser.validateHedgeFromXML(xmlfile, ha_doc, attributes));
+				}
+				Assert.assertEquals(documents[i], expected[i], XMLTreeParser.validateHedgeFromXML(xmlfile, ha_doc, false));
+			} finally {
+				xmlfile.delete();
+			}
+		}
+
+		// events given directly
+		validator.reset();
+		validator.startNode(new StdNamedUnrankedSymbol<String>("doc"));
+		validator.startNode(new StdNamedUnrankedSymbol<String>("head"));
+		validator.startNode(new StdNamedUnrankedSymbol<String>("title"));
+		Assert.assertEquals(3, validator.getDepth());
+		Assert.assertTrue(validator.endNode());
+		Assert.assertTrue(validator.endNode());
+		Assert.assertFalse(validator.isComplete());
+		validator.startNode(new StdNamedUnrankedSymbol<String>("body"));
+		validator.startNode(new StdNamedUnrankedSymbol<String>("list"));
+		validator.endNode();
+		validator.endNode();
+		validator.endNode();
+		Assert.assertTrue(validator.isComplete());
+		Assert.assertTrue(validator.isAccepted());
+		Assert.assertEquals(5, validator.getNodeCount());
+	}
+
+
+
+	/**
+	 * Tests that deciding trees directly on their unranked form gives the same results as
+	 * deciding their binary encodings by the finite tree automaton of the hedge automaton.
+	 */
+	@Test
+	public void testUnrankedEvaluation() {
+		HedgeAutomaton<UnrankedSymbol,State> ha_doc = schema_document.getHA();
+		List<UnrankedSymbol> alphabet = new ArrayList<UnrankedSymbol>();
+		for (String name: new String[]{"doc", "head", "title", "body", "list", "entry"})
+			alphabet.add(new StdNamedUnrankedSymbol<String>(name));
+		List<Tree<UnrankedSymbol>> trees = new ArrayList<Tree<UnrankedSymbol>>();
+		trees.add(document_0);
+		trees.add(document_1);
+		Random random = new Random(4711);
+		for (int i=0; i<2000; i++)
+			trees.add(randomTree(alphabet, random, 4));
+
+		int accepted = 0;
+		for (Tree<UnrankedSymbol> tree: trees) {
+			Tree<HedgeSymbol<UnrankedSymbol>> encoded = TreeCache.transform(tree);
+			boolean expected = FTAProperties.decide(ha_doc.getTA(), encoded);
+			Assert.assertEquals(tree.toString(), expected, HAOps.decide(ha_doc, tree));
+			Set<State> states = new HashSet<State>(HedgeState.extractOriginal(FTAProperties.accessibleStates(ha_doc.getTA(), encoded)));
+			states.retainAll(ha_doc.getStates());
+			Assert.assertEquals(tree.toString(), states, HAOps.accessibleStates(ha_doc, tree));
+			if (expected) accepted++;
+		}
+		Assert.assertTrue(accepted > 0);
+		Assert.assertEquals(HAOps.decideAll(ha_doc, trees).get(1), Boolean.TRUE);
+
+		// deep trees are walked without recursion
+		Tree<UnrankedSymbol> deep = new StdTree<UnrankedSymbol>(alphabet.get(2));
+		for (int i=0; i<100000; i++)
+			deep = new StdTree<UnrankedSymbol>(alphabet.get(2), Util.makeList(deep));
+		Assert.assertFalse(HAOps.decide(ha_doc, deep));
+	}
+
+
+	/**
+	 * Tests the bounded caches used for the hedge automata: eviction of the least recently used
+	 * entries, their statistics, the lookup of hedges by their transformed trees and releasing
+	 * the data cached for an automaton.
+	 */
+	@Test
+	public void testCaches() {
+		LRUCache<String,Integer> cache = new LRUCache<String,Integer>(3);
+		cache.put("a", 1);
+		cache.put("b", 2);
+		cache.put("c", 3);
+		Assert.assertEquals(Integer.valueOf(1), cache.get("a"));
+		cache.put("d", 4);
+		Assert.assertNull(cache.get("b"));
+		Assert.assertEquals(3, cache.size());
+		Assert.assertEquals(1, cache.getEvictions());
+		Assert.assertEquals(1, cache.getHits());
+		Assert.assertEquals(1, cache.getMisses());
+		cache.setMaxWeight(1);
+		Assert.assertEquals(1, cache.size());
+		Assert.assertEquals(Integer.valueOf(4), cache.get("d"));
+
+		// trees are weighed by their number of nodes
+		LRUCache<Tree<? extends UnrankedSymbol>, Tree<? extends RankedSymbol>> trees = TreeCache.getCache();
+		long maxWeight = trees.getMaxWeight();
+		try {
+			TreeCache.clear();
+			trees.setMaxWeight(10);
+			Tree<HedgeSymbol<UnrankedSymbol>> encoded = TreeCache.getTree(document_1);
+			Assert.assertEquals(5, trees.getWeight());
+			Assert.assertSame(encoded, TreeCache.getTree(document_1));
+			Assert.assertSame(document_1, TreeCache.getHedge(encoded));
+			TreeCache.getTree(document_0);
+			Assert.assertEquals(8, trees.getWeight());
+			TreeCache.getTree(new StdTree<UnrankedSymbol>(document_1.getSymbol(), Util.makeList(document_0)));
+			Assert.assertEquals(2, trees.size());
+			Assert.assertNull(trees.get(document_1));
+			// the evicted hedge is transformed back from its tree
+			Assert.assertEquals(document_1, TreeCache.getHedge(encoded));
+		} finally {
+			trees.setMaxWeight(maxWeight);
+		}
+
+		HedgeAutomaton<UnrankedSymbol,State> ha_doc = schema_document.getHA();
+		Assert.assertTrue(HAOps.decide(ha_doc, document_1));
+		ha_doc.releaseCaches();
+		Assert.assertTrue(HAOps.decide(ha_doc, document_1));
+		Assert.assertFalse(HAOps.decide(ha_doc, document_0));
+	}
+
+
+	/**
+	 * Tests that content models with bounded repetitions are decided with the same results
+	 * as by the finite tree automaton, also for bounds which are too large to be unrolled.
+	 */
+	@Test
+	public void testBoundedRepetitions() {
+		UnrankedSymbol doc = new StdNamedUnrankedSymbol<String>("doc");
+		UnrankedSymbol x = new StdNamedUnrankedSymbol<String>("x");
+		UnrankedSymbol y = new StdNamedUnrankedSymbol<String>("y");
+		GrammarExpression<UnrankedSymbol> fx = new Function<UnrankedSymbol>(new Terminal<UnrankedSymbol>(x), new Epsilon<UnrankedSymbol>());
+		GrammarExpression<UnrankedSymbol> fy = new Function<UnrankedSymbol>(new Terminal<UnrankedSymbol>(y), new Epsilon<UnrankedSymbol>());
+		List<GrammarExpression<UnrankedSymbol>> models = new ArrayList<GrammarExpression<UnrankedSymbol>>();
+		models.add(new Range<UnrankedSymbol>(0, 500, fx));
+		models.add(new Range<UnrankedSymbol>(3, 5, fx));
+		models.add(new Range<UnrankedSymbol>(2, 3, new Concatenation<UnrankedSymbol>(new Range<UnrankedSymbol>(0, 2, fx), fy)));
+		models.add(new Range<UnrankedSymbol>(0, 4, new Alternation<UnrankedSymbol>(fx, new Concatenation<UnrankedSymbol>(fy, fy))));
+		models.add(new Range<UnrankedSymbol>(2, -1, new Alternation<UnrankedSymbol>(fx, fy)));
+		models.add(new Concatenation<UnrankedSymbol>(new Range<UnrankedSymbol>(3, 5, fx), new Range<UnrankedSymbol>(0, -1, fy)));
+		// nested repetitions inside unbounded ones are left to the finite tree automaton
+		models.add(new Range<UnrankedSymbol>(0, -1, new Concatenation<UnrankedSymbol>(new Range<UnrankedSymbol>(0, -1, fx), fy)));
+
+		Random random = new Random(4711);
+		List<Tree<UnrankedSymbol>> trees = new ArrayList<Tree<UnrankedSymbol>>();
+		for (int i=0; i<300; i++) {
+			List<Tree<UnrankedSymbol>> subTrees = new ArrayList<Tree<UnrankedSymbol>>();
+			int n = random.nextInt(10);
+			for (int j=0; j<n; j++)
+				subTrees.add(new StdTree<UnrankedSymbol>(random.nextInt(3) == 0 ? y : x));
+			trees.add(new StdTree<UnrankedSymbol>(doc, subTrees));
+		}
+		for (GrammarExpression<UnrankedSymbol> model: models) {
+			HedgeAutomaton<UnrankedSymbol,State> ha = makeHA(doc, model);
+			List<Boolean> results = new ArrayList<Boolean>();
+			for (Tree<UnrankedSymbol> tree: trees)
+				results.add(HAOps.decide(ha, tree));
+			for (int i=0; i<trees.size(); i++)
+				Assert.assertEquals(model + ": " + trees.get(i), FTAProperties.decide(ha.getTA(), TreeCache.transform(trees.get(i))), results.get(i).booleanValue());
+		}
+
+		// the bounds do not need to be unrolled
+		List<Tree<UnrankedSymbol>> items = new ArrayList<Tree<UnrankedSymbol>>();
+		for (int i=0; i<1000; i++)
+			items.add(new StdTree<UnrankedSymbol>(x));
+		Tree<UnrankedSymbol> big = new StdTree<UnrankedSymbol>(doc, items);
+		Assert.assertTrue(HAOps.decide(makeHA(doc, new Range<UnrankedSymbol>(0, 1000000, fx)), big));
+		Assert.assertFalse(HAOps.decide(makeHA(doc, new Range<UnrankedSymbol>(0, 999, fx)), big));
+		Assert.assertTrue(HAOps.decide(makeHA(doc, new Range<UnrankedSymbol>(1000, 1000000, fx)), big));
+		Assert.assertFalse(HAOps.decide(makeHA(doc, new Range<UnrankedSymbol>(1001, 1000000, fx)), big));
+	}
+
+
+	/**
+	 * Creates the hedge automaton of a grammar with a single rule for the given root symbol
+	 * and content model.
+	 */
+	private static HedgeAutomaton<UnrankedSymbol,State> makeHA(UnrankedSymbol root, GrammarExpression<UnrankedSymbol> model) {
+		HedgeGrammar<UnrankedSymbol> grammar = new HedgeGrammar<UnrankedSymbol>();
+		Nonterminal<UnrankedSymbol> start = new Nonterminal<UnrankedSymbol>("start");
+		grammar.addStart(start);
+		grammar.add(new GrammarRule<UnrankedSymbol>(start, new Terminal<UnrankedSymbol>(root), model));
+		return grammar.getHA();
+	}
+
+
+	/**
+	 * Creates a random tree with the given symbols whose root is labelled by doc
+	 * about every second time.
+	 */
+	private static Tree<UnrankedSymbol> randomTree(List<UnrankedSymbol> alphabet, Random random, int height) {
+		UnrankedSymbol symbol = alphabet.get(random.nextInt(alphabet.size()));
+		List<Tree<UnrankedSymbol>> subTrees = new ArrayList<Tree<UnrankedSymbol>>();
+		int n = height == 0 ? 0 : random.nextInt(3);
+		for (int i=0; i<n; i++)
+			subTrees.add(randomTree(alphabet, random, height-1));
+		return new StdTree<UnrankedSymbol>(symbol, subTrees);
+	}
+
 }
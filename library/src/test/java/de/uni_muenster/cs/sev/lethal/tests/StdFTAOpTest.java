@@ -22,36 +22,63 @@
 package de.uni_muenster.cs.sev.lethal.tests;
 
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.Random;
 import java.util.Set;
 import java.util.Stack;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
 
 import org.junit.Assert;
 import org.junit.BeforeClass;
 import org.junit.Test;
 
+import de.uni_muenster.cs.sev.lethal.factories.HashConsingTreeFactory;
+import de.uni_muenster.cs.sev.lethal.factories.InterningStateFactory;
+import de.uni_muenster.cs.sev.lethal.factories.InterningSymbolFactory;
 import de.uni_muenster.cs.sev.lethal.languages.RegularTreeLanguage;
 import de.uni_muenster.cs.sev.lethal.parser.tree.TreeParser;
+import de.uni_muenster.cs.sev.lethal.states.InternedState;
 import de.uni_muenster.cs.sev.lethal.states.NamedState;
 import de.uni_muenster.cs.sev.lethal.states.State;
 import de.uni_muenster.cs.sev.lethal.symbol.common.RankedSymbol;
+import de.uni_muenster.cs.sev.lethal.symbol.standard.InternedRankedSymbol;
 import de.uni_muenster.cs.sev.lethal.symbol.standard.StdNamedRankedSymbol;
 import de.uni_muenster.cs.sev.lethal.tree.common.Tree;
 import de.uni_muenster.cs.sev.lethal.tree.common.TreeOps;
+import de.uni_muenster.cs.sev.lethal.tree.standard.HashConsingTreeCreator;
+import de.uni_muenster.cs.sev.lethal.tree.standard.StdTree;
 import de.uni_muenster.cs.sev.lethal.tree.standard.StdTreeCreator;
+import de.uni_muenster.cs.sev.lethal.treeautomata.common.EpsilonClosure;
+import de.uni_muenster.cs.sev.lethal.treeautomata.common.FTA;
+import de.uni_muenster.cs.sev.lethal.treeautomata.common.FTAEpsRule;
 import de.uni_muenster.cs.sev.lethal.treeautomata.common.FTACreator;
 import de.uni_muenster.cs.sev.lethal.treeautomata.common.FTAOps;
 import de.uni_muenster.cs.sev.lethal.treeautomata.common.FTAProperties;
+import de.uni_muenster.cs.sev.lethal.treeautomata.common.IndexedFTARuleSet;
+import de.uni_muenster.cs.sev.lethal.treeautomata.common.LimitExceededException;
 import de.uni_muenster.cs.sev.lethal.treeautomata.common.SimpleFTARuleSet;
+import de.uni_muenster.cs.sev.lethal.treeautomata.common.TreeSampler;
 import de.uni_muenster.cs.sev.lethal.treeautomata.easy.EasyFTA;
 import de.uni_muenster.cs.sev.lethal.treeautomata.easy.EasyFTAEpsRule;
 import de.uni_muenster.cs.sev.lethal.treeautomata.easy.EasyFTAOps;
 import de.uni_muenster.cs.sev.lethal.treeautomata.easy.EasyFTARule;
+import de.uni_muenster.cs.sev.lethal.treeautomata.symbolic.SymbolPredicate;
+import de.uni_muenster.cs.sev.lethal.treeautomata.symbolic.SymbolicFTA;
+import de.uni_muenster.cs.sev.lethal.treeautomata.symbolic.SymbolicFTAOps;
+import de.uni_muenster.cs.sev.lethal.treeautomata.symbolic.SymbolicFTARule;
+import de.uni_muenster.cs.sev.lethal.utils.BatchEvaluator;
+import de.uni_muenster.cs.sev.lethal.utils.Interned;
+import de.uni_muenster.cs.sev.lethal.utils.Numbering;
 import de.uni_muenster.cs.sev.lethal.utils.RandomFTAGenerator;
 
 
@@ -951,6 +978,91 @@ public class StdFTAOpTest {
 
 	}
 
+	/**
+	 * Test method for {@link EasyFTAOps#intersection}.<br>
+	 * The intersection of a list of automata must have the same language as the chain of binary
+	 * intersections, accept exactly the test trees all automata accept, and be reduced.
+	 */
+	@Test
+	public void testIntersectionOfMany() {
+		for (EasyFTA A1: testAutom.values()) {
+			for (EasyFTA A2: testAutom.values()) {
+				List<EasyFTA> ftas = Arrays.asList(A1, A2);
+				EasyFTA i12 = EasyFTAOps.intersection(ftas);
+				Assert.assertTrue(FTAProperties.sameLanguage(i12, EasyFTAOps.intersectionBU(A1, A2)));
+				for (Tree<RankedSymbol> t: testTrees.values())
+					Assert.assertEquals(FTAProperties.decide(A1, t) && FTAProperties.decide(A2, t), FTAProperties.decide(i12, t));
+			}
+			Assert.assertTrue(FTAProperties.sameLanguage(A1, EasyFTAOps.intersection(Arrays.asList(A1))));
+		}
+
+		RandomFTAGenerator rfc = new RandomFTAGenerator(3, 3, 2, 20, 1, RandomFTAGenerator.DFLT_SEED);
+		for (int i=0; i<10; i++) {
+			List<EasyFTA> ftas = new ArrayList<EasyFTA>();
+			EasyFTA chain = null;
+			for (int j=0; j<2+i%3; j++) {
+				EasyFTA A = rfc.generateRaw();
+				ftas.add(A);
+				chain = chain == null ? A : EasyFTAOps.intersectionBU(chain, A);
+			}
+			EasyFTA inter = EasyFTAOps.intersection(ftas);
+			Assert.assertTrue(FTAProperties.subsetLanguageAntichain(inter, chain, true));
+			Assert.assertTrue(FTAProperties.subsetLanguageAntichain(chain, inter, true));
+			Assert.assertEquals(EasyFTAOps.reduceFull(inter).getStates().size(), inter.getStates().size());
+			Assert.assertEquals(EasyFTAOps.reduceFull(inter).getRules().size(), inter.getRules().size());
+		}
+	}
+
+	/**
+	 * Test method for {@link FTAProperties#emptyIntersection} and {@link FTAProperties#intersectionWitness}.<br>
+	 * The check must agree with the emptiness of the intersection automaton, and each witness
+	 * must be accepted by all automata, also if it is deep.
+	 */
+	@Test
+	public void testEmptyIntersection() {
+		StdTreeCreator<RankedSymbol> tc = new StdTreeCreator<RankedSymbol>();
+		List<List<EasyFTA>> lists = new ArrayList<List<EasyFTA>>();
+		for (EasyFTA A1: testAutom.values())
+			for (EasyFTA A2: testAutom.values())
+				lists.add(Arrays.asList(A1, A2));
+		RandomFTAGenerator rfc = new RandomFTAGenerator(4, 3, 2, 15, 1, RandomFTAGenerator.DFLT_SEED);
+		for (int i=0; i<20; i++) {
+			List<EasyFTA> ftas = new ArrayList<EasyFTA>();
+			for (int j=0; j<1+i%4; j++)
+				ftas.add(rfc.generateRaw());
+			lists.add(ftas);
+		}
+		for (List<EasyFTA> ftas: lists) {
+			boolean empty = FTAProperties.emptyLanguage(EasyFTAOps.intersection(ftas));
+			Assert.assertEquals(empty, FTAProperties.emptyIntersection(ftas));
+			Tree<RankedSymbol> t = FTAProperties.intersectionWitness(ftas, tc);
+			Assert.assertEquals(empty, t == null);
+			if (t != null)
+				for (EasyFTA A: ftas)
+					Assert.assertTrue(FTAProperties.decide(A, t));
+			if (ftas.size() == 2)
+				Assert.assertEquals(empty, FTAProperties.emptyIntersection(ftas.get(0), ftas.get(1)));
+		}
+		Assert.assertTrue(FTAProperties.emptyIntersection(testAutom.get("fta_L1_1"), testAutom.get("empty")));
+
+		// the only witness is g(g(...g(b)...)) of depth 50001
+		final int depth = 50000;
+		StdNamedRankedSymbol<String> g = new StdNamedRankedSymbol<String>("g", 1);
+		StdNamedRankedSymbol<String> b = new StdNamedRankedSymbol<String>("b", 0);
+		List<EasyFTARule> counter = new ArrayList<EasyFTARule>();
+		counter.add(new EasyFTARule(b, new NamedState<Integer>(0)));
+		for (int i=0; i<depth; i++)
+			counter.add(new EasyFTARule(g, new NamedState<Integer>(i+1), new NamedState<Integer>(i)));
+		EasyFTA C = new EasyFTA(counter, new NamedState<Integer>(depth));
+		EasyFTA all = new EasyFTA(Arrays.asList(
+				new EasyFTARule(b, new NamedState<String>("p")),
+				new EasyFTARule(g, new NamedState<String>("p"), new NamedState<String>("p"))),
+				new NamedState<String>("p"));
+		Tree<RankedSymbol> t = FTAProperties.intersectionWitness(Arrays.asList(C, all), tc);
+		Assert.assertEquals(depth+1, TreeOps.getHeight(t));
+		Assert.assertTrue(FTAProperties.decide(C, t));
+	}
+
 	/**
 	 * Test method for {@link EasyFTAOps#union}.<br>
 	 * Test whether the union is symmetric and contains the language of both finite tree automata, once
@@ -1048,6 +1160,31 @@ public class StdFTAOpTest {
 		}
 	}
 
+	/**
+	 * Test method for {@link EasyFTAOps#determinize(FTA, int, long)}.<br>
+	 *
+	 * Random automata are determinized and the results are checked as in
+	 * {@link #testDeterminize}. Determinizing with a state limit below the number of
+	 * states of the result must fail.
+	 */
+	@Test
+	public void testDeterminizeLimit() {
+		RandomFTAGenerator rfc = new RandomFTAGenerator(8, 4, 2, 30, 2, RandomFTAGenerator.DFLT_SEED);
+		for (int i=0; i<10; i++) {
+			EasyFTA A = rfc.generateRaw();
+			EasyFTA dA = EasyFTAOps.determinize(A, 0, 0);
+			Assert.assertTrue("Must be deterministic.",FTAProperties.checkDeterministic(dA));
+			Assert.assertTrue("Must have same language.",FTAProperties.sameLanguage(A, dA));
+			Assert.assertEquals(dA.getStates().size(), EasyFTAOps.determinize(A, dA.getStates().size(), 0).getStates().size());
+		}
+		try {
+			EasyFTAOps.determinize(testAutom.get("fta_reallynondet"), 1<<nondet_index, 0);
+			Assert.fail("State limit must be exceeded.");
+		} catch (LimitExceededException e) {
+			// expected
+		}
+	}
+
 	/**
 	 * Test method for {@link EasyFTAOps#complete} and
 	 * {@link FTAProperties#checkComplete}. <br>
@@ -1089,12 +1226,42 @@ public class StdFTAOpTest {
 		}
 	}
 
+	/**
+	 * Test method for {@link EasyFTAOps#minimizeHopcroft}. <br>
+	 *
+	 * The result finite tree automaton should have the same language as the given one,
+	 * be deterministic and have the same number of states as the result of
+	 * {@link EasyFTAOps#minimize}. This is checked for the test automata and for some
+	 * random automata; only for the test automata with more than 20 states after
+	 * determinization, the number of states is just bounded.
+	 */
+	@Test
+	public void testMinimizeHopcroft() {
+		List<EasyFTA> automata = new LinkedList<EasyFTA>(testAutom.values());
+		RandomFTAGenerator rfc = new RandomFTAGenerator(6, 4, 2, 20, 2, RandomFTAGenerator.DFLT_SEED);
+		for (int i=0; i<10; i++)
+			automata.add(rfc.generateRaw());
+		for (EasyFTA A: automata){
+			EasyFTA detA = EasyFTAOps.determinize(A);
+			EasyFTA hopA = EasyFTAOps.minimizeHopcroft(detA);
+			Assert.assertTrue(FTAProperties.sameLanguage(A,hopA));
+			Assert.assertTrue(FTAProperties.checkDeterministic(hopA));
+			// minimize compares all pairs of states, which takes too long for the larger automata
+			if (detA.getStates().size() <= 20)
+				Assert.assertEquals(EasyFTAOps.minimize(detA).getStates().size(), hopA.getStates().size());
+			else
+				//one state extra for completing
+				Assert.assertTrue(hopA.getStates().size() <= detA.getStates().size()+1);
+		}
+	}
+
 	/**
 	 * Test method for {@link EasyFTAOps#reduceBottomUp} and
 	 * {@link EasyFTAOps#reduceTopDown} . <br>
 	 *
 	 * By reducing the language must not change, we test this which different ways of reducing.
 	 * The second property of reducing is that the count of the rules must decrise.
+	 * After removing rules, the results must be the same as for a new automaton with the remaining rules.
 	 */
 	@Test
 	public void testReduce() {
@@ -1107,6 +1274,20 @@ public class StdFTAOpTest {
 			for (State q: redBuA.getStates()) {
 				Assert.assertNotNull(FTAOps.constructTreeAcceptedInState(A, new StdTreeCreator<RankedSymbol>(), q,0, true));
 			}
+
+			// removed rules leave gaps in the rule index, which must be skipped
+			EasyFTA B = new EasyFTA(A);
+			boolean remove = false;
+			for (EasyFTARule r: new ArrayList<EasyFTARule>(B.getRules())) {
+				if (remove)
+					B.removeRule(r);
+				remove = !remove;
+			}
+			EasyFTA freshB = new EasyFTA(B);
+			Assert.assertEquals(EasyFTAOps.reduceFull(freshB).getRules(), EasyFTAOps.reduceFull(B).getRules());
+			Assert.assertEquals(EasyFTAOps.reduceTopDown(freshB).getRules(), EasyFTAOps.reduceTopDown(B).getRules());
+			Assert.assertEquals(FTAProperties.emptyLanguage(freshB), FTAProperties.emptyLanguage(B));
+			Assert.assertEquals(FTAProperties.finiteLanguage(freshB), FTAProperties.finiteLanguage(B));
 		}
 	}
 
@@ -1175,6 +1356,80 @@ public class StdFTAOpTest {
 		}
 	}
 
+	/**
+	 * Test method for {@link FTAProperties#subsetCounterexample} and
+	 * {@link FTAProperties#sameLanguageCounterexample}. <br>
+	 * The lazy check must agree with the emptiness of the difference automaton, and
+	 * each counterexample must be accepted by the first automaton, but not by the second one,
+	 * also if it is deep.
+	 */
+	@Test
+	public void testSubsetCounterexample() {
+		StdTreeCreator<RankedSymbol> tc = new StdTreeCreator<RankedSymbol>();
+		List<EasyFTA> automata = new ArrayList<EasyFTA>(testAutom.values());
+		RandomFTAGenerator rfc = new RandomFTAGenerator(5, 3, 2, 12, 2, RandomFTAGenerator.DFLT_SEED);
+		for (int i=0; i<10; i++)
+			automata.add(rfc.generateRaw());
+		for (EasyFTA A1: automata) {
+			for (EasyFTA A2: automata) {
+				Tree<RankedSymbol> t = FTAProperties.subsetCounterexample(A1, A2, tc);
+				Assert.assertEquals(FTAProperties.emptyLanguage(EasyFTAOps.difference(A1, A2)), t == null);
+				if (t != null) {
+					Assert.assertTrue(FTAProperties.decide(A1, t));
+					Assert.assertFalse(FTAProperties.decide(A2, t));
+				}
+				t = FTAProperties.sameLanguageCounterexample(A1, A2, tc);
+				Assert.assertEquals(FTAProperties.sameLanguage(A1, A2), t == null);
+				if (t != null)
+					Assert.assertTrue(FTAProperties.decide(A1, t) != FTAProperties.decide(A2, t));
+			}
+		}
+
+		// the only counterexample is g(g(...g(b)...)) of depth 50001;
+		// it is the only tree of this height, so checking the height suffices
+		final int depth = 50000;
+		StdNamedRankedSymbol<String> g = new StdNamedRankedSymbol<String>("g", 1);
+		StdNamedRankedSymbol<String> b = new StdNamedRankedSymbol<String>("b", 0);
+		List<EasyFTARule> counter = new ArrayList<EasyFTARule>();
+		counter.add(new EasyFTARule(b, new NamedState<Integer>(0)));
+		for (int i=0; i<depth; i++)
+			counter.add(new EasyFTARule(g, new NamedState<Integer>(i+1), new NamedState<Integer>(i)));
+		EasyFTA C = new EasyFTA(counter, new NamedState<Integer>(depth));
+		EasyFTA onlyB = new EasyFTA(Arrays.asList(new EasyFTARule(b, new NamedState<String>("p"))), new NamedState<String>("p"));
+		Tree<RankedSymbol> t = FTAProperties.subsetCounterexample(C, onlyB, tc);
+		Assert.assertEquals(depth+1, TreeOps.getHeight(t));
+		Assert.assertFalse(FTAProperties.decide(onlyB, t));
+		t = FTAProperties.sameLanguageCounterexample(C, onlyB, tc);
+		Assert.assertEquals(depth+1, TreeOps.getHeight(t));
+	}
+
+	/**
+	 * Test method for {@link FTAProperties#subsetLanguageAntichain} and
+	 * {@link FTAProperties#universalLanguage}. <br>
+	 * With and without simulation, the antichain-based checks must agree with
+	 * {@link FTAProperties#subsetLanguage}.
+	 */
+	@Test
+	public void testSubsetLanguageAntichain() {
+		List<EasyFTA> automata = new ArrayList<EasyFTA>(testAutom.values());
+		RandomFTAGenerator rfc = new RandomFTAGenerator(6, 3, 2, 20, 2, RandomFTAGenerator.DFLT_SEED);
+		for (int i=0; i<10; i++)
+			automata.add(rfc.generateRaw());
+		for (EasyFTA A1: automata) {
+			for (EasyFTA A2: automata) {
+				boolean subset = FTAProperties.subsetLanguage(A1, A2);
+				Assert.assertEquals(subset, FTAProperties.subsetLanguageAntichain(A1, A2, false));
+				Assert.assertEquals(subset, FTAProperties.subsetLanguageAntichain(A1, A2, true));
+			}
+			Set<RankedSymbol> alphabet = A1.getAlphabet();
+			boolean universal = FTAProperties.subsetLanguage(EasyFTAOps.computeAlphabetFTA(alphabet), A1);
+			Assert.assertEquals(universal, FTAProperties.universalLanguage(A1, alphabet, false));
+			Assert.assertEquals(universal, FTAProperties.universalLanguage(A1, alphabet, true));
+		}
+		Assert.assertTrue(FTAProperties.universalLanguage(EasyFTAOps.complement(testAutom.get("empty")),
+				testAutom.get("empty").getAlphabet(), true));
+	}
+
 	/**
 	 * Test method for {@link FTAProperties#emptyLanguage}. <br>
 	 * Tests whether the language is empty for some empty and non empty automata.
@@ -1441,4 +1696,739 @@ public class StdFTAOpTest {
 
 
 
+
+	/**
+	 * Creates a random tree over the given symbols with at most the given height.
+	 *
+	 * @param symbols symbols the tree is built of, at least one of them must be a constant
+	 * @param height maximal height of the tree
+	 * @param rnd random number generator to be used
+	 * @return a random tree over the given symbols
+	 */
+	private static Tree<RankedSymbol> randomTree(RankedSymbol[] symbols, int height, Random rnd) {
+		RankedSymbol f;
+		do {
+			f = symbols[rnd.nextInt(symbols.length)];
+		} while (height <= 1 && f.getArity() > 0);
+		List<Tree<RankedSymbol>> subTrees = new LinkedList<Tree<RankedSymbol>>();
+		for (int i=0; i<f.getArity(); i++)
+			subTrees.add(randomTree(symbols, height-1, rnd));
+		return new StdTreeCreator<RankedSymbol>().makeTree(f, subTrees);
+	}
+
+	/**
+	 * Tests that the {@link de.uni_muenster.cs.sev.lethal.treeautomata.common.CompiledFTA compiled form}
+	 * used by {@link FTAProperties#decide}, {@link FTAProperties#accessibleStates} and
+	 * {@link FTAOps#annotateTreeWithStates} computes the same results as the generic algorithms. <br>
+	 * The generic algorithms are enforced by hiding the automaton behind a plain {@link FTA}.
+	 */
+	@Test
+	public void testCompiledFTA() {
+		RandomFTAGenerator rfc = new RandomFTAGenerator(100, 6, 3, 400, 10, RandomFTAGenerator.DFLT_SEED);
+		Random rnd = new Random(RandomFTAGenerator.DFLT_SEED);
+		for (int i=0; i<10; i++) {
+			final EasyFTA A = rfc.generateRaw();
+			FTA<RankedSymbol,State,EasyFTARule> plainA = new FTA<RankedSymbol,State,EasyFTARule>() {
+				public Set<State> getStates() {return A.getStates();}
+				public Set<State> getFinalStates() {return A.getFinalStates();}
+				public Set<? extends EasyFTARule> getRules() {return A.getRules();}
+				public Set<? extends EasyFTARule> getSymbolRules(RankedSymbol f) {return A.getSymbolRules(f);}
+				public Set<RankedSymbol> getAlphabet() {return A.getAlphabet();}
+			};
+			List<Tree<RankedSymbol>> trees = new LinkedList<Tree<RankedSymbol>>(testTrees.values());
+			for (int j=0; j<50; j++)
+				trees.add(randomTree(rfc.getSymbols(), 1+rnd.nextInt(6), rnd));
+			Tree<RankedSymbol> witness = EasyFTAOps.constructTreeFrom(A);
+			if (witness != null)
+				trees.add(witness);
+			for (Tree<RankedSymbol> t: trees) {
+				Assert.assertEquals(t.toString(), FTAProperties.accessibleStates(plainA, t), FTAProperties.accessibleStates(A, t));
+				Assert.assertEquals(t.toString(), FTAProperties.decide(plainA, t), FTAProperties.decide(A, t));
+				Assert.assertEquals(t.toString(), FTAProperties.decide(plainA, t), A.getCompiledForm().decide(t));
+				Assert.assertEquals(t.toString(), FTAOps.annotateTreeWithStates(plainA, t), A.annotateTreeWithStates(t));
+			}
+			if (witness != null)
+				Assert.assertTrue(A.decide(witness));
+		}
+	}
+
+
+	/**
+	 * Test method for {@link FTAProperties#decideAll} and {@link FTAProperties#batchDecider}. <br>
+	 * The results must be the same as those of {@link FTAProperties#decide}, in input order or
+	 * streamed to a listener, on the common pool as well as on virtual threads, also if there
+	 * are more chunks than are evaluated at once.
+	 */
+	@Test
+	public void testDecideAll() throws InterruptedException {
+		RandomFTAGenerator rfc = new RandomFTAGenerator(50, 6, 3, 300, 10, RandomFTAGenerator.DFLT_SEED);
+		Random rnd = new Random(RandomFTAGenerator.DFLT_SEED);
+		EasyFTA A = rfc.generateRaw();
+		List<Tree<RankedSymbol>> trees = new ArrayList<Tree<RankedSymbol>>();
+		for (int j=0; j<1000; j++)
+			trees.add(randomTree(rfc.getSymbols(), 1+rnd.nextInt(6), rnd));
+		List<Boolean> expected = new ArrayList<Boolean>();
+		for (Tree<RankedSymbol> t: trees)
+			expected.add(FTAProperties.decide(A, t));
+
+		Assert.assertEquals(expected, FTAProperties.decideAll(A, trees));
+
+		ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+		try {
+			BatchEvaluator<Tree<? extends RankedSymbol>,Boolean> decider = FTAProperties.batchDecider(A, executor);
+			Assert.assertEquals(expected, decider.evaluateAll(trees.stream()));
+			final Boolean[] streamed = new Boolean[trees.size()];
+			decider.evaluateAll(trees, new BatchEvaluator.ResultListener<Tree<? extends RankedSymbol>,Boolean>() {
+				@Override
+				public void resultAvailable(long index, Tree<? extends RankedSymbol> input, Boolean result) {
+					streamed[(int)index] = result;
+				}
+			});
+			Assert.assertEquals(expected, Arrays.asList(streamed));
+			Assert.assertEquals(2*trees.size(), decider.getEvaluatedCount());
+			Assert.assertTrue(decider.getThroughput() > 0);
+			// more chunks than are kept in flight
+			BatchEvaluator<Tree<? extends RankedSymbol>,Boolean> single = new BatchEvaluator<Tree<? extends RankedSymbol>,Boolean>(decider.getFunction(), executor, 1);
+			Assert.assertEquals(expected, single.evaluateAll(trees));
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+
+	/**
+	 * Test method for {@link HashConsingTreeFactory}, {@link FTAProperties#decideDAG} and
+	 * {@link FTAProperties#accessibleStatesDAG}. <br>
+	 * Equal trees must be interned to the same object and stay equal to the original trees,
+	 * and evaluating the shared trees must give the same results as evaluating the original ones.
+	 */
+	@Test
+	public void testHashConsing() {
+		HashConsingTreeCreator<RankedSymbol> hc = new HashConsingTreeCreator<RankedSymbol>();
+		HashConsingTreeFactory factory = hc.getFactory();
+		StdNamedRankedSymbol<String> f = new StdNamedRankedSymbol<String>("f", 2);
+		StdNamedRankedSymbol<String> a = new StdNamedRankedSymbol<String>("a", 0);
+
+		// full binary tree of height 20 with 2^20 leaves, but only 21 distinct subtrees
+		Tree<RankedSymbol> shared = hc.makeTree(a);
+		for (int i=0; i<20; i++) {
+			List<Tree<RankedSymbol>> subTrees = new ArrayList<Tree<RankedSymbol>>();
+			subTrees.add(shared);
+			subTrees.add(hc.makeTree(shared.getSymbol(), new ArrayList<Tree<RankedSymbol>>(shared.getSubTrees())));
+			shared = hc.makeTree(f, subTrees);
+		}
+		Assert.assertSame(shared.getSubTrees().get(0), shared.getSubTrees().get(1));
+		Assert.assertTrue(factory.isInterned(shared));
+		Assert.assertEquals(21, factory.size());
+		Assert.assertEquals(shared.getSymbol(), factory.intern(shared).getSymbol());
+		Assert.assertSame(shared, factory.intern(shared));
+
+		// states q for all trees, e and o for trees with an even and odd number of f's on each path
+		EasyFTA B = new EasyFTA(Arrays.asList(
+				new EasyFTARule(a, new NamedState<String>("q")),
+				new EasyFTARule(f, new NamedState<String>("q"), new NamedState<String>("q"), new NamedState<String>("q")),
+				new EasyFTARule(a, new NamedState<String>("e")),
+				new EasyFTARule(f, new NamedState<String>("o"), new NamedState<String>("e"), new NamedState<String>("e")),
+				new EasyFTARule(f, new NamedState<String>("e"), new NamedState<String>("o"), new NamedState<String>("o"))),
+				new NamedState<String>("e"));
+		Assert.assertTrue(FTAProperties.decideDAG(B, shared));
+		Assert.assertEquals(2, FTAProperties.accessibleStatesDAG(B, shared).size());
+		Assert.assertFalse(FTAProperties.decideDAG(B, shared.getSubTrees().get(0)));
+		Assert.assertEquals(21, FTAOps.annotateTreeWithStates(B, shared).size());
+
+		RandomFTAGenerator rfc = new RandomFTAGenerator(50, 6, 3, 300, 10, RandomFTAGenerator.DFLT_SEED);
+		Random rnd = new Random(RandomFTAGenerator.DFLT_SEED);
+		EasyFTA A = rfc.generateRaw();
+		for (int j=0; j<200; j++) {
+			Tree<RankedSymbol> t = randomTree(rfc.getSymbols(), 1+rnd.nextInt(6), rnd);
+			Tree<RankedSymbol> ht = factory.intern(t);
+			Assert.assertEquals(t, ht);
+			Assert.assertEquals(ht, t);
+			Assert.assertEquals(t.hashCode(), ht.hashCode());
+			Assert.assertSame(ht, factory.intern(new StdTreeCreator<RankedSymbol>().makeTree(t.getSymbol(), new ArrayList<Tree<RankedSymbol>>(t.getSubTrees()))));
+			Assert.assertEquals(FTAProperties.accessibleStates(A, t), FTAProperties.accessibleStatesDAG(A, ht));
+			Assert.assertEquals(FTAProperties.decide(A, t), FTAProperties.decideDAG(A, ht));
+			Map<Tree<RankedSymbol>,Set<State>> annotation = FTAOps.annotateTreeWithStates(A, ht);
+			Stack<Tree<RankedSymbol>> toDo = new Stack<Tree<RankedSymbol>>();
+			toDo.push(t);
+			while (!toDo.isEmpty()) {
+				Tree<RankedSymbol> s = toDo.pop();
+				Assert.assertEquals(FTAProperties.accessibleStates(A, s), annotation.get(s));
+				toDo.addAll(s.getSubTrees());
+			}
+		}
+	}
+
+
+	/**
+	 * Tests that the tree traversals do not overflow the call stack on deep trees. <br>
+	 * The trees are lists a(a(...a(b)...)) and f(a,f(a,...f(a,b)...)) of depth 200000,
+	 * which must be handled by {@link TreeOps}, {@link FTAProperties} with compiled and
+	 * plain automata, by equals and hashCode of standard trees and by {@link HashConsingTreeFactory}.
+	 */
+	@Test
+	public void testDeepTrees() {
+		final int depth = 200000;
+		StdNamedRankedSymbol<String> f = new StdNamedRankedSymbol<String>("f", 2);
+		StdNamedRankedSymbol<String> g = new StdNamedRankedSymbol<String>("g", 1);
+		StdNamedRankedSymbol<String> a = new StdNamedRankedSymbol<String>("a", 0);
+		StdNamedRankedSymbol<String> b = new StdNamedRankedSymbol<String>("b", 0);
+		StdTreeCreator<RankedSymbol> tc = new StdTreeCreator<RankedSymbol>();
+		Tree<RankedSymbol> list1 = tc.makeTree(b);
+		Tree<RankedSymbol> list2 = tc.makeTree(b);
+		Tree<RankedSymbol> unary = tc.makeTree(b);
+		for (int i=0; i<depth; i++) {
+			List<Tree<RankedSymbol>> subTrees1 = new ArrayList<Tree<RankedSymbol>>();
+			subTrees1.add(tc.makeTree(a));
+			subTrees1.add(list1);
+			list1 = tc.makeTree(f, subTrees1);
+			List<Tree<RankedSymbol>> subTrees2 = new ArrayList<Tree<RankedSymbol>>();
+			subTrees2.add(tc.makeTree(a));
+			subTrees2.add(list2);
+			list2 = tc.makeTree(f, subTrees2);
+			List<Tree<RankedSymbol>> subTrees3 = new ArrayList<Tree<RankedSymbol>>();
+			subTrees3.add(unary);
+			unary = tc.makeTree(g, subTrees3);
+		}
+		Assert.assertEquals(depth+1, TreeOps.getHeight(list1));
+		Assert.assertEquals(depth+1, TreeOps.getHeight(unary));
+		Assert.assertTrue(TreeOps.containsSymbol(list1, b));
+		Assert.assertEquals(list1.hashCode(), list2.hashCode());
+		Assert.assertEquals(list1, list2);
+		Assert.assertFalse(list1.equals(unary));
+
+		// lists with an even number of a's
+		final EasyFTA A = new EasyFTA(Arrays.asList(
+				new EasyFTARule(a, new NamedState<String>("a")),
+				new EasyFTARule(b, new NamedState<String>("e")),
+				new EasyFTARule(g, new NamedState<String>("o"), new NamedState<String>("e")),
+				new EasyFTARule(g, new NamedState<String>("e"), new NamedState<String>("o")),
+				new EasyFTARule(f, new NamedState<String>("o"), new NamedState<String>("a"), new NamedState<String>("e")),
+				new EasyFTARule(f, new NamedState<String>("e"), new NamedState<String>("a"), new NamedState<String>("o"))),
+				new NamedState<String>("e"));
+		FTA<RankedSymbol,State,EasyFTARule> plainA = new FTA<RankedSymbol,State,EasyFTARule>() {
+			public Set<State> getStates() {return A.getStates();}
+			public Set<State> getFinalStates() {return A.getFinalStates();}
+			public Set<? extends EasyFTARule> getRules() {return A.getRules();}
+			public Set<? extends EasyFTARule> getSymbolRules(RankedSymbol f) {return A.getSymbolRules(f);}
+			public Set<RankedSymbol> getAlphabet() {return A.getAlphabet();}
+		};
+		for (Tree<RankedSymbol> t: Arrays.asList(list1, unary)) {
+			Assert.assertTrue(A.decide(t));
+			Assert.assertTrue(FTAProperties.decide(plainA, t));
+			Assert.assertTrue(FTAProperties.decideDAG(A, t));
+			Assert.assertEquals(Collections.singleton(new NamedState<String>("e")), FTAProperties.accessibleStates(plainA, t));
+			Assert.assertEquals(1, FTAProperties.applicableRules(plainA, t).size());
+			Assert.assertFalse(A.decide(t.getSubTrees().get(t.getSubTrees().size()-1)));
+		}
+		Assert.assertEquals(depth+1, FTAOps.annotateTreeWithStates(A, unary).size());
+
+		// interning shares the leaves a and the equal lists
+		HashConsingTreeFactory factory = new HashConsingTreeFactory();
+		Tree<RankedSymbol> shared = factory.intern(list1);
+		Assert.assertSame(shared, factory.intern(list2));
+		Assert.assertEquals(list1, shared);
+		Assert.assertEquals(depth+2, factory.size());
+		Assert.assertSame(shared, factory.makeTreeFromSymbol(f, list2.getSubTrees()));
+		Assert.assertTrue(FTAProperties.decideDAG(A, shared));
+	}
+
+
+	/**
+	 * Test method for {@link TreeSampler}. <br>
+	 * The counts must agree with the enumerated trees, the drawn trees must be accepted
+	 * and have the requested size, and all trees of a size must be drawn about equally often.
+	 */
+	@Test
+	public void testTreeSampler() {
+		RandomFTAGenerator rfc = new RandomFTAGenerator(4, 4, 2, 16, 2, RandomFTAGenerator.DFLT_SEED);
+		Random random = new Random(RandomFTAGenerator.DFLT_SEED);
+		StdTreeCreator<RankedSymbol> tc = new StdTreeCreator<RankedSymbol>();
+		boolean uniformityChecked = false;
+		for (int i=0; i<10; i++) {
+			EasyFTA A = rfc.generateRaw();
+			TreeSampler<RankedSymbol,State,Tree<RankedSymbol>> sampler = new TreeSampler<RankedSymbol,State,Tree<RankedSymbol>>(A, tc, random);
+			Map<Integer,List<Tree<RankedSymbol>>> bySize = new HashMap<Integer,List<Tree<RankedSymbol>>>();
+			for (int s=1; s<=7; s++)
+				bySize.put(s, new ArrayList<Tree<RankedSymbol>>());
+			for (Tree<RankedSymbol> t: EasyFTAOps.streamTrees(A, false, 7).collect(Collectors.toList()))
+				bySize.get(RTLTest.size(t)).add(t);
+			for (int s=7; s>=1; s--) {
+				Assert.assertEquals(bySize.get(s).size(), sampler.count(s).intValue());
+				Tree<RankedSymbol> t = sampler.sample(s);
+				Assert.assertEquals(bySize.get(s).isEmpty(), t == null);
+				if (t != null) {
+					Assert.assertEquals(s, RTLTest.size(t));
+					Assert.assertTrue(FTAProperties.decide(A, t));
+				}
+			}
+
+			int n = bySize.get(5).size();
+			if (n >= 2 && n <= 30) {
+				Map<Tree<RankedSymbol>,Integer> frequency = new HashMap<Tree<RankedSymbol>,Integer>();
+				for (int j=0; j<400*n; j++) {
+					Tree<RankedSymbol> t = sampler.sample(5);
+					frequency.put(t, frequency.containsKey(t) ? frequency.get(t)+1 : 1);
+				}
+				Assert.assertEquals(new HashSet<Tree<RankedSymbol>>(bySize.get(5)), frequency.keySet());
+				for (int f: frequency.values())
+					Assert.assertTrue(f > 300 && f < 500);
+				uniformityChecked = true;
+			}
+
+			Tree<RankedSymbol> large = sampler.sample(200, 250);
+			if (large != null) {
+				Assert.assertTrue(RTLTest.size(large) >= 200 && RTLTest.size(large) <= 250);
+				Assert.assertTrue(FTAProperties.decide(A, large));
+			}
+
+			for (Tree<RankedSymbol> t: rfc.sampleTrees(A, 9, 200))
+				Assert.assertTrue(FTAProperties.decide(A, t));
+			// after a modification the trees must come from the new language
+			A.removeFromFinals(A.getFinalStates().iterator().next());
+			List<Tree<RankedSymbol>> trees = rfc.sampleTrees(A, 9, 200);
+			Assert.assertEquals(new TreeSampler<RankedSymbol,State,Tree<RankedSymbol>>(A, tc, random).count(9).signum() > 0, !trees.isEmpty());
+			for (Tree<RankedSymbol> t: trees)
+				Assert.assertTrue(FTAProperties.decide(A, t));
+		}
+		Assert.assertTrue(uniformityChecked);
+	}
+
+
+	/**
+	 * Tests the epsilon covers computed by {@link EpsilonClosure} on random epsilon rules
+	 * with cycles against a simple search, and the elimination of epsilon rules added
+	 * to a modifiable automaton.
+	 */
+	@Test
+	public void testEpsilonClosure() {
+		Random random = new Random(7);
+		for (int round=0; round<20; round++) {
+			int n = 5 + random.nextInt(60);
+			List<State> qs = new ArrayList<State>();
+			for (int i=0; i<n; i++)
+				qs.add(new NamedState<Integer>(i));
+			List<EasyFTAEpsRule> epsRules = new ArrayList<EasyFTAEpsRule>();
+			int m = random.nextInt(2*n);
+			for (int i=0; i<m; i++)
+				epsRules.add(new EasyFTAEpsRule(qs.get(random.nextInt(n)), qs.get(random.nextInt(n))));
+			EpsilonClosure<State> closure = new EpsilonClosure<State>(epsRules);
+			for (State q: qs) {
+				Set<State> expected = new HashSet<State>();
+				Stack<State> toDo = new Stack<State>();
+				toDo.push(q);
+				while (!toDo.isEmpty()) {
+					State p = toDo.pop();
+					for (EasyFTAEpsRule e: epsRules)
+						if (e.getSrcState().equals(p) && expected.add(e.getDestState()))
+							toDo.push(e.getDestState());
+				}
+				Assert.assertEquals(expected, new HashSet<State>(closure.getCover(q)));
+				Assert.assertEquals(!expected.isEmpty(), closure.hasCover(q));
+				Set<State> spanned = new HashSet<State>();
+				for (FTAEpsRule<State> e: closure.getSpanningRules(q)) {
+					Assert.assertTrue(e.getSrcState().equals(q) || spanned.contains(e.getSrcState()));
+					Assert.assertTrue(spanned.add(e.getDestState()));
+				}
+				Assert.assertEquals(expected, spanned);
+			}
+		}
+
+		// a -> q0, q0 -> q1 -> q2 -> q0, q2 -> qf, f(qf) -> q1, qf final
+		RankedSymbol a = new StdNamedRankedSymbol<String>("a", 0);
+		RankedSymbol f = new StdNamedRankedSymbol<String>("f", 1);
+		List<State> q = new ArrayList<State>();
+		for (int i=0; i<3; i++)
+			q.add(new NamedState<String>("q" + i));
+		State qf = new NamedState<String>("qf");
+		EasyFTA fta = new EasyFTA();
+		fta.addRule(a, new ArrayList<State>(), q.get(0));
+		fta.addRule(f, Util.makeList(qf), q.get(1));
+		fta.addToFinals(qf);
+		List<EasyFTAEpsRule> cycle = new ArrayList<EasyFTAEpsRule>();
+		cycle.add(new EasyFTAEpsRule(q.get(0), q.get(1)));
+		cycle.add(new EasyFTAEpsRule(q.get(1), q.get(2)));
+		cycle.add(new EasyFTAEpsRule(q.get(2), q.get(0)));
+		cycle.add(new EasyFTAEpsRule(q.get(2), qf));
+		EasyFTA fromEps = new EasyFTA(fta.getRules(), cycle, fta.getFinalStates());
+		for (EasyFTAEpsRule e: cycle)
+			fta.addEpsilonRule(e.getSrcState(), e.getDestState());
+		Assert.assertEquals(8, fta.getRules().size());
+		Assert.assertEquals(8, fromEps.getRules().size());
+		Assert.assertTrue(FTAProperties.sameLanguage(fta, fromEps));
+		Tree<RankedSymbol> t = new StdTree<RankedSymbol>(a);
+		for (int i=0; i<5; i++) {
+			Assert.assertTrue(FTAProperties.decide(fta, t));
+			t = new StdTree<RankedSymbol>(f, Util.makeList(t));
+		}
+	}
+
+
+	/**
+	 * Tests the interning of states and symbols and the numbering of interned and
+	 * other objects, and that automata with interned states and symbols behave
+	 * like the original ones.
+	 */
+	@Test
+	public void testInterning() {
+		InterningStateFactory stateFact = new InterningStateFactory();
+		InterningSymbolFactory symbolFact = new InterningSymbolFactory();
+		InternedState<Set<String>> q = stateFact.makeState(new HashSet<String>(Arrays.asList("a", "b")));
+		Assert.assertSame(q, stateFact.makeState(new HashSet<String>(Arrays.asList("b", "a"))));
+		Assert.assertNotSame(q, stateFact.makeState(new HashSet<String>(Arrays.asList("a"))));
+		Assert.assertFalse(q.equals(new NamedState<Set<String>>(q.getName())));
+		Assert.assertNotSame(stateFact.makeState(), stateFact.makeState());
+		Assert.assertEquals(4, stateFact.getStateCount());
+		for (int i=0; i<stateFact.getStateCount(); i++)
+			Assert.assertEquals(i, stateFact.getState(i).getId());
+		InternedRankedSymbol<String> f = symbolFact.makeRankedSymbol("f", 2);
+		Assert.assertSame(f, symbolFact.makeRankedSymbol("f", 2));
+		Assert.assertNotSame(f, symbolFact.makeRankedSymbol("f", 1));
+		Assert.assertEquals(2, symbolFact.getSymbolCount());
+
+		// interned states of another factory get the same ids
+		InterningStateFactory otherFact = new InterningStateFactory();
+		Numbering<State> numbering = new Numbering<State>();
+		List<State> numbered = new ArrayList<State>();
+		for (int i=0; i<3; i++) {
+			numbered.add(stateFact.getState(i));
+			numbered.add(otherFact.makeState(i));
+			numbered.add(new NamedState<Integer>(i));
+		}
+		for (int i=0; i<numbered.size(); i++)
+			Assert.assertEquals(i, numbering.number(numbered.get(i)));
+		for (int i=0; i<numbered.size(); i++) {
+			Assert.assertEquals(i, numbering.get(numbered.get(i)));
+			Assert.assertSame(numbered.get(i), numbering.getObject(i));
+		}
+		Assert.assertEquals(-1, numbering.get(otherFact.makeState(3)));
+		Assert.assertEquals(numbered.size(), numbering.size());
+
+		// interned states with very large ids, as handed out by long-lived factories
+		class LargeIdState implements State, Interned {
+			private final int id;
+			LargeIdState(int id) {
+				this.id = id;
+			}
+			public int getId() {
+				return id;
+			}
+		}
+		numbering = new Numbering<State>();
+		numbered = new ArrayList<State>();
+		for (int i=0; i<40; i++)
+			numbered.add(new LargeIdState(Integer.MAX_VALUE - (i%20)*1000003));
+		for (int i=0; i<numbered.size(); i++)
+			Assert.assertEquals(i, numbering.number(numbered.get(i)));
+		for (int i=0; i<numbered.size(); i++) {
+			Assert.assertEquals(i, numbering.get(numbered.get(i)));
+			Assert.assertSame(numbered.get(i), numbering.getObject(i));
+		}
+		Assert.assertEquals(-1, numbering.get(new LargeIdState(Integer.MAX_VALUE)));
+		Assert.assertEquals(numbered.size(), numbering.size());
+
+		// random automata with interned states and symbols
+		RandomFTAGenerator rfc = new RandomFTAGenerator(6, 4, 2, 20, 2, 3);
+		for (int i=0; i<5; i++) {
+			EasyFTA fta = rfc.generateRaw();
+			List<EasyFTARule> rules = new ArrayList<EasyFTARule>();
+			for (EasyFTARule r: fta.getRules()) {
+				List<State> src = new ArrayList<State>();
+				for (State p: r.getSrcStates())
+					src.add(stateFact.makeState(p));
+				rules.add(new EasyFTARule(symbolFact.makeRankedSymbol(r.getSymbol(), r.getSymbol().getArity()), src, stateFact.makeState(r.getDestState())));
+			}
+			Set<State> finals = new HashSet<State>();
+			for (State p: fta.getFinalStates())
+				finals.add(stateFact.makeState(p));
+			EasyFTA interned = new EasyFTA(rules, finals);
+			EasyFTA det = EasyFTAOps.determinize(interned);
+			Assert.assertTrue(FTAProperties.sameLanguage(interned, det));
+			for (int k=1; k<=6; k++) {
+				Set<Tree<RankedSymbol>> expected = new HashSet<Tree<RankedSymbol>>();
+				for (Tree<RankedSymbol> t: EasyFTAOps.streamTrees(fta, false, k).collect(Collectors.<Tree<RankedSymbol>>toList()))
+					if (RTLTest.size(t) == k)
+						expected.add(t);
+				int found = 0;
+				for (Tree<RankedSymbol> t: EasyFTAOps.streamTrees(det, false, k).collect(Collectors.<Tree<RankedSymbol>>toList()))
+					if (RTLTest.size(t) == k) {
+						Assert.assertTrue(FTAProperties.decide(fta, uninterned(t)));
+						found++;
+					}
+				Assert.assertEquals(expected.size(), found);
+			}
+		}
+	}
+
+
+	/**
+	 * Tests the indexes of {@link IndexedFTARuleSet} against the rules while rules are
+	 * added and removed, and the index of a finite tree automaton.
+	 */
+	@Test
+	public void testRuleIndex() {
+		RandomFTAGenerator rfc = new RandomFTAGenerator(8, 4, 3, 60, 2, 5);
+		Random random = new Random(5);
+		for (int i=0; i<5; i++) {
+			EasyFTA fta = rfc.generateRaw();
+			List<EasyFTARule> all = new ArrayList<EasyFTARule>(fta.getRules());
+			IndexedFTARuleSet<RankedSymbol,State,EasyFTARule> index = new IndexedFTARuleSet<RankedSymbol,State,EasyFTARule>(all);
+			Set<EasyFTARule> expected = new HashSet<EasyFTARule>(all);
+			for (int round=0; round<6; round++) {
+				Assert.assertEquals(expected, new HashSet<EasyFTARule>(index));
+				Assert.assertEquals(expected.size(), index.size());
+				for (State q: fta.getStates()) {
+					Set<EasyFTARule> src = new HashSet<EasyFTARule>(), dest = new HashSet<EasyFTARule>();
+					for (EasyFTARule r: expected) {
+						if (r.getSrcStates().contains(q))
+							src.add(r);
+						if (r.getDestState().equals(q))
+							dest.add(r);
+					}
+					Assert.assertEquals(src.size(), index.getSrcRules(q).size());
+					Assert.assertEquals(src, new HashSet<EasyFTARule>(index.getSrcRules(q)));
+					Assert.assertEquals(dest, new HashSet<EasyFTARule>(index.getDestRules(q)));
+					for (RankedSymbol f: fta.getAlphabet())
+						for (int k=0; k<f.getArity(); k++) {
+							Set<EasyFTARule> srcAt = new HashSet<EasyFTARule>();
+							for (EasyFTARule r: expected)
+								if (r.getSymbol().equals(f) && r.getSrcStates().get(k).equals(q))
+									srcAt.add(r);
+							Assert.assertEquals(srcAt, new HashSet<EasyFTARule>(index.getSrcRules(f, k, q)));
+						}
+				}
+				for (RankedSymbol f: fta.getAlphabet()) {
+					Set<EasyFTARule> symbolRules = new HashSet<EasyFTARule>();
+					for (EasyFTARule r: expected)
+						if (r.getSymbol().equals(f))
+							symbolRules.add(r);
+					Assert.assertEquals(symbolRules, index.getSymbolRules(f));
+				}
+
+				// remove some rules directly and by the iterator, add some again
+				for (EasyFTARule r: all)
+					if (random.nextInt(4) == 0) {
+						Assert.assertEquals(expected.remove(r), index.remove(r));
+					}
+				Iterator<EasyFTARule> it = index.iterator();
+				while (it.hasNext()) {
+					EasyFTARule r = it.next();
+					if (random.nextInt(4) == 0) {
+						it.remove();
+						expected.remove(r);
+					}
+				}
+				for (EasyFTARule r: all)
+					if (random.nextInt(3) == 0) {
+						Assert.assertEquals(expected.add(r), index.add(r));
+					}
+			}
+
+			// the index of an automaton follows its modifications
+			EasyFTA mod = new EasyFTA(all, fta.getFinalStates());
+			IndexedFTARuleSet<RankedSymbol,State,EasyFTARule> ftaIndex = FTAOps.getRuleIndex(mod);
+			Assert.assertEquals(mod.getRules(), ftaIndex);
+			State q = all.get(0).getDestState();
+			mod.addRule(all.get(0).getSymbol(), all.get(0).getSrcStates(), new NamedState<String>("fresh"));
+			mod.addEpsilonRule(new NamedState<String>("fresh"), q);
+			Assert.assertEquals(mod.getRules(), FTAOps.getRuleIndex(mod));
+			Assert.assertEquals(1, FTAOps.getRuleIndex(mod).getDestRules(new NamedState<String>("fresh")).size());
+		}
+	}
+
+
+	/**
+	 * Tests the reductions, the emptiness and the finiteness check against simple fixed point
+	 * computations on random automata, half of which have only rules leading from smaller to
+	 * larger states and thus finite languages.
+	 */
+	@Test
+	public void testReachability() {
+		Random random = new Random(19);
+		RankedSymbol[] symbols = {new StdNamedRankedSymbol<String>("a", 0), new StdNamedRankedSymbol<String>("b", 0),
+				new StdNamedRankedSymbol<String>("g", 1), new StdNamedRankedSymbol<String>("f", 2), new StdNamedRankedSymbol<String>("h", 3)};
+		for (int i=0; i<200; i++) {
+			boolean acyclic = i%2 == 0;
+			List<State> states = new ArrayList<State>();
+			for (int k=0; k<8; k++)
+				states.add(new NamedState<String>("q" + k));
+			List<EasyFTARule> rules = new ArrayList<EasyFTARule>();
+			for (int k=random.nextInt(16); k>0; k--) {
+				RankedSymbol f = symbols[random.nextInt(symbols.length)];
+				int dest = random.nextInt(states.size());
+				if (acyclic && dest == 0 && f.getArity() > 0)
+					continue;
+				List<State> src = new ArrayList<State>();
+				for (int j=0; j<f.getArity(); j++)
+					src.add(states.get(acyclic ? random.nextInt(dest) : random.nextInt(states.size())));
+				rules.add(new EasyFTARule(f, src, states.get(dest)));
+			}
+			Set<State> finals = new HashSet<State>();
+			for (int k=random.nextInt(3); k>=0; k--)
+				finals.add(states.get(random.nextInt(states.size())));
+			EasyFTA fta = new EasyFTA(rules, finals);
+
+			// accessible states and rules
+			Set<State> acc = new HashSet<State>();
+			Set<EasyFTARule> accRules = new HashSet<EasyFTARule>();
+			boolean changed = true;
+			while (changed) {
+				changed = false;
+				for (EasyFTARule r: rules)
+					if (acc.containsAll(r.getSrcStates()))
+						changed |= accRules.add(r) | acc.add(r.getDestState());
+			}
+			EasyFTA bu = EasyFTAOps.reduceBottomUp(fta);
+			Assert.assertEquals(accRules, bu.getRules());
+			Assert.assertEquals(acc, bu.getStates());
+			Set<State> accFinals = new HashSet<State>(finals);
+			accFinals.retainAll(acc);
+			Assert.assertEquals(accFinals.isEmpty(), FTAProperties.emptyLanguage(fta));
+
+			// coaccessible states and rules
+			Set<State> coacc = new HashSet<State>(finals);
+			Set<EasyFTARule> coaccRules = new HashSet<EasyFTARule>();
+			changed = true;
+			while (changed) {
+				changed = false;
+				for (EasyFTARule r: rules)
+					if (coacc.contains(r.getDestState()))
+						changed |= coaccRules.add(r) | coacc.addAll(r.getSrcStates());
+			}
+			EasyFTA td = EasyFTAOps.reduceTopDown(fta);
+			Assert.assertEquals(coaccRules, td.getRules());
+			Assert.assertEquals(coacc, td.getStates());
+
+			// full reduction is reduced in both directions
+			EasyFTA full = EasyFTAOps.reduceFull(fta);
+			Assert.assertEquals(full.getRules(), EasyFTAOps.reduceBottomUp(full).getRules());
+			Assert.assertEquals(full.getRules(), EasyFTAOps.reduceTopDown(full).getRules());
+			Assert.assertEquals(full.getFinalStates(), EasyFTAOps.reduceBottomUp(full).getFinalStates());
+			Assert.assertTrue(FTAProperties.sameLanguage(fta, full));
+
+			// the language is infinite iff a state of the full reduction reaches itself
+			boolean cycle = false;
+			for (State q: full.getStates()) {
+				Set<State> reached = new HashSet<State>();
+				LinkedList<State> todo = new LinkedList<State>();
+				todo.add(q);
+				while (!todo.isEmpty()) {
+					State p = todo.poll();
+					for (EasyFTARule r: full.getRules())
+						if (r.getDestState().equals(p))
+							for (State src: r.getSrcStates())
+								if (reached.add(src))
+									todo.add(src);
+				}
+				cycle |= reached.contains(q);
+			}
+			Assert.assertEquals(!cycle, FTAProperties.finiteLanguage(fta));
+			if (acyclic)
+				Assert.assertTrue(FTAProperties.finiteLanguage(fta));
+		}
+	}
+
+
+	/**
+	 * Tests symbolic finite tree automata: the conversions from and to finite tree automata,
+	 * determinization, completion and complementation, on random automata and on an automaton
+	 * over an unbounded alphabet given by name patterns.
+	 */
+	@Test
+	public void testSymbolicFTA() {
+		RandomFTAGenerator rfc = new RandomFTAGenerator(5, 4, 2, 15, 2, 20);
+		for (int i=0; i<10; i++) {
+			EasyFTA fta = rfc.generateRaw();
+			SymbolicFTA<RankedSymbol,State> sym = SymbolicFTAOps.fromFTA(fta);
+			Assert.assertTrue(FTAProperties.sameLanguage(fta, SymbolicFTAOps.toGenFTA(sym, fta.getAlphabet())));
+			SymbolicFTA<RankedSymbol,NamedState<Set<State>>> det = SymbolicFTAOps.determinize(sym);
+			for (SymbolicFTARule<RankedSymbol,NamedState<Set<State>>> r1: det.getRules())
+				for (SymbolicFTARule<RankedSymbol,NamedState<Set<State>>> r2: det.getRules())
+					if (r1 != r2 && r1.getSrcStates().equals(r2.getSrcStates()) && r1.getPredicate().getArity() == r2.getPredicate().getArity())
+						Assert.assertTrue(r1.getPredicate().and(r2.getPredicate()).isEmpty());
+			Assert.assertTrue(FTAProperties.sameLanguage(fta, SymbolicFTAOps.toGenFTA(det, fta.getAlphabet())));
+			Assert.assertTrue(FTAProperties.sameLanguage(EasyFTAOps.complement(fta), SymbolicFTAOps.toGenFTA(SymbolicFTAOps.complement(sym), fta.getAlphabet())));
+			Assert.assertTrue(FTAProperties.sameLanguage(fta, SymbolicFTAOps.toGenFTA(SymbolicFTAOps.complete(sym, new NamedState<String>("bot")), fta.getAlphabet())));
+		}
+
+		// documents doc(item...(x),item...(x)) where x is any leaf except "stop"
+		RankedSymbol stop = new StdNamedRankedSymbol<String>("stop", 0);
+		RankedSymbol doc = new StdNamedRankedSymbol<String>("doc", 2);
+		State leaf = new NamedState<String>("leaf"), item = new NamedState<String>("item"), root = new NamedState<String>("root");
+		List<SymbolicFTARule<RankedSymbol,State>> rules = new ArrayList<SymbolicFTARule<RankedSymbol,State>>();
+		rules.add(new SymbolicFTARule<RankedSymbol,State>(SymbolPredicate.<RankedSymbol>allExcept(0, Collections.singleton(stop)), new ArrayList<State>(), leaf));
+		rules.add(new SymbolicFTARule<RankedSymbol,State>(SymbolPredicate.<RankedSymbol>matching(1, "item[0-9]*"), Util.makeList(leaf), item));
+		rules.add(new SymbolicFTARule<RankedSymbol,State>(SymbolPredicate.<RankedSymbol>of(doc), Util.makeList(item, item), root));
+		SymbolicFTA<RankedSymbol,State> sym = new SymbolicFTA<RankedSymbol,State>(rules, Collections.singleton(root));
+		SymbolicFTA<RankedSymbol,NamedState<Set<State>>> det = SymbolicFTAOps.determinize(sym);
+		SymbolicFTA<RankedSymbol,NamedState<Set<State>>> comp = SymbolicFTAOps.complement(sym);
+		SymbolicFTA<RankedSymbol,State> complete = SymbolicFTAOps.complete(sym, new NamedState<String>("bot"));
+		// 4 states: 2 rules for constants, 5 for arity 1 and 17 for arity 2, independent of the number of symbols
+		Assert.assertEquals(24, comp.getRules().size());
+		List<RankedSymbol> symbols = new ArrayList<RankedSymbol>();
+		for (String name: new String[]{"a", "b", "stop", "item", "item7", "itemx"})
+			symbols.add(new StdNamedRankedSymbol<String>(name, name.startsWith("item") ? 1 : 0));
+		symbols.add(doc);
+		symbols.add(new StdNamedRankedSymbol<String>("pair", 2));
+		List<Tree<RankedSymbol>> trees = new ArrayList<Tree<RankedSymbol>>();
+		Random random = new Random(20);
+		for (int i=0; i<300; i++)
+			trees.add(randomTree(symbols, random, 3));
+		for (RankedSymbol f: symbols)
+			for (RankedSymbol a: symbols)
+				if (f.getArity() == 1 && a.getArity() == 0) {
+					Tree<RankedSymbol> sub = new StdTree<RankedSymbol>(f, Util.makeList(new StdTree<RankedSymbol>(a)));
+					trees.add(new StdTree<RankedSymbol>(doc, Util.makeList(sub, sub)));
+				}
+		int accepted = 0;
+		for (Tree<RankedSymbol> t: trees) {
+			boolean expected = sym.decide(t);
+			if (expected)
+				accepted++;
+			Assert.assertEquals(expected, det.decide(t));
+			Assert.assertEquals(expected, complete.decide(t));
+			Assert.assertEquals(!expected, comp.decide(t));
+			Assert.assertEquals(1, complete.accessibleStates(t).size());
+			Assert.assertEquals(1, comp.accessibleStates(t).size());
+		}
+		// item and item7 with the leaves a and b
+		Assert.assertEquals(4, accepted);
+		Assert.assertTrue(sym.decide(new StdTree<RankedSymbol>(doc, Util.makeList(
+				new StdTree<RankedSymbol>(new StdNamedRankedSymbol<String>("item123", 1), Util.makeList(new StdTree<RankedSymbol>(new StdNamedRankedSymbol<String>("never seen", 0)))),
+				new StdTree<RankedSymbol>(new StdNamedRankedSymbol<String>("item", 1), Util.makeList(new StdTree<RankedSymbol>(new StdNamedRankedSymbol<String>("a", 0))))))));
+	}
+
+
+	/**
+	 * Creates a random tree over the given symbols with the given maximal height.
+	 *
+	 * @param symbols symbols of the tree, containing at least one constant
+	 * @param random source of randomness
+	 * @param height maximal height of the tree
+	 * @return random tree over the given symbols with the given maximal height
+	 */
+	private static Tree<RankedSymbol> randomTree(List<RankedSymbol> symbols, Random random, int height) {
+		RankedSymbol f;
+		do {
+			f = symbols.get(random.nextInt(symbols.size()));
+		} while (height == 0 && f.getArity() > 0);
+		List<Tree<RankedSymbol>> subTrees = new ArrayList<Tree<RankedSymbol>>();
+		for (int i=0; i<f.getArity(); i++)
+			subTrees.add(randomTree(symbols, random, height-1));
+		return new StdTree<RankedSymbol>(f, subTrees);
+	}
+
+
+	/**
+	 * Replaces the interned symbols of a tree by their names, which are the original symbols.
+	 *
+	 * @param t tree with interned symbols whose names are ranked symbols
+	 * @return tree with the original symbols
+	 */
+	private static Tree<RankedSymbol> uninterned(Tree<RankedSymbol> t) {
+		List<Tree<RankedSymbol>> subTrees = new ArrayList<Tree<RankedSymbol>>();
+		for (Tree<RankedSymbol> sub: t.getSubTrees())
+			subTrees.add(uninterned(sub));
+		return new StdTree<RankedSymbol>((RankedSymbol)((InternedRankedSymbol<?>)t.getSymbol()).getName(), subTrees);
+	}
 }
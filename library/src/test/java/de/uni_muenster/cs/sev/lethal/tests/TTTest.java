@@ -22,6 +22,7 @@
 package de.uni_muenster.cs.sev.lethal.tests;
 
 
+import java.math.BigInteger;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
@@ -30,6 +31,7 @@ import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.Random;
 import java.util.Set;
 
 import org.junit.Assert;
@@ -46,6 +48,7 @@ import de.uni_muenster.cs.sev.lethal.symbol.standard.NamedVariable;
 import de.uni_muenster.cs.sev.lethal.symbol.standard.StdNamedRankedSymbol;
 import de.uni_muenster.cs.sev.lethal.symbol.standard.StdVariable;
 import de.uni_muenster.cs.sev.lethal.tree.common.Tree;
+import de.uni_muenster.cs.sev.lethal.tree.common.TreeOps;
 import de.uni_muenster.cs.sev.lethal.tree.standard.StdBiTree;
 import de.uni_muenster.cs.sev.lethal.tree.standard.StdTree;
 import de.uni_muenster.cs.sev.lethal.treeautomata.common.FTAProperties;
@@ -56,7 +59,11 @@ import de.uni_muenster.cs.sev.lethal.treetransducer.EasyTT;
 import de.uni_muenster.cs.sev.lethal.treetransducer.EasyTTEpsRule;
 import de.uni_muenster.cs.sev.lethal.treetransducer.EasyTTRule;
 import de.uni_muenster.cs.sev.lethal.treetransducer.GenTT;
+import de.uni_muenster.cs.sev.lethal.treetransducer.OutputForest;
+import de.uni_muenster.cs.sev.lethal.treetransducer.TTRule;
+import de.uni_muenster.cs.sev.lethal.treetransducer.TTState;
 import de.uni_muenster.cs.sev.lethal.treetransducer.TTOps;
+import de.uni_muenster.cs.sev.lethal.utils.Pair;
 import de.uni_muenster.cs.sev.lethal.utils.RandomFTAGenerator;
 
 /**
@@ -516,7 +523,133 @@ public class TTTest {
 				}
 			}
 		}
+		for (int i=0; i< count; i++){
+			List<Set<Tree<RankedSymbol>>> runs = randomTT[i].doARunAll(Arrays.asList(randomTree));
+			for (int j= 0; j<count; j++)
+				Assert.assertEquals(randomTT[i].doARun(randomTree[j]), runs.get(j));
+		}
+
+	}
+
+
+
+
+	/**
+	 * Tests the output forests of tree transducers, test method for {@link GenTT#outputForest}.<br>
+	 * A transducer which doubles its outputs at each node is run on a tree whose set of outputs
+	 * could not be built, and the random tree transducers are compared with {@link GenTT#doARun}.
+	 */
+	@Test
+	public void testOutputForest() {
+		State qa = states.get(1);
+		State qb = states.get(2);
+		RankedSymbol g = new StdNamedRankedSymbol<String>("g", 1);
+		StdBiTree<RankedSymbol,Variable> x0 = new StdBiTree<RankedSymbol,Variable>(new StdVariable(0));
+		List<EasyTTRule> rules = new LinkedList<EasyTTRule>();
+		rules.add(new EasyTTRule(alphabet.get("a"), qa, variableTrees.get("tree_a")));
+		rules.add(new EasyTTRule(alphabet.get("a"), qb, variableTrees.get("tree_b")));
+		for (State q: Arrays.asList(qa, qb)) {
+			rules.add(new EasyTTRule(alphabet.get("d"), qa, new StdBiTree<RankedSymbol,Variable>(alphabet.get("d"), Util.makeList(x0)), q));
+			rules.add(new EasyTTRule(alphabet.get("d"), qb, new StdBiTree<RankedSymbol,Variable>(g, Util.makeList(x0)), q));
+		}
+		EasyTT doubler = new EasyTT(Arrays.asList(qa, qb), rules);
+
+		Tree<RankedSymbol> small = new StdTree<RankedSymbol>(alphabet.get("a"));
+		for (int i=0; i<10; i++)
+			small = new StdTree<RankedSymbol>(alphabet.get("d"), Util.makeList(small));
+		OutputForest<RankedSymbol> forest = doubler.outputForest(small);
+		Assert.assertEquals(BigInteger.valueOf(2048), forest.count());
+		Set<Tree<RankedSymbol>> enumerated = new HashSet<Tree<RankedSymbol>>();
+		for (Tree<RankedSymbol> t: forest)
+			enumerated.add(t);
+		Assert.assertEquals(2048, enumerated.size());
+		Assert.assertEquals(doubler.doARun(small), enumerated);
+		Assert.assertTrue(enumerated.contains(forest.sample(new Random(4711))));
+
+		Tree<RankedSymbol> big = new StdTree<RankedSymbol>(alphabet.get("a"));
+		for (int i=0; i<300; i++)
+			big = new StdTree<RankedSymbol>(alphabet.get("d"), Util.makeList(big));
+		forest = doubler.outputForest(big);
+		Assert.assertEquals(BigInteger.valueOf(2).pow(301), forest.count());
+		Assert.assertTrue(doubler.decide(big));
+		Assert.assertEquals(301, TreeOps.getHeight(forest.get(BigInteger.ZERO)));
+		Assert.assertEquals(301, TreeOps.getHeight(forest.get(forest.count().subtract(BigInteger.ONE))));
+		Assert.assertEquals(301, TreeOps.getHeight(forest.sample(new Random(4711))));
+		Assert.assertTrue(doubler.outputForest(new StdTree<RankedSymbol>(alphabet.get("b"))).isEmpty());
+
+		//random cases
+		Random random = new Random(4711);
+		for (int i=0; i< count; i++){
+			for (int j= 0; j<count; j++){
+				forest = randomTT[i].outputForest(randomTree[j]);
+				Set<Tree<RankedSymbol>> outputs = forest.toSet();
+				Assert.assertEquals(randomTT[i].doARun(randomTree[j]), outputs);
+				Assert.assertEquals(FTAProperties.decide(randomTT[i],randomTree[j]), !forest.isEmpty());
+				Assert.assertTrue(forest.count().compareTo(BigInteger.valueOf(outputs.size())) >= 0);
+				if (forest.count().compareTo(BigInteger.valueOf(10000)) <= 0) {
+					enumerated.clear();
+					for (Tree<RankedSymbol> t: forest)
+						enumerated.add(t);
+					Assert.assertEquals(outputs, enumerated);
+				}
+				if (!forest.isEmpty())
+					Assert.assertTrue(outputs.contains(forest.sample(random)));
+			}
+		}
+	}
+
+
 
+
+	/**
+	 * Tests the detection of deterministic tree transducers and their fast path,
+	 * test method for {@link GenTT#isDeterministic} and {@link GenTT#transduce}.<br>
+	 * The random tree transducers are made deterministic by keeping one rule per left hand side,
+	 * then their only translations must be the translations given by the output forests.
+	 * A tree transducer with two rules for the same left hand side must be rejected by transduce.
+	 */
+	@Test
+	public void testDeterministic() {
+		for (int i=0; i< count; i++){
+			Map<Pair<RankedSymbol,List<TTState<State,RankedSymbol>>>,TTRule<RankedSymbol,RankedSymbol,State>> lhs =
+				new HashMap<Pair<RankedSymbol,List<TTState<State,RankedSymbol>>>,TTRule<RankedSymbol,RankedSymbol,State>>();
+			for (TTRule<RankedSymbol,RankedSymbol,State> rule: randomTT[i].getRules()){
+				Pair<RankedSymbol,List<TTState<State,RankedSymbol>>> key =
+					new Pair<RankedSymbol,List<TTState<State,RankedSymbol>>>(rule.getSymbol(), rule.getSrcStates());
+				if (!lhs.containsKey(key))
+					lhs.put(key, rule);
+			}
+			Assert.assertEquals(lhs.size() == randomTT[i].getRules().size(), randomTT[i].isDeterministic());
+			List<State> finals = new LinkedList<State>();
+			for (TTState<State,RankedSymbol> q: randomTT[i].getFinalStates())
+				finals.add(q.getState());
+			EasyTT det = new EasyTT(finals, lhs.values());
+			Assert.assertTrue(det.isDeterministic());
+
+			for (int j= 0; j<count; j++){
+				Set<Tree<RankedSymbol>> outputs = det.outputForest(randomTree[j]).toSet();
+				Tree<RankedSymbol> out = det.transduce(randomTree[j]);
+				if (out == null)
+					Assert.assertTrue(outputs.isEmpty());
+				else
+					Assert.assertEquals(Collections.singleton(out), outputs);
+				Assert.assertEquals(outputs, det.doARun(randomTree[j]));
+				Assert.assertEquals(out != null, det.decide(randomTree[j]));
+			}
+		}
+
+		// two rules for the constant a
+		List<EasyTTRule> rules = new LinkedList<EasyTTRule>();
+		rules.add(new EasyTTRule(alphabet.get("a"), states.get(1), variableTrees.get("tree_a")));
+		rules.add(new EasyTTRule(alphabet.get("a"), states.get(2), variableTrees.get("tree_b")));
+		EasyTT nondet = new EasyTT(Arrays.asList(states.get(1), states.get(2)), rules);
+		Assert.assertFalse(nondet.isDeterministic());
+		try {
+			nondet.transduce(new StdTree<RankedSymbol>(alphabet.get("a")));
+			Assert.fail("transduce() must only be used with deterministic tree transducers.");
+		} catch (IllegalStateException e) {
+			// expected
+		}
 	}
 
 